@@ -415,6 +415,25 @@ CREATE INDEX events_performance2 ON events (rtnApplicable ASC, rtnTs ASC);
 CREATE INDEX events_performance3 ON events (typeName ASC, subTypeName ASC, typeRef1 ASC);
 CREATE INDEX events_performance4 ON events (typeName ASC, typeRef1 ASC);
 
+--
+-- Summary of data point events, one row per data point, event detector, alarm level, message and read permission
+CREATE TABLE dataPointEventCounts
+(
+    dataPointId      INT    NOT NULL,
+    eventDetectorId  INT    NOT NULL,
+    alarmLevel       INT    NOT NULL,
+    readPermissionId INT    NOT NULL,
+    message          LONGTEXT,
+    messageHash      VARCHAR(64) NOT NULL,
+    eventCount       INT    NOT NULL,
+    latestActiveTs   BIGINT NOT NULL,
+    latestRtnTs      BIGINT
+);
+ALTER TABLE dataPointEventCounts
+    ADD CONSTRAINT dataPointEventCountsFk1 FOREIGN KEY (readPermissionId) REFERENCES permissions (id) ON DELETE CASCADE;
+ALTER TABLE dataPointEventCounts
+    ADD CONSTRAINT dataPointEventCountsUn1 UNIQUE (dataPointId, eventDetectorId, alarmLevel, readPermissionId, messageHash);
+
 --
 --
 -- Event handlers
@@ -341,6 +341,24 @@ CREATE INDEX events_performance2 ON events (rtnApplicable ASC, rtnTs ASC);
 CREATE INDEX events_performance3 ON events (typeName ASC, subTypeName ASC, typeRef1 ASC);
 CREATE INDEX events_performance4 ON events (typeName ASC, typeRef1 ASC);
 
+--
+--
+-- Summary of data point events, one row per data point, event detector, alarm level, message and read permission
+--
+create table dataPointEventCounts (
+  dataPointId int not null,
+  eventDetectorId int not null,
+  alarmLevel int not null,
+  readPermissionId int not null,
+  message nvarchar(max),
+  messageHash nvarchar(64) not null,
+  eventCount int not null,
+  latestActiveTs bigint not null,
+  latestRtnTs bigint
+);
+ALTER TABLE dataPointEventCounts ADD CONSTRAINT dataPointEventCountsFk1 FOREIGN KEY (readPermissionId) REFERENCES permissions(id) ON DELETE CASCADE;
+ALTER TABLE dataPointEventCounts ADD CONSTRAINT dataPointEventCountsUn1 UNIQUE (dataPointId, eventDetectorId, alarmLevel, readPermissionId, messageHash);
+
 --
 --
 -- Event handlers
@@ -351,6 +351,23 @@ CREATE INDEX events_performance2 ON events (rtnApplicable ASC, rtnTs ASC);
 CREATE INDEX events_performance3 ON events (typeName ASC, subTypeName ASC, typeRef1 ASC);
 CREATE INDEX events_performance4 ON events (typeName ASC, typeRef1 ASC);
 
+--
+-- Summary of data point events, one row per data point, event detector, alarm level, message and read permission
+--
+CREATE TABLE dataPointEventCounts (
+    dataPointId int NOT NULL,
+    eventDetectorId int NOT NULL,
+    alarmLevel int NOT NULL,
+    readPermissionId int NOT NULL,
+    message longtext,
+    messageHash varchar(64) NOT NULL,
+    eventCount int NOT NULL,
+    latestActiveTs bigint NOT NULL,
+    latestRtnTs bigint
+);
+ALTER TABLE dataPointEventCounts ADD CONSTRAINT dataPointEventCountsFk1 FOREIGN KEY (readPermissionId) REFERENCES permissions(id) ON DELETE CASCADE;
+ALTER TABLE dataPointEventCounts ADD CONSTRAINT dataPointEventCountsUn1 UNIQUE (dataPointId, eventDetectorId, alarmLevel, readPermissionId, messageHash);
+
 --
 -- Event handlers
 --
@@ -4,18 +4,53 @@
 
 package com.infiniteautomation.mango.benchmarks;
 
+import java.util.Locale;
+
 import org.junit.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
-import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+/**
+ * Runs the benchmarks in the subclass. Results are written in a machine-readable format (JSON by default), the
+ * following system properties may be used to configure the run:
+ * <ul>
+ *     <li>benchmark.resultFormat - one of JSON, CSV, SCSV, TEXT, LATEX</li>
+ *     <li>benchmark.resultFile - defaults to target/jmh-&lt;benchmark class&gt;.&lt;format&gt;</li>
+ *     <li>benchmark.param.&lt;name&gt; - comma separated values which override the values of a @Param</li>
+ *     <li>benchmark.profilers - comma separated list of JMH profilers to enable, e.g. gc</li>
+ * </ul>
+ */
 public class BenchmarkRunner {
+
+    public static final String PARAM_PREFIX = "benchmark.param.";
+
     @Test
     public void runBenchmark() throws RunnerException {
-        Options opts = new OptionsBuilder()
+        ResultFormatType format = ResultFormatType.valueOf(System.getProperty("benchmark.resultFormat", "JSON").toUpperCase(Locale.ROOT));
+        String resultFile = System.getProperty("benchmark.resultFile",
+                "target/jmh-" + getClass().getSimpleName() + "." + format.name().toLowerCase(Locale.ROOT));
+
+        ChainedOptionsBuilder builder = new OptionsBuilder()
                 .include(getClass().getName())
-                .build();
-        new Runner(opts).run();
+                .resultFormat(format)
+                .result(resultFile);
+
+        String profilers = System.getProperty("benchmark.profilers", "");
+        for (String profiler : profilers.split(",")) {
+            if (!profiler.isBlank()) {
+                builder.addProfiler(profiler.trim());
+            }
+        }
+
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(PARAM_PREFIX)) {
+                builder.param(name.substring(PARAM_PREFIX.length()), System.getProperty(name).split(","));
+            }
+        }
+
+        new Runner(builder.build()).run();
     }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.benchmarks;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.serotonin.m2m2.MockMangoProperties;
+import com.serotonin.m2m2.rt.dataImage.DataPointListener;
+import com.serotonin.m2m2.rt.dataImage.DataPointListenerRegistry;
+import com.serotonin.m2m2.rt.dataImage.PointValueTime;
+import com.serotonin.m2m2.vo.DataPointVO;
+import com.serotonin.provider.Providers;
+import com.serotonin.util.properties.MangoProperties;
+
+/**
+ * Dispatch and subscribe/unsubscribe cost of the {@link DataPointListenerRegistry} for a data point with many
+ * listeners (e.g. websocket and script subscriptions).
+ */
+public class DataPointListenerBenchmarks extends BenchmarkRunner {
+
+    @State(Scope.Benchmark)
+    public static class RegistryParams {
+
+        @Param({"10", "1000", "10000"})
+        public int listeners;
+
+        public final ConcurrentMap<Integer, DataPointListener> registries = new ConcurrentHashMap<>();
+        public final PointValueTime value = new PointValueTime(1.0, 1);
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Providers.add(MangoProperties.class, new MockMangoProperties());
+            for (int i = 0; i < listeners; i++) {
+                CountingListener listener = new CountingListener();
+                registries.compute(1, (k, v) -> DataPointListenerRegistry.add(v, listener));
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Fork(1)
+    @BenchmarkMode(Mode.AverageTime)
+    @Measurement(iterations = 5, time = 5)
+    @Warmup(iterations = 1, time = 5)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void dispatch(RegistryParams params) {
+        params.registries.get(1).pointUpdated(params.value);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @Fork(1)
+    @BenchmarkMode(Mode.AverageTime)
+    @Measurement(iterations = 5, time = 5)
+    @Warmup(iterations = 1, time = 5)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void subscribeUnsubscribe(RegistryParams params) {
+        CountingListener listener = new CountingListener();
+        params.registries.compute(1, (k, v) -> DataPointListenerRegistry.add(v, listener));
+        params.registries.compute(1, (k, v) -> DataPointListenerRegistry.remove(v, listener));
+    }
+
+    private static class CountingListener implements DataPointListener {
+        private long updated;
+
+        @Override
+        public String getListenerName() {
+            return "Benchmark listener";
+        }
+
+        @Override
+        public void pointInitialized() {
+        }
+
+        @Override
+        public void pointUpdated(PointValueTime newValue) {
+            updated++;
+        }
+
+        @Override
+        public void pointChanged(PointValueTime oldValue, PointValueTime newValue) {
+        }
+
+        @Override
+        public void pointSet(PointValueTime oldValue, PointValueTime newValue) {
+        }
+
+        @Override
+        public void pointBackdated(PointValueTime value) {
+        }
+
+        @Override
+        public void pointTerminated(DataPointVO vo) {
+        }
+
+        @Override
+        public void pointLogged(PointValueTime value) {
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.infiniteautomation.mango.spring.components.executors.MangoExecutors;
+import com.serotonin.m2m2.Common;
+
+/**
+ * Measures the latency from task completion to completion of the {@link CompletableFuture} returned by
+ * {@link MangoExecutors#makeCompletable(java.util.concurrent.Future)} with a number of other futures pending.
+ */
+public class FutureCompletion extends BenchmarkRunner {
+
+    @State(Scope.Benchmark)
+    public static class FutureCompletionParams {
+
+        @Param({"10", "1000", "10000"})
+        public int pendingFutures;
+
+        public MangoExecutors executors;
+        private final List<FutureTask<Object>> pending = new ArrayList<>();
+
+        @Setup(Level.Trial)
+        public void setupTrial(MockMango mango) {
+            this.executors = Common.getBean(MangoExecutors.class);
+            for (int i = 0; i < pendingFutures; i++) {
+                // futures which never complete, each has a timeout and is checked periodically
+                FutureTask<Object> task = new FutureTask<>(Object::new);
+                executors.makeCompletable(task, 1, TimeUnit.HOURS);
+                pending.add(task);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDownTrial() {
+            pending.forEach(task -> task.cancel(false));
+            pending.clear();
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    @Fork(1)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object executorTask(FutureCompletionParams params) throws ExecutionException, InterruptedException {
+        return params.executors.makeCompletable(params.executors.getExecutor().submit(Object::new)).get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    @Fork(1)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object foreignFuture(FutureCompletionParams params) throws ExecutionException, InterruptedException {
+        FutureTask<Object> task = new FutureTask<>(Object::new);
+        CompletableFuture<Object> future = params.executors.makeCompletable(task);
+        params.executors.getExecutor().execute(task);
+        return future.get();
+    }
+}
@@ -17,12 +17,14 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
 
+import com.infiniteautomation.mango.permission.MangoPermission;
 import com.infiniteautomation.mango.spring.service.DataPointService;
 import com.infiniteautomation.mango.spring.service.EventDetectorsService;
 import com.serotonin.m2m2.Common;
@@ -53,6 +55,14 @@ public class MockMango extends MangoTestBase {
      * Create points asynchronously and wait for all to be created
      */
     public List<DataPointVO> createDataPoints(int count, Map<String, String> tags) throws ExecutionException, InterruptedException {
+        return createDataPoints(count, tags, null);
+    }
+
+    /**
+     * Create points with a read permission asynchronously and wait for all to be created
+     * @param readPermission if null the default read permission is used
+     */
+    public List<DataPointVO> createDataPoints(int count, Map<String, String> tags, @Nullable MangoPermission readPermission) throws ExecutionException, InterruptedException {
         MockDataSourceVO ds = createMockDataSource();
         DataPointService service = Common.getBean(DataPointService.class);
         List<CompletableFuture<DataPointVO>> points = new ArrayList<>();
@@ -64,6 +74,9 @@ public class MockMango extends MangoTestBase {
             dp.setPointLocator(new MockPointLocatorVO(DataType.NUMERIC, true));
             dp.setDataSourceId(ds.getId());
             dp.setTags(tags);
+            if (readPermission != null) {
+                dp.setReadPermission(readPermission);
+            }
             points.add(service.insertAsync(dp).toCompletableFuture());
 
         }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.infiniteautomation.mango.pointvaluecache.ConcurrentMapPointValueCache;
+import com.infiniteautomation.mango.pointvaluecache.OffHeapPointValueCache;
+import com.infiniteautomation.mango.pointvaluecache.PointValueCache;
+import com.serotonin.m2m2.rt.dataImage.PointValueTime;
+import com.serotonin.m2m2.vo.DataPointVO;
+
+/**
+ * Compares the on heap {@link ConcurrentMapPointValueCache} to the {@link OffHeapPointValueCache}. Each invocation
+ * prepends a new value to the cache of every point, as DataPointRT does when a value is updated, and reads the cache back.
+ *
+ * <p>The heap occupancy of the filled cache is printed during setup, run with -Dbenchmark.profilers=gc to record the
+ * allocation rate and the GC count and time for each implementation.</p>
+ */
+public class PointValueCacheBenchmarks extends BenchmarkRunner {
+
+    @State(Scope.Benchmark)
+    public static class CacheParams {
+
+        @Param({"heap", "offHeap"})
+        public String implementation;
+
+        @Param({"10000", "100000"})
+        public int points;
+
+        @Param({"1", "10"})
+        public int cacheSize;
+
+        public PointValueCache cache;
+        public List<DataPointVO> vos;
+        public long time;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            this.vos = new ArrayList<>(points);
+            for (int i = 0; i < points; i++) {
+                DataPointVO vo = new DataPointVO();
+                vo.setSeriesId(i);
+                vo.setDefaultCacheSize(cacheSize);
+                vos.add(vo);
+            }
+
+            long before = usedHeap();
+            this.cache = "offHeap".equals(implementation) ?
+                    new OffHeapPointValueCache(null, 8 * 1024 * 1024) :
+                    new ConcurrentMapPointValueCache(new ConcurrentHashMap<>(), null);
+
+            for (DataPointVO vo : vos) {
+                List<PointValueTime> values = new ArrayList<>(cacheSize);
+                for (int j = 0; j < cacheSize; j++) {
+                    values.add(new PointValueTime((double) j, cacheSize - j));
+                }
+                cache.updateCache(vo, values);
+            }
+            this.time = cacheSize + 1;
+
+            System.out.printf("%n%s cache with %d points x %d values uses %d KiB of heap%n",
+                    implementation, points, cacheSize, (usedHeap() - before) / 1024);
+        }
+
+        private static long usedHeap() {
+            Runtime runtime = Runtime.getRuntime();
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+            }
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+    @BenchmarkMode(Mode.AverageTime)
+    @Measurement(iterations = 5, time = 10)
+    @Warmup(iterations = 1, time = 10)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void updateAndRead(CacheParams params, Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long time = params.time++;
+
+        for (DataPointVO vo : params.vos) {
+            List<PointValueTime> existing = params.cache.getCache(vo).orElseThrow();
+            List<PointValueTime> values = new ArrayList<>(params.cacheSize);
+            values.add(new PointValueTime(random.nextDouble(), time));
+            values.addAll(existing.subList(0, Math.min(existing.size(), params.cacheSize - 1)));
+            params.cache.updateCache(vo, values);
+            blackhole.consume(values);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.serotonin.m2m2.MockMangoProperties;
+import com.serotonin.m2m2.util.log.LogLevel;
+import com.serotonin.m2m2.util.log.ProcessLog;
+import com.serotonin.provider.Providers;
+import com.serotonin.util.properties.MangoProperties;
+
+/**
+ * Throughput of a rolling {@link ProcessLog} written to by 64 threads, as when many data sources log at DEBUG level.
+ */
+public class ProcessLogBenchmarks extends BenchmarkRunner {
+
+    @State(Scope.Benchmark)
+    public static class LogParams {
+
+        @Param({"BLOCK", "DROP_DEBUG", "DROP_OLDEST"})
+        public String overflowPolicy;
+
+        @Param({"false", "true"})
+        public boolean includeLocationInfo;
+
+        public ProcessLog log;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            MockMangoProperties properties = new MockMangoProperties();
+            properties.setProperty("processLog.overflowPolicy", overflowPolicy);
+            Providers.add(MangoProperties.class, properties);
+            this.log = new ProcessLog("processLog.", "benchmark", LogLevel.DEBUG, includeLocationInfo, 10 * 1024 * 1024, 5);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            log.close();
+            for (File file : log.getFiles()) {
+                file.delete();
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(64)
+    @Fork(1)
+    @BenchmarkMode(Mode.Throughput)
+    @Measurement(iterations = 5, time = 10)
+    @Warmup(iterations = 1, time = 10)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void debug(LogParams params) {
+        params.log.debug("Polled 10 registers from slave 1 in 12ms");
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.benchmarks;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.infiniteautomation.mango.spring.service.MangoJavaScriptService;
+import com.infiniteautomation.mango.util.script.ScriptPermissions;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.DataType;
+import com.serotonin.m2m2.i18n.TranslatableMessage;
+import com.serotonin.m2m2.rt.dataImage.types.DataValue;
+import com.serotonin.m2m2.rt.event.AlarmLevels;
+import com.serotonin.m2m2.rt.event.EventInstance;
+import com.serotonin.m2m2.rt.event.handlers.SetPointHandlerRT;
+import com.serotonin.m2m2.rt.event.handlers.SetPointHandlerScripts;
+import com.serotonin.m2m2.rt.event.type.DataPointEventType;
+import com.serotonin.m2m2.vo.event.SetPointEventHandlerVO;
+import com.serotonin.m2m2.vo.permission.PermissionHolder;
+
+/**
+ * Set point handler script throughput. "fresh" compiles and initializes the script for every event as the handler
+ * runtime used to, "pooled" reuses the initialized script contexts of the handler.
+ */
+public class SetPointHandlerScriptBenchmarks extends BenchmarkRunner {
+
+    @State(Scope.Benchmark)
+    public static class ScriptParams {
+
+        @Param({"fresh", "pooled"})
+        public String mode;
+
+        public MangoJavaScriptService service;
+        public SetPointEventHandlerVO vo;
+        public SetPointHandlerScripts scripts;
+        public SetPointHandlerRT rt;
+        public final AtomicInteger eventId = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setup(MockMango mango) {
+            this.service = Common.getBean(MangoJavaScriptService.class);
+            this.vo = new SetPointEventHandlerVO();
+            vo.setXid("EH_BENCHMARK");
+            vo.setActiveAction(SetPointEventHandlerVO.SET_ACTION_SCRIPT_VALUE);
+            vo.setActiveScript("var total = 0; for (var i = 0; i < 10; i++) { total += i; } return evt.getId() + total;");
+            vo.setScriptRoles(new ScriptPermissions(Collections.singleton(PermissionHolder.SUPERADMIN_ROLE)));
+            this.scripts = new SetPointHandlerScripts(vo, service);
+            this.rt = new SetPointHandlerRT(vo, scripts);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    @Fork(1)
+    @BenchmarkMode(Mode.Throughput)
+    @Measurement(iterations = 5, time = 5)
+    @Warmup(iterations = 1, time = 5)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public DataValue executeScript(ScriptParams params) throws Exception {
+        SetPointHandlerScripts scripts = "pooled".equals(params.mode) ? params.scripts :
+                new SetPointHandlerScripts(params.vo, params.service);
+
+        EventInstance evt = new EventInstance(new DataPointEventType(1, 1), Common.timer.currentTimeMillis(), true,
+                AlarmLevels.CRITICAL, new TranslatableMessage("common.default", "benchmark"), new HashMap<>());
+        evt.setId(params.eventId.incrementAndGet());
+        return scripts.execute(true, params.rt, evt, new HashMap<>(), evt.getActiveTimestamp(), DataType.NUMERIC);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.serotonin.m2m2.db.dao.SystemSettingsDao;
+
+/**
+ * Repeated reads of a system setting, parsing the cached string value on every read compared to reading the
+ * parsed value through a live supplier.
+ */
+@Threads(4)
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@Measurement(iterations = 5, time = 5)
+@Warmup(iterations = 1, time = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SystemSettingsReadBenchmarks extends BenchmarkRunner {
+
+    @State(Scope.Benchmark)
+    public static class SettingsParams {
+        public SystemSettingsDao dao;
+        public IntSupplier periods;
+
+        @Setup(Level.Trial)
+        public void setup(MockMango mango) {
+            this.dao = SystemSettingsDao.getInstance();
+            dao.setIntValue(SystemSettingsDao.FUTURE_DATE_LIMIT_PERIODS, 12);
+            this.periods = dao.getIntSupplier(SystemSettingsDao.FUTURE_DATE_LIMIT_PERIODS_SETTING);
+        }
+    }
+
+    @Benchmark
+    public int getIntValue(SettingsParams params) {
+        return params.dao.getIntValue(SystemSettingsDao.FUTURE_DATE_LIMIT_PERIODS);
+    }
+
+    @Benchmark
+    public int intSupplier(SettingsParams params) {
+        return params.periods.getAsInt();
+    }
+
+    @Benchmark
+    public long futureDateLimit(SettingsParams params) {
+        return params.dao.getFutureDateLimit();
+    }
+}
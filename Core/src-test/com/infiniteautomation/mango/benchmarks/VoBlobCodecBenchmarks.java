@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.measure.unit.SI;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.serotonin.m2m2.DataType;
+import com.serotonin.m2m2.db.dao.codec.MockBlobEncoderDefinition;
+import com.serotonin.m2m2.db.dao.codec.VoBlobCodec;
+import com.serotonin.m2m2.view.text.AnalogRenderer;
+import com.serotonin.m2m2.view.text.MultistateRenderer;
+import com.serotonin.m2m2.view.text.TextRenderer;
+import com.serotonin.m2m2.vo.DataPointVO;
+import com.serotonin.m2m2.vo.dataPoint.MockPointLocatorVO;
+import com.serotonin.util.SerializationHelper;
+
+/**
+ * Compares encoding and decoding the data column of a data point using {@link VoBlobCodec} (binary) and Java
+ * serialization via {@link SerializationHelper} (java). The size of the encoded blob is printed during setup.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@Measurement(iterations = 5, time = 5)
+@Warmup(iterations = 2, time = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VoBlobCodecBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+
+    @State(Scope.Benchmark)
+    public static class CodecParams {
+
+        @Param({"binary", "java"})
+        public String format;
+
+        @Param({"analog", "multistate"})
+        public String renderer;
+
+        public VoBlobCodec codec;
+        public DataPointVO vo;
+        public byte[] data;
+
+        @Setup
+        public void setup() {
+            codec = new VoBlobCodec(true);
+            new MockBlobEncoderDefinition().getEncoders().forEach(codec::register);
+
+            vo = new DataPointVO();
+            vo.setUnit(SI.CELSIUS);
+            vo.setPointLocator(new MockPointLocatorVO(DataType.NUMERIC, true));
+            TextRenderer textRenderer;
+            if ("multistate".equals(renderer)) {
+                MultistateRenderer multistate = new MultistateRenderer();
+                for (int i = 0; i < 10; i++) {
+                    multistate.addMultistateValue(i, "state " + i, "#00000" + i);
+                }
+                textRenderer = multistate;
+            } else {
+                textRenderer = new AnalogRenderer("0.00", "", true);
+            }
+            vo.setTextRenderer(textRenderer);
+
+            data = encodeVo(this);
+            System.out.printf("%n%s/%s blob size: %d bytes%n", format, renderer, data.length);
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(CodecParams params) {
+        return encodeVo(params);
+    }
+
+    @Benchmark
+    public Object decode(CodecParams params) {
+        if ("java".equals(params.format)) {
+            return SerializationHelper.readObjectInContextFromArray(params.data);
+        }
+        return params.codec.decode(params.data);
+    }
+
+    private static byte[] encodeVo(CodecParams params) {
+        if ("java".equals(params.format)) {
+            return SerializationHelper.writeObjectToArray(params.vo);
+        }
+        return params.codec.encode(params.vo);
+    }
+}
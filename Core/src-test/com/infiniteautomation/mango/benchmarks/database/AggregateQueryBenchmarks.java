@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.benchmarks.database;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.infiniteautomation.mango.benchmarks.BenchmarkRunner;
+import com.infiniteautomation.mango.benchmarks.MockMango;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.db.dao.BatchPointValueImpl;
+import com.serotonin.m2m2.db.dao.PointValueDao;
+import com.serotonin.m2m2.db.dao.pointvalue.AggregateDao;
+import com.serotonin.m2m2.rt.dataImage.PointValueTime;
+import com.serotonin.m2m2.vo.DataPointVO;
+
+/**
+ * Measures aggregate queries via the {@link AggregateDao} over previously inserted values. Each invocation queries the
+ * aggregates for batchSize points over the full time range of the inserted values. The database is selected via the
+ * databaseType param, see {@link PointValueIngestBenchmarks}.
+ */
+public class AggregateQueryBenchmarks extends BenchmarkRunner {
+
+    public static class DatabaseMockMango extends MockMango {
+
+        @Param({"h2:mem"})
+        public String databaseType;
+
+        @Override
+        protected void preInitialize() throws Exception {
+            properties.setProperty("db.test.type", databaseType);
+            MangoTestBase.setupTestDB();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkParams {
+
+        @Param({"10", "100"})
+        public int points;
+
+        /**
+         * Number of values inserted for each point
+         */
+        @Param({"10000"})
+        public int valuesPerPoint;
+
+        /**
+         * Time between the inserted values
+         */
+        @Param({"PT1S", "PT1M"})
+        public String valuePeriod;
+
+        @Param({"PT15M", "PT1H"})
+        public String aggregationPeriod;
+
+        /**
+         * Number of points queried per invocation
+         */
+        @Param({"1", "10"})
+        public int batchSize;
+
+        public List<DataPointVO> dataPoints;
+        public AggregateDao aggregateDao;
+        public ZonedDateTime from;
+        public ZonedDateTime to;
+        public Duration period;
+        public int next;
+
+        @Setup(Level.Trial)
+        public void setupTrial(DatabaseMockMango mango) throws ExecutionException, InterruptedException {
+            this.dataPoints = mango.createDataPoints(points, Collections.emptyMap());
+            PointValueDao pointValueDao = Common.getBean(PointValueDao.class);
+            this.aggregateDao = pointValueDao.getAggregateDao();
+            this.period = Duration.parse(aggregationPeriod);
+
+            long step = Duration.parse(valuePeriod).toMillis();
+            this.from = ZonedDateTime.ofInstant(Instant.now().truncatedTo(ChronoUnit.DAYS), ZoneOffset.UTC)
+                    .minus(step * valuesPerPoint, ChronoUnit.MILLIS);
+            this.to = from.plus(step * valuesPerPoint, ChronoUnit.MILLIS);
+
+            long start = from.toInstant().toEpochMilli();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (DataPointVO point : dataPoints) {
+                pointValueDao.savePointValues(IntStream.range(0, valuesPerPoint)
+                        .mapToObj(i -> new BatchPointValueImpl<>(point, new PointValueTime(random.nextDouble(), start + i * step))));
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Fork(1)
+    @BenchmarkMode({Mode.AverageTime})
+    @Measurement(iterations = 5, time = 10)
+    @Warmup(iterations = 1, time = 10)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void queryAggregates(BenchmarkParams params, Blackhole blackhole) {
+        for (int i = 0; i < params.batchSize; i++) {
+            DataPointVO point = params.dataPoints.get(params.next++ % params.points);
+            try (var stream = params.aggregateDao.query(point, params.from, params.to, null, params.period)) {
+                stream.forEach(blackhole::consume);
+            }
+        }
+    }
+}
@@ -16,6 +16,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
 import org.junit.Assert;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -35,11 +37,16 @@ import org.springframework.context.annotation.Bean;
 
 import com.infiniteautomation.mango.benchmarks.BenchmarkRunner;
 import com.infiniteautomation.mango.benchmarks.MockMango;
+import com.infiniteautomation.mango.db.query.ConditionSortLimitWithTagKeys;
+import com.infiniteautomation.mango.db.tables.Events;
 import com.infiniteautomation.mango.spring.service.EventInstanceService;
+import com.infiniteautomation.mango.util.RQLUtils;
 import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MockMangoProperties;
 import com.serotonin.m2m2.db.DatabaseProxy;
 import com.serotonin.m2m2.db.DatabaseProxyFactory;
 import com.serotonin.m2m2.db.DatabaseType;
+import com.serotonin.m2m2.db.dao.EventDao;
 import com.serotonin.m2m2.db.dao.EventDetectorDao;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.rt.EventManagerImpl;
@@ -88,6 +95,17 @@ public class DataPointEventsBenchmarks extends BenchmarkRunner {
         @Param({"false"})
         public boolean loadReadPermission;
 
+        /**
+         * Returned to normal events copied from the raised events, used to compare the data point event counts
+         * query against the events table and the summary table on a large history
+         */
+        @Param({"0"})
+        public int historicalEvents;
+
+        @Param({"true"})
+        public boolean useSummaryTable;
+
+        public int expectedEvents;
         public EventInstanceService eventInstanceService;
         public Map<String, String> tags = new HashMap<>();
 
@@ -96,6 +114,7 @@ public class DataPointEventsBenchmarks extends BenchmarkRunner {
         @Setup(Level.Trial)
         public void setupTrial(RealEventManagerMockMango mockMango) {
             this.mango = mockMango;
+            ((MockMangoProperties) Common.envProps).setProperty("events.dataPointEventCounts.useSummaryTable", Boolean.toString(useSummaryTable));
             this.eventInstanceService = Common.getBean(EventInstanceService.class);
         }
 
@@ -129,6 +148,38 @@ public class DataPointEventsBenchmarks extends BenchmarkRunner {
                     }
                 }
             }
+            this.expectedEvents = dataPoints;
+
+            if (historicalEvents > 0) {
+                this.expectedEvents = insertHistoricalEvents();
+            }
+        }
+
+        /**
+         * Doubles the events table by copying the existing events as returned to normal events until it holds
+         * the requested number of historical events, then rebuilds the summary table.
+         *
+         * @return total number of events
+         */
+        private int insertHistoricalEvents() {
+            DSLContext create = Common.getBean(DatabaseProxy.class).getContext();
+            Events events = Events.EVENTS;
+            int total = create.fetchCount(events);
+            while (total < dataPoints + historicalEvents) {
+                int limit = Math.min(total, dataPoints + historicalEvents - total);
+                total += create.insertInto(events, events.typeName, events.subTypeName, events.typeRef1, events.typeRef2,
+                        events.activeTs, events.rtnApplicable, events.rtnTs, events.rtnCause, events.alarmLevel,
+                        events.message, events.readPermissionId)
+                        .select(DSL.select(events.typeName, events.subTypeName, events.typeRef1, events.typeRef2,
+                                events.activeTs.minus(total), DSL.inline("Y"), events.activeTs.minus(total).plus(1),
+                                DSL.inline(1), events.alarmLevel, events.message, events.readPermissionId)
+                                .from(events)
+                                .orderBy(events.id)
+                                .limit(limit))
+                        .execute();
+            }
+            Common.getBean(EventDao.class).rebuildDataPointEventCounts();
+            return total;
         }
     }
 
@@ -148,7 +199,7 @@ public class DataPointEventsBenchmarks extends BenchmarkRunner {
             count.getAndIncrement();
             blackhole.consume(evt);
         });
-        Assert.assertEquals(params.dataPoints, count.get());
+        Assert.assertEquals(params.expectedEvents, count.get());
     }
 
     @Benchmark
@@ -174,6 +225,28 @@ public class DataPointEventsBenchmarks extends BenchmarkRunner {
             blackhole.consume(evt);
         });
 
-        Assert.assertEquals(params.dataPoints, count.get());
+        Assert.assertEquals(params.expectedEvents, count.get());
+    }
+
+    /**
+     * Run with -p historicalEvents=10000000 -p useSummaryTable=true,false to compare the summary table with grouping
+     * the events table
+     */
+    @Benchmark
+    @Threads(1)
+    @Fork(1)
+    @BenchmarkMode({Mode.SampleTime})
+    @Measurement(iterations = 1, batchSize = 5)
+    @Warmup(iterations = 0)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void queryDataPointEventCounts(BenchmarkParams params, Blackhole blackhole) {
+        AtomicInteger count = new AtomicInteger();
+        ConditionSortLimitWithTagKeys conditions = params.eventInstanceService.createEventCountsConditions(
+                RQLUtils.parseRQLtoAST(""));
+        params.eventInstanceService.queryDataPointEventCountsByRQL(conditions, null, null, row -> {
+            count.addAndGet(row.getCount());
+            blackhole.consume(row);
+        });
+        Assert.assertEquals(params.expectedEvents, count.get());
     }
 }
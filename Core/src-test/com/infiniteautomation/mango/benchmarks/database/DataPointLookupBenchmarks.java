@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.benchmarks.database;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.infiniteautomation.mango.benchmarks.BenchmarkRunner;
+import com.infiniteautomation.mango.benchmarks.MockMango;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.db.dao.DataPointDao;
+import com.serotonin.m2m2.vo.DataPointVO;
+
+/**
+ * Measures the throughput of data point lookups by XID and by id, with the DAO cache disabled (cacheSize 0) and
+ * enabled. Points are looked up at random so the hit rate depends on the number of points and the cache size.
+ * The database is selected via the databaseType param, see {@link PointValueIngestBenchmarks}.
+ */
+public class DataPointLookupBenchmarks extends BenchmarkRunner {
+
+    public static class LookupMockMango extends MockMango {
+
+        @Param({"h2:mem"})
+        public String databaseType;
+
+        @Param({"0", "10000"})
+        public int cacheSize;
+
+        @Override
+        protected void preInitialize() throws Exception {
+            properties.setProperty("db.test.type", databaseType);
+            properties.setProperty("cache.dataPoints.size", Integer.toString(cacheSize));
+            MangoTestBase.setupTestDB();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkParams {
+
+        @Param({"1000", "10000"})
+        public int points;
+
+        public DataPointDao dataPointDao;
+        public List<DataPointVO> dataPoints;
+
+        @Setup(Level.Trial)
+        public void setupTrial(LookupMockMango mango) throws ExecutionException, InterruptedException {
+            this.dataPoints = mango.createDataPoints(points, Collections.emptyMap());
+            this.dataPointDao = Common.getBean(DataPointDao.class);
+        }
+
+        public DataPointVO randomPoint() {
+            return dataPoints.get(ThreadLocalRandom.current().nextInt(points));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    @Fork(1)
+    @BenchmarkMode({Mode.Throughput})
+    @Measurement(iterations = 5, time = 10)
+    @Warmup(iterations = 1, time = 10)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void getByXid(BenchmarkParams params, Blackhole blackhole) {
+        blackhole.consume(params.dataPointDao.getByXid(params.randomPoint().getXid()));
+    }
+
+    @Benchmark
+    @Threads(4)
+    @Fork(1)
+    @BenchmarkMode({Mode.Throughput})
+    @Measurement(iterations = 5, time = 10)
+    @Warmup(iterations = 1, time = 10)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void getById(BenchmarkParams params, Blackhole blackhole) {
+        blackhole.consume(params.dataPointDao.get(params.randomPoint().getId()));
+    }
+}
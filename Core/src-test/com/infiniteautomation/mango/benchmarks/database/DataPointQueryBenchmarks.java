@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.benchmarks.database;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.infiniteautomation.mango.benchmarks.BenchmarkRunner;
+import com.infiniteautomation.mango.benchmarks.MockMango;
+import com.infiniteautomation.mango.permission.MangoPermission;
+import com.infiniteautomation.mango.spring.components.RunAs;
+import com.infiniteautomation.mango.spring.service.DataPointService;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.vo.User;
+import com.serotonin.m2m2.vo.permission.PermissionHolder;
+import com.serotonin.m2m2.vo.role.RoleVO;
+
+/**
+ * Measures RQL queries for data points as the superadmin and as a user which must have its permissions checked.
+ * Half of the points are readable by the user. The database is selected via the databaseType param, see
+ * {@link PointValueIngestBenchmarks}.
+ */
+public class DataPointQueryBenchmarks extends BenchmarkRunner {
+
+    public static final String TAG_KEY = "benchmark";
+
+    public static class QueryMockMango extends MockMango {
+
+        @Param({"h2:mem"})
+        public String databaseType;
+
+        @Override
+        protected void preInitialize() throws Exception {
+            properties.setProperty("db.test.type", databaseType);
+            MangoTestBase.setupTestDB();
+        }
+
+        /**
+         * Create a user with a new role, and points that are readable by that role
+         */
+        public User createUserAndPoints(int readablePoints, int unreadablePoints, Map<String, String> tags) throws ExecutionException, InterruptedException {
+            RoleVO role = createRole(UUID.randomUUID().toString(), "Benchmark role");
+            createDataPoints(readablePoints, tags, MangoPermission.requireAnyRole(role.getRole()));
+            createDataPoints(unreadablePoints, tags, MangoPermission.superadminOnly());
+            return createUser("Benchmark user", "benchmark", "password", "benchmark@yourMangoDomain.com", role.getRole());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkParams {
+
+        @Param({"1000", "10000"})
+        public int points;
+
+        /**
+         * Number of points returned by each query
+         */
+        @Param({"100", "1000"})
+        public int batchSize;
+
+        @Param({"true", "false"})
+        public boolean admin;
+
+        public DataPointService dataPointService;
+        public RunAs runAs;
+        public PermissionHolder user;
+        public String rql;
+
+        @Setup(Level.Trial)
+        public void setupTrial(QueryMockMango mango) throws ExecutionException, InterruptedException {
+            String tagValue = UUID.randomUUID().toString();
+            Map<String, String> tags = Collections.singletonMap(TAG_KEY, tagValue);
+            User nonAdmin = mango.createUserAndPoints(points / 2, points - points / 2, tags);
+
+            this.dataPointService = Common.getBean(DataPointService.class);
+            this.runAs = Common.getBean(RunAs.class);
+            this.user = admin ? PermissionHolder.SYSTEM_SUPERADMIN : nonAdmin;
+            this.rql = "eq(tags." + TAG_KEY + "," + tagValue + ")&sort(name)&limit(" + batchSize + ")";
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Fork(1)
+    @BenchmarkMode({Mode.AverageTime})
+    @Measurement(iterations = 5, time = 10)
+    @Warmup(iterations = 1, time = 10)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void queryByTag(BenchmarkParams params, Blackhole blackhole) {
+        params.runAs.runAs(params.user, () -> params.dataPointService.query(params.rql, blackhole::consume));
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Fork(1)
+    @BenchmarkMode({Mode.AverageTime})
+    @Measurement(iterations = 5, time = 10)
+    @Warmup(iterations = 1, time = 10)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void countByTag(BenchmarkParams params, Blackhole blackhole) {
+        blackhole.consume(params.runAs.runAs(params.user, () -> params.dataPointService.count(params.rql)));
+    }
+}
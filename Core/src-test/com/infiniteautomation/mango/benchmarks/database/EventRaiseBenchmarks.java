@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.benchmarks.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.infiniteautomation.mango.benchmarks.BenchmarkRunner;
+import com.infiniteautomation.mango.benchmarks.MockMango;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.db.dao.EventDetectorDao;
+import com.serotonin.m2m2.i18n.TranslatableMessage;
+import com.serotonin.m2m2.rt.EventManagerImpl;
+import com.serotonin.m2m2.rt.event.AlarmLevels;
+import com.serotonin.m2m2.rt.event.detectors.PointEventDetectorRT;
+import com.serotonin.m2m2.rt.event.type.DataPointEventType;
+import com.serotonin.m2m2.vo.DataPointVO;
+import com.serotonin.m2m2.vo.event.detector.AbstractPointEventDetectorVO;
+
+/**
+ * Measures the throughput of raising and returning to normal data point events via {@link EventManagerImpl}.
+ * Each invocation raises an event for every point (in batches of batchSize points) and then returns the events to
+ * normal. The database is selected via the databaseType param, see {@link PointValueIngestBenchmarks}.
+ */
+public class EventRaiseBenchmarks extends BenchmarkRunner {
+
+    public static class EventManagerMockMango extends MockMango {
+
+        @Param({"h2:mem"})
+        public String databaseType;
+
+        @Override
+        protected void preInitialize() throws Exception {
+            properties.setProperty("db.test.type", databaseType);
+            MangoTestBase.setupTestDB();
+            lifecycle.setEventManager(new EventManagerImpl());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkParams {
+
+        @Param({"100", "1000"})
+        public int points;
+
+        /**
+         * Number of times each point raises and returns to normal per invocation
+         */
+        @Param({"1", "10"})
+        public int eventsPerPoint;
+
+        /**
+         * Number of events raised before they are returned to normal, i.e. the number of concurrently active events
+         */
+        @Param({"1", "100"})
+        public int batchSize;
+
+        public List<DataPointEventType> eventTypes;
+        public List<Map<String, Object>> contexts;
+        public List<TranslatableMessage> messages;
+
+        @Setup(Level.Trial)
+        public void setupTrial(EventManagerMockMango mango) throws ExecutionException, InterruptedException {
+            List<DataPointVO> vos = mango.createMockDataPointsWithDetectors(points, Collections.emptyMap(), 1);
+            this.eventTypes = new ArrayList<>(points);
+            this.contexts = new ArrayList<>(points);
+            this.messages = new ArrayList<>(points);
+            for (DataPointVO point : vos) {
+                AbstractPointEventDetectorVO detector = EventDetectorDao.getInstance().getWithSource(point.getId(), point).get(0);
+                Map<String, Object> context = new HashMap<>();
+                context.put(PointEventDetectorRT.EVENT_DETECTOR_CONTEXT_KEY, detector);
+                context.put(PointEventDetectorRT.DATA_POINT_CONTEXT_KEY, point);
+                eventTypes.add(new DataPointEventType(point, detector));
+                contexts.add(context);
+                messages.add(new TranslatableMessage("literal", "Benchmark event for " + point.getName()));
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Fork(1)
+    @BenchmarkMode({Mode.AverageTime})
+    @Measurement(iterations = 5, time = 10)
+    @Warmup(iterations = 1, time = 10)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void raiseAndReturnToNormal(BenchmarkParams params) {
+        for (int i = 0; i < params.eventsPerPoint; i++) {
+            for (int start = 0; start < params.points; start += params.batchSize) {
+                int end = Math.min(start + params.batchSize, params.points);
+                long time = Common.timer.currentTimeMillis();
+                for (int j = start; j < end; j++) {
+                    Common.eventManager.raiseEvent(params.eventTypes.get(j), time, true, AlarmLevels.URGENT,
+                            params.messages.get(j), params.contexts.get(j));
+                }
+                for (int j = start; j < end; j++) {
+                    Common.eventManager.returnToNormal(params.eventTypes.get(j), time);
+                }
+            }
+        }
+    }
+}
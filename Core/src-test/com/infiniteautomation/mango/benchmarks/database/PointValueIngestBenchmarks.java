@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.benchmarks.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.infiniteautomation.mango.benchmarks.BenchmarkRunner;
+import com.infiniteautomation.mango.benchmarks.MockMango;
+import com.infiniteautomation.mango.pointvaluecache.PointValueCache;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.db.dao.DataSourceDao;
+import com.serotonin.m2m2.db.dao.PointValueDao;
+import com.serotonin.m2m2.rt.dataImage.DataPointRT;
+import com.serotonin.m2m2.rt.dataImage.PointValueBatch;
+import com.serotonin.m2m2.rt.dataImage.PointValueTime;
+import com.serotonin.m2m2.rt.dataSource.MockPointLocatorRT;
+import com.serotonin.m2m2.rt.dataSource.MockPollingDataSource;
+import com.serotonin.m2m2.vo.DataPointVO;
+import com.serotonin.m2m2.vo.dataPoint.DataPointWithEventDetectors;
+import com.serotonin.m2m2.vo.dataPoint.MockPointLocatorVO;
+import com.serotonin.m2m2.vo.dataSource.mock.MockDataSourceVO;
+
+/**
+ * Measures the time taken to ingest one second worth of values from a polling data source, i.e. the path through
+ * {@link DataPointRT}, the point value cache and the {@link PointValueDao} into the database. Each invocation runs
+ * rate polls which read one value per point, and then waits for the values to be written to the database. An average
+ * time below one second means the database keeps up with the rate.
+ *
+ * <p>A batchSize of 1 updates each point individually via {@link DataPointRT#updatePointValue(PointValueTime)}, larger
+ * sizes apply the values via {@link PointValueBatch}. Both save via the batch write behind.</p>
+ *
+ * <p>The database is selected via the databaseType param which uses the same values as db.test.type,
+ * e.g. -Dbenchmark.param.databaseType=h2:mem,mysql,postgres</p>
+ */
+public class PointValueIngestBenchmarks extends BenchmarkRunner {
+
+    public static class DatabaseMockMango extends MockMango {
+
+        @Param({"h2:mem"})
+        public String databaseType;
+
+        @Override
+        protected void preInitialize() throws Exception {
+            properties.setProperty("db.test.type", databaseType);
+            MangoTestBase.setupTestDB();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkParams {
+
+        @Param({"100", "1000"})
+        public int points;
+
+        /**
+         * Number of values per point per second
+         */
+        @Param({"1", "10", "100"})
+        public int rate;
+
+        @Param({"1", "100", "1000"})
+        public int batchSize;
+
+        public MockPollingDataSource dataSource;
+        public List<DataPointRT> dataPoints;
+        public PointValueDao dao;
+        public long time;
+
+        @Setup(Level.Trial)
+        public void setupTrial(DatabaseMockMango mango) throws ExecutionException, InterruptedException {
+            List<DataPointVO> vos = mango.createDataPoints(points, Collections.emptyMap());
+            MockDataSourceVO dsVo = (MockDataSourceVO) DataSourceDao.getInstance().get(vos.get(0).getDataSourceId());
+            this.dataSource = new MockPollingDataSource(dsVo);
+            dataSource.initialize(false);
+
+            this.dao = Common.getBean(PointValueDao.class);
+            PointValueCache pointValueCache = Common.getBean(PointValueCache.class);
+            this.dataPoints = new ArrayList<>(points);
+            for (DataPointVO vo : vos) {
+                vo.setLoggingType(DataPointVO.LoggingTypes.ALL);
+                MockPointLocatorVO locator = vo.getPointLocator();
+                DataPointRT rt = new DataPointRT(new DataPointWithEventDetectors(vo, new ArrayList<>()),
+                        new MockPointLocatorRT(locator), dataSource, null, dao, pointValueCache);
+                rt.initialize(false);
+                dataPoints.add(rt);
+            }
+            this.time = System.currentTimeMillis();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDownTrial() {
+            for (DataPointRT rt : dataPoints) {
+                rt.terminate();
+            }
+            dataSource.terminate();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Fork(1)
+    @BenchmarkMode({Mode.AverageTime})
+    @Measurement(iterations = 5, time = 10)
+    @Warmup(iterations = 1, time = 10)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void poll(BenchmarkParams params) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        PointValueBatch batch = params.batchSize > 1 ? new PointValueBatch(params.batchSize) : null;
+        long period = 1000 / params.rate;
+
+        for (int i = 0; i < params.rate; i++) {
+            long time = params.time;
+            params.time += period;
+            for (DataPointRT rt : params.dataPoints) {
+                PointValueTime value = new PointValueTime(random.nextDouble(), time);
+                if (batch == null) {
+                    rt.updatePointValue(value);
+                } else {
+                    batch.add(rt, value);
+                    if (batch.size() >= params.batchSize) {
+                        params.dataSource.updatePointValues(batch);
+                        batch = new PointValueBatch(params.batchSize);
+                    }
+                }
+            }
+        }
+
+        if (batch != null) {
+            params.dataSource.updatePointValues(batch);
+        }
+
+        while (params.dao.queueSize() > 0) {
+            Thread.sleep(1);
+        }
+    }
+}
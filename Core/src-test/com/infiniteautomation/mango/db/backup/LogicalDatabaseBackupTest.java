@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.db.backup;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.h2.tools.RunScript;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.ForeignKey;
+import org.jooq.InsertValuesStep4;
+import org.jooq.Record4;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DataSourceConnectionProvider;
+import org.junit.Test;
+
+import com.infiniteautomation.mango.db.DefaultSchema;
+import com.infiniteautomation.mango.db.tables.DataPoints;
+import com.infiniteautomation.mango.db.tables.PointValues;
+import com.infiniteautomation.mango.db.tables.SystemSettings;
+import com.infiniteautomation.mango.db.tables.records.PointValuesRecord;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.DataType;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.db.AbstractDatabaseProxy;
+import com.serotonin.m2m2.db.DatabaseProxy;
+import com.serotonin.m2m2.db.DatabaseType;
+import com.serotonin.m2m2.db.dao.SystemSettingsDao;
+import com.serotonin.m2m2.vo.DataPointVO;
+import com.serotonin.m2m2.vo.dataPoint.MockPointLocatorVO;
+import com.serotonin.m2m2.vo.dataSource.mock.MockDataSourceVO;
+
+public class LogicalDatabaseBackupTest extends MangoTestBase {
+
+    /**
+     * Run with e.g. -Dbackup.test.largePointValues=5000000 to also round trip a large point value table
+     */
+    private static final int LARGE_POINT_VALUE_COUNT = Integer.getInteger("backup.test.largePointValues", 0);
+
+    private final PointValues pv = PointValues.POINT_VALUES;
+
+    @Test
+    public void roundTrip() throws IOException, SQLException {
+        roundTrip(10_000, 1000);
+    }
+
+    @Test
+    public void largeRoundTrip() throws IOException, SQLException {
+        assumeTrue(LARGE_POINT_VALUE_COUNT > 0);
+        roundTrip(LARGE_POINT_VALUE_COUNT, 10_000);
+    }
+
+    private void roundTrip(int pointValueCount, int chunkSize) throws IOException, SQLException {
+        DatabaseProxy databaseProxy = Common.getBean(DatabaseProxy.class);
+        DSLContext source = databaseProxy.getContext();
+
+        MockDataSourceVO dataSource = createMockDataSource();
+        DataPointVO point1 = createMockDataPoint(dataSource, new MockPointLocatorVO(DataType.NUMERIC, true));
+        DataPointVO point2 = createMockDataPoint(dataSource, new MockPointLocatorVO(DataType.NUMERIC, true));
+        insertPointValues(source, point1.getSeriesId(), point2.getSeriesId(), pointValueCount);
+
+        Path backupFile = Files.createTempFile(dataDirectory, "backup", LogicalDatabaseBackup.FILE_EXTENSION);
+        LogicalDatabaseBackup backup = new LogicalDatabaseBackup(DatabaseType.H2, databaseProxy.getConfig(), coreTables());
+        backup.setChunkSize(chunkSize);
+        Map<String, Long> backedUp;
+        try (OutputStream out = Files.newOutputStream(backupFile)) {
+            backedUp = backup.backup(out);
+        }
+        assertEquals(pointValueCount, (long) backedUp.get(pv.getName()));
+
+        Configuration targetConfiguration = emptyH2Database();
+        LogicalDatabaseBackup restore = new LogicalDatabaseBackup(DatabaseType.H2, targetConfiguration, coreTables());
+        Map<String, Long> restored;
+        try (InputStream in = Files.newInputStream(backupFile)) {
+            restored = restore.restore(in, false);
+        }
+        assertEquals(backedUp, restored);
+
+        DSLContext target = DSL.using(targetConfiguration);
+        for (Table<?> table : coreTables()) {
+            assertEquals(table.getName(), source.fetchCount(table), target.fetchCount(table));
+        }
+
+        Record4<Long, Long, Long, Double> sourceTotals = pointValueTotals(source);
+        assertEquals(sourceTotals, pointValueTotals(target));
+
+        DataPoints dp = DataPoints.DATA_POINTS;
+        assertArrayEquals(source.select(dp.data).from(dp).orderBy(dp.id).fetchArray(dp.data),
+                target.select(dp.data).from(dp).orderBy(dp.id).fetchArray(dp.data));
+
+        // identity must continue after the restored ids
+        long id = target.insertInto(pv, pv.dataPointId, pv.dataType, pv.pointValue, pv.ts)
+                .values(point1.getSeriesId(), DataType.NUMERIC.getId(), 1D, 1L)
+                .returningResult(pv.id)
+                .fetchOne(pv.id);
+        assertTrue(id > sourceTotals.value3());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void restoreRequiresEmptySchema() throws IOException, SQLException {
+        DatabaseProxy databaseProxy = Common.getBean(DatabaseProxy.class);
+        LogicalDatabaseBackup backup = new LogicalDatabaseBackup(DatabaseType.H2, databaseProxy.getConfig(), coreTables());
+
+        Path backupFile = Files.createTempFile(dataDirectory, "backup", LogicalDatabaseBackup.FILE_EXTENSION);
+        try (OutputStream out = Files.newOutputStream(backupFile)) {
+            backup.backup(out);
+        }
+        try (InputStream in = Files.newInputStream(backupFile)) {
+            backup.restore(in, false);
+        }
+    }
+
+    @Test
+    public void failedRestoreKeepsExistingRows() throws IOException, SQLException {
+        DatabaseProxy databaseProxy = Common.getBean(DatabaseProxy.class);
+        MockDataSourceVO dataSource = createMockDataSource();
+        DataPointVO point = createMockDataPoint(dataSource, new MockPointLocatorVO(DataType.NUMERIC, true));
+        insertPointValues(databaseProxy.getContext(), point.getSeriesId(), point.getSeriesId(), 100);
+
+        LogicalDatabaseBackup backup = new LogicalDatabaseBackup(DatabaseType.H2, databaseProxy.getConfig(), coreTables());
+        backup.setChunkSize(10);
+        Path backupFile = Files.createTempFile(dataDirectory, "backup", LogicalDatabaseBackup.FILE_EXTENSION);
+        try (OutputStream out = Files.newOutputStream(backupFile)) {
+            backup.backup(out);
+        }
+        Configuration targetConfiguration = emptyH2Database();
+        LogicalDatabaseBackup restore = new LogicalDatabaseBackup(DatabaseType.H2, targetConfiguration, coreTables());
+        try (InputStream in = Files.newInputStream(backupFile)) {
+            restore.restore(in, false);
+        }
+
+        // truncate the end marker so that the archive is only found to be corrupt after every table was read
+        byte[] bytes = Files.readAllBytes(backupFile);
+        Path truncated = Files.createTempFile(dataDirectory, "backup", LogicalDatabaseBackup.FILE_EXTENSION);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 3));
+
+        DSLContext target = DSL.using(targetConfiguration);
+        Record4<Long, Long, Long, Double> totals = pointValueTotals(target);
+        try (InputStream in = Files.newInputStream(truncated)) {
+            restore.restore(in, true);
+            fail("Truncated backup should not be restored");
+        } catch (IOException e) {
+            // expected, deleted rows are rolled back
+        }
+        assertEquals(totals, pointValueTotals(target));
+
+        try {
+            restore.restore(truncated, true);
+            fail("Truncated backup should not be restored");
+        } catch (IOException e) {
+            // expected, verified before deleting
+        }
+        assertEquals(totals, pointValueTotals(target));
+    }
+
+    @Test
+    public void differentSchemaVersionIsRejected() throws IOException, SQLException {
+        DatabaseProxy databaseProxy = Common.getBean(DatabaseProxy.class);
+        LogicalDatabaseBackup backup = new LogicalDatabaseBackup(DatabaseType.H2, databaseProxy.getConfig(), coreTables());
+        Path backupFile = Files.createTempFile(dataDirectory, "backup", LogicalDatabaseBackup.FILE_EXTENSION);
+        try (OutputStream out = Files.newOutputStream(backupFile)) {
+            backup.backup(out);
+        }
+
+        // the backup is older than the database it is restored to
+        Configuration targetConfiguration = emptyH2Database();
+        DSLContext target = DSL.using(targetConfiguration);
+        SystemSettings ss = SystemSettings.SYSTEM_SETTINGS;
+        target.insertInto(ss, ss.settingName, ss.settingValue)
+                .values(SystemSettingsDao.DATABASE_SCHEMA_VERSION, Integer.toString(Common.getDatabaseSchemaVersion() + 1))
+                .execute();
+
+        LogicalDatabaseBackup restore = new LogicalDatabaseBackup(DatabaseType.H2, targetConfiguration, coreTables());
+        try (InputStream in = Files.newInputStream(backupFile)) {
+            restore.restore(in, true);
+            fail("Backup with an older schema version should not be restored");
+        } catch (IllegalStateException e) {
+            // expected, deleted rows are rolled back
+        }
+        try {
+            restore.restore(backupFile, true);
+            fail("Backup with an older schema version should not be restored");
+        } catch (IllegalStateException e) {
+            // expected, verified before deleting
+        }
+        assertEquals(1, target.fetchCount(ss));
+    }
+
+    @Test
+    public void corruptChunkIsDetected() throws IOException {
+        Path archive = Files.createTempFile(dataDirectory, "backup", LogicalDatabaseBackup.FILE_EXTENSION);
+        try (OutputStream out = Files.newOutputStream(archive)) {
+            BackupArchiveWriter writer = new BackupArchiveWriter(out, DatabaseType.H2.name());
+            writer.startTable("test", List.of("id", "name"));
+            for (int i = 0; i < 100; i++) {
+                writer.writeRow(new Object[] {i, "name " + i});
+            }
+            writer.endTable(100);
+            writer.finish();
+        }
+
+        // the compressed chunk starts after the archive header (26 bytes), table header (27 bytes) and chunk
+        // header (21 bytes) and is followed by the table end (9 bytes) and end (5 bytes) markers
+        byte[] bytes = Files.readAllBytes(archive);
+        bytes[(74 + bytes.length - 14) / 2] ^= 0x55;
+        Files.write(archive, bytes);
+
+        try (InputStream in = Files.newInputStream(archive)) {
+            BackupArchiveReader reader = new BackupArchiveReader(in);
+            assertEquals("test", reader.nextTable().getName());
+            reader.nextChunk();
+            fail("Corrupt chunk should not be read");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void tablesAreOrderedByForeignKeys() {
+        List<Table<?>> sorted = LogicalDatabaseBackup.sortByForeignKeys(coreTables());
+        assertEquals(coreTables().size(), sorted.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            Table<?> table = sorted.get(i);
+            for (ForeignKey<?, ?> foreignKey : table.getReferences()) {
+                Table<?> referenced = foreignKey.getKey().getTable();
+                if (!referenced.equals(table)) {
+                    assertTrue(table.getName() + " must be after " + referenced.getName(), sorted.indexOf(referenced) < i);
+                }
+            }
+        }
+    }
+
+    private List<Table<?>> coreTables() {
+        return Collections.unmodifiableList(DefaultSchema.DEFAULT_SCHEMA.getTables());
+    }
+
+    private void insertPointValues(DSLContext context, int seriesId1, int seriesId2, int count) {
+        int batchSize = 1000;
+        for (int i = 0; i < count; i += batchSize) {
+            InsertValuesStep4<PointValuesRecord, Integer, Integer, Double, Long> insert =
+                    context.insertInto(pv, pv.dataPointId, pv.dataType, pv.pointValue, pv.ts);
+            for (int j = i; j < Math.min(count, i + batchSize); j++) {
+                insert = insert.values(j % 2 == 0 ? seriesId1 : seriesId2, DataType.NUMERIC.getId(), j * 0.5D, (long) j * 1000);
+            }
+            insert.execute();
+        }
+    }
+
+    private Record4<Long, Long, Long, Double> pointValueTotals(DSLContext context) {
+        return context.select(DSL.count().cast(Long.class), DSL.sum(pv.ts).cast(Long.class),
+                        DSL.max(pv.id), DSL.sum(pv.pointValue).cast(Double.class))
+                .from(pv)
+                .fetchOne();
+    }
+
+    /**
+     * @return configuration for a new in memory H2 database containing the core tables
+     */
+    private Configuration emptyH2Database() throws IOException, SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection();
+             InputStream script = AbstractDatabaseProxy.class.getResourceAsStream("createTables-H2.sql")) {
+            RunScript.execute(connection, new InputStreamReader(script, StandardCharsets.UTF_8));
+        }
+        return Common.getBean(DatabaseProxy.class).getConfig().derive(new DataSourceConnectionProvider(dataSource));
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.db.query.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.infiniteautomation.mango.util.RQLUtils;
+
+import net.jazdw.rql.parser.ASTNode;
+
+/**
+ * Tests that queries compiled by {@link RQLCompiler} return the same results as {@link RQLFilterJavaBean}
+ */
+public class RQLCompilerTest {
+
+    private static final String[] NUMERIC_PROPERTIES = {"intValue", "longValue", "doubleValue", "boxed",
+            "child.intValue", "child.doubleValue"};
+    private static final String[] NUMBERS = {"-5", "0", "3", "2.5", "10", "null"};
+    private static final String[] OTHER_PROPERTIES = {"name", "child.name", "level", "enabled", "attributes.color"};
+    private static final String[] OTHER_VALUES = {"alpha", "Beta", "LOW", "HIGH", "MEDIUM", "red", "true", "false", "null"};
+    private static final String[] OPERATIONS = {"eq", "ne", "lt", "le", "gt", "ge"};
+    private static final String[] OTHER_QUERIES = {
+            "in(intValue,(1,2,3))", "in(doubleValue,(1.5,2,7))", "in(level,(LOW,HIGH))", "in(name,(alpha,gamma))",
+            "in(boxed,(1,null))", "like(name,a*)", "match(name,*ta)", "like(child.name,*e*)", "like(level,h*)",
+            "contains(tags,x)", "contains(tags,z)", "eq(child.child.intValue,1)"
+    };
+    private static final String[] SORTS = {"sort(+intValue,-name)", "sort(-doubleValue)", "sort(level,longValue)",
+            "sort(-child.intValue,name)", "sort(attributes.color,+boxed)"};
+
+    public enum Level {
+        LOW, MEDIUM, HIGH
+    }
+
+    public static class TestBean {
+        private final int intValue;
+        private final long longValue;
+        private final double doubleValue;
+        private final Integer boxed;
+        private final String name;
+        private final boolean enabled;
+        private final Level level;
+        private final TestBean child;
+        private final List<String> tags;
+        private final Map<String, Object> attributes;
+
+        TestBean(Random random, int depth) {
+            this.intValue = random.nextInt(12) - 1;
+            this.longValue = random.nextInt(20) - 5;
+            this.doubleValue = random.nextInt(20) / 2d - 3;
+            this.boxed = random.nextInt(4) == 0 ? null : random.nextInt(4);
+            this.name = pick(random, "alpha", "Beta", "gamma", "delta", "zeta", null);
+            this.enabled = random.nextBoolean();
+            this.level = random.nextInt(5) == 0 ? null : Level.values()[random.nextInt(3)];
+            this.child = depth > 0 ? new TestBean(random, depth - 1) : null;
+            this.tags = Arrays.asList(pick(random, "x", "y"), pick(random, "y", "z"));
+            this.attributes = new HashMap<>();
+            if (random.nextBoolean()) {
+                attributes.put("color", pick(random, "red", "green", "blue"));
+            }
+        }
+
+        public int getIntValue() {
+            return intValue;
+        }
+
+        public long getLongValue() {
+            return longValue;
+        }
+
+        public double getDoubleValue() {
+            return doubleValue;
+        }
+
+        public Integer getBoxed() {
+            return boxed;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        public TestBean getChild() {
+            return child;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+    }
+
+    @Test
+    public void parityWithJavaBeanFilter() {
+        Random random = new Random(1234);
+        List<TestBean> beans = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            beans.add(new TestBean(random, 1));
+        }
+
+        RQLCompiler compiler = new RQLCompiler(100);
+        for (int i = 0; i < 1000; i++) {
+            String query = randomQuery(random, 2);
+            if (random.nextInt(3) == 0) {
+                query += "&" + pick(random, SORTS);
+            }
+            if (random.nextInt(4) == 0) {
+                query += "&limit(" + random.nextInt(20) + "," + random.nextInt(10) + ")";
+            }
+            assertParity(query, beans, compiler);
+        }
+    }
+
+    @Test
+    public void compiledQueriesAreCached() {
+        RQLCompiler compiler = new RQLCompiler(100);
+        CompiledRQL<TestBean> first = compiler.compile(RQLUtils.parseRQLtoAST("eq(intValue,1)&sort(name)"), TestBean.class, null);
+        CompiledRQL<TestBean> second = compiler.compile(RQLUtils.parseRQLtoAST("eq(intValue,1)&sort(name)"), TestBean.class, null);
+        CompiledRQL<TestBean> other = compiler.compile(RQLUtils.parseRQLtoAST("eq(intValue,2)&sort(name)"), TestBean.class, null);
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(2, compiler.getCacheSize());
+    }
+
+    @Test
+    public void javaBeanFilterUsesCompiler() {
+        Random random = new Random(1234);
+        List<TestBean> beans = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            beans.add(new TestBean(random, 1));
+        }
+
+        RQLCompiler compiler = new RQLCompiler(100);
+        ASTNode node = RQLUtils.parseRQLtoAST("gt(intValue,3)&sort(-doubleValue,name)&limit(10,5)");
+        RQLFilterJavaBean<TestBean> filter = new RQLFilterJavaBean<>(node, TestBean.class, null, compiler);
+        assertEquals(new RQLFilterJavaBean<TestBean>(node, null, null, null).apply(beans.stream()).collect(Collectors.toList()),
+                filter.apply(beans.stream()).collect(Collectors.toList()));
+        assertEquals(new RQLFilterJavaBean<TestBean>(node, null, null, null).count(beans.stream()), filter.count(beans.stream()));
+        assertEquals(1, compiler.getCacheSize());
+        assertEquals(Long.valueOf(10), filter.getLimit());
+        assertEquals(Long.valueOf(5), filter.getOffset());
+
+        // subclasses may override how properties are read so are never compiled
+        RQLFilterJavaBean<TestBean> subclass = new RQLFilterJavaBean<TestBean>(RQLUtils.parseRQLtoAST("eq(intValue,1)"),
+                TestBean.class, null, compiler) {};
+        subclass.apply(beans.stream()).count();
+        assertEquals(1, compiler.getCacheSize());
+    }
+
+    @Test
+    public void javaBeanFilterWithoutBeanClassUsesCompiler() {
+        Random random = new Random(1234);
+        List<TestBean> beans = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            beans.add(new TestBean(random, 1));
+        }
+
+        // properties are resolved against the runtime class of the items
+        RQLCompiler compiler = new RQLCompiler(100);
+        ASTNode node = RQLUtils.parseRQLtoAST("gt(intValue,3)&sort(-doubleValue,name)&limit(10,5)");
+        RQLFilterJavaBean<TestBean> filter = new RQLFilterJavaBean<>(node, null, null, compiler);
+        assertEquals(new RQLFilterJavaBean<TestBean>(node, null, null, null).apply(beans.stream()).collect(Collectors.toList()),
+                filter.apply(beans.stream()).collect(Collectors.toList()));
+        assertEquals(1, compiler.getCacheSize());
+    }
+
+    @Test
+    public void sortAndCompareValues() {
+        RQLCompiler compiler = new RQLCompiler(100);
+        assertEquals(Arrays.asList("aaa", "zzz"), compiler.compile(RQLUtils.parseRQLtoAST("sort(+)"), String.class, null)
+                .apply(Arrays.asList("zzz", "aaa").stream()).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(2, 3), compiler.compile(RQLUtils.parseRQLtoAST("gt(1)"), Integer.class, null)
+                .apply(Arrays.asList(1, 2, 3).stream()).collect(Collectors.toList()));
+    }
+
+    private void assertParity(String query, List<TestBean> beans, RQLCompiler compiler) {
+        ASTNode node = RQLUtils.parseRQLtoAST(query);
+        Object expected = evaluate(() -> new RQLFilterJavaBean<TestBean>(node, null, null, null).apply(beans.stream()).collect(Collectors.toList()));
+        Object actual = evaluate(() -> compiler.compile(node, TestBean.class, null).apply(beans.stream()).collect(Collectors.toList()));
+        assertEquals(query, expected, actual);
+    }
+
+    /**
+     * @return the result or the class of the exception that was thrown
+     */
+    private Object evaluate(Supplier<List<TestBean>> query) {
+        try {
+            return query.get();
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private String randomQuery(Random random, int depth) {
+        int type = random.nextInt(depth > 0 ? 6 : 3);
+        switch (type) {
+            case 0:
+                return pick(random, OPERATIONS) + "(" + pick(random, NUMERIC_PROPERTIES) + "," + pick(random, NUMBERS) + ")";
+            case 1:
+                return pick(random, OPERATIONS) + "(" + pick(random, OTHER_PROPERTIES) + "," + pick(random, OTHER_VALUES) + ")";
+            case 2:
+                return pick(random, OTHER_QUERIES);
+            case 3:
+                return "and(" + randomQuery(random, depth - 1) + "," + randomQuery(random, depth - 1) + ")";
+            case 4:
+                return "or(" + randomQuery(random, depth - 1) + "," + randomQuery(random, depth - 1) + ")";
+            default:
+                return "not(" + randomQuery(random, depth - 1) + ")";
+        }
+    }
+
+    @SafeVarargs
+    private static <T> T pick(Random random, T... values) {
+        return values[random.nextInt(values.length)];
+    }
+}
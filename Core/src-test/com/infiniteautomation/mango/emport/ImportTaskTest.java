@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.emport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.infiniteautomation.mango.spring.service.DataPointService;
+import com.infiniteautomation.mango.spring.service.DataSourceService;
+import com.infiniteautomation.mango.spring.service.EventDetectorsService;
+import com.infiniteautomation.mango.spring.service.EventHandlerService;
+import com.infiniteautomation.mango.spring.service.JsonDataService;
+import com.infiniteautomation.mango.spring.service.MailingListService;
+import com.infiniteautomation.mango.spring.service.PublishedPointService;
+import com.infiniteautomation.mango.spring.service.PublisherService;
+import com.infiniteautomation.mango.spring.service.RoleService;
+import com.infiniteautomation.mango.spring.service.SystemPermissionService;
+import com.infiniteautomation.mango.spring.service.UsersService;
+import com.serotonin.json.JsonException;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.i18n.ProcessMessage;
+import com.serotonin.m2m2.vo.DataPointVO;
+
+public class ImportTaskTest extends MangoTestBase {
+
+    private static final String DATA_SOURCE = "{\"xid\": \"DS_IMPORT\", \"name\": \"Import\", \"enabled\": false, \"type\": \"MOCK\", " +
+            "\"alarmLevels\": {\"POLL_ABORTED\": \"URGENT\"}, \"purgeType\": \"YEARS\", \"updatePeriodType\": \"SECONDS\", " +
+            "\"updatePeriods\": 5, \"editPermission\": \"\", \"purgeOverride\": false, \"purgePeriod\": 1}";
+
+    private static String dataPoint(String xid, String dataSourceXid) {
+        return dataPoint(xid, xid, dataSourceXid);
+    }
+
+    private static String dataPoint(String xid, String name, String dataSourceXid) {
+        return "{\"xid\": \"" + xid + "\", \"name\": \"" + name + "\", \"enabled\": false, \"loggingType\": \"ALL\", " +
+                "\"intervalLoggingPeriodType\": \"MINUTES\", \"intervalLoggingType\": \"INSTANT\", \"purgeType\": \"YEARS\", " +
+                "\"pointLocator\": {\"dataType\": \"BINARY\", \"changeType\": {\"type\": \"NO_CHANGE\", \"startValue\": \"0\"}, \"settable\": false}, " +
+                "\"eventDetectors\": [], \"plotType\": \"STEP\", \"unit\": \"\", \"chartColour\": \"\", \"chartRenderer\": null, " +
+                "\"dataSourceXid\": \"" + dataSourceXid + "\", \"defaultCacheSize\": 1, \"deviceName\": \"Import\", " +
+                "\"discardExtremeValues\": false, \"intervalLoggingPeriod\": 15, \"intervalLoggingSampleWindowSize\": 0, " +
+                "\"overrideIntervalLoggingSamples\": false, \"purgeOverride\": false, \"purgePeriod\": 1, \"readPermission\": \"\", " +
+                "\"setPermission\": \"\", \"textRenderer\": {\"type\": \"PLAIN\", \"useUnitAsSuffix\": false, \"unit\": \"\", " +
+                "\"renderedUnit\": \"\", \"suffix\": \"\"}, \"tolerance\": 0.0}";
+    }
+
+    private ImportTaskDependencies createImportTaskDependencies() {
+        return new ImportTaskDependencies(Common.getTranslations(),
+                Common.getBean(RoleService.class),
+                Common.getBean(UsersService.class),
+                Common.getBean(MailingListService.class),
+                Common.getBean(DataSourceService.class),
+                Common.getBean(DataPointService.class),
+                Common.getBean(PublisherService.class),
+                Common.getBean(PublishedPointService.class),
+                Common.getBean(EventHandlerService.class),
+                Common.getBean(JsonDataService.class),
+                Common.getBean(EventDetectorsService.class),
+                Common.getBean(SystemPermissionService.class));
+    }
+
+    private ImportTask runImport(String json) throws JsonException, IOException {
+        ImportTask task = new ImportTask(new StringReader(json), createImportTaskDependencies(), null, false);
+        task.run(Common.timer.currentTimeMillis());
+        return task;
+    }
+
+    private boolean hasErrors(ImportTask task) {
+        for (ProcessMessage message : task.getResponse().getMessages()) {
+            if (message.getLevel() == ProcessMessage.Level.error) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void importsDependenciesFirst() throws JsonException, IOException {
+        // data points are listed before the data source they depend on
+        String json = "{\"dataPoints\": [" + dataPoint("DP_IMPORT_1", "DS_IMPORT") + ", " + dataPoint("DP_IMPORT_2", "DS_IMPORT") + "], " +
+                "\"dataSources\": [" + DATA_SOURCE + "]}";
+
+        ImportTask task = runImport(json);
+
+        assertTrue(task.isCompleted());
+        assertFalse(hasErrors(task));
+        assertEquals(3, task.getTotalCount());
+        assertEquals(3, task.getImportedCount());
+        assertEquals(0, task.getFailedCount());
+
+        DataPointVO point = Common.getBean(DataPointService.class).get("DP_IMPORT_1");
+        assertNotNull(point);
+        assertEquals("DS_IMPORT", point.getDataSourceXid());
+    }
+
+    @Test
+    public void reportsUnresolvedReferences() throws JsonException, IOException {
+        String json = "{\"dataSources\": [" + DATA_SOURCE + "], " +
+                "\"dataPoints\": [" + dataPoint("DP_IMPORT_1", "DS_IMPORT") + ", " + dataPoint("DP_IMPORT_2", "DS_MISSING") + "]}";
+
+        ImportTask task = runImport(json);
+
+        assertTrue(task.isCompleted());
+        assertTrue(hasErrors(task));
+        assertEquals(2, task.getImportedCount());
+        assertEquals(1, task.getFailedCount());
+    }
+
+    @Test
+    public void recordsEveryMessageWhenImportingInParallel() throws JsonException, IOException {
+        properties.setProperty("emport.import.parallelism", "8");
+        properties.setProperty("emport.import.chunkSize", "50");
+        int count = 300;
+
+        StringBuilder points = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                points.append(", ");
+            }
+            points.append(dataPoint("DP_PARALLEL_" + i, "DS_IMPORT"));
+        }
+        String json = "{\"dataSources\": [" + DATA_SOURCE + "], \"dataPoints\": [" + points + "]}";
+
+        ImportTask task = runImport(json);
+
+        assertTrue(task.isCompleted());
+        assertFalse(hasErrors(task));
+        assertEquals(count + 1, task.getImportedCount());
+
+        // one success message per item, in the order of the configuration
+        List<ProcessMessage> messages = task.getResponse().getMessages();
+        assertEquals(count + 1, messages.size());
+        assertEquals("DS_IMPORT", messages.get(0).getGenericMessage().getArgs()[0]);
+        for (int i = 0; i < count; i++) {
+            assertEquals("DP_PARALLEL_" + i, messages.get(i + 1).getGenericMessage().getArgs()[0]);
+        }
+    }
+
+    @Test
+    public void duplicateXidsAreImportedInOrder() throws JsonException, IOException {
+        properties.setProperty("emport.import.parallelism", "8");
+        properties.setProperty("emport.import.chunkSize", "50");
+
+        StringBuilder points = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            points.append(dataPoint("DP_PARALLEL_" + i, "DS_IMPORT")).append(", ");
+            points.append(dataPoint("DP_DUPLICATE", "Duplicate " + i, "DS_IMPORT")).append(", ");
+        }
+        points.setLength(points.length() - 2);
+        String json = "{\"dataSources\": [" + DATA_SOURCE + "], \"dataPoints\": [" + points + "]}";
+
+        ImportTask task = runImport(json);
+
+        assertTrue(task.isCompleted());
+        assertFalse(hasErrors(task));
+        assertEquals(21, task.getImportedCount());
+        assertEquals("Duplicate 9", Common.getBean(DataPointService.class).get("DP_DUPLICATE").getName());
+    }
+
+    @Test
+    public void temporaryFilesAreDeleted() throws JsonException, IOException {
+        String json = "{\"dataSources\": [" + DATA_SOURCE + "], \"dataPoints\": [" + dataPoint("DP_IMPORT_1", "DS_IMPORT") + "]}";
+        ImportTask task = runImport(json);
+        assertTrue(task.isCompleted());
+
+        try (Stream<Path> files = Files.list(Common.getTempPath())) {
+            assertEquals(0, files.filter(f -> f.getFileName().toString().startsWith("mango-import-")).count());
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.jwt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.security.KeyPair;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.serotonin.timer.SimulationTimer;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.SignatureException;
+
+public class JwtSignerVerifierTest {
+
+    private SimulationTimer clock;
+    private TestSignerVerifier verifier;
+
+    @Before
+    public void before() {
+        this.clock = new SimulationTimer();
+        clock.setStartTime(System.currentTimeMillis());
+        this.verifier = new TestSignerVerifier(clock);
+    }
+
+    @Test
+    public void cachesVerifiedTokens() {
+        String token = verifier.token("user", new Date(clock.millis() + 60000));
+        Jws<Claims> first = verifier.parse(token);
+        Jws<Claims> second = verifier.parse(token);
+        assertSame(first, second);
+        assertEquals(1, verifier.verifiedTokenCacheStats().hitCount());
+        assertEquals("user", verifier.verify(token));
+    }
+
+    @Test(expected = SignatureException.class)
+    public void keyRotationInvalidatesCache() {
+        String token = verifier.token("user", new Date(clock.millis() + 60000));
+        verifier.parse(token);
+        verifier.rotate();
+        verifier.parse(token);
+    }
+
+    @Test
+    public void predicateInvalidation() {
+        String token1 = verifier.token("user1", new Date(clock.millis() + 60000));
+        String token2 = verifier.token("user2", new Date(clock.millis() + 60000));
+        verifier.parse(token1);
+        verifier.parse(token2);
+        verifier.invalidateVerifiedTokens(claims -> "user1".equals(claims.getSubject()));
+        assertEquals(1, verifier.verifiedTokenCacheSize());
+    }
+
+    @Test
+    public void tokenVerifiedDuringInvalidationIsNotCached() {
+        AtomicBoolean invalidated = new AtomicBoolean();
+        InvalidatingClock parserClock = new InvalidatingClock(clock, () -> {
+            // invalidate once while the parser checks the expiration, i.e. after the cache lookup
+            if (isParsing() && invalidated.compareAndSet(false, true)) {
+                verifier.invalidateVerifiedTokens(claims -> "user".equals(claims.getSubject()));
+            }
+        });
+        this.verifier = new TestSignerVerifier(parserClock);
+        String token = verifier.token("user", new Date(clock.millis() + 60000));
+
+        verifier.parse(token);
+        assertTrue(invalidated.get());
+        assertEquals(0, verifier.verifiedTokenCacheSize());
+
+        verifier.parse(token);
+        assertEquals(1, verifier.verifiedTokenCacheSize());
+    }
+
+    private static boolean isParsing() {
+        for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+            if ("parseClaimsJws".equals(element.getMethodName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test(expected = ExpiredJwtException.class)
+    public void expiredTokenIsNotServedFromCache() {
+        String token = verifier.token("user", new Date(clock.millis() + 1000));
+        verifier.parse(token);
+        clock.fastForwardTo(clock.millis() + 1500);
+        verifier.parse(token);
+    }
+
+    private static class InvalidatingClock extends Clock {
+        private final Clock delegate;
+        private final Runnable onRead;
+
+        private InvalidatingClock(Clock delegate, Runnable onRead) {
+            this.delegate = delegate;
+            this.onRead = onRead;
+        }
+
+        @Override
+        public long millis() {
+            onRead.run();
+            return delegate.millis();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return delegate.getZone();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return new InvalidatingClock(delegate.withZone(zone), onRead);
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+    }
+
+    private static class TestSignerVerifier extends JwtSignerVerifier<String> {
+
+        private TestSignerVerifier(Clock clock) {
+            super(clock);
+            enableVerifiedTokenCache(100);
+            generateNewKeyPair();
+        }
+
+        private String token(String subject, Date expiry) {
+            return sign(newToken(subject, expiry));
+        }
+
+        private void rotate() {
+            generateNewKeyPair();
+        }
+
+        @Override
+        protected String tokenType() {
+            return "test";
+        }
+
+        @Override
+        protected String verifyClaims(Jws<Claims> token) {
+            return token.getBody().getSubject();
+        }
+
+        @Override
+        protected void saveKeyPair(KeyPair keyPair) {
+        }
+
+        @Override
+        protected KeyPair loadKeyPair() {
+            return null;
+        }
+    }
+}
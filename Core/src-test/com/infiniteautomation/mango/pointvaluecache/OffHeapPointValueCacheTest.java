@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.pointvaluecache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.serotonin.m2m2.MockPointValueDao;
+import com.serotonin.m2m2.db.dao.pointvalue.DefaultAggregateDao;
+import com.serotonin.m2m2.i18n.TranslatableMessage;
+import com.serotonin.m2m2.rt.dataImage.AnnotatedPointValueTime;
+import com.serotonin.m2m2.rt.dataImage.PointValueTime;
+import com.serotonin.m2m2.vo.DataPointVO;
+
+public class OffHeapPointValueCacheTest {
+
+    private final OffHeapPointValueCache cache = new OffHeapPointValueCache(new MockPointValueDao(), 1024);
+
+    private DataPointVO point(int seriesId, int cacheSize) {
+        DataPointVO vo = new DataPointVO();
+        vo.setSeriesId(seriesId);
+        vo.setDefaultCacheSize(cacheSize);
+        return vo;
+    }
+
+    @Test
+    public void storesFixedWidthAndSpilledValues() {
+        DataPointVO vo = point(1, 5);
+        List<PointValueTime> values = List.of(
+                new PointValueTime(1.5D, 5000),
+                new AnnotatedPointValueTime(new PointValueTime(2.5D, 4000), new TranslatableMessage("common.default", "test")),
+                new PointValueTime(true, 3000),
+                new PointValueTime(7, 2000),
+                new PointValueTime("text", 1000));
+
+        cache.updateCache(vo, values);
+        assertEquals(values, cache.getCache(vo).orElseThrow());
+        assertTrue(cache.getCache(vo).orElseThrow().get(1) instanceof AnnotatedPointValueTime);
+        assertFalse(cache.getCache(point(2, 5)).isPresent());
+    }
+
+    @Test
+    public void removesValues() {
+        DataPointVO vo = point(1, 5);
+        List<PointValueTime> values = new ArrayList<>();
+        for (int i = 4; i >= 0; i--) {
+            values.add(new PointValueTime((double) i, i * 1000L));
+        }
+        cache.updateCache(vo, values);
+
+        cache.removeValueAt(vo, 3000);
+        cache.removeValuesBefore(vo, 1000);
+        assertEquals(List.of(values.get(0), values.get(2), values.get(3)), cache.getCache(vo).orElseThrow());
+
+        cache.removeValuesBetween(vo, 1000, 3000);
+        assertEquals(List.of(values.get(0)), cache.getCache(vo).orElseThrow());
+
+        cache.removeAllValues(vo);
+        assertEquals(List.of(), cache.getCache(vo).orElseThrow());
+
+        cache.deleteCache(vo);
+        assertFalse(cache.getCache(vo).isPresent());
+        assertEquals(0, cache.getUsedBytes());
+    }
+
+    @Test
+    public void resizesWhenCacheSizeChanges() {
+        DataPointVO vo = point(1, 2);
+        cache.updateCache(vo, List.of(new PointValueTime(1D, 1000)));
+        assertEquals(2 * OffHeapPointValueCache.SLOT_SIZE, cache.getUsedBytes());
+
+        vo.setDefaultCacheSize(100);
+        List<PointValueTime> values = new ArrayList<>();
+        for (int i = 99; i >= 0; i--) {
+            values.add(new PointValueTime((double) i, i));
+        }
+        cache.updateCache(vo, values);
+        assertEquals(128 * OffHeapPointValueCache.SLOT_SIZE, cache.getUsedBytes());
+        assertEquals(values, cache.getCache(vo).orElseThrow());
+
+        // region is larger than an arena
+        assertEquals(1024 + 128 * OffHeapPointValueCache.SLOT_SIZE, cache.getReservedBytes());
+
+        vo.setDefaultCacheSize(2);
+        cache.updateCache(vo, values.subList(0, 2));
+        assertEquals(2 * OffHeapPointValueCache.SLOT_SIZE, cache.getUsedBytes());
+        assertEquals(1024, cache.getReservedBytes());
+    }
+
+    @Test
+    public void loadsFromDatabase() {
+        DataPointVO vo = point(1, 2);
+        List<PointValueTime> stored = List.of(
+                new PointValueTime(1D, 1000),
+                new PointValueTime(2D, 2000),
+                new PointValueTime(3D, 3000));
+        OffHeapPointValueCache cache = new OffHeapPointValueCache(
+                new MockPointValueDao(DefaultAggregateDao::new, Map.of(1, stored)), 1024);
+
+        Map<Integer, List<PointValueTime>> loaded = cache.loadCaches(List.of(vo, point(2, 2)), 2);
+        assertEquals(List.of(stored.get(2), stored.get(1)), loaded.get(1));
+        assertEquals(List.of(), loaded.get(2));
+        assertEquals(List.of(stored.get(2), stored.get(1)), cache.getCache(vo).orElseThrow());
+        assertEquals(List.of(stored.get(2), stored.get(1), stored.get(0)), cache.loadCache(vo, 3));
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.spring.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.infiniteautomation.mango.monitor.MonitoredValues;
+import com.infiniteautomation.mango.spring.components.ProcessRunner.CommandResult;
+
+public class ProcessRunnerTest {
+
+    private ScheduledExecutorService scheduledExecutor;
+    private Path scripts;
+
+    @BeforeClass
+    public static void requireShell() {
+        assumeTrue(Files.isExecutable(Path.of("/bin/sh")));
+    }
+
+    @Before
+    public void setup() throws IOException {
+        scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
+        scripts = Files.createTempDirectory("processRunnerTest");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        scheduledExecutor.shutdownNow();
+        try (var files = Files.list(scripts)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(scripts);
+    }
+
+    @Test
+    public void testParseCommand() {
+        assertEquals(Arrays.asList("ls", "-l", "/tmp"), ProcessRunner.parseCommand("  ls -l   /tmp "));
+        assertEquals(Arrays.asList("sh", "-c", "echo 'a b'"), ProcessRunner.parseCommand("sh -c \"echo 'a b'\""));
+        assertEquals(Arrays.asList("echo", "a b", "c\"d"), ProcessRunner.parseCommand("echo 'a b' \"c\\\"d\""));
+        assertEquals(Arrays.asList("C:\\scripts\\run.bat", "a\\b"), ProcessRunner.parseCommand("C:\\scripts\\run.bat a\\b"));
+        assertEquals(Arrays.asList("C:\\Program Files\\run.bat"), ProcessRunner.parseCommand("\"C:\\Program Files\\run.bat\""));
+        assertEquals(Arrays.asList("echo", ""), ProcessRunner.parseCommand("echo \"\""));
+        try {
+            ProcessRunner.parseCommand("echo 'unclosed");
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testOutputCaptured() throws Exception {
+        ProcessRunner runner = createRunner(2, 10, 1024);
+        Path script = script("out.sh", "echo hello", "echo failed >&2", "exit 3");
+
+        CommandResult result = get(runner.run(script.toString(), 10));
+        assertEquals(3, result.getExitValue());
+        assertEquals("hello\n", result.getOutput());
+        assertEquals("failed\n", result.getError());
+        assertFalse(result.isTimedOut());
+        assertFalse(result.isOutputTruncated());
+        runner.terminate();
+    }
+
+    @Test
+    public void testArgumentsInterpolatedAfterParsing() throws Exception {
+        ProcessRunner runner = createRunner(2, 10, 1024);
+        Path script = script("args.sh", "for a in \"$@\"; do echo \"[$a]\"; done");
+
+        String message = "it's \"high\" now";
+        CommandResult result = get(runner.run(script + " ${message} 'x ${message}'",
+                arg -> arg.replace("${message}", message), 10));
+        assertEquals(0, result.getExitValue());
+        assertEquals("[" + message + "]\n[x " + message + "]\n", result.getOutput());
+        runner.terminate();
+    }
+
+    @Test
+    public void testOutputCapped() throws Exception {
+        ProcessRunner runner = createRunner(2, 10, 1024);
+        Path script = script("spew.sh", "i=0", "while [ $i -lt 20000 ]; do echo 0123456789; i=$((i+1)); done");
+
+        CommandResult result = get(runner.run(script.toString(), 30));
+        assertEquals(0, result.getExitValue());
+        assertEquals(1024, result.getOutput().length());
+        assertTrue(result.isOutputTruncated());
+        runner.terminate();
+    }
+
+    @Test
+    public void testTimeoutKillsProcessTree() throws Exception {
+        ProcessRunner runner = createRunner(2, 10, 1024);
+        Path script = script("fork.sh", "sleep 60 &", "echo $!", "wait");
+
+        long start = System.nanoTime();
+        CommandResult result = get(runner.run(script.toString(), 1));
+        assertTrue(result.isTimedOut());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        assertEquals(1, runner.getTimedOutCount());
+
+        long childPid = Long.parseLong(result.getOutput().trim());
+        long deadline = System.currentTimeMillis() + 10000;
+        while (ProcessHandle.of(childPid).map(ProcessHandle::isAlive).orElse(false)) {
+            assertTrue("Child process was not killed", System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+        runner.terminate();
+    }
+
+    @Test
+    public void testChildHoldingOutputOpen() throws Exception {
+        ProcessRunner runner = createRunner(2, 10, 1024);
+        //The background child inherits stdout, completion must not wait for it to close
+        Path script = script("detach.sh", "sleep 5 &", "echo done");
+
+        long start = System.nanoTime();
+        CommandResult result = get(runner.run(script.toString(), 30));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+        assertEquals("done\n", result.getOutput());
+        assertFalse(result.isTimedOut());
+        runner.terminate();
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        ProcessRunner runner = createRunner(2, 3, 1024);
+        Path script = script("sleep.sh", "sleep 0.5");
+
+        List<CompletableFuture<CommandResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(runner.run(Arrays.asList("sh", script.toString()), Duration.ofSeconds(30)).toCompletableFuture());
+        }
+        assertEquals(2, runner.getRunningCount());
+        assertEquals(3, runner.getQueuedCount());
+        assertEquals(1, runner.getRejectedCount());
+
+        int rejected = 0;
+        for (CompletableFuture<CommandResult> future : futures) {
+            try {
+                assertEquals(0, future.get(30, TimeUnit.SECONDS).getExitValue());
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+                rejected++;
+            }
+        }
+        assertEquals(1, rejected);
+        assertEquals(0, runner.getRunningCount());
+        assertEquals(0, runner.getQueuedCount());
+        runner.terminate();
+    }
+
+    @Test
+    public void testStartFailure() throws Exception {
+        ProcessRunner runner = createRunner(1, 10, 1024);
+        CompletableFuture<CommandResult> future = runner.run(scripts.resolve("missing").toString(), 10).toCompletableFuture();
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected exception");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        //The slot is released
+        assertEquals(0, runner.getRunningCount());
+        runner.terminate();
+    }
+
+    private ProcessRunner createRunner(int maxConcurrent, int maxQueued, int maxOutputBytes) {
+        return new ProcessRunner(scheduledExecutor, maxConcurrent, maxQueued, maxOutputBytes, 5, new MonitoredValues(null));
+    }
+
+    private Path script(String name, String... lines) throws IOException {
+        Path script = scripts.resolve(name);
+        List<String> content = new ArrayList<>();
+        content.add("#!/bin/sh");
+        content.addAll(Arrays.asList(lines));
+        Files.write(script, content);
+        assertTrue(script.toFile().setExecutable(true));
+        return script;
+    }
+
+    private CommandResult get(CompletionStage<CommandResult> stage) throws Exception {
+        return stage.toCompletableFuture().get(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.spring.components.executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimerWheelTest {
+
+    private TimerWheel wheel;
+    private Thread thread;
+
+    @Before
+    public void before() {
+        // small wheel so that tasks wrap around multiple rounds
+        this.wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 8, null);
+        this.thread = new Thread(wheel, "Timer wheel test");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @After
+    public void after() throws InterruptedException {
+        thread.interrupt();
+        thread.join(1000);
+    }
+
+    @Test
+    public void expiresNoEarlierThanDelay() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(0, wheel.pendingCount());
+    }
+
+    @Test
+    public void cancelledTaskDoesNotRun() throws InterruptedException {
+        AtomicBoolean ran = new AtomicBoolean();
+        TimerWheel.Timeout timeout = wheel.schedule(() -> ran.set(true), 20, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.pendingCount());
+        Thread.sleep(100);
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void manyTasksExpire() throws InterruptedException {
+        int count = 10000;
+        CountDownLatch latch = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            wheel.schedule(latch::countDown, i % 100, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, wheel.pendingCount());
+    }
+
+    @Test
+    public void parksWhileIdle() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+        wheel.schedule(first::countDown, 5, TimeUnit.MILLISECONDS);
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+
+        // parked without a timeout once nothing is pending
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue("Wheel thread did not park", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        Thread.sleep(50);
+        CountDownLatch second = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(second::countDown, 20, TimeUnit.MILLISECONDS);
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+}
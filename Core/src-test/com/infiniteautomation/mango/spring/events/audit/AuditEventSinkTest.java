@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.spring.events.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.infiniteautomation.mango.spring.events.audit.AuditEventSink.BackpressurePolicy;
+import com.serotonin.m2m2.rt.event.type.AuditEventType;
+import com.serotonin.m2m2.vo.permission.PermissionHolder;
+import com.serotonin.m2m2.vo.role.RoleVO;
+
+public class AuditEventSinkTest {
+
+    private final List<AuditEvent> processed = Collections.synchronizedList(new ArrayList<>());
+    private AuditEventSink sink;
+
+    @After
+    public void stopSink() throws InterruptedException {
+        if (sink != null) {
+            sink.stop(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void eventsForAnObjectAreProcessedInOrder() throws Exception {
+        startSink(processed::addAll, 64, 16, BackpressurePolicy.BLOCK);
+
+        int threads = 4;
+        int objectsPerThread = 10;
+        int changesPerThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < changesPerThread; i++) {
+                        int id = thread * objectsPerThread + i % objectsPerThread;
+                        sink.submit(change(id, i - objectsPerThread, i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(sink.flush(30, TimeUnit.SECONDS));
+        assertEquals(threads * changesPerThread, processed.size());
+        assertEquals(threads * changesPerThread, sink.getProcessedCount());
+        assertTrue(sink.getBatchCount() < threads * changesPerThread);
+
+        Map<Integer, Integer> lastVersion = new HashMap<>();
+        for (AuditEvent event : processed) {
+            RoleVO vo = ((ChangeAuditEvent<RoleVO>) event).getVo();
+            int version = Integer.parseInt(vo.getName());
+            Integer previous = lastVersion.put(vo.getId(), version);
+            if (previous != null) {
+                assertTrue("Events for object " + vo.getId() + " out of order", version > previous);
+            }
+        }
+        assertEquals(threads * objectsPerThread, lastVersion.size());
+    }
+
+    @Test
+    public void bulkScopeCollapsesEventsPerObject() throws InterruptedException {
+        startSink(processed::addAll, 64, 16, BackpressurePolicy.BLOCK);
+
+        RoleVO created = role(1, 0);
+        AuditBulkScope scope = sink.openBulkScope();
+        scope.run(() -> {
+            sink.submit(new CreateAuditEvent<>(AuditEventType.TYPE_ROLE, PermissionHolder.SYSTEM_SUPERADMIN, created));
+            sink.submit(change(2, 0, 1));
+            sink.submit(change(1, 0, 1));
+            sink.submit(change(2, 1, 2));
+            sink.submit(change(1, 1, 2));
+            sink.submit(new DeleteAuditEvent<>(AuditEventType.TYPE_ROLE, PermissionHolder.SYSTEM_SUPERADMIN, role(1, 2)));
+            sink.submit(change(2, 2, 3));
+        });
+
+        assertTrue(sink.flush(10, TimeUnit.SECONDS));
+        assertTrue(processed.isEmpty());
+
+        scope.close();
+        assertTrue(sink.flush(10, TimeUnit.SECONDS));
+        assertEquals(4, scope.getCollapsedCount());
+        assertEquals(3, processed.size());
+
+        // events for object 1 first as it was changed first
+        CreateAuditEvent<?> create = (CreateAuditEvent<?>) processed.get(0);
+        assertEquals("2", create.getVo().getName());
+        DeleteAuditEvent<?> delete = (DeleteAuditEvent<?>) processed.get(1);
+        assertEquals(1, delete.getVo().getId());
+        ChangeAuditEvent<?> change = (ChangeAuditEvent<?>) processed.get(2);
+        assertEquals(2, change.getVo().getId());
+        assertEquals("0", change.getFrom().getName());
+        assertEquals("3", change.getVo().getName());
+
+        // submitted directly once closed
+        scope.run(() -> sink.submit(change(3, 0, 1)));
+        assertTrue(sink.flush(10, TimeUnit.SECONDS));
+        assertEquals(4, processed.size());
+    }
+
+    @Test
+    public void collapsedEventKeepsTimeOfLastChange() throws InterruptedException {
+        startSink(processed::addAll, 64, 16, BackpressurePolicy.BLOCK);
+
+        ChangeAuditEvent<RoleVO> first = change(1, 0, 1);
+        first.setTimestamp(1000);
+        ChangeAuditEvent<RoleVO> second = change(1, 1, 2);
+        second.setTimestamp(2000);
+
+        try (AuditBulkScope scope = sink.openBulkScope()) {
+            scope.run(() -> {
+                sink.submit(first);
+                sink.submit(second);
+            });
+        }
+
+        assertTrue(sink.flush(10, TimeUnit.SECONDS));
+        assertEquals(1, processed.size());
+        assertEquals(2000, processed.get(0).getTimestamp());
+    }
+
+    @Test
+    public void eventsAreDiscardedWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch processing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        startSink(blockingProcessor(processing, release), 2, 16, BackpressurePolicy.DISCARD);
+
+        sink.submit(change(1, 0, 1));
+        assertTrue(processing.await(10, TimeUnit.SECONDS));
+        for (int i = 2; i < 7; i++) {
+            sink.submit(change(1, i - 1, i));
+        }
+        assertEquals(3, sink.getDroppedCount());
+
+        release.countDown();
+        assertTrue(sink.flush(10, TimeUnit.SECONDS));
+        assertEquals(3, processed.size());
+    }
+
+    @Test
+    public void submitBlocksWhenQueueIsFull() throws Exception {
+        CountDownLatch processing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        startSink(blockingProcessor(processing, release), 2, 16, BackpressurePolicy.BLOCK);
+
+        sink.submit(change(1, 0, 1));
+        assertTrue(processing.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Void> submitted = CompletableFuture.runAsync(() -> {
+            for (int i = 2; i < 7; i++) {
+                sink.submit(change(1, i - 1, i));
+            }
+        });
+
+        Thread.sleep(200);
+        assertFalse(submitted.isDone());
+
+        release.countDown();
+        submitted.get(10, TimeUnit.SECONDS);
+        assertTrue(sink.flush(10, TimeUnit.SECONDS));
+        assertEquals(6, processed.size());
+        assertEquals(0, sink.getDroppedCount());
+        assertSame(BackpressurePolicy.BLOCK, sink.getBackpressurePolicy());
+    }
+
+    private void startSink(Consumer<List<AuditEvent>> processor, int queueSize, int batchSize, BackpressurePolicy policy) {
+        sink = new AuditEventSink(processor, queueSize, batchSize, policy, 1000);
+        sink.start();
+    }
+
+    private Consumer<List<AuditEvent>> blockingProcessor(CountDownLatch processing, CountDownLatch release) {
+        return events -> {
+            processing.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            processed.addAll(events);
+        };
+    }
+
+    private ChangeAuditEvent<RoleVO> change(int id, int fromVersion, int toVersion) {
+        return new ChangeAuditEvent<>(AuditEventType.TYPE_ROLE, PermissionHolder.SYSTEM_SUPERADMIN,
+                role(id, fromVersion), role(id, toVersion));
+    }
+
+    private RoleVO role(int id, int version) {
+        return new RoleVO(id, "ROLE_" + id, Integer.toString(version));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.spring.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.infiniteautomation.mango.monitor.MonitoredValues;
+import com.infiniteautomation.mango.monitor.ValueMonitor;
+import com.infiniteautomation.mango.spring.components.RunAs;
+import com.infiniteautomation.mango.util.script.CompiledMangoJavaScript;
+import com.infiniteautomation.mango.util.script.MangoJavaScriptResult;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.rt.script.DateTimeUtility;
+import com.serotonin.m2m2.rt.script.ScriptLog;
+import com.serotonin.m2m2.util.log.LogLevel;
+
+public class MangoJavaScriptServiceTest extends MangoTestBase {
+
+    private static final String COUNTER_SCRIPT = "counter = (typeof counter === 'undefined') ? 1 : counter + 1; return counter;";
+
+    private MangoJavaScriptService service;
+    private RunAs runAs;
+
+    @Before
+    public void setupService() {
+        this.service = Common.getBean(MangoJavaScriptService.class);
+        this.runAs = Common.getBean(RunAs.class);
+    }
+
+    @Test
+    public void compiledScriptsAreCached() throws Exception {
+        runAs.runAsCallable(runAs.systemSuperadmin(), () -> {
+            CompiledScript first = service.compile("return 1;", true);
+            CompiledScript second = service.compile("return 1;", true);
+            CompiledScript other = service.compile("return 2;", true);
+            assertSame(first, second);
+            assertNotSame(first, other);
+            return null;
+        });
+    }
+
+    @Test
+    public void scriptsSharingCompiledCodeAreIsolated() throws Exception {
+        runAs.runAsCallable(runAs.systemSuperadmin(), () -> {
+            CompiledMangoJavaScript first = createScript();
+            CompiledMangoJavaScript second = createScript();
+            assertSame(first.getCompiledScript(), second.getCompiledScript());
+
+            assertEquals(1, ((Number) first.execute(0, 0).getResult()).intValue());
+            assertEquals(2, ((Number) first.execute(0, 0).getResult()).intValue());
+            // global state of the first script is not visible to the second
+            assertEquals(1, ((Number) second.execute(0, 0).getResult()).intValue());
+            return null;
+        });
+    }
+
+    @Test
+    public void concurrentRequestsCompileOnce() throws Exception {
+        ValueMonitor<?> compileCount = Common.getBean(MonitoredValues.class)
+                .getMonitor(MangoJavaScriptService.COMPILE_COUNT_MONITOR_ID);
+        long before = ((Number) compileCount.getValue()).longValue();
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<CompiledScript>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> runAs.runAsCallable(runAs.systemSuperadmin(), () -> {
+                    start.await();
+                    return service.compile("return 'concurrent';", true);
+                })));
+            }
+            start.countDown();
+
+            CompiledScript first = futures.get(0).get(30, TimeUnit.SECONDS);
+            for (Future<CompiledScript> future : futures) {
+                assertSame(first, future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(before + 1, ((Number) compileCount.getValue()).longValue());
+    }
+
+    @Test
+    public void scriptsHaveTheirOwnGlobalBindings() throws Exception {
+        runAs.runAsCallable(runAs.systemSuperadmin(), () -> {
+            CompiledMangoJavaScript first = createScript();
+            CompiledMangoJavaScript second = createScript();
+            Bindings firstGlobals = first.getEngine().getBindings(ScriptContext.GLOBAL_SCOPE);
+            Bindings secondGlobals = second.getEngine().getBindings(ScriptContext.GLOBAL_SCOPE);
+            assertNotSame(firstGlobals, secondGlobals);
+            assertNotSame(firstGlobals.get(DateTimeUtility.CONTEXT_KEY), secondGlobals.get(DateTimeUtility.CONTEXT_KEY));
+
+            firstGlobals.put("shared", "value");
+            assertNull(secondGlobals.get("shared"));
+            return null;
+        });
+    }
+
+    private CompiledMangoJavaScript createScript() throws Exception {
+        MangoJavaScriptResult result = new MangoJavaScriptResult();
+        ScriptLog log = new ScriptLog("test", LogLevel.NONE, new PrintWriter(new StringWriter()));
+        CompiledMangoJavaScript script = new CompiledMangoJavaScript(service.createValidationSetter(result), log,
+                null, null, null, true, service, runAs.systemSuperadmin());
+        script.compile(COUNTER_SCRIPT, true);
+        script.initialize(new HashMap<>());
+        return script;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.spring.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+
+import com.infiniteautomation.mango.db.metrics.QueryMetrics;
+import com.infiniteautomation.mango.db.metrics.QueryShapeStatistics;
+import com.infiniteautomation.mango.db.metrics.QueryShapes;
+import com.infiniteautomation.mango.db.metrics.SlowQuery;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.DataType;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.db.dao.EventDao;
+import com.serotonin.m2m2.db.dao.PointValueDao;
+import com.serotonin.m2m2.rt.dataImage.PointValueTime;
+import com.serotonin.m2m2.vo.DataPointVO;
+import com.serotonin.m2m2.vo.dataPoint.MockPointLocatorVO;
+
+public class QueryMetricsServiceTest extends MangoTestBase {
+
+    @Test
+    public void pointValueQueriesAreRecorded() {
+        QueryMetricsService service = Common.getBean(QueryMetricsService.class);
+        assertTrue(service.isEnabled());
+
+        DataPointVO point = createMockDataPoint(createMockDataSource(), new MockPointLocatorVO(DataType.NUMERIC, false));
+        PointValueDao pointValueDao = Common.getBean(PointValueDao.class);
+        service.reset();
+
+        for (int i = 0; i < 10; i++) {
+            pointValueDao.savePointValueSync(point, new PointValueTime((double) i, 1000L * (i + 1)));
+        }
+        List<PointValueTime> values = pointValueDao.getPointValuesBetween(point, 0, 100000);
+        assertEquals(10, values.size());
+
+        QueryShapeStatistics select = findShape(service, s -> s.startsWith("select") && s.contains("pointvalues"));
+        assertTrue(select.getCount() >= 1);
+        assertTrue(select.getRowsFetched() >= 10);
+        assertTrue(select.getMax() >= select.getMedian());
+
+        QueryShapeStatistics insert = findShape(service, s -> s.startsWith("insert into") && s.contains("pointvalues"));
+        assertTrue(insert.getCount() >= 10);
+        assertEquals(0, insert.getErrorCount());
+        assertFalse("Bind values must not be part of the shape", insert.getShape().contains("1000"));
+    }
+
+    @Test
+    public void eventQueriesAreRecorded() {
+        QueryMetricsService service = Common.getBean(QueryMetricsService.class);
+        service.reset();
+
+        Common.getBean(EventDao.class).getActiveEvents();
+        Common.getBean(EventDao.class).getActiveEvents();
+
+        QueryShapeStatistics select = findShape(service, s -> s.startsWith("select") && s.contains("from events"));
+        assertTrue(select.getCount() >= 2);
+        assertEquals(0, select.getErrorCount());
+        assertNotNull(service.getQueryShape(select.getShape()).orElse(null));
+    }
+
+    @Test
+    public void shapesIgnoreLiteralsAndListLengths() {
+        assertEquals("select * from t1 where id in (?) and name = ?",
+                QueryShapes.shapeOf("select * from t1 where id in (?, ?, ?) and name = 'it''s'"));
+        assertEquals(QueryShapes.shapeOf("select * from t1 where id in (?, ?) and name = 'other'"),
+                QueryShapes.shapeOf("select * from t1 where id in (?) and name = ?"));
+        assertEquals("insert into t (a, b) values (?)",
+                QueryShapes.shapeOf("insert into t (a, b) values (?, ?), (?, ?),\n (1, 'x')"));
+        assertEquals("select \"col1\" from t where x > ? limit ?",
+                QueryShapes.shapeOf("select \"col1\" from t  where x > 10.5 limit ?"));
+    }
+
+    @Test
+    public void slowQueriesAreBoundedAndRedacted() {
+        QueryMetrics metrics = new QueryMetrics(2, 0, 2);
+        metrics.record("select * from a where name = 'secret'", 1000, 1, null);
+        metrics.record("select * from b where id = 5", 2000, 0, null);
+        metrics.record("select * from c", 3000, 0, new RuntimeException());
+
+        List<SlowQuery> slowQueries = metrics.getSlowQueries();
+        assertEquals(2, slowQueries.size());
+        assertEquals("select * from c", slowQueries.get(0).getSql());
+        assertEquals(RuntimeException.class.getName(), slowQueries.get(0).getError());
+        assertEquals("select * from b where id = ?", slowQueries.get(1).getSql());
+
+        assertEquals(3, metrics.getQueryCount());
+        assertEquals(1, metrics.getErrorCount());
+        assertNull(metrics.getShape("select * from c"));
+        assertNotNull(metrics.getShape(QueryMetrics.OTHER_SHAPE));
+    }
+
+    private QueryShapeStatistics findShape(QueryMetricsService service, Predicate<String> matcher) {
+        return service.getQueryShapes().stream()
+                .filter(s -> matcher.test(s.getShape().toLowerCase(Locale.ROOT)))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No matching query shape recorded"));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SlidingWindowAggregatorTest {
+
+    @Test
+    public void aggregatesMatchRecomputedValues() {
+        SlidingWindowAggregator<Double> window = new SlidingWindowAggregator<>(Double::doubleValue);
+        Deque<double[]> expected = new ArrayDeque<>();
+        Random random = new Random(42);
+
+        long time = 0;
+        for (int i = 0; i < 5000; i++) {
+            time += random.nextInt(3);
+            double value = random.nextInt(200) - 100;
+            window.add(time, value);
+            expected.addLast(new double[] {time, value});
+
+            long cutoff = time - 50;
+            window.evictBefore(cutoff);
+            while (expected.peekFirst()[0] < cutoff) {
+                expected.removeFirst();
+            }
+
+            assertEquals(expected.size(), window.size());
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (double[] sample : expected) {
+                sum += sample[1];
+                min = Math.min(min, sample[1]);
+                max = Math.max(max, sample[1]);
+            }
+            assertEquals(sum, window.getSum(), 0.000001);
+            assertEquals(sum / expected.size(), window.getMean(), 0.000001);
+            assertEquals(min, window.getMinimum(), 0);
+            assertEquals(max, window.getMaximum(), 0);
+        }
+    }
+
+    @Test
+    public void floorAndEviction() {
+        SlidingWindowAggregator<String> window = new SlidingWindowAggregator<>();
+        for (int i = 0; i < 40; i++) {
+            window.add(i * 10L, "v" + i);
+        }
+
+        assertNull(window.floor(-1));
+        assertEquals("v0", window.floor(0));
+        assertEquals("v1", window.floor(19));
+        assertEquals("v39", window.floor(1000));
+        assertEquals(-1, window.floorIndex(-5));
+
+        assertEquals(10, window.evictBeforeKeepingPrevious(105));
+        assertEquals("v10", window.first());
+        assertEquals("v10", window.floor(105));
+        assertEquals(0, window.evictBeforeKeepingPrevious(105));
+
+        assertEquals(1, window.evictBefore(105));
+        assertEquals("v11", window.get(0));
+        assertEquals(110, window.getTime(0));
+
+        assertEquals(24, window.trimToSize(5));
+        assertEquals(Arrays.asList("v35", "v36", "v37", "v38", "v39"), window.toList());
+
+        window.clear();
+        assertTrue(window.isEmpty());
+        assertNull(window.last());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void samplesMustBeInTimeOrder() {
+        SlidingWindowAggregator<String> window = new SlidingWindowAggregator<>();
+        window.add(10, "a");
+        window.add(9, "b");
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.webapp.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.server.session.SessionContext;
+import org.eclipse.jetty.server.session.SessionData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.infiniteautomation.mango.spring.components.RunAs;
+import com.infiniteautomation.mango.spring.components.executors.MangoExecutors;
+import com.infiniteautomation.mango.spring.service.UsersService;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.db.DatabaseProxy;
+import com.serotonin.m2m2.db.dao.MangoSessionDataDao;
+import com.serotonin.m2m2.vo.MangoSessionDataVO;
+
+public class MangoJdbcSessionDataStoreTest extends MangoTestBase {
+
+    private MangoSessionDataDao dao;
+    private MangoJdbcSessionDataStore store;
+    private String contextPath;
+    private String virtualHost;
+
+    @Before
+    public void createStore() throws Exception {
+        createStore(Common.getBean(MangoSessionDataDao.class));
+    }
+
+    private void createStore(MangoSessionDataDao dao) throws Exception {
+        if (store != null && store.isStarted()) {
+            store.stop();
+        }
+        this.dao = dao;
+        this.store = new MangoJdbcSessionDataStore(Common.getBean(UsersService.class), dao,
+                Common.getRuntimeContext(), Common.getBean(RunAs.class), Common.getRuntimeContext().getEnvironment(),
+                Common.getBean(MangoExecutors.class));
+
+        SessionContext context = new SessionContext("node0", null);
+        store.initialize(context);
+        store.start();
+        this.contextPath = context.getCanonicalContextPath();
+        this.virtualHost = context.getVhost();
+    }
+
+    @After
+    public void stopStore() throws Exception {
+        if (store.isStarted()) {
+            store.stop();
+        }
+    }
+
+    private SessionData session(String id, long accessTime, long expiry) {
+        SessionData data = store.newSessionData(id, 1000, accessTime, accessTime, -1);
+        data.setLastNode("node0");
+        data.setExpiry(expiry);
+        return data;
+    }
+
+    @Test
+    public void coalescesRepeatedStores() throws Exception {
+        store.doStore("session1", session("session1", 2000, 0), 0);
+        store.doStore("session1", session("session1", 3000, 0), 2000);
+        store.doStore("session1", session("session1", 4000, 0), 3000);
+        // written behind
+        assertNull(dao.get("session1", contextPath, virtualHost));
+
+        store.flush();
+        // inserted once, the first store was never written
+        MangoSessionDataVO vo = dao.get("session1", contextPath, virtualHost);
+        assertNotNull(vo);
+        assertEquals(4000, vo.getAccessTime());
+    }
+
+    @Test
+    public void loadsPendingSession() throws Exception {
+        store.doStore("session1", session("session1", 2000, 0), 0);
+
+        assertTrue(store.exists("session1"));
+        SessionData loaded = store.doLoad("session1");
+        assertNotNull(loaded);
+        assertEquals(2000, loaded.getAccessed());
+
+        // the pending save is newer than the database row
+        store.flush();
+        store.doStore("session1", session("session1", 5000, 0), 2000);
+        assertEquals(5000, store.doLoad("session1").getAccessed());
+        assertEquals(2000, dao.get("session1", contextPath, virtualHost).getAccessTime());
+    }
+
+    @Test
+    public void deleteWhilePending() throws Exception {
+        store.doStore("session1", session("session1", 2000, 0), 0);
+        assertTrue(store.delete("session1"));
+
+        store.flush();
+        assertNull(dao.get("session1", contextPath, virtualHost));
+        assertNull(store.doLoad("session1"));
+        assertFalse(store.exists("session1"));
+    }
+
+    @Test
+    public void deleteIsNotUndoneByConcurrentFlush() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> flusher = executor.submit(() -> {
+                while (!done.get()) {
+                    store.flush();
+                }
+            });
+
+            for (int i = 0; i < 200; i++) {
+                String id = "session" + i;
+                store.doStore(id, session(id, 2000, 0), 0);
+                assertTrue(store.delete(id));
+            }
+            done.set(true);
+            flusher.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        store.flush();
+        for (int i = 0; i < 200; i++) {
+            assertNull(dao.get("session" + i, contextPath, virtualHost));
+        }
+    }
+
+    @Test
+    public void flushedBeforeExpiryCheck() throws Exception {
+        long now = timer.currentTimeMillis();
+        store.doStore("session1", session("session1", now, now + 1000), 0);
+        store.doStore("session2", session("session2", now, now + 60000), 0);
+        timer.fastForwardTo(now + 2000);
+
+        assertEquals(Collections.singleton("session1"), store.doGetExpired(Collections.emptySet()));
+        assertNotNull(dao.get("session2", contextPath, virtualHost));
+    }
+
+    @Test
+    public void flushedOnStop() throws Exception {
+        store.doStore("session1", session("session1", 2000, 0), 0);
+        assertNull(dao.get("session1", contextPath, virtualHost));
+
+        store.stop();
+        assertNotNull(dao.get("session1", contextPath, virtualHost));
+    }
+
+    @Test
+    public void storeDuringFlushIsWrittenAsUpdate() throws Exception {
+        AtomicInteger batchFailures = new AtomicInteger();
+        AtomicBoolean storeDuringFlush = new AtomicBoolean(true);
+        createStore(new MangoSessionDataDao(Common.getBean(DatabaseProxy.class)) {
+            @Override
+            public void saveBatch(Collection<MangoSessionDataVO> inserts, Collection<MangoSessionDataVO> updates) {
+                if (storeDuringFlush.getAndSet(false)) {
+                    try {
+                        store.doStore("session1", session("session1", 3000, 0), 2000);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                try {
+                    super.saveBatch(inserts, updates);
+                } catch (RuntimeException e) {
+                    batchFailures.incrementAndGet();
+                    throw e;
+                }
+            }
+        });
+
+        store.doStore("session1", session("session1", 2000, 0), 0);
+        store.flush();
+        assertEquals(2000, dao.get("session1", contextPath, virtualHost).getAccessTime());
+
+        // the row was inserted by the first flush, the save stored during it must not be inserted again
+        store.flush();
+        assertEquals(0, batchFailures.get());
+        assertEquals(3000, dao.get("session1", contextPath, virtualHost).getAccessTime());
+    }
+
+    @Test
+    public void flushedWhenTooManyPending() throws Exception {
+        properties.setProperty("sessionCookie.maxPendingSaves", "3");
+        try {
+            createStore(dao);
+        } finally {
+            properties.setProperty("sessionCookie.maxPendingSaves", "10000");
+        }
+
+        store.doStore("session1", session("session1", 2000, 0), 0);
+        store.doStore("session2", session("session2", 2000, 0), 0);
+        assertNull(dao.get("session1", contextPath, virtualHost));
+
+        store.doStore("session3", session("session3", 2000, 0), 0);
+        assertNotNull(dao.get("session1", contextPath, virtualHost));
+        assertNotNull(dao.get("session2", contextPath, virtualHost));
+        assertNotNull(dao.get("session3", contextPath, virtualHost));
+    }
+}
@@ -66,6 +66,7 @@ import com.serotonin.json.type.JsonValue;
 import com.serotonin.m2m2.db.BasePooledProxy;
 import com.serotonin.m2m2.db.DatabaseProxy;
 import com.serotonin.m2m2.db.dao.PointValueDao;
+import com.serotonin.m2m2.db.dao.codec.MockBlobEncoderDefinition;
 import com.serotonin.m2m2.i18n.ProcessMessage;
 import com.serotonin.m2m2.module.Module;
 import com.serotonin.m2m2.module.ModuleElementDefinition;
@@ -131,7 +132,8 @@ public class MangoTestBase {
         Providers.add(MangoProperties.class, properties);
         Providers.add(ICoreLicense.class, new TestLicenseDefinition());
         Common.releaseProps = new Properties();
-        addModule("BaseTest", new MockDataSourceDefinition(), new MockPublisherDefinition());
+        addModule("BaseTest", new MockDataSourceDefinition(), new MockPublisherDefinition(),
+                new MockBlobEncoderDefinition());
     }
 
     public static void setupTestDB() {
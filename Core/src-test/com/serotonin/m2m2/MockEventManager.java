@@ -50,6 +50,13 @@ public class MockEventManager extends EventManagerImpl {
         }
     }
 
+    @Override
+    public void raiseEvents(List<EventInstance> events) {
+        if(useDatabase) {
+            super.raiseEvents(events);
+        }
+    }
+
     @Override
     public void returnToNormal(EventType type, long time) {
         if(useDatabase) {
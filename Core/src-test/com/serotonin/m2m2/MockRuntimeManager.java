@@ -22,6 +22,7 @@ import com.serotonin.m2m2.rt.RTException;
 import com.serotonin.m2m2.rt.RuntimeManager;
 import com.serotonin.m2m2.rt.dataImage.DataPointListener;
 import com.serotonin.m2m2.rt.dataImage.DataPointRT;
+import com.serotonin.m2m2.rt.dataImage.PointValueBatch;
 import com.serotonin.m2m2.rt.dataImage.PointValueTime;
 import com.serotonin.m2m2.rt.dataImage.SetPointSource;
 import com.serotonin.m2m2.rt.dataImage.types.DataValue;
@@ -164,6 +165,11 @@ public class MockRuntimeManager implements RuntimeManager {
         return null;
     }
 
+    @Override
+    public void updatePointValues(PointValueBatch batch) {
+        DataPointRT.updatePointValues(batch);
+    }
+
     @Override
     public void setDataPointValue(int dataPointId, DataValue value, SetPointSource source) {
 
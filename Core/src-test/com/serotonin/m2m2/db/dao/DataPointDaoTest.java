@@ -6,13 +6,21 @@ package com.serotonin.m2m2.db.dao;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Test;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.infiniteautomation.mango.db.tables.DataPoints;
 import com.infiniteautomation.mango.db.tables.TimeSeries;
@@ -206,6 +214,137 @@ public class DataPointDaoTest extends AbstractVoDaoTest<DataPointVO, DataPointDa
         }
     }
 
+    @Test
+    public void testCachedLookupsFollowUpdates() {
+        DataPointVO point = newVO();
+        dao.insert(point);
+
+        DataPointVO first = dao.getByXid(point.getXid());
+        DataPointVO second = dao.get(point.getId());
+        assertNotSame(first, second);
+        first.setName("modified but not saved");
+        assertEquals(point.getName(), dao.get(point.getId()).getName());
+
+        DataPointVO updated = second.copy();
+        updated.setName("updated");
+        updated.setXid("updated-xid");
+        dao.update(second, updated);
+
+        assertEquals("updated", dao.get(point.getId()).getName());
+        assertEquals("updated", dao.getByXid("updated-xid").getName());
+        assertNull(dao.getByXid(point.getXid()));
+
+        dao.delete(point.getId());
+        assertNull(dao.get(point.getId()));
+        assertNull(dao.getByXid("updated-xid"));
+    }
+
+    @Test
+    public void testCachedLocatorNotShared() {
+        DataPointVO point = newVO();
+        dao.insert(point);
+        boolean settable = point.getPointLocator().isSettable();
+
+        MockPointLocatorVO locator = dao.get(point.getId()).getPointLocator();
+        locator.setSettable(!settable);
+
+        assertEquals(settable, dao.get(point.getId()).getPointLocator().isSettable());
+        assertEquals(settable, dao.getByXid(point.getXid()).getPointLocator().isSettable());
+        assertNotSame(dao.get(point.getId()).getPointLocator(), dao.get(point.getId()).getPointLocator());
+    }
+
+    @Test
+    public void testCachedPointsFollowDataSourceUpdates() {
+        DataPointVO point = newVO();
+        dao.insert(point);
+        assertEquals("permissions_test_datasource", dao.get(point.getId()).getDataSourceName());
+
+        DataSourceVO dataSource = dataSourceService.get(point.getDataSourceId());
+        dataSource.setName("renamed");
+        dataSourceService.update(dataSource.getId(), dataSource);
+
+        assertEquals("renamed", dao.get(point.getId()).getDataSourceName());
+        assertEquals("renamed", dao.getByXid(point.getXid()).getDataSourceName());
+    }
+
+    @Test
+    public void testCachedPointsFollowDataSourceUpdatesInTransaction() throws Exception {
+        DataPointVO point = newVO();
+        dao.insert(point);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            new TransactionTemplate(Common.getBean(DatabaseProxy.class).getTransactionManager()).executeWithoutResult(status -> {
+                DataSourceVO dataSource = dataSourceService.get(point.getDataSourceId());
+                dataSource.setName("renamed");
+                dataSourceService.update(dataSource.getId(), dataSource);
+
+                // another thread caches the point before the update is committed
+                try {
+                    assertEquals("permissions_test_datasource",
+                            executor.submit(() -> dao.get(point.getId()).getDataSourceName()).get(30, TimeUnit.SECONDS));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("renamed", dao.get(point.getId()).getDataSourceName());
+    }
+
+    @Test
+    public void testCachedLookupsCoherentWithConcurrentUpdates() throws Exception {
+        int readers = 4;
+        int updates = 100;
+
+        DataPointVO point = newVO();
+        point.setName("0");
+        dao.insert(point);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                boolean byXid = i % 2 == 0;
+                results.add(executor.submit(() -> {
+                    // each reader must never observe a version older than one it has already seen
+                    int lastSeen = 0;
+                    int reads = 0;
+                    while (running.get()) {
+                        DataPointVO vo = byXid ? dao.getByXid(point.getXid()) : dao.get(point.getId());
+                        int version = Integer.parseInt(vo.getName());
+                        assertTrue("Read version " + version + " after " + lastSeen, version >= lastSeen);
+                        lastSeen = version;
+                        reads++;
+                    }
+                    return reads;
+                }));
+            }
+
+            for (int i = 1; i <= updates; i++) {
+                DataPointVO existing = dao.get(point.getId());
+                DataPointVO updated = existing.copy();
+                updated.setName(Integer.toString(i));
+                dao.update(existing, updated);
+                assertEquals(Integer.toString(i), dao.get(point.getId()).getName());
+            }
+            running.set(false);
+
+            for (Future<Integer> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+
+        assertEquals(Integer.toString(updates), dao.get(point.getId()).getName());
+        assertEquals(Integer.toString(updates), dao.getByXid(point.getXid()).getName());
+    }
+
     @Override
     void assertVoEqual(DataPointVO expected, DataPointVO actual) {
         assertEquals(expected.getId(), actual.getId());
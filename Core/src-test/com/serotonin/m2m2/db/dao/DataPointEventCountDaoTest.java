@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.impl.DSL;
+import org.junit.Test;
+
+import com.infiniteautomation.mango.db.query.ConditionSortLimitWithTagKeys;
+import com.infiniteautomation.mango.db.tables.DataPointEventCounts;
+import com.infiniteautomation.mango.db.tables.Events;
+import com.infiniteautomation.mango.permission.MangoPermission;
+import com.infiniteautomation.mango.util.RQLUtils;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.db.DatabaseProxy;
+import com.serotonin.m2m2.i18n.TranslatableMessage;
+import com.serotonin.m2m2.rt.event.AlarmLevels;
+import com.serotonin.m2m2.rt.event.EventInstance;
+import com.serotonin.m2m2.rt.event.ReturnCause;
+import com.serotonin.m2m2.rt.event.type.DataPointEventType;
+import com.serotonin.m2m2.rt.event.type.EventType.EventTypeNames;
+import com.serotonin.m2m2.vo.permission.PermissionHolder;
+
+/**
+ * Checks that the dataPointEventCounts summary table matches a full recount of the events table after randomized
+ * event lifecycles.
+ */
+public class DataPointEventCountDaoTest extends MangoTestBase {
+
+    private static final String USE_SUMMARY_TABLE = "events.dataPointEventCounts.useSummaryTable";
+
+    private final AlarmLevels[] levels = {AlarmLevels.INFORMATION, AlarmLevels.URGENT, AlarmLevels.CRITICAL};
+    private final TranslatableMessage[] messages = {
+            new TranslatableMessage("common.default", "high"),
+            new TranslatableMessage("common.default", "low"),
+            // longer than any bounded varchar, the rows are keyed on the hash of the message
+            new TranslatableMessage("common.default", StringUtils.repeat("long", 2000))
+    };
+    private final MangoPermission[] permissions = {
+            MangoPermission.superadminOnly(),
+            MangoPermission.requireAnyRole(PermissionHolder.USER_ROLE)
+    };
+
+    @Test
+    public void summaryMatchesRecount() {
+        EventDao eventDao = Common.getBean(EventDao.class);
+        EventInstanceDao eventInstanceDao = Common.getBean(EventInstanceDao.class);
+        Random random = new Random(42);
+        List<EventInstance> active = new ArrayList<>();
+        List<EventInstance> all = new ArrayList<>();
+        long time = 1000;
+
+        for (int i = 0; i < 500; i++) {
+            time += random.nextInt(10) + 1;
+            int operation = random.nextInt(20);
+
+            if (operation < 10 || all.isEmpty()) {
+                EventInstance event = new EventInstance(
+                        new DataPointEventType(random.nextInt(5) + 1, random.nextInt(2) + 1),
+                        time,
+                        random.nextBoolean(),
+                        levels[random.nextInt(levels.length)],
+                        messages[random.nextInt(messages.length)],
+                        Collections.emptyMap());
+                event.setReadPermission(permissions[random.nextInt(permissions.length)]);
+                eventDao.saveEvent(event);
+                all.add(event);
+                if (event.isActive()) {
+                    active.add(event);
+                }
+            } else if (operation < 13 && !active.isEmpty()) {
+                EventInstance event = active.remove(random.nextInt(active.size()));
+                event.returnToNormal(time, ReturnCause.RETURN_TO_NORMAL);
+                eventDao.saveEvent(event);
+            } else if (operation < 15 && !active.isEmpty()) {
+                List<EventInstance> batch = new ArrayList<>(active.subList(0, Math.min(active.size(), 3)));
+                active.removeAll(batch);
+                for (EventInstance event : batch) {
+                    event.returnToNormal(time, ReturnCause.SOURCE_DISABLED);
+                }
+                eventDao.returnEventsToNormal(batch.stream().map(EventInstance::getId).collect(Collectors.toList()),
+                        time, ReturnCause.SOURCE_DISABLED);
+            } else if (operation < 18) {
+                EventInstance event = all.get(random.nextInt(all.size()));
+                eventDao.ackEvent(event.getId(), time, null, new TranslatableMessage("common.default", "ack"));
+            } else if (operation < 19) {
+                EventInstance event = all.remove(random.nextInt(all.size()));
+                active.remove(event);
+                eventInstanceDao.delete(event.getId());
+            } else {
+                long before = time - 50;
+                int purge = random.nextInt(3);
+                AlarmLevels level = levels[random.nextInt(levels.length)];
+                Predicate<EventInstance> purged;
+                if (purge == 0) {
+                    eventDao.purgeEventsBefore(before);
+                    purged = e -> e.getActiveTimestamp() < before;
+                } else if (purge == 1) {
+                    eventDao.purgeEventsBefore(before, level);
+                    purged = e -> e.getActiveTimestamp() < before && e.getAlarmLevel() == level;
+                } else {
+                    eventDao.purgeEventsBefore(before, EventTypeNames.DATA_POINT);
+                    purged = e -> e.getActiveTimestamp() < before;
+                }
+                all.removeIf(purged);
+                active.removeIf(purged);
+            }
+
+            if (i % 50 == 0) {
+                assertEquals(recount(), summary());
+            }
+        }
+
+        assertFalse(summary().isEmpty());
+        assertEquals(recount(), summary());
+        assertEquals(queryEventCounts(false), queryEventCounts(true));
+
+        eventDao.rebuildDataPointEventCounts();
+        assertEquals(recount(), summary());
+
+        eventDao.purgeAllEvents();
+        assertEquals(Collections.emptyMap(), summary());
+    }
+
+    private Map<String, String> recount() {
+        Events events = Events.EVENTS;
+        Map<String, String> result = new HashMap<>();
+        create().select(events.typeRef1, events.typeRef2, events.alarmLevel, events.readPermissionId, events.message,
+                DSL.count(events.id), DSL.max(events.activeTs), DSL.max(events.rtnTs))
+                .from(events)
+                .where(events.typeName.eq(EventTypeNames.DATA_POINT))
+                .groupBy(events.typeRef1, events.typeRef2, events.alarmLevel, events.readPermissionId, events.message)
+                .forEach(r -> result.put(key(r, 5), value(r, 5)));
+        return result;
+    }
+
+    private Map<String, String> summary() {
+        DataPointEventCounts table = DataPointEventCounts.DATA_POINT_EVENT_COUNTS;
+        Map<String, String> result = new HashMap<>();
+        create().select(table.dataPointId, table.eventDetectorId, table.alarmLevel, table.readPermissionId, table.message,
+                table.eventCount, table.latestActiveTs, table.latestRtnTs, table.messageHash)
+                .from(table)
+                .forEach(r -> {
+                    assertEquals(DataPointEventCountDao.messageHash(r.value5()), r.value9());
+                    assertNull(result.put(key(r, 5), value(r.into(r.field1(), r.field2(), r.field3(), r.field4(),
+                            r.field5(), r.field6(), r.field7(), r.field8()), 5)));
+                });
+        return result;
+    }
+
+    private List<String> queryEventCounts(boolean useSummaryTable) {
+        properties.setProperty(USE_SUMMARY_TABLE, Boolean.toString(useSummaryTable));
+        try {
+            EventInstanceDao dao = Common.getBean(EventInstanceDao.class);
+            ConditionSortLimitWithTagKeys conditions = dao.createEventCountsConditions(RQLUtils.parseRQLtoAST(""));
+            List<String> rows = new ArrayList<>();
+            dao.queryDataPointEventCountsByRQL(conditions, null, null, PermissionHolder.SYSTEM_SUPERADMIN, row ->
+                    rows.add(String.join("|", row.getXid(), BaseDao.writeTranslatableMessage(row.getMessage()),
+                            String.valueOf(row.getAlarmLevel()), String.valueOf(row.getCount()),
+                            String.valueOf(row.getLatestActiveTs()), String.valueOf(row.getLatestRtnTs()))));
+            Collections.sort(rows);
+            return rows;
+        } finally {
+            properties.setProperty(USE_SUMMARY_TABLE, "true");
+        }
+    }
+
+    private String key(Record record, int fields) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < fields; i++) {
+            values.add(String.valueOf(record.get(i)));
+        }
+        return String.join("|", values);
+    }
+
+    private String value(Record record, int offset) {
+        List<String> values = new ArrayList<>();
+        for (int i = offset; i < record.size(); i++) {
+            values.add(String.valueOf(record.get(i)));
+        }
+        return String.join("|", values);
+    }
+
+    private DSLContext create() {
+        return Common.getBean(DatabaseProxy.class).getContext();
+    }
+}
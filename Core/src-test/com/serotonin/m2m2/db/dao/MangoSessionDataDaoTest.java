@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.vo.MangoSessionDataVO;
+
+public class MangoSessionDataDaoTest extends MangoTestBase {
+
+    private MangoSessionDataVO session(String id, long accessTime) {
+        MangoSessionDataVO vo = new MangoSessionDataVO();
+        vo.setSessionId(id);
+        vo.setContextPath("/");
+        vo.setVirtualHost("0.0.0.0");
+        vo.setLastNode("node0");
+        vo.setAccessTime(accessTime);
+        vo.setLastAccessTime(accessTime);
+        vo.setCreateTime(1000);
+        vo.setCookieTime(0);
+        vo.setLastSavedTime(accessTime);
+        vo.setExpiryTime(0);
+        vo.setMaxInterval(-1);
+        return vo;
+    }
+
+    @Test
+    public void saveBatch() {
+        MangoSessionDataDao dao = Common.getBean(MangoSessionDataDao.class);
+
+        dao.saveBatch(Arrays.asList(session("session1", 2000), session("session2", 2000)), Collections.emptyList());
+        dao.saveBatch(Collections.singletonList(session("session3", 3000)), Collections.singletonList(session("session1", 4000)));
+
+        MangoSessionDataVO session1 = dao.get("session1", "/", "0.0.0.0");
+        assertNotNull(session1);
+        assertEquals(4000, session1.getAccessTime());
+        assertEquals(2000, dao.get("session2", "/", "0.0.0.0").getAccessTime());
+        assertEquals(3000, dao.get("session3", "/", "0.0.0.0").getAccessTime());
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.rt.event.AlarmLevels;
+import com.serotonin.m2m2.rt.event.type.AuditEventType;
+import com.serotonin.m2m2.vo.systemSettings.TypedSystemSetting;
+
+public class SystemSettingsDaoTypedTest extends MangoTestBase {
+
+    private static final TypedSystemSetting<Integer> INT_SETTING = TypedSystemSetting.intSetting("typedTestInt", 5, v -> v >= 0);
+    private static final TypedSystemSetting<String> STRING_SETTING = TypedSystemSetting.stringSetting("typedTestString", "default");
+
+    @Test
+    public void testSupplierUpdated() {
+        SystemSettingsDao dao = SystemSettingsDao.getInstance();
+        IntSupplier supplier = dao.getIntSupplier(INT_SETTING);
+        assertEquals(5, supplier.getAsInt());
+
+        dao.setIntValue(INT_SETTING.getKey(), 10);
+        assertEquals(10, supplier.getAsInt());
+        assertEquals(10, (int) dao.getValue(INT_SETTING));
+
+        dao.removeValue(INT_SETTING.getKey());
+        assertEquals(5, supplier.getAsInt());
+    }
+
+    @Test
+    public void testInvalidValueUsesDefault() {
+        SystemSettingsDao dao = SystemSettingsDao.getInstance();
+        IntSupplier supplier = dao.getIntSupplier(INT_SETTING);
+
+        dao.setValue(INT_SETTING.getKey(), "not a number");
+        assertEquals(5, supplier.getAsInt());
+        dao.setIntValue(INT_SETTING.getKey(), -1);
+        assertEquals(5, supplier.getAsInt());
+    }
+
+    @Test
+    public void testListenerNotified() {
+        SystemSettingsDao dao = SystemSettingsDao.getInstance();
+        Supplier<String> supplier = dao.getSupplier(STRING_SETTING);
+        assertEquals("default", supplier.get());
+
+        List<String> changes = new CopyOnWriteArrayList<>();
+        dao.addListener(STRING_SETTING, changes::add);
+        dao.setValue(STRING_SETTING.getKey(), "a");
+        //Unchanged value is not delivered
+        dao.setValue(STRING_SETTING.getKey(), "a");
+        dao.removeValue(STRING_SETTING.getKey());
+
+        assertEquals(List.of("a", "default"), changes);
+    }
+
+    @Test
+    public void testListenerCanUpdateSetting() throws Exception {
+        SystemSettingsDao dao = SystemSettingsDao.getInstance();
+        Supplier<String> supplier = dao.getSupplier(STRING_SETTING);
+        assertEquals("default", supplier.get());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            List<String> changes = new CopyOnWriteArrayList<>();
+            dao.addListener(STRING_SETTING, value -> {
+                changes.add(value);
+                if ("a".equals(value)) {
+                    //Refreshing from another thread must not wait for this listener to return
+                    Future<?> update = executor.submit(() -> dao.setValue(STRING_SETTING.getKey(), "b"));
+                    try {
+                        update.get(30, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            dao.setValue(STRING_SETTING.getKey(), "a");
+
+            assertEquals(List.of("a", "b"), changes);
+            assertEquals("b", supplier.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentUpdatesNotifiedInOrder() throws Exception {
+        SystemSettingsDao dao = SystemSettingsDao.getInstance();
+        IntSupplier supplier = dao.getIntSupplier(INT_SETTING);
+        assertEquals(5, supplier.getAsInt());
+
+        AtomicBoolean notifying = new AtomicBoolean();
+        List<Integer> changes = new CopyOnWriteArrayList<>();
+        dao.addListener(INT_SETTING, value -> {
+            assertTrue("Listener called concurrently", notifying.compareAndSet(false, true));
+            changes.add(value);
+            notifying.set(false);
+        });
+
+        int writers = 4;
+        int updates = 100;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                int writer = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < updates; j++) {
+                        dao.setIntValue(INT_SETTING.getKey(), 10 + writer * updates + j);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(changes.size() > 0);
+        //The last notification is the value which was stored last
+        assertEquals(supplier.getAsInt(), (int) changes.get(changes.size() - 1));
+    }
+
+    @Test
+    public void testAlarmLevelSetting() {
+        SystemSettingsDao dao = SystemSettingsDao.getInstance();
+        String key = AuditEventType.AUDIT_SETTINGS_PREFIX + AuditEventType.TYPE_DATA_POINT;
+        TypedSystemSetting<Integer> setting = SystemSettingsDao.alarmLevelSetting(key);
+        assertSame(setting, SystemSettingsDao.alarmLevelSetting(key));
+        assertEquals(AlarmLevels.INFORMATION, AlarmLevels.fromValue(dao.getValue(setting)));
+
+        dao.setIntValue(key, AlarmLevels.URGENT.value());
+        assertEquals(AlarmLevels.URGENT, AlarmLevels.fromValue(dao.getValue(setting)));
+        dao.setIntValue(key, -100);
+        assertEquals(AlarmLevels.INFORMATION, AlarmLevels.fromValue(dao.getValue(setting)));
+    }
+
+    @Test
+    public void testFutureDateLimitUpdated() {
+        SystemSettingsDao dao = SystemSettingsDao.getInstance();
+        assertEquals(Common.getMillis(Common.TimePeriods.HOURS, 24), dao.getFutureDateLimit());
+
+        dao.setIntValue(SystemSettingsDao.FUTURE_DATE_LIMIT_PERIODS, 2);
+        dao.setIntValue(SystemSettingsDao.FUTURE_DATE_LIMIT_PERIOD_TYPE, Common.TimePeriods.DAYS);
+        assertEquals(Common.getMillis(Common.TimePeriods.DAYS, 2), dao.getFutureDateLimit());
+    }
+
+    @Test
+    public void testConcurrentUpdatesVisible() throws Exception {
+        SystemSettingsDao dao = SystemSettingsDao.getInstance();
+        IntSupplier supplier = dao.getIntSupplier(INT_SETTING);
+        int updates = 200;
+        int readers = 4;
+
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int last = supplier.getAsInt();
+                    while (!done.get()) {
+                        int value = supplier.getAsInt();
+                        assertTrue("Value went backwards from " + last + " to " + value, value >= last);
+                        last = value;
+                    }
+                    //Every update happens before done is set
+                    assertEquals(updates, supplier.getAsInt());
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (int i = 6; i <= updates; i++) {
+                dao.setIntValue(INT_SETTING.getKey(), i);
+            }
+            done.set(true);
+
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
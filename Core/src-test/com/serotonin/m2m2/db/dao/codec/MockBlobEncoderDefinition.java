@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.codec;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.serotonin.m2m2.DataType;
+import com.serotonin.m2m2.module.BlobEncoderDefinition;
+import com.serotonin.m2m2.vo.dataPoint.MockPointLocatorVO;
+import com.serotonin.m2m2.vo.dataSource.mock.MockDataSourceVO;
+
+/**
+ * Encoders for the mock point locator and data source used by the tests.
+ */
+public class MockBlobEncoderDefinition extends BlobEncoderDefinition {
+
+    @Override
+    public Iterable<? extends BlobEncoder<?>> getEncoders() {
+        return Arrays.asList(new MockPointLocatorVOEncoder(), new MockDataSourceVOEncoder());
+    }
+
+    static class MockPointLocatorVOEncoder implements BlobEncoder<MockPointLocatorVO> {
+        @Override
+        public Class<MockPointLocatorVO> getType() {
+            return MockPointLocatorVO.class;
+        }
+
+        @Override
+        public String getTypeName() {
+            return "MockPointLocatorVO";
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        public void write(MockPointLocatorVO value, BlobOutput out) {
+            out.writeInt(value.getDataType().getId());
+            out.writeBoolean(value.isSettable());
+        }
+
+        @Override
+        public MockPointLocatorVO read(int version, BlobInput in) throws IOException {
+            DataType dataType = DataType.fromId(in.readInt());
+            return new MockPointLocatorVO(dataType == null ? DataType.NUMERIC : dataType, in.readBoolean());
+        }
+    }
+
+    static class MockDataSourceVOEncoder extends DataSourceVOEncoder<MockDataSourceVO> {
+        MockDataSourceVOEncoder() {
+            super(MockDataSourceVO.class);
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+
+        @Override
+        protected MockDataSourceVO newInstance() {
+            return new MockDataSourceVO();
+        }
+
+        @Override
+        protected void writeFields(MockDataSourceVO vo, BlobOutput out) {
+        }
+
+        @Override
+        protected void readFields(int version, MockDataSourceVO vo, BlobInput in) {
+        }
+    }
+}
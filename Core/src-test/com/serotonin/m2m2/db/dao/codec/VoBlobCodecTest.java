@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.codec;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.measure.unit.SI;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.DataType;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.rt.event.AlarmLevels;
+import com.serotonin.m2m2.view.text.AnalogRenderer;
+import com.serotonin.m2m2.view.text.BinaryTextRenderer;
+import com.serotonin.m2m2.view.text.MultistateRenderer;
+import com.serotonin.m2m2.view.text.MultistateValue;
+import com.serotonin.m2m2.view.text.NoneRenderer;
+import com.serotonin.m2m2.view.text.PlainRenderer;
+import com.serotonin.m2m2.view.text.RangeRenderer;
+import com.serotonin.m2m2.view.text.RangeValue;
+import com.serotonin.m2m2.view.text.TextRenderer;
+import com.serotonin.m2m2.view.text.TimeRenderer;
+import com.serotonin.m2m2.vo.DataPointVO;
+import com.serotonin.m2m2.vo.dataPoint.MockPointLocatorVO;
+import com.serotonin.m2m2.vo.dataSource.mock.MockDataSourceVO;
+import com.serotonin.util.SerializationHelper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VoBlobCodecTest extends MangoTestBase {
+
+    private VoBlobCodec codec;
+
+    @Before
+    public void setupCodec() {
+        codec = Common.getBean(VoBlobCodec.class);
+    }
+
+    @Test
+    public void testDataPointRoundTripAllTextRenderers() {
+        MultistateRenderer multistate = new MultistateRenderer();
+        multistate.addMultistateValue(0, "off", "#000000");
+        multistate.addMultistateValue(1, "on", null);
+        RangeRenderer range = new RangeRenderer("0.0");
+        range.setUseUnitAsSuffix(true);
+        range.addRangeValues(0, 10.5, "low", "blue");
+        range.addRangeValues(10.5, Double.POSITIVE_INFINITY, "high", null);
+
+        List<TextRenderer> renderers = Arrays.asList(
+                new AnalogRenderer("0.00", " units", false),
+                new BinaryTextRenderer("zero", "red", "one", "green"),
+                multistate,
+                new NoneRenderer(),
+                new PlainRenderer("suffix", true),
+                range,
+                new TimeRenderer("HH:mm:ss", 3));
+
+        for (TextRenderer renderer : renderers) {
+            DataPointVO vo = new DataPointVO();
+            vo.setUnit(SI.CELSIUS);
+            vo.setUseRenderedUnit(true);
+            vo.setRenderedUnit(SI.KELVIN);
+            vo.setDiscardLowLimit(-100);
+            vo.setDiscardHighLimit(100);
+            vo.setChartColour("purple");
+            vo.setPlotType(DataPointVO.PlotTypes.SPLINE);
+            vo.setPreventSetExtremeValues(true);
+            vo.setSetExtremeLowLimit(-50.25);
+            vo.setSetExtremeHighLimit(Double.MAX_VALUE);
+            vo.setSimplifyType(DataPointVO.SimplifyTypes.TARGET);
+            vo.setSimplifyTarget(1000);
+            vo.setPointLocator(new MockPointLocatorVO(DataType.MULTISTATE, true));
+            vo.setTextRenderer(renderer);
+
+            byte[] data = codec.encode(vo);
+            assertFalse(VoBlobCodec.isJavaSerialized(data));
+            DataPointVO read = (DataPointVO) codec.decode(data);
+
+            assertEquals(SI.CELSIUS, read.getUnit());
+            assertEquals(SI.KELVIN, read.getRenderedUnit());
+            assertTrue(read.isUseRenderedUnit());
+            assertEquals(vo.getIntegralUnit(), read.getIntegralUnit());
+            assertEquals(-100, read.getDiscardLowLimit(), 0);
+            assertEquals(100, read.getDiscardHighLimit(), 0);
+            assertEquals("purple", read.getChartColour());
+            assertEquals(DataPointVO.PlotTypes.SPLINE, read.getPlotType());
+            assertTrue(read.isPreventSetExtremeValues());
+            assertEquals(-50.25, read.getSetExtremeLowLimit(), 0);
+            assertEquals(Double.MAX_VALUE, read.getSetExtremeHighLimit(), 0);
+            assertEquals(DataPointVO.SimplifyTypes.TARGET, read.getSimplifyType());
+            assertEquals(1000, read.getSimplifyTarget());
+
+            MockPointLocatorVO locator = read.getPointLocator();
+            assertEquals(DataType.MULTISTATE, locator.getDataType());
+            assertTrue(locator.isSettable());
+
+            assertTextRendererEqual(renderer, read.getTextRenderer());
+        }
+    }
+
+    @Test
+    public void testDataSourceRoundTrip() {
+        MockDataSourceVO vo = new MockDataSourceVO("DS_TEST", "Test");
+        vo.setEnabled(true);
+        vo.setAlarmLevel(1, AlarmLevels.URGENT);
+        vo.setAlarmLevel(2, AlarmLevels.IGNORE);
+        vo.setPurgeOverride(true);
+        vo.setPurgeType(Common.TimePeriods.WEEKS);
+        vo.setPurgePeriod(3);
+        vo.setUpdatePeriodType(Common.TimePeriods.SECONDS);
+        vo.setUpdatePeriods(15);
+        vo.setUseCron(true);
+        vo.setCronPattern("0 0 * * * ?");
+        vo.setQuantize(true);
+
+        MockDataSourceVO read = (MockDataSourceVO) codec.decode(codec.encode(vo));
+        assertTrue(read.isEnabled());
+        assertEquals(vo.getAlarmLevels(), read.getAlarmLevels());
+        assertTrue(read.isPurgeOverride());
+        assertEquals(Common.TimePeriods.WEEKS, read.getPurgeType());
+        assertEquals(3, read.getPurgePeriod());
+        assertEquals(Common.TimePeriods.SECONDS, read.getUpdatePeriodType());
+        assertEquals(15, read.getUpdatePeriods());
+        assertTrue(read.isUseCron());
+        assertEquals("0 0 * * * ?", read.getCronPattern());
+        assertTrue(read.isQuantize());
+    }
+
+    @Test
+    public void testLegacyJavaSerializedBlob() {
+        DataPointVO vo = new DataPointVO();
+        vo.setPointLocator(new MockPointLocatorVO(DataType.BINARY, false));
+        vo.setTextRenderer(new BinaryTextRenderer("zero", "red", "one", "green"));
+
+        byte[] legacy = SerializationHelper.writeObjectToArray(vo);
+        assertTrue(VoBlobCodec.isJavaSerialized(legacy));
+
+        long legacyReads = codec.getLegacyReadCount();
+        DataPointVO read = (DataPointVO) codec.decode(legacy);
+        assertEquals(legacyReads + 1, codec.getLegacyReadCount());
+        assertEquals(DataType.BINARY, read.getPointLocator().getDataType());
+        assertTextRendererEqual(vo.getTextRenderer(), read.getTextRenderer());
+
+        // rewritten in the binary format
+        assertFalse(VoBlobCodec.isJavaSerialized(codec.encode(read)));
+    }
+
+    @Test
+    public void testUnregisteredTypeEmbedsJavaSerialization() {
+        int[] value = new int[] {1, 2, 3};
+        byte[] data = codec.encode(value);
+        assertFalse(VoBlobCodec.isJavaSerialized(data));
+        assertArrayEquals(value, (int[]) codec.decode(data));
+    }
+
+    @Test
+    public void testModuleEncodersAreRegistered() throws IOException {
+        byte[] data = codec.encode(new MockPointLocatorVO(DataType.NUMERIC, true));
+        assertEquals("MockPointLocatorVO", new BlobInput(codec, data, 3, data.length).readString());
+
+        // not registered without the module definition
+        data = new VoBlobCodec(true).encode(new MockPointLocatorVO(DataType.NUMERIC, true));
+        assertEquals(VoBlobCodec.JAVA_SERIALIZED, new BlobInput(codec, data, 3, data.length).readString());
+    }
+
+    @Test
+    public void testDisabledWritesJavaSerialization() {
+        VoBlobCodec disabled = new VoBlobCodec(false);
+        DataPointVO vo = new DataPointVO();
+        vo.setPointLocator(new MockPointLocatorVO(DataType.NUMERIC, true));
+
+        byte[] data = disabled.encode(vo);
+        assertTrue(VoBlobCodec.isJavaSerialized(data));
+        assertEquals(DataType.NUMERIC, ((DataPointVO) codec.decode(data)).getPointLocator().getDataType());
+        assertNull(codec.decode(null));
+    }
+
+    private void assertTextRendererEqual(TextRenderer expected, TextRenderer actual) {
+        assertEquals(expected.getClass(), actual.getClass());
+        if (expected instanceof AnalogRenderer) {
+            AnalogRenderer e = (AnalogRenderer) expected;
+            AnalogRenderer a = (AnalogRenderer) actual;
+            assertEquals(e.getFormat(), a.getFormat());
+            assertEquals(e.getSuffix(), a.getSuffix());
+            assertEquals(e.isUseUnitAsSuffix(), a.isUseUnitAsSuffix());
+        } else if (expected instanceof BinaryTextRenderer) {
+            BinaryTextRenderer e = (BinaryTextRenderer) expected;
+            BinaryTextRenderer a = (BinaryTextRenderer) actual;
+            assertEquals(e.getZeroLabel(), a.getZeroLabel());
+            assertEquals(e.getZeroColour(), a.getZeroColour());
+            assertEquals(e.getOneLabel(), a.getOneLabel());
+            assertEquals(e.getOneColour(), a.getOneColour());
+        } else if (expected instanceof MultistateRenderer) {
+            List<MultistateValue> e = ((MultistateRenderer) expected).getMultistateValues();
+            List<MultistateValue> a = ((MultistateRenderer) actual).getMultistateValues();
+            assertEquals(e.size(), a.size());
+            for (int i = 0; i < e.size(); i++) {
+                assertEquals(e.get(i).getKey(), a.get(i).getKey());
+                assertEquals(e.get(i).getText(), a.get(i).getText());
+                assertEquals(e.get(i).getColour(), a.get(i).getColour());
+            }
+        } else if (expected instanceof PlainRenderer) {
+            PlainRenderer e = (PlainRenderer) expected;
+            PlainRenderer a = (PlainRenderer) actual;
+            assertEquals(e.getSuffix(), a.getSuffix());
+            assertEquals(e.isUseUnitAsSuffix(), a.isUseUnitAsSuffix());
+        } else if (expected instanceof RangeRenderer) {
+            RangeRenderer e = (RangeRenderer) expected;
+            RangeRenderer a = (RangeRenderer) actual;
+            assertEquals(e.getFormat(), a.getFormat());
+            assertEquals(e.isUseUnitAsSuffix(), a.isUseUnitAsSuffix());
+            assertEquals(e.getRangeValues().size(), a.getRangeValues().size());
+            for (int i = 0; i < e.getRangeValues().size(); i++) {
+                RangeValue ev = e.getRangeValues().get(i);
+                RangeValue av = a.getRangeValues().get(i);
+                assertEquals(ev.getFrom(), av.getFrom(), 0);
+                assertEquals(ev.getTo(), av.getTo(), 0);
+                assertEquals(ev.getText(), av.getText());
+                assertEquals(ev.getColour(), av.getColour());
+            }
+        } else if (expected instanceof TimeRenderer) {
+            TimeRenderer e = (TimeRenderer) expected;
+            TimeRenderer a = (TimeRenderer) actual;
+            assertEquals(e.getFormat(), a.getFormat());
+            assertEquals(e.getConversionExponent(), a.getConversionExponent());
+        }
+    }
+}
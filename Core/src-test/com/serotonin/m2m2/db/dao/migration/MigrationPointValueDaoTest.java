@@ -5,6 +5,8 @@
 package com.serotonin.m2m2.db.dao.migration;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -14,11 +16,13 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.TemporalAmount;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.junit.Assert;
@@ -28,6 +32,7 @@ import org.springframework.context.ApplicationContext;
 import com.infiniteautomation.mango.pointvalue.generator.BrownianPointValueGenerator;
 import com.infiniteautomation.mango.pointvalue.generator.LinearPointValueGenerator;
 import com.infiniteautomation.mango.pointvalue.generator.PointValueGenerator;
+import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.MangoTestBase;
 import com.serotonin.m2m2.MockAggregateDao;
 import com.serotonin.m2m2.MockMangoLifecycle;
@@ -35,6 +40,8 @@ import com.serotonin.m2m2.MockPointValueDao;
 import com.serotonin.m2m2.SimulationTimerProvider;
 import com.serotonin.m2m2.db.dao.BatchPointValueImpl;
 import com.serotonin.m2m2.db.dao.DataPointDao;
+import com.serotonin.m2m2.db.dao.DelegatingPointValueDao.Operation;
+import com.serotonin.m2m2.db.dao.migration.progress.MigrationProgress;
 import com.serotonin.m2m2.db.dao.migration.progress.MigrationProgressDao;
 import com.serotonin.m2m2.db.dao.pointvalue.AggregateValue;
 import com.serotonin.m2m2.db.dao.pointvalue.NumericAggregate;
@@ -79,14 +86,18 @@ public class MigrationPointValueDaoTest extends MangoTestBase {
 
         this.source = new MockPointValueDao();
         this.destination = new MockPointValueDao(dao -> new MockAggregateDao(dao, timer, Duration.ofMinutes(15L), Duration.ofDays(1L)));
+        this.migrationPointValueDao = createMigrationDao();
+    }
 
-        this.migrationPointValueDao = new MigrationPointValueDao(destination, source,
+    private MigrationPointValueDao createMigrationDao() {
+        ApplicationContext context = MangoTestBase.lifecycle.getRuntimeContext();
+        return new MigrationPointValueDao(destination, source,
                 context.getBean(DataPointDao.class),
                 context.getBean(ExecutorService.class),
                 context.getBean(ScheduledExecutorService.class),
                 timer,
                 context.getBean(MigrationProgressDao.class),
-                config);
+                migrationConfig);
     }
 
     @Test
@@ -298,6 +309,94 @@ public class MigrationPointValueDaoTest extends MangoTestBase {
         Assert.assertEquals(0L, countDestinationAggregates(point, from.plus(Duration.ofDays(2L)), to));
     }
 
+    /**
+     * Stops the migration part way through a series and starts a new migration DAO, the series must continue from
+     * the last block that was copied rather than the start.
+     */
+    @Test
+    public void resumesFromCheckpoint() throws ExecutionException, InterruptedException, TimeoutException {
+        var dataSource = createMockDataSource();
+        var point = createMockDataPoint(dataSource, new MockPointLocatorVO());
+
+        ZonedDateTime from = ZonedDateTime.of(LocalDateTime.of(2020, 1, 1, 0, 0), ZoneOffset.UTC);
+        ZonedDateTime to = from.plus(Duration.ofDays(30));
+        Duration period = Duration.ofHours(1L);
+        long expectedSamples = Duration.between(from, to).dividedBy(period);
+        timer.setStartTime(to.toInstant().toEpochMilli());
+
+        BrownianPointValueGenerator generator = new BrownianPointValueGenerator(from.toInstant(), to.toInstant(), period);
+        source.savePointValues(generator.apply(point));
+
+        // stop after 10 blocks (1 day each) have been written
+        AtomicInteger writes = new AtomicInteger();
+        List<MigrationTask> stoppedTasks = new CopyOnWriteArrayList<>();
+        this.destination = new MockPointValueDao() {
+            @Override
+            public PointValueTime savePointValueSync(DataPointVO vo, PointValueTime pointValue) {
+                if (writes.incrementAndGet() == 240) {
+                    stoppedTasks.addAll(migrationPointValueDao.terminateMigration());
+                }
+                return super.savePointValueSync(vo, pointValue);
+            }
+        };
+        this.migrationPointValueDao = createMigrationDao();
+        migrationPointValueDao.startMigration();
+        assertFalse(stoppedTasks.isEmpty());
+        migrationPointValueDao.migrationFinished(stoppedTasks).get(30, TimeUnit.SECONDS);
+
+        assertEquals(240, writes.get());
+        MigrationProgress progress = Common.getBean(MigrationProgressDao.class).get(point.getSeriesId()).orElseThrow();
+        assertEquals(MigrationStatus.RUNNING, progress.getStatus());
+        assertEquals(from.plus(Duration.ofDays(10)).toInstant().toEpochMilli(), progress.getTimestamp());
+
+        // restart, progress is restored from the database
+        this.migrationPointValueDao = createMigrationDao();
+        migrationPointValueDao.startMigration();
+        migrationPointValueDao.migrationFinished().get(30, TimeUnit.SECONDS);
+
+        // no values were copied twice
+        assertEquals(expectedSamples, writes.get());
+        assertEquals(expectedSamples, destination.dateRangeCount(point, null, null));
+        assertTrue(migrationPointValueDao.handleWithPrimary(point, Operation.READ));
+    }
+
+    @Test
+    public void verifyMigratedSeries() throws ExecutionException, InterruptedException, TimeoutException {
+        var dataSource = createMockDataSource();
+        var points = createMockDataPoints(dataSource, 5);
+
+        ZonedDateTime from = ZonedDateTime.of(LocalDateTime.of(2020, 1, 1, 0, 0), ZoneOffset.UTC);
+        ZonedDateTime to = from.plus(Duration.ofDays(7));
+        Duration period = Duration.ofMinutes(5L);
+        timer.setStartTime(to.toInstant().toEpochMilli());
+
+        BrownianPointValueGenerator generator = new BrownianPointValueGenerator(from.toInstant(), to.toInstant(), period);
+        for (var point : points) {
+            source.savePointValues(generator.apply(point));
+        }
+
+        migrationPointValueDao.startMigration();
+        migrationPointValueDao.migrationFinished().get(30, TimeUnit.SECONDS);
+
+        List<SeriesVerification> results = migrationPointValueDao.verify(to.toInstant());
+        assertEquals(points.size(), results.size());
+        for (var result : results) {
+            assertEquals(SeriesVerification.Result.MATCH, result.getResult());
+            assertEquals(Duration.between(from, to).dividedBy(period), result.getDestinationCount());
+        }
+
+        // modify a value in the destination
+        var modified = points.get(2);
+        long time = from.plus(Duration.ofDays(1)).toInstant().toEpochMilli();
+        destination.savePointValueSync(modified, new PointValueTime(-1.0D, time));
+
+        for (var result : migrationPointValueDao.verify(to.toInstant())) {
+            var expected = result.getSeriesId() == modified.getSeriesId() ?
+                    SeriesVerification.Result.MISMATCH : SeriesVerification.Result.MATCH;
+            assertEquals(expected, result.getResult());
+        }
+    }
+
     private long countDestinationAggregates(DataPointVO point, ZonedDateTime from, ZonedDateTime to) {
         MockAggregateDao destinationAggregateDao = (MockAggregateDao) destination.getAggregateDao();
         try (var stream = destinationAggregateDao.queryPreAggregated(point, from, to)) {
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2022 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.migration;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class MigrationThreadControllerTest {
+
+    private final MigrationThreadController controller = new MigrationThreadController(1, 8, Duration.ofMillis(100));
+
+    @Test
+    public void addsThreadsWhileLatencyIsLow() {
+        assertEquals(3, controller.nextThreadCount(2, TimeUnit.MILLISECONDS.toNanos(10)));
+        assertEquals(8, controller.nextThreadCount(8, TimeUnit.MILLISECONDS.toNanos(10)));
+    }
+
+    @Test
+    public void holdsNearTarget() {
+        assertEquals(4, controller.nextThreadCount(4, TimeUnit.MILLISECONDS.toNanos(90)));
+        // nothing was written
+        assertEquals(4, controller.nextThreadCount(4, -1));
+    }
+
+    @Test
+    public void removesThreadsWhenLatencyIsHigh() {
+        assertEquals(6, controller.nextThreadCount(8, TimeUnit.MILLISECONDS.toNanos(150)));
+        assertEquals(1, controller.nextThreadCount(2, TimeUnit.MILLISECONDS.toNanos(150)));
+        assertEquals(1, controller.nextThreadCount(1, TimeUnit.MILLISECONDS.toNanos(150)));
+    }
+
+    @Test
+    public void samplesMeanLatency() {
+        assertEquals(-1, controller.sampleMeanLatency());
+        controller.recordWrite(100);
+        controller.recordWrite(300);
+        assertEquals(200, controller.sampleMeanLatency());
+        assertEquals(-1, controller.sampleMeanLatency());
+    }
+}
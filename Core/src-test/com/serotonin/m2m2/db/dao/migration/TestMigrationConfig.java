@@ -31,6 +31,11 @@ public class TestMigrationConfig implements MigrationConfig {
     int readChunkSize = 10000;
     int writeChunkSize = 10000;
     int threadCount = 1;
+    boolean adaptiveThreadCount = false;
+    int maxThreadCount = 4;
+    Duration targetWriteLatency = Duration.ofMillis(500L);
+    int adaptivePeriodSeconds = 1;
+    boolean verifyOnCompletion = false;
     Duration closeWait = Duration.ofSeconds(30L);
     Predicate<DataPointVO> dataPointFilter = p -> true;
     TemporalAmount aggregationPeriod;
@@ -124,6 +129,51 @@ public class TestMigrationConfig implements MigrationConfig {
         this.threadCount = threadCount;
     }
 
+    @Override
+    public boolean isAdaptiveThreadCount() {
+        return adaptiveThreadCount;
+    }
+
+    public void setAdaptiveThreadCount(boolean adaptiveThreadCount) {
+        this.adaptiveThreadCount = adaptiveThreadCount;
+    }
+
+    @Override
+    public int getMaxThreadCount() {
+        return maxThreadCount;
+    }
+
+    public void setMaxThreadCount(int maxThreadCount) {
+        this.maxThreadCount = maxThreadCount;
+    }
+
+    @Override
+    public Duration getTargetWriteLatency() {
+        return targetWriteLatency;
+    }
+
+    public void setTargetWriteLatency(Duration targetWriteLatency) {
+        this.targetWriteLatency = targetWriteLatency;
+    }
+
+    @Override
+    public int getAdaptivePeriodSeconds() {
+        return adaptivePeriodSeconds;
+    }
+
+    public void setAdaptivePeriodSeconds(int adaptivePeriodSeconds) {
+        this.adaptivePeriodSeconds = adaptivePeriodSeconds;
+    }
+
+    @Override
+    public boolean isVerifyOnCompletion() {
+        return verifyOnCompletion;
+    }
+
+    public void setVerifyOnCompletion(boolean verifyOnCompletion) {
+        this.verifyOnCompletion = verifyOnCompletion;
+    }
+
     @Override
     public Duration getCloseWait() {
         return closeWait;
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.email;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.mail.internet.InternetAddress;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.serotonin.web.mail.EmailContent;
+import com.serotonin.web.mail.EmailInline;
+
+public class EmailDigestCoalescerTest {
+
+    private static class Sent {
+        private final InternetAddress[] to;
+        private final String subject;
+        private final EmailContent content;
+
+        private Sent(InternetAddress[] to, String subject, EmailContent content) {
+            this.to = to;
+            this.subject = subject;
+            this.content = content;
+        }
+    }
+
+    private ScheduledExecutorService scheduler;
+    private final List<Sent> sent = new CopyOnWriteArrayList<>();
+    private EmailDigestCoalescer coalescer;
+
+    @Before
+    public void before() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.coalescer = new EmailDigestCoalescer(500, scheduler,
+                (to, subject, content) -> sent.add(new Sent(to, subject, content)),
+                (subject, count) -> subject + " +" + (count - 1));
+    }
+
+    @After
+    public void after() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void mergesEmailsForSameRecipients() throws Exception {
+        InternetAddress a = new InternetAddress("a@localhost");
+        InternetAddress b = new InternetAddress("b@localhost");
+        coalescer.add(new InternetAddress[] {a}, "Event 1", new EmailContent("one", "<p>one</p>"));
+        coalescer.add(new InternetAddress[] {a}, "Event 2", new EmailContent("two", "<p>two</p>"));
+        coalescer.add(new InternetAddress[] {a}, "Event 3", new EmailContent("three", "<p>three</p>"));
+        coalescer.add(new InternetAddress[] {a, b}, "Event 4", new EmailContent("four", "<p>four</p>"));
+        assertEquals(2, coalescer.pendingCount());
+
+        coalescer.flushAll();
+        assertEquals(0, coalescer.pendingCount());
+        assertEquals(2, sent.size());
+
+        Sent toA = sent.stream().filter(s -> s.to.length == 1).findFirst().orElseThrow();
+        assertEquals("Event 1 +2", toA.subject);
+        assertTrue(toA.content.getPlainContent().contains("one"));
+        assertTrue(toA.content.getPlainContent().contains("three"));
+        assertTrue(toA.content.getHtmlContent().contains("<p>two</p>"));
+
+        // an email to several recipients is sent once to all of them, a single email is sent unchanged
+        Sent toAB = sent.stream().filter(s -> s.to.length == 2).findFirst().orElseThrow();
+        assertArrayEquals(new InternetAddress[] {a, b}, toAB.to);
+        assertEquals("Event 4", toAB.subject);
+        assertEquals("four", toAB.content.getPlainContent());
+    }
+
+    @Test
+    public void recipientOrderDoesNotMatter() throws Exception {
+        InternetAddress a = new InternetAddress("a@localhost");
+        InternetAddress b = new InternetAddress("B@localhost");
+        coalescer.add(new InternetAddress[] {a, b}, "Event 1", new EmailContent("one"));
+        coalescer.add(new InternetAddress[] {new InternetAddress("b@localhost"), a}, "Event 2", new EmailContent("two"));
+        assertEquals(1, coalescer.pendingCount());
+    }
+
+    @Test
+    public void mergesHtmlDocuments() {
+        EmailContent merged = EmailDigestCoalescer.merge(Arrays.asList(
+                new EmailContent(null, "<html><head><style>p {}</style></head><body class=\"event\"><p>one</p></body></html>"),
+                new EmailContent(null, "<html><head><style>p {}</style></head><BODY><p>two</p></BODY></html>")));
+        assertEquals("<html><head><style>p {}</style></head><body class=\"event\"><p>one</p><hr/><p>two</p></body></html>",
+                merged.getHtmlContent());
+    }
+
+    @Test
+    public void inlinesAreNotDuplicated() {
+        EmailContent one = new EmailContent(null, "<img src=\"cid:logo\"/>");
+        one.addInline(new EmailInline.ByteArrayInline("logo", new byte[] {1}, "image/png"));
+        EmailContent two = new EmailContent(null, "<img src=\"cid:logo\"/>");
+        two.addInline(new EmailInline.ByteArrayInline("logo", new byte[] {1}, "image/png"));
+        two.addInline(new EmailInline.ByteArrayInline("chart", new byte[] {2}, "image/png"));
+
+        EmailContent merged = EmailDigestCoalescer.merge(Arrays.asList(one, two));
+        assertEquals(2, merged.getInlines().size());
+        assertEquals("logo", merged.getInlines().get(0).getContentId());
+        assertEquals("chart", merged.getInlines().get(1).getContentId());
+    }
+
+    @Test
+    public void sentAfterWindow() throws Exception {
+        coalescer.add(new InternetAddress[] {new InternetAddress("a@localhost")}, "Event", new EmailContent("text"));
+        assertEquals(0, sent.size());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sent.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    public void mergeFallsBackToEscapedPlainText() {
+        EmailContent merged = EmailDigestCoalescer.merge(Arrays.asList(new EmailContent("a < b"), new EmailContent(null, "<p>html</p>")));
+        assertEquals(null, merged.getPlainContent());
+        assertTrue(merged.getHtmlContent().contains("<pre>a &lt; b</pre>"));
+    }
+}
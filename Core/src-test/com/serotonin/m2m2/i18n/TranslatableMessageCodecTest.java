@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.i18n;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.serotonin.m2m2.db.dao.BaseDao;
+
+public class TranslatableMessageCodecTest {
+
+    private final TranslatableMessage nested = new TranslatableMessage("event.detector.highLimit",
+            "pipe|and[brackets]", new TranslatableMessage("common.default", "ünïcödé"),
+            new TranslatableMessage("event.detector.highLimit", "", null));
+
+    @Test
+    public void roundTrip() throws TranslatableMessageParseException {
+        String stored = BaseDao.writeTranslatableMessage(nested);
+        assertEquals(nested.serialize(), stored);
+        assertEquals(nested, TranslatableMessageCodec.decodeFromString(stored));
+    }
+
+    @Test
+    public void cachedMessageIsNotModified() throws TranslatableMessageParseException {
+        String stored = nested.serialize();
+        TranslatableMessage decoded = TranslatableMessageCodec.decodeFromString(stored);
+        decoded.getArgs()[0] = "changed";
+
+        TranslatableMessage cached = TranslatableMessageCodec.decodeFromString(stored);
+        assertSame(decoded, cached);
+        assertEquals(nested, cached);
+        assertEquals("pipe|and[brackets]", cached.getArgs()[0]);
+    }
+}
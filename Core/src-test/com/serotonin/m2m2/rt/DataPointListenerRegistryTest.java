@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.rt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.serotonin.m2m2.MockMangoProperties;
+import com.serotonin.m2m2.rt.dataImage.DataPointListener;
+import com.serotonin.m2m2.rt.dataImage.DataPointListenerRegistry;
+import com.serotonin.m2m2.rt.dataImage.PointValueTime;
+import com.serotonin.m2m2.util.ExceptionListWrapper;
+import com.serotonin.m2m2.vo.DataPointVO;
+import com.serotonin.provider.Providers;
+import com.serotonin.util.properties.MangoProperties;
+
+public class DataPointListenerRegistryTest {
+
+    @BeforeClass
+    public static void staticSetup() {
+        //Setup Mango properties Provider as we indirectly access Common
+        Providers.add(MangoProperties.class, new MockMangoProperties());
+    }
+
+    @Test
+    public void testRemoveListener() {
+        //Replicates the re-run of the remapping function during a ConcurrentHashMap.compute method
+        TestDataPointListener l = new TestDataPointListener("Listener One", 1);
+        TestDataPointListener l2 = new TestDataPointListener("Listener Two", 2);
+
+        DataPointListener listener = DataPointListenerRegistry.add(DataPointListenerRegistry.add(null, l), l2);
+        for (int i = 0; i < 10; i++)
+            DataPointListenerRegistry.remove(l2, l);
+
+        DataPointListener[] listeners = DataPointListenerRegistry.getListeners(listener);
+        assertEquals(2, listeners.length);
+        assertEquals("Listener One", listeners[0].getListenerName());
+        assertEquals("Listener Two", listeners[1].getListenerName());
+        assertEquals("Listener One,Listener Two", listener.getListenerName());
+
+        DataPointListener removed = DataPointListenerRegistry.remove(listener, l);
+        assertEquals("Listener Two", removed.getListenerName());
+        assertSame(removed, DataPointListenerRegistry.remove(removed, l));
+        assertNull(DataPointListenerRegistry.remove(removed, l2));
+    }
+
+    @Test
+    public void testExceptionIsolation() {
+        TestDataPointListener l = new TestDataPointListener("Listener One", 1);
+        TestDataPointListener l2 = new TestDataPointListener("Listener Two", 1);
+        DataPointListener failing = new CountingListener() {
+            @Override
+            public void pointUpdated(PointValueTime newValue) {
+                throw new IllegalStateException("failed");
+            }
+        };
+
+        DataPointListener listener = DataPointListenerRegistry.add(null, l);
+        listener = DataPointListenerRegistry.add(listener, failing);
+        listener = DataPointListenerRegistry.add(listener, failing);
+        listener = DataPointListenerRegistry.add(listener, l2);
+
+        try {
+            listener.pointUpdated(new PointValueTime(1.0, 1));
+            fail("Expected exception");
+        } catch (ExceptionListWrapper e) {
+            assertEquals(2, e.getExceptions().size());
+        }
+        assertEquals(1, l.getUpdated().size());
+        assertEquals(1, l2.getUpdated().size());
+    }
+
+    @Test
+    public void testConcurrentAddRemoveDuringDispatch() throws Exception {
+        ConcurrentMap<Integer, DataPointListener> registries = new ConcurrentHashMap<>();
+        CountingListener permanent = new CountingListener();
+        registries.compute(1, (k, v) -> DataPointListenerRegistry.add(v, permanent));
+
+        int threads = 4;
+        int dispatches = 20000;
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    started.countDown();
+                    while (running.get()) {
+                        CountingListener transientListener = new CountingListener();
+                        registries.compute(1, (k, v) -> DataPointListenerRegistry.add(v, transientListener));
+                        registries.compute(1, (k, v) -> DataPointListenerRegistry.remove(v, transientListener));
+                    }
+                }));
+            }
+
+            started.await();
+            PointValueTime value = new PointValueTime(1.0, 1);
+            for (int i = 0; i < dispatches; i++) {
+                registries.get(1).pointUpdated(value);
+            }
+            running.set(false);
+
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(dispatches, permanent.updated);
+        DataPointListener[] listeners = DataPointListenerRegistry.getListeners(registries.get(1));
+        assertEquals(1, listeners.length);
+        assertSame(permanent, listeners[0]);
+    }
+
+    private static class CountingListener implements DataPointListener {
+        volatile int updated;
+
+        @Override
+        public String getListenerName() {
+            return "Counting listener";
+        }
+
+        @Override
+        public void pointInitialized() {
+        }
+
+        @Override
+        public void pointUpdated(PointValueTime newValue) {
+            // only the dispatching thread writes
+            updated++;
+        }
+
+        @Override
+        public void pointChanged(PointValueTime oldValue, PointValueTime newValue) {
+        }
+
+        @Override
+        public void pointSet(PointValueTime oldValue, PointValueTime newValue) {
+        }
+
+        @Override
+        public void pointBackdated(PointValueTime value) {
+        }
+
+        @Override
+        public void pointTerminated(DataPointVO vo) {
+        }
+
+        @Override
+        public void pointLogged(PointValueTime value) {
+        }
+    }
+}
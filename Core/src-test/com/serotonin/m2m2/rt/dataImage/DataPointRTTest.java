@@ -7,6 +7,7 @@ import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.junit.Test;
@@ -123,6 +124,53 @@ public class DataPointRTTest extends MangoTestBase {
         assertEquals(12000, rt.getPointValue().getTime());
     }
 
+    @Test
+    public void testBatchOnChangeLogging() {
+        MockDataSourceVO dsVo = new MockDataSourceVO();
+        MockDataSourceRT dataSource = dsVo.createDataSourceRT();
+        dataSource.initialize(false);
+
+        MockPointLocatorVO plVo = new MockPointLocatorVO(DataType.NUMERIC, true);
+        DataPointVO dpVo = new DataPointVO();
+        dpVo.setId(1);
+        dpVo.setDataSourceId(dsVo.getId());
+        dpVo.setPointLocator(plVo);
+        dpVo.setLoggingType(DataPointVO.LoggingTypes.ON_CHANGE);
+        dpVo.setTolerance(0.5);
+
+        MockPointValueDao dao = new MockPointValueDao(Common.getBean(DatabaseProxy.class));
+
+        SimulationTimer timer = new SimulationTimer();
+        DataPointWithEventDetectors dp = new DataPointWithEventDetectors(dpVo, new ArrayList<>());
+        List<PointValueTime> fired = new ArrayList<>();
+        DataPointRT rt = new DataPointRT(dp, new MockPointLocatorRT(plVo), dataSource, new ArrayList<>(), dao, Common.getBean(PointValueCache.class), timer) {
+            @Override
+            protected void fireEvents(PointValueTime oldValue, PointValueTime newValue, Map<String, Object> attributes, boolean set,
+                                      boolean backdate, boolean logged, boolean updated, boolean attributesChanged) {
+                fired.add(newValue);
+                super.fireEvents(oldValue, newValue, attributes, set, backdate, logged, updated, attributesChanged);
+            }
+        };
+        rt.initialize(false);
+
+        PointValueBatch batch = new PointValueBatch()
+                .add(rt, new PointValueTime(1.0, 1000))
+                .add(rt, new PointValueTime(1.2, 2000))
+                .add(rt, new PointValueTime(2.0, 3000));
+        DataPointRT.updatePointValues(batch);
+
+        // values within tolerance are not logged, logged values are saved asynchronously as for single values
+        assertEquals(2, dao.values.size());
+        assertEquals(1.0, dao.values.get(0).getDoubleValue(), 0.0001);
+        assertEquals(2.0, dao.values.get(1).getDoubleValue(), 0.0001);
+
+        // listeners are notified via fireEvents for every value
+        assertEquals(3, fired.size());
+
+        assertEquals(2.0, rt.getPointValue().getDoubleValue(), 0.0001);
+        assertEquals(3000, rt.getPointValue().getTime());
+    }
+
     //TODO Test for Historical Generation
     //TODO Test Quantized
 
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.rt.dataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class PollingDataSourcePhaseTest {
+
+    @Test
+    public void offsetIsDeterministic() {
+        assertEquals(PollingDataSource.phaseOffset("DS_1", 60000, 0.5), PollingDataSource.phaseOffset("DS_1", 60000, 0.5));
+    }
+
+    @Test
+    public void offsetIsWithinWindow() {
+        for (int i = 0; i < 1000; i++) {
+            long offset = PollingDataSource.phaseOffset("DS_" + i, 60000, 0.5);
+            assertTrue(offset >= 0 && offset < 30000);
+        }
+        assertEquals(0, PollingDataSource.phaseOffset("DS_1", 60000, 0));
+    }
+
+    @Test
+    public void sequentialXidsAreSpread() {
+        // 100 data sources with sequential XIDs should not be concentrated in a few 1s slots
+        Set<Long> slots = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            slots.add(PollingDataSource.phaseOffset("DS_" + i, 60000, 1) / 1000);
+        }
+        assertTrue(slots.size() > 35);
+    }
+}
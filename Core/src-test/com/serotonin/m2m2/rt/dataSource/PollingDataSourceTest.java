@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.rt.dataSource;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.vo.dataSource.mock.MockDataSourceVO;
+
+public class PollingDataSourceTest extends MangoTestBase {
+
+    private static final long POLLING_PERIOD = 1000;
+
+    private long pollTime;
+    private TestPollingDataSource dataSource;
+
+    @Before
+    public void createDataSource() {
+        MockDataSourceVO vo = new MockDataSourceVO();
+        vo.setXid(UUID.randomUUID().toString());
+        vo.setName(vo.getXid());
+        vo.setUpdatePeriodType(Common.TimePeriods.MILLISECONDS);
+        vo.setUpdatePeriods((int) POLLING_PERIOD);
+        dataSource = new TestPollingDataSource(vo);
+        dataSource.initialize(false);
+    }
+
+    @After
+    public void terminateDataSource() {
+        dataSource.terminate();
+        dataSource.joinTermination();
+    }
+
+    @Test
+    public void pollIsAbortedWithoutPermit() {
+        Semaphore permits = PollingDataSource.pollPermits.get();
+        int drained = permits.drainPermits();
+        try {
+            dataSource.forcePoll();
+        } finally {
+            permits.release(drained);
+        }
+        assertEquals(0, dataSource.getSuccessfulPolls());
+        assertEquals(1, dataSource.getUnsuccessfulPolls());
+        assertEquals(0, dataSource.getPollDuration().getCount());
+
+        dataSource.forcePoll();
+        assertEquals(1, dataSource.getSuccessfulPolls());
+        assertEquals(1, dataSource.getUnsuccessfulPolls());
+    }
+
+    @Test
+    public void latencyAndDurationAreRecorded() {
+        long now = timer.currentTimeMillis();
+        pollTime = 200;
+        dataSource.scheduleTimeoutImpl(now - 300);
+
+        assertEquals(1, dataSource.getPollLatency().getCount());
+        assertEquals(300, dataSource.getPollLatency().getSnapshot().getMax());
+        assertEquals(1, dataSource.getPollDuration().getCount());
+        assertEquals(200, dataSource.getPollDuration().getSnapshot().getMax());
+        assertEquals(0, dataSource.getPollOverruns());
+    }
+
+    @Test
+    public void overrunIsCounted() {
+        pollTime = POLLING_PERIOD + 1;
+        dataSource.forcePoll();
+
+        assertEquals(1, dataSource.getSuccessfulPolls());
+        assertEquals(1, dataSource.getPollOverruns());
+    }
+
+    /**
+     * Advances the simulation timer while polling to simulate a slow poll
+     */
+    private class TestPollingDataSource extends MockPollingDataSource {
+        public TestPollingDataSource(MockDataSourceVO vo) {
+            super(vo);
+        }
+
+        @Override
+        protected void doPoll(long time) {
+            timer.fastForwardTo(timer.currentTimeMillis() + pollTime);
+        }
+    }
+}
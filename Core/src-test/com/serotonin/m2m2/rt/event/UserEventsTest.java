@@ -153,6 +153,28 @@ public class UserEventsTest extends MangoTestBase {
         assertEvents(listeners, EventAction.RETURNED, returned);
     }
 
+    @Test
+    public void testRaiseEventsAppliesDuplicateHandlingWithinBatch() {
+        MockEventType ignore = new MockEventType(DuplicateHandling.IGNORE, null, 1, dataPointId, null);
+        MockEventType ignoreSameMessage = new MockEventType(DuplicateHandling.IGNORE_SAME_MESSAGE, null, 2, dataPointId, null);
+        TranslatableMessage first = new TranslatableMessage("common.default", "First");
+        TranslatableMessage second = new TranslatableMessage("common.default", "Second");
+        long time = timer.currentTimeMillis();
+
+        List<EventInstance> batch = new ArrayList<>();
+        batch.add(new EventInstance(ignore, time, true, AlarmLevels.URGENT, first, null));
+        batch.add(new EventInstance(ignore, time, true, AlarmLevels.URGENT, second, null));
+        batch.add(new EventInstance(ignoreSameMessage, time, true, AlarmLevels.URGENT, first, null));
+        batch.add(new EventInstance(ignoreSameMessage, time, true, AlarmLevels.URGENT, first, null));
+        batch.add(new EventInstance(ignoreSameMessage, time, true, AlarmLevels.URGENT, second, null));
+        Common.eventManager.raiseEvents(batch);
+
+        List<EventInstance> active = Common.eventManager.getAllActive();
+        assertEquals(1, active.stream().filter(e -> e.getEventType().equals(ignore)).count());
+        assertEquals(2, active.stream().filter(e -> e.getEventType().equals(ignoreSameMessage)).count());
+        assertEquals(3, EventDao.getInstance().getActiveEvents().size());
+    }
+
     @Test
     public void testDeactivateEvents() throws InterruptedException {
 
@@ -4,6 +4,7 @@
 package com.serotonin.m2m2.rt.event.detectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
@@ -622,6 +623,88 @@ public class RateOfChangeDetectorTest extends MangoTestBase {
     }
 
 
+    /**
+     * The windowed replay of the history on start must produce the same events and state as replaying the
+     * history on a simulation timer.
+     *
+     * Values are saved every 250ms, rising by 8 over 1s every 8s, the RoC timeouts and the duration job
+     * fire at the same times as the values.
+     */
+    @Test
+    public void testWindowedReplayMatchesReplay() {
+
+        DataPointWithEventDetectors dp = createDisabledPoint(1.0, 0.5, TimePeriods.SECONDS, false, CalculationMode.AVERAGE, 5, TimePeriods.SECONDS, ComparisonMode.GREATER_THAN, 2, TimePeriods.SECONDS);
+        PointValueDao dao = Common.getBean(PointValueDao.class);
+        double value = 0;
+        for (long time = 0; time <= 36000; time += 250) {
+            if ((time / 250) % 32 < 4) {
+                value += 2;
+            }
+            dao.savePointValueSync(dp.getDataPoint(), new PointValueTime(value, time));
+        }
+        timer.fastForwardTo(40000);
+
+        dp.getDataPoint().setEnabled(true);
+        Common.runtimeManager.startDataPoint(dp);
+
+        RateOfChangeDetectorVO vo = (RateOfChangeDetectorVO) dp.getEventDetectors().get(0);
+        RecordingRateOfChangeDetectorRT replayed;
+        properties.setProperty("runtime.rateOfChangeDetector.windowedReplay", "false");
+        try {
+            replayed = new RecordingRateOfChangeDetectorRT(vo);
+            replayed.initialize();
+        } finally {
+            properties.setProperty("runtime.rateOfChangeDetector.windowedReplay", "true");
+        }
+        RecordingRateOfChangeDetectorRT windowed = new RecordingRateOfChangeDetectorRT(vo);
+        windowed.initialize();
+
+        assertFalse(replayed.events.isEmpty());
+        assertEquals(replayed.events, windowed.events);
+        assertState(replayed, windowed);
+
+        //The timeouts left over from the replay are run on the real timer
+        timer.fastForwardTo(50000);
+        assertEquals(replayed.events, windowed.events);
+        assertState(replayed, windowed);
+
+        replayed.terminate();
+        windowed.terminate();
+    }
+
+    private void assertState(RateOfChangeDetectorRT expected, RateOfChangeDetectorRT actual) {
+        assertEquals(expected.isEventActive(), actual.isEventActive());
+        assertEquals(expected.isRocBreachActive(), actual.isRocBreachActive());
+        assertEquals(expected.getRocBreachActiveTime(), actual.getRocBreachActiveTime());
+        assertEquals(expected.getRocBreachInactiveTime(), actual.getRocBreachInactiveTime());
+        assertEquals(expected.getPeriodStartTime(), actual.getPeriodStartTime());
+        assertEquals(expected.getPeriodStartValue(), actual.getPeriodStartValue());
+        assertEquals(expected.getLatestValue(), actual.getLatestValue());
+        assertEquals(expected.getLatestRoc(), actual.getLatestRoc(), 0);
+    }
+
+    /**
+     * Records the events instead of raising them
+     */
+    private static class RecordingRateOfChangeDetectorRT extends RateOfChangeDetectorRT {
+
+        private final List<String> events = new ArrayList<>();
+
+        public RecordingRateOfChangeDetectorRT(RateOfChangeDetectorVO vo) {
+            super(vo);
+        }
+
+        @Override
+        protected synchronized void raiseEvent(long time, Map<String, Object> context) {
+            events.add("raised " + time);
+        }
+
+        @Override
+        protected synchronized void returnToNormal(long time) {
+            events.add("rtn " + time);
+        }
+    }
+
     //TODO Test no values set, 1 initial value
     //TODO Test no values set, 0 initial values
 
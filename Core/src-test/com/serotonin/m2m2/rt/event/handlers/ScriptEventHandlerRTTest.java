@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.rt.event.handlers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.infiniteautomation.mango.spring.components.RunAs;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.i18n.TranslatableMessage;
+import com.serotonin.m2m2.module.ModuleRegistry;
+import com.serotonin.m2m2.module.definitions.event.handlers.ScriptEventHandlerDefinition;
+import com.serotonin.m2m2.rt.event.AlarmLevels;
+import com.serotonin.m2m2.rt.event.EventInstance;
+import com.serotonin.m2m2.rt.event.type.DataPointEventType;
+import com.serotonin.m2m2.vo.event.ScriptEventHandlerVO;
+import com.serotonin.m2m2.vo.permission.PermissionHolder;
+
+public class ScriptEventHandlerRTTest extends MangoTestBase {
+
+    private static final String SCRIPT = "var count = 0;\n" +
+            "function eventRaised(evt) {\n" +
+            "    count++;\n" +
+            "    leaked = typeof leaked === 'undefined' ? 1 : leaked + 1;\n" +
+            "    evt.getContext().put('count', count);\n" +
+            "    evt.getContext().put('leaked', leaked);\n" +
+            "    evt.getContext().put('handlerName', eventHandler.getName());\n" +
+            "}\n" +
+            "function eventInactive(evt) {}\n";
+
+    @Test
+    public void testPooledScriptStartsCleanForEachEvent() {
+        ScriptEventHandlerDefinition definition = (ScriptEventHandlerDefinition) ModuleRegistry
+                .getEventHandlerDefinition(ScriptEventHandlerDefinition.TYPE_NAME);
+        ScriptEventHandlerVO vo = createVO(definition, "first");
+
+        Common.getBean(RunAs.class).runAs(PermissionHolder.SYSTEM_SUPERADMIN, () -> {
+            for (int i = 0; i < 3; i++) {
+                Map<String, Object> context = raise(definition.createRuntime(vo));
+                assertEquals(1, ((Number) context.get("count")).intValue());
+                assertEquals(1, ((Number) context.get("leaked")).intValue());
+                assertEquals("first", context.get("handlerName"));
+            }
+
+            //Same script so the evaluated script is reused, the handler variable is the current handler
+            ScriptEventHandlerVO renamed = createVO(definition, "second");
+            Map<String, Object> context = raise(definition.createRuntime(renamed));
+            assertEquals(1, ((Number) context.get("count")).intValue());
+            assertEquals(1, ((Number) context.get("leaked")).intValue());
+            assertEquals("second", context.get("handlerName"));
+        });
+    }
+
+    private Map<String, Object> raise(EventHandlerRT<?> rt) {
+        EventInstance evt = new EventInstance(new DataPointEventType(1, 1), timer.currentTimeMillis(), true,
+                AlarmLevels.CRITICAL, new TranslatableMessage("common.default", "testing"), new HashMap<>());
+        rt.eventRaised(evt);
+        return evt.getContext();
+    }
+
+    private ScriptEventHandlerVO createVO(ScriptEventHandlerDefinition definition, String name) {
+        ScriptEventHandlerVO vo = (ScriptEventHandlerVO) definition.baseCreateEventHandlerVO();
+        vo.setId(1);
+        vo.setXid("EH_SCRIPT_TEST");
+        vo.setName(name);
+        vo.setEngineName("Oracle Nashorn");
+        vo.setScript(SCRIPT);
+        vo.setScriptRoles(Collections.singleton(PermissionHolder.SUPERADMIN_ROLE));
+        return vo;
+    }
+}
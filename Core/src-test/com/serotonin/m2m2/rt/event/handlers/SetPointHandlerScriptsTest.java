@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.rt.event.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.infiniteautomation.mango.spring.service.MangoJavaScriptService;
+import com.infiniteautomation.mango.util.script.ScriptPermissions;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.DataType;
+import com.serotonin.m2m2.MangoTestBase;
+import com.serotonin.m2m2.i18n.TranslatableMessage;
+import com.serotonin.m2m2.rt.dataImage.types.DataValue;
+import com.serotonin.m2m2.rt.event.AlarmLevels;
+import com.serotonin.m2m2.rt.event.EventInstance;
+import com.serotonin.m2m2.rt.event.type.DataPointEventType;
+import com.serotonin.m2m2.vo.event.SetPointEventHandlerVO;
+import com.serotonin.m2m2.vo.permission.PermissionHolder;
+
+public class SetPointHandlerScriptsTest extends MangoTestBase {
+
+    @Test
+    public void testContextReused() throws Exception {
+        SetPointEventHandlerVO vo = createVO("this.count = (this.count || 0) + 1; return count;");
+        SetPointHandlerScripts scripts = new SetPointHandlerScripts(vo, Common.getBean(MangoJavaScriptService.class));
+        SetPointHandlerRT rt = new SetPointHandlerRT(vo, scripts);
+
+        //The context is reused but variables set by an execution are not seen by the next
+        assertEquals(1, execute(scripts, rt, createEvent(1)), 0);
+        assertEquals(1, scripts.getIdleCount(true));
+        assertEquals(1, execute(scripts, rt, createEvent(2)), 0);
+        assertEquals(1, scripts.getIdleCount(true));
+
+        scripts.clear();
+        assertEquals(0, scripts.getIdleCount(true));
+        assertEquals(1, execute(scripts, rt, createEvent(3)), 0);
+    }
+
+    @Test
+    public void testScriptsReplacedWhenHandlerChanges() {
+        SetPointEventHandlerVO vo = createVO("return 1;");
+        SetPointHandlerScripts scripts = new SetPointHandlerScripts(vo, Common.getBean(MangoJavaScriptService.class));
+
+        SetPointEventHandlerVO copy = createVO("return 1;");
+        assertTrue(scripts.isFor(copy));
+        copy.setActiveScript("return 2;");
+        assertFalse(scripts.isFor(copy));
+    }
+
+    @Test
+    public void testConcurrentExecutionsIsolated() throws Exception {
+        SetPointEventHandlerVO vo = createVO("var id = evt.getId(); for (var i = 0; i < 1000; i++) {} return id;");
+        SetPointHandlerScripts scripts = new SetPointHandlerScripts(vo, Common.getBean(MangoJavaScriptService.class));
+        SetPointHandlerRT rt = new SetPointHandlerRT(vo, scripts);
+
+        int threads = 8;
+        int executions = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < executions; i++) {
+                        int id = thread * executions + i;
+                        assertEquals(id, execute(scripts, rt, createEvent(id)), 0);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private double execute(SetPointHandlerScripts scripts, SetPointHandlerRT rt, EventInstance evt) throws Exception {
+        DataValue value = scripts.execute(true, rt, evt, new HashMap<>(), evt.getActiveTimestamp(), DataType.NUMERIC);
+        return value.getDoubleValue();
+    }
+
+    private SetPointEventHandlerVO createVO(String script) {
+        SetPointEventHandlerVO vo = new SetPointEventHandlerVO();
+        vo.setXid("EH_TEST");
+        vo.setActiveAction(SetPointEventHandlerVO.SET_ACTION_SCRIPT_VALUE);
+        vo.setActiveScript(script);
+        vo.setScriptRoles(new ScriptPermissions(Collections.singleton(PermissionHolder.SUPERADMIN_ROLE)));
+        return vo;
+    }
+
+    private EventInstance createEvent(int id) {
+        EventInstance evt = new EventInstance(new DataPointEventType(1, 1), timer.currentTimeMillis(), true,
+                AlarmLevels.CRITICAL, new TranslatableMessage("common.default", "testing"), new HashMap<>());
+        evt.setId(id);
+        return evt;
+    }
+}
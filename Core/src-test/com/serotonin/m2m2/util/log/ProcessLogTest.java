@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
@@ -58,6 +59,7 @@ public class ProcessLogTest {
             for(int i=1; i<11; i++)
                 log.trace(message + i);
 
+            log.flush();
             File[] logFiles = log.getFiles();
             Assert.assertEquals(10, logFiles.length);
             for(File file : logFiles) {
@@ -74,6 +76,7 @@ public class ProcessLogTest {
 
             //Write another log message, generate files 1-10
             log.trace("rolling test " + 11);
+            log.flush();
             logFiles = log.getFiles();
             Assert.assertEquals(11, logFiles.length);
             for(File file : logFiles) {
@@ -90,6 +93,7 @@ public class ProcessLogTest {
 
             //Write a final log messages to shuffle the oldest log out
             log.trace("rolling test " + 12);
+            log.flush();
             logFiles = log.getFiles();
             Assert.assertEquals(11, logFiles.length);
             for(File file : logFiles) {
@@ -154,6 +158,7 @@ public class ProcessLogTest {
                 Thread.sleep(100);
             }
             //All messages should be written
+            log.flush();
             String result = getLogContents(log.getFile());
             String[] messages = result.split("\\n");
             Assert.assertEquals(count.get(), messages.length); //The last log message has a newline so the split will actually contain log messages + 1 elements
@@ -193,6 +198,7 @@ public class ProcessLogTest {
                 Thread.sleep(100);
             }
             //All messages should be written
+            log.flush();
             File[] files = log.getFiles();
             int messageCount = 0;
             for(int i=0; i<files.length; i++) {
@@ -206,6 +212,93 @@ public class ProcessLogTest {
         //cleanLogs("processLog.test-multi-thread-multi-file");
     }
 
+    @Test
+    public void testDropOldestOverflowPolicy() throws IOException {
+        cleanLogs("processLog.test-drop-oldest");
+        try(ProcessLog log = new ProcessLog("processLog.", "test-drop-oldest", LogLevel.TRACE, false, 100000, 10)){
+            //Writer without a thread so that the queue fills up
+            ProcessLogWriter writer = new ProcessLogWriter(4, ProcessLogWriter.OverflowPolicy.DROP_OLDEST);
+            for(int i=0; i<10; i++)
+                writer.enqueue(new ProcessLogWriter.Record(log, LogLevel.TRACE, "message " + i));
+
+            Assert.assertEquals(6, log.dropped.get());
+            //Pretend the 4 queued records were written so that flush does not wait for them
+            log.processed(4);
+
+            //The next record written reports the dropped records
+            log.info("written");
+            log.flush();
+            String result = getLogContents(log.getFile());
+            Assert.assertTrue(result.contains("WARN "));
+            Assert.assertTrue(result.contains("- Dropped 6 log messages"));
+            Assert.assertTrue(result.endsWith("- written" + System.lineSeparator()));
+        }
+        cleanLogs("processLog.test-drop-oldest");
+    }
+
+    @Test
+    public void testDropDebugOverflowPolicy() throws IOException {
+        cleanLogs("processLog.test-drop-debug");
+        try(ProcessLog log = new ProcessLog("processLog.", "test-drop-debug", LogLevel.TRACE, false, 100000, 10)){
+            ProcessLogWriter writer = new ProcessLogWriter(1, ProcessLogWriter.OverflowPolicy.DROP_DEBUG);
+            writer.enqueue(new ProcessLogWriter.Record(log, LogLevel.INFO, "info"));
+            writer.enqueue(new ProcessLogWriter.Record(log, LogLevel.DEBUG, "debug"));
+            writer.enqueue(new ProcessLogWriter.Record(log, LogLevel.TRACE, "trace"));
+            Assert.assertEquals(2, log.dropped.get());
+            log.processed(1);
+        }
+        cleanLogs("processLog.test-drop-debug");
+    }
+
+    @Test
+    public void testFlushAfterWriteFailure() throws InterruptedException {
+        cleanLogs("processLog.test-write-failure");
+        ProcessLogWriter writer = new ProcessLogWriter(16, ProcessLogWriter.OverflowPolicy.BLOCK);
+        Thread thread = new Thread(writer, "Process log writer test");
+        thread.setDaemon(true);
+        thread.start();
+        try(ProcessLog log = new ProcessLog("processLog.", "test-write-failure", LogLevel.TRACE, false, 100000, 10)){
+            //A record which can't be encoded fails the whole batch
+            writer.enqueue(new ProcessLogWriter.Record(log, LogLevel.INFO, null));
+            writer.enqueue(new ProcessLogWriter.Record(log, LogLevel.INFO, "lost"));
+            Assert.assertTrue(log.flush(10, TimeUnit.SECONDS));
+
+            //A flush times out if the records are never written
+            log.enqueued.incrementAndGet();
+            Assert.assertFalse(log.flush(10, TimeUnit.MILLISECONDS));
+            log.processed(1);
+        } finally {
+            thread.interrupt();
+            thread.join();
+        }
+        cleanLogs("processLog.test-write-failure");
+    }
+
+    @Test
+    public void testCloseWhileLogging() throws InterruptedException {
+        cleanLogs("processLog.test-close-while-logging");
+        ProcessLog log = new ProcessLog("processLog.", "test-close-while-logging", LogLevel.TRACE, false, 100000, 10);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread[] threads = new Thread[4];
+        for(int i=0; i<threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                while(running.get())
+                    log.info("message");
+            });
+            threads[i].start();
+        }
+        Thread.sleep(50);
+        log.close();
+        running.set(false);
+        for(Thread thread : threads)
+            thread.join();
+        log.flush();
+
+        //Records logged concurrently with close are discarded rather than written to the closed channel
+        Assert.assertFalse(log.trouble());
+        cleanLogs("processLog.test-close-while-logging");
+    }
+
     private final String logRegex = "(\\D.*) \\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2},\\d{3} \\((.*):(\\d.*)\\) - (.*)" + System.lineSeparator();
     private void assertMatch(String message, LogLevel level, String result) {
         //Messages of the form:
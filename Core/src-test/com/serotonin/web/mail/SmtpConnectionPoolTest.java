@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.web.mail;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.internet.InternetAddress;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+
+public class SmtpConnectionPoolTest {
+
+    private SmtpServerStub server;
+    private SmtpConnectionPool pool;
+
+    @Before
+    public void before() throws Exception {
+        this.server = new SmtpServerStub();
+        this.pool = new SmtpConnectionPool("localhost", server.getPort(), false, null, null, false, 10000, 2, 30000);
+    }
+
+    @After
+    public void after() throws Exception {
+        pool.close();
+        server.close();
+    }
+
+    private MimeMessagePreparator message(int i) throws Exception {
+        return EmailSender.preparator(new InternetAddress("mango@localhost"), null,
+                new InternetAddress[] {new InternetAddress("user" + i + "@localhost")}, null, null,
+                "Message " + i, new EmailContent("Content " + i));
+    }
+
+    @Test
+    public void connectionsAreReused() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            pool.send(message(i));
+        }
+        assertEquals(10, server.getMessages().size());
+        assertEquals(1, server.getConnectionCount());
+        assertEquals(1, pool.getConnectionsOpened());
+    }
+
+    @Test
+    public void multipleMessagesPerSend() throws Exception {
+        List<MimeMessagePreparator> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(message(i));
+        }
+        pool.send(messages);
+        assertEquals(5, server.getMessages().size());
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void connectFailureReportsEveryMessage() throws Exception {
+        server.close();
+        List<MimeMessagePreparator> messages = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            messages.add(message(i));
+        }
+        try {
+            pool.send(messages);
+            fail("Expected send to fail");
+        } catch (MailSendException e) {
+            assertEquals(3, e.getFailedMessages().size());
+        }
+    }
+
+    @Test
+    public void idleConnectionsAreReplaced() throws Exception {
+        pool.close();
+        this.pool = new SmtpConnectionPool("localhost", server.getPort(), false, null, null, false, 10000, 2, 10);
+        pool.send(message(0));
+        Thread.sleep(50);
+        pool.send(message(1));
+        assertEquals(2, server.getMessages().size());
+        assertEquals(2, pool.getConnectionsOpened());
+    }
+
+    @Test
+    public void concurrentSends() throws Exception {
+        int threads = 8;
+        int messagesPerThread = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * messagesPerThread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < messagesPerThread; i++) {
+                        pool.send(message(offset + i));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+
+            int total = threads * messagesPerThread;
+            assertEquals(total, server.getMessages().size());
+            assertEquals(total, pool.getMessagesSent());
+            // never more connections than the pool size
+            assertTrue(server.getConnectionCount() <= 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
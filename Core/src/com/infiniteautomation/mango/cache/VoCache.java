@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.cache;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.serotonin.m2m2.vo.AbstractVO;
+
+/**
+ * Bounded read-through cache of VOs by id and XID, used by DAOs to avoid repeated database lookups.
+ *
+ * <p>The cache holds a private copy of each VO and hands out copies so callers may modify the returned VOs.
+ * {@link AbstractVO#copy()} is shallow for nested objects such as point locators, DAOs whose VOs hold mutable nested
+ * objects supply a copier which also copies those.</p>
+ *
+ * <p>Loads are performed atomically per id, an invalidation that occurs while a load is in progress blocks until
+ * the load completes and then removes the loaded value. This guarantees that a value read from the database
+ * before a change was committed is never served after the change has been invalidated. Reads inside a transaction
+ * bypass the cache as they may see uncommitted data, invalidations inside a transaction are repeated after the
+ * transaction completes.</p>
+ *
+ * @param <T> VO type
+ */
+public class VoCache<T extends AbstractVO> {
+
+    private final com.github.benmanes.caffeine.cache.Cache<Integer, T> byId;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Integer> idByXid;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final UnaryOperator<T> copier;
+
+    /**
+     * @param maximumSize maximum number of VOs to retain
+     */
+    @SuppressWarnings("unchecked")
+    public VoCache(long maximumSize) {
+        this(maximumSize, vo -> (T) vo.copy());
+    }
+
+    /**
+     * @param maximumSize maximum number of VOs to retain
+     * @param copier copies a VO when it is stored and when it is handed out, the copy must not share any mutable state
+     *               with the original
+     */
+    public VoCache(long maximumSize, UnaryOperator<T> copier) {
+        this.copier = copier;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        this.idByXid = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Get a VO by id, loading it if it is not cached
+     *
+     * @param id VO id
+     * @param loader loads the VO from the database, may return null if the VO does not exist
+     * @return copy of the VO or null if it does not exist
+     */
+    public @Nullable T get(int id, IntFunction<T> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.apply(id);
+        }
+
+        T vo = byId.getIfPresent(id);
+        if (vo != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            vo = byId.get(id, k -> load(loader.apply(k)));
+        }
+        return copy(vo);
+    }
+
+    /**
+     * Get a VO by XID, loading it if it is not cached. The VO itself is always loaded via its id so that
+     * loads by id and by XID are coherent with each other.
+     *
+     * @param xid VO xid
+     * @param idLoader loads the id for an XID from the database, may return null if the VO does not exist
+     * @param loader loads the VO by id from the database, may return null if the VO does not exist
+     * @return copy of the VO or null if it does not exist
+     */
+    public @Nullable T getByXid(String xid, Function<String, Integer> idLoader, IntFunction<T> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            Integer id = idLoader.apply(xid);
+            return id == null ? null : loader.apply(id);
+        }
+
+        Integer id = idByXid.getIfPresent(xid);
+        T vo = id == null ? null : byId.getIfPresent(id);
+        if (vo != null && xid.equals(vo.getXid())) {
+            hits.increment();
+            return copy(vo);
+        }
+
+        misses.increment();
+        if (id == null) {
+            id = idByXid.get(xid, idLoader);
+            if (id == null) {
+                return null;
+            }
+        }
+        vo = byId.get(id, k -> load(loader.apply(k)));
+        if (vo == null || !xid.equals(vo.getXid())) {
+            // the XID was changed or the VO was deleted since the id was resolved, bypass the cache
+            idByXid.invalidate(xid);
+            id = idLoader.apply(xid);
+            return id == null ? null : loader.apply(id);
+        }
+        return copy(vo);
+    }
+
+    /**
+     * Invalidate a VO, if a transaction is active it is invalidated again once the transaction completes.
+     *
+     * @param id VO id
+     * @param xid VO xid, may be null
+     */
+    public void invalidate(int id, @Nullable String xid) {
+        doInvalidate(id, xid);
+        repeatAfterCompletion(() -> doInvalidate(id, xid));
+    }
+
+    /**
+     * Invalidate all VOs matching the predicate, if a transaction is active they are invalidated again once the
+     * transaction completes.
+     */
+    public void invalidateIf(Predicate<T> predicate) {
+        byId.asMap().values().removeIf(predicate);
+        repeatAfterCompletion(() -> byId.asMap().values().removeIf(predicate));
+    }
+
+    /**
+     * Invalidate all VOs, if a transaction is active they are invalidated again once the transaction completes.
+     */
+    public void invalidateAll() {
+        doInvalidateAll();
+        repeatAfterCompletion(this::doInvalidateAll);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long requestCount = hitCount + misses.sum();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    public long getSize() {
+        return byId.estimatedSize();
+    }
+
+    private void doInvalidate(int id, @Nullable String xid) {
+        byId.invalidate(id);
+        if (xid != null) {
+            idByXid.invalidate(xid);
+        }
+    }
+
+    private void doInvalidateAll() {
+        byId.invalidateAll();
+        idByXid.invalidateAll();
+    }
+
+    /**
+     * Values loaded by other threads before the transaction commits are stale, repeat the invalidation afterwards.
+     */
+    private void repeatAfterCompletion(Runnable invalidation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Copy the loaded VO so that all lazily loaded fields are resolved while the load is in progress.
+     */
+    private T load(T vo) {
+        return vo == null ? null : copy(vo);
+    }
+
+    private T copy(T vo) {
+        return vo == null ? null : Objects.requireNonNull(copier.apply(vo));
+    }
+}
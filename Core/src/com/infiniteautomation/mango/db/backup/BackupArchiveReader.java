@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.db.backup;
+
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.BOOLEAN;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.BYTE;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.BYTES;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.CHUNK;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.DECIMAL;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.DOUBLE;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.END;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.FLOAT;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.INT;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.LONG;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.MAGIC;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.NULL;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.SHORT;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.STRING;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.TABLE;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.TABLE_END;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.TIMESTAMP;
+import static com.infiniteautomation.mango.db.backup.BackupArchiveWriter.VERSION;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Reads archives written by {@link BackupArchiveWriter}, verifying the checksum of every chunk.
+ */
+class BackupArchiveReader {
+
+    private final DataInputStream in;
+    private final String databaseType;
+    private final long created;
+    private final Inflater inflater = new Inflater();
+    private final CRC32 crc = new CRC32();
+    private @Nullable TableHeader table;
+    private long tableRows;
+    private int tables;
+    private int lastChunkSize;
+
+    BackupArchiveReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        byte[] magic = new byte[MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a database backup archive");
+        }
+        int version = this.in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported database backup archive version " + version);
+        }
+        this.created = this.in.readLong();
+        this.databaseType = readString(this.in);
+    }
+
+    String getDatabaseType() {
+        return databaseType;
+    }
+
+    long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return uncompressed size in bytes of the chunk last returned by {@link #nextChunk()}
+     */
+    int getLastChunkSize() {
+        return lastChunkSize;
+    }
+
+    /**
+     * Advance to the next table, the chunks of the current table must have been consumed.
+     *
+     * @return the next table or null if the end of the archive was reached
+     */
+    @Nullable TableHeader nextTable() throws IOException {
+        if (table != null) {
+            throw new IllegalStateException("Chunks for table " + table.getName() + " have not been read");
+        }
+
+        byte marker = in.readByte();
+        if (marker == END) {
+            int expected = in.readInt();
+            if (expected != tables) {
+                throw new IOException("Archive contains " + tables + " tables, expected " + expected);
+            }
+            inflater.end();
+            return null;
+        } else if (marker != TABLE) {
+            throw new IOException("Corrupt archive, expected table marker but found " + marker);
+        }
+
+        String name = readString(in);
+        int columnCount = in.readInt();
+        List<String> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            columns.add(readString(in));
+        }
+        tables++;
+        tableRows = 0;
+        table = new TableHeader(name, columns);
+        return table;
+    }
+
+    /**
+     * @return rows in the next chunk of the current table or null if all chunks have been read
+     */
+    @Nullable List<Object[]> nextChunk() throws IOException {
+        if (table == null) {
+            throw new IllegalStateException("Not positioned at a table");
+        }
+
+        byte marker = in.readByte();
+        if (marker == TABLE_END) {
+            long expected = in.readLong();
+            if (expected != tableRows) {
+                throw new IOException("Table " + table.getName() + " contains " + tableRows + " rows, expected " + expected);
+            }
+            table = null;
+            return null;
+        } else if (marker != CHUNK) {
+            throw new IOException("Corrupt archive, expected chunk marker but found " + marker);
+        }
+
+        int rows = in.readInt();
+        int length = in.readInt();
+        int compressedLength = in.readInt();
+        long checksum = in.readLong();
+        byte[] compressed = new byte[compressedLength];
+        in.readFully(compressed);
+
+        byte[] data = new byte[length];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int inflated = 0;
+            while (inflated < length && !inflater.finished()) {
+                int count = inflater.inflate(data, inflated, length - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != length) {
+                throw new IOException("Corrupt chunk in table " + table.getName() + ", truncated data");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt chunk in table " + table.getName(), e);
+        }
+
+        crc.reset();
+        crc.update(data, 0, length);
+        if (crc.getValue() != checksum) {
+            throw new IOException("Checksum mismatch for chunk in table " + table.getName());
+        }
+
+        int columns = table.getColumns().size();
+        DataInputStream chunk = new DataInputStream(new ByteArrayInputStream(data));
+        List<Object[]> result = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Object[] row = new Object[columns];
+            for (int j = 0; j < columns; j++) {
+                row[j] = readValue(chunk);
+            }
+            result.add(row);
+        }
+        tableRows += rows;
+        lastChunkSize = length;
+        return result;
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL: return null;
+            case INT: return in.readInt();
+            case LONG: return in.readLong();
+            case DOUBLE: return in.readDouble();
+            case STRING: return readString(in);
+            case BYTES:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            case BOOLEAN: return in.readBoolean();
+            case DECIMAL: return new BigDecimal(readString(in));
+            case FLOAT: return in.readFloat();
+            case SHORT: return in.readShort();
+            case BYTE: return in.readByte();
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static final class TableHeader {
+        private final String name;
+        private final List<String> columns;
+
+        private TableHeader(String name, List<String> columns) {
+            this.name = name;
+            this.columns = Collections.unmodifiableList(columns);
+        }
+
+        String getName() {
+            return name;
+        }
+
+        List<String> getColumns() {
+            return columns;
+        }
+    }
+}
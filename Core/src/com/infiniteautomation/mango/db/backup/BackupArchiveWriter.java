@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.db.backup;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes the logical backup archive format. The archive consists of a header followed by a section for each table.
+ * A table section lists the column names followed by chunks of rows, each chunk is deflated and carries a CRC32 of
+ * its uncompressed content.
+ *
+ * <pre>
+ * header:  MAGIC, int version, long created, string databaseType
+ * table:   TABLE, string name, int columnCount, string column...
+ * chunk:   CHUNK, int rows, int length, int compressedLength, long crc32, byte[compressedLength]
+ * end:     TABLE_END, long rows
+ * trailer: END, int tables
+ * </pre>
+ */
+class BackupArchiveWriter {
+
+    static final byte[] MAGIC = "MANGOBAK".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+
+    static final byte TABLE = 1;
+    static final byte CHUNK = 2;
+    static final byte TABLE_END = 3;
+    static final byte END = 4;
+
+    static final byte NULL = 0;
+    static final byte INT = 1;
+    static final byte LONG = 2;
+    static final byte DOUBLE = 3;
+    static final byte STRING = 4;
+    static final byte BYTES = 5;
+    static final byte BOOLEAN = 6;
+    static final byte DECIMAL = 7;
+    static final byte FLOAT = 8;
+    static final byte SHORT = 9;
+    static final byte BYTE = 10;
+    static final byte TIMESTAMP = 11;
+
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream chunkBuffer = new ByteArrayOutputStream(64 * 1024);
+    private final DataOutputStream chunk = new DataOutputStream(chunkBuffer);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final CRC32 crc = new CRC32();
+    private byte[] compressed = new byte[64 * 1024];
+    private int chunkRows;
+    private int tables;
+
+    BackupArchiveWriter(OutputStream out, String databaseType) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.out.write(MAGIC);
+        this.out.writeInt(VERSION);
+        this.out.writeLong(System.currentTimeMillis());
+        writeString(this.out, databaseType);
+    }
+
+    void startTable(String name, List<String> columns) throws IOException {
+        out.writeByte(TABLE);
+        writeString(out, name);
+        out.writeInt(columns.size());
+        for (String column : columns) {
+            writeString(out, column);
+        }
+        tables++;
+    }
+
+    void writeRow(Object[] values) throws IOException {
+        for (Object value : values) {
+            writeValue(value);
+        }
+        chunkRows++;
+    }
+
+    /**
+     * Writes the buffered rows as a chunk
+     *
+     * @return uncompressed size of the chunk in bytes
+     */
+    int flushChunk() throws IOException {
+        if (chunkRows == 0) {
+            return 0;
+        }
+
+        byte[] data = chunkBuffer.toByteArray();
+        crc.reset();
+        crc.update(data, 0, data.length);
+
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                byte[] expanded = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, expanded, 0, compressedLength);
+                compressed = expanded;
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+
+        out.writeByte(CHUNK);
+        out.writeInt(chunkRows);
+        out.writeInt(data.length);
+        out.writeInt(compressedLength);
+        out.writeLong(crc.getValue());
+        out.write(compressed, 0, compressedLength);
+
+        chunkBuffer.reset();
+        chunkRows = 0;
+        return data.length;
+    }
+
+    void endTable(long rows) throws IOException {
+        flushChunk();
+        out.writeByte(TABLE_END);
+        out.writeLong(rows);
+    }
+
+    void finish() throws IOException {
+        out.writeByte(END);
+        out.writeInt(tables);
+        out.flush();
+        deflater.end();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            chunk.writeByte(NULL);
+        } else if (value instanceof Integer) {
+            chunk.writeByte(INT);
+            chunk.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            chunk.writeByte(LONG);
+            chunk.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            chunk.writeByte(DOUBLE);
+            chunk.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            chunk.writeByte(STRING);
+            writeString(chunk, (String) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            chunk.writeByte(BYTES);
+            chunk.writeInt(bytes.length);
+            chunk.write(bytes);
+        } else if (value instanceof Boolean) {
+            chunk.writeByte(BOOLEAN);
+            chunk.writeBoolean((Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            chunk.writeByte(DECIMAL);
+            writeString(chunk, value.toString());
+        } else if (value instanceof Float) {
+            chunk.writeByte(FLOAT);
+            chunk.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            chunk.writeByte(SHORT);
+            chunk.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            chunk.writeByte(BYTE);
+            chunk.writeByte((Byte) value);
+        } else if (value instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) value;
+            chunk.writeByte(TIMESTAMP);
+            chunk.writeLong(timestamp.getTime());
+            chunk.writeInt(timestamp.getNanos());
+        } else {
+            // converted back to the column type on restore
+            chunk.writeByte(STRING);
+            writeString(chunk, value.toString());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,530 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.db.backup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.jooq.BatchBindStep;
+import org.jooq.Configuration;
+import org.jooq.ConnectionProvider;
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.ForeignKey;
+import org.jooq.Identity;
+import org.jooq.Query;
+import org.jooq.Record;
+import org.jooq.ResultQuery;
+import org.jooq.SelectJoinStep;
+import org.jooq.Table;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConnectionProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.infiniteautomation.mango.db.DefaultSchema;
+import com.infiniteautomation.mango.db.tables.SystemSettings;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.db.DatabaseProxy;
+import com.serotonin.m2m2.db.DatabaseType;
+import com.serotonin.m2m2.db.dao.SystemSettingsDao;
+import com.serotonin.m2m2.module.DatabaseSchemaDefinition;
+import com.serotonin.m2m2.module.ModuleRegistry;
+
+/**
+ * Dialect neutral logical backup and restore of the Mango database. Tables are written in foreign key order, each
+ * table is streamed through a cursor and written to the archive in fixed size chunks (see {@link BackupArchiveWriter}).
+ *
+ * <p>The backup runs in a single transaction using an isolation level which provides a consistent snapshot without
+ * blocking writers where the database supports it (MVCC databases at REPEATABLE READ, SQL Server at SNAPSHOT if
+ * enabled for the database). Reads and writes can be throttled so that a backup does not starve point value
+ * ingest. A restore is verified before any rows are deleted and is applied in a single transaction. A backup can only
+ * be restored to a database with the same schema versions, the upgrades are not run on the restored rows.</p>
+ *
+ * @see DatabaseSchemaDefinition#getTablesForConversion()
+ */
+public class LogicalDatabaseBackup {
+    private static final Logger LOG = LoggerFactory.getLogger(LogicalDatabaseBackup.class);
+
+    public static final String FILE_EXTENSION = ".mbak";
+
+    /**
+     * SQLServerConnection.TRANSACTION_SNAPSHOT
+     */
+    private static final int MSSQL_TRANSACTION_SNAPSHOT = 0x1000;
+
+    private final DatabaseType databaseType;
+    private final Configuration configuration;
+    private final List<Table<?>> tables;
+    private int chunkSize = 10000;
+    private long maxBytesPerSecond = 0;
+
+    /**
+     * @param databaseType type of the database
+     * @param configuration jOOQ configuration, connections are acquired from its connection provider
+     * @param tables tables to backup or restore
+     */
+    public LogicalDatabaseBackup(DatabaseType databaseType, Configuration configuration, List<Table<?>> tables) {
+        this.databaseType = databaseType;
+        this.configuration = configuration;
+        this.tables = sortByForeignKeys(tables);
+    }
+
+    /**
+     * Creates a backup for the core and module tables, configured via the db.backup.* properties.
+     */
+    public static LogicalDatabaseBackup forDatabase(DatabaseProxy databaseProxy) {
+        List<Table<?>> tables = new ArrayList<>(DefaultSchema.DEFAULT_SCHEMA.getTables());
+        for (DatabaseSchemaDefinition def : ModuleRegistry.getDefinitions(DatabaseSchemaDefinition.class)) {
+            tables.addAll(def.getTablesForConversion());
+        }
+        LogicalDatabaseBackup backup = new LogicalDatabaseBackup(databaseProxy.getType(), databaseProxy.getConfig(), tables);
+        backup.setChunkSize(Common.envProps.getInt("db.backup.chunkSize", 10000));
+        backup.setMaxBytesPerSecond(Common.envProps.getLong("db.backup.maxBytesPerSecond", 16777216));
+        return backup;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be greater than zero");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param maxBytesPerSecond maximum rate at which rows are read from or written to the database, zero for no limit
+     */
+    public void setMaxBytesPerSecond(long maxBytesPerSecond) {
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    /**
+     * @return the tables in the order they are backed up and restored
+     */
+    public List<Table<?>> getTables() {
+        return Collections.unmodifiableList(tables);
+    }
+
+    /**
+     * Write a backup of all tables to the output stream, the stream is not closed.
+     *
+     * @return number of rows written for each table
+     */
+    public Map<String, Long> backup(OutputStream out) throws IOException, SQLException {
+        Throttle throttle = new Throttle(maxBytesPerSecond);
+        Map<String, Long> rows = new LinkedHashMap<>();
+
+        ConnectionProvider connectionProvider = configuration.connectionProvider();
+        Connection connection = connectionProvider.acquire();
+        boolean autoCommit = connection.getAutoCommit();
+        int isolation = connection.getTransactionIsolation();
+        try {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(snapshotIsolation(connection));
+            DSLContext context = DSL.using(configuration.derive(new DefaultConnectionProvider(connection)));
+
+            BackupArchiveWriter writer = new BackupArchiveWriter(out, databaseType.name());
+            for (Table<?> table : tables) {
+                long count = backupTable(context, table, writer, throttle);
+                rows.put(table.getName(), count);
+                LOG.info("Backed up {} rows from table {}", count, table.getName());
+            }
+            writer.finish();
+            connection.commit();
+        } catch (IOException | SQLException | RuntimeException e) {
+            rollback(connection, e);
+            throw e;
+        } finally {
+            reset(connectionProvider, connection, autoCommit, isolation);
+        }
+        return rows;
+    }
+
+    /**
+     * Restore a backup file written by {@link #backup(OutputStream)}. The whole file is {@link #verify(InputStream)
+     * verified} before the database is modified, then restored as per {@link #restore(InputStream, boolean)}.
+     *
+     * @param deleteExisting delete all rows from the tables before restoring, if false the tables must be empty
+     * @return number of rows restored for each table
+     */
+    public Map<String, Long> restore(Path backupFile, boolean deleteExisting) throws IOException, SQLException {
+        try (InputStream in = Files.newInputStream(backupFile)) {
+            verify(in);
+        }
+        try (InputStream in = Files.newInputStream(backupFile)) {
+            return restore(in, deleteExisting);
+        }
+    }
+
+    /**
+     * Restore a backup written by {@link #backup(OutputStream)}. The tables must already exist, the stream is not
+     * closed. Existing rows are deleted and the backup is inserted in a single transaction which is rolled back if
+     * the backup is corrupt, has different schema versions to the database or can't be inserted. Identity columns are
+     * restarted once the transaction has been committed.
+     *
+     * @param deleteExisting delete all rows from the tables before restoring, if false the tables must be empty
+     * @return number of rows restored for each table
+     */
+    public Map<String, Long> restore(InputStream in, boolean deleteExisting) throws IOException, SQLException {
+        Throttle throttle = new Throttle(maxBytesPerSecond);
+        Map<String, Long> rows = new LinkedHashMap<>();
+        Map<String, Table<?>> tablesByName = tablesByName();
+
+        BackupArchiveReader reader = new BackupArchiveReader(in);
+        LOG.info("Restoring {} database backup created at {}", reader.getDatabaseType(), reader.getCreated());
+
+        ConnectionProvider connectionProvider = configuration.connectionProvider();
+        Connection connection = connectionProvider.acquire();
+        boolean autoCommit = connection.getAutoCommit();
+        int isolation = connection.getTransactionIsolation();
+        try {
+            connection.setAutoCommit(false);
+            DSLContext context = DSL.using(configuration.derive(new DefaultConnectionProvider(connection)));
+            Map<String, String> schemaVersions = schemaVersions(context);
+
+            if (deleteExisting) {
+                for (int i = tables.size() - 1; i >= 0; i--) {
+                    context.deleteFrom(tables.get(i)).execute();
+                }
+            } else {
+                for (Table<?> table : tables) {
+                    if (context.fetchExists(table)) {
+                        throw new IllegalStateException("Table " + table.getName() + " is not empty, restore requires an empty schema");
+                    }
+                }
+            }
+
+            List<Table<?>> restored = new ArrayList<>();
+            BackupArchiveReader.TableHeader header;
+            while ((header = reader.nextTable()) != null) {
+                Table<?> table = tablesByName.get(header.getName().toLowerCase(Locale.ROOT));
+                if (table == null) {
+                    LOG.warn("Skipping table {} from backup, table is not present in this installation", header.getName());
+                    while (reader.nextChunk() != null) {
+                        // skip
+                    }
+                    continue;
+                }
+
+                long count = restoreTable(context, table, header, reader, throttle, schemaVersions);
+                rows.put(table.getName(), count);
+                restored.add(table);
+                LOG.info("Restored {} rows to table {}", count, table.getName());
+            }
+            connection.commit();
+
+            // DDL commits the current transaction on some databases
+            for (Table<?> table : restored) {
+                Identity<?, ?> identity = table.getIdentity();
+                if (identity != null) {
+                    restartIdentity(context, table, identity.getField());
+                }
+            }
+            connection.commit();
+        } catch (IOException | SQLException | RuntimeException | Error e) {
+            rollback(connection, e);
+            throw e;
+        } finally {
+            reset(connectionProvider, connection, autoCommit, isolation);
+        }
+        return rows;
+    }
+
+    /**
+     * Reads a backup written by {@link #backup(OutputStream)} without modifying the database. Verifies the checksum
+     * of every chunk, the row count of every table, that every column exists in this installation and that the
+     * schema versions match the database. The stream is not closed.
+     *
+     * @return number of rows in the backup for each table that will be restored
+     */
+    public Map<String, Long> verify(InputStream in) throws IOException {
+        Map<String, Long> rows = new LinkedHashMap<>();
+        Map<String, Table<?>> tablesByName = tablesByName();
+        Map<String, String> schemaVersions = schemaVersions(DSL.using(configuration));
+
+        BackupArchiveReader reader = new BackupArchiveReader(in);
+        BackupArchiveReader.TableHeader header;
+        while ((header = reader.nextTable()) != null) {
+            Table<?> table = tablesByName.get(header.getName().toLowerCase(Locale.ROOT));
+            Field<?>[] fields = table == null ? null : restoreFields(table, header);
+
+            long count = 0;
+            List<Object[]> chunk;
+            while ((chunk = reader.nextChunk()) != null) {
+                if (table != null) {
+                    checkSchemaVersions(table, fields, chunk, schemaVersions);
+                }
+                count += chunk.size();
+            }
+            if (table != null) {
+                rows.put(table.getName(), count);
+            }
+        }
+        return rows;
+    }
+
+    private long backupTable(DSLContext context, Table<?> table, BackupArchiveWriter writer, Throttle throttle) throws IOException {
+        Field<?>[] fields = table.fields();
+        writer.startTable(table.getName(), Arrays.stream(fields).map(Field::getName).collect(Collectors.toList()));
+
+        SelectJoinStep<Record> select = context.select(fields).from(table);
+        UniqueKey<?> primaryKey = table.getPrimaryKey();
+        ResultQuery<Record> query = primaryKey == null ? select : select.orderBy(primaryKey.getFields());
+
+        // MySQL only streams results with this fetch size, other drivers use a cursor when not in auto commit mode
+        int fetchSize = databaseType == DatabaseType.MYSQL ? Integer.MIN_VALUE : chunkSize;
+
+        long rows = 0;
+        try (Cursor<Record> cursor = query.fetchSize(fetchSize).fetchLazy()) {
+            for (Record record : cursor) {
+                writer.writeRow(record.intoArray());
+                if (++rows % chunkSize == 0) {
+                    throttle.acquire(writer.flushChunk());
+                }
+            }
+        }
+        throttle.acquire(writer.flushChunk());
+        writer.endTable(rows);
+        return rows;
+    }
+
+    private long restoreTable(DSLContext context, Table<?> table, BackupArchiveReader.TableHeader header,
+                              BackupArchiveReader reader, Throttle throttle,
+                              Map<String, String> schemaVersions) throws IOException {
+        Field<?>[] fields = restoreFields(table, header);
+
+        // only one table per session may have identity insert enabled
+        boolean identityInsert = table.getIdentity() != null && databaseType == DatabaseType.MSSQL;
+        if (identityInsert) {
+            context.execute("SET IDENTITY_INSERT " + table.getName() + " ON");
+        }
+
+        Query insert = context.insertInto(table).columns(fields).values(new Object[fields.length]);
+        long rows = 0;
+        List<Object[]> chunk;
+        while ((chunk = reader.nextChunk()) != null) {
+            checkSchemaVersions(table, fields, chunk, schemaVersions);
+            BatchBindStep batch = context.batch(insert);
+            for (Object[] row : chunk) {
+                batch = batch.bind(row);
+            }
+            batch.execute();
+            rows += chunk.size();
+            throttle.acquire(reader.getLastChunkSize());
+        }
+
+        if (identityInsert) {
+            context.execute("SET IDENTITY_INSERT " + table.getName() + " OFF");
+        }
+        return rows;
+    }
+
+    private Field<?>[] restoreFields(Table<?> table, BackupArchiveReader.TableHeader header) {
+        Field<?>[] fields = new Field<?>[header.getColumns().size()];
+        for (int i = 0; i < fields.length; i++) {
+            String column = header.getColumns().get(i);
+            fields[i] = table.field(column);
+            if (fields[i] == null) {
+                throw new IllegalStateException("Column " + column + " from backup does not exist in table " + table.getName());
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * @return the core and module schema versions stored in the database, empty if the system settings table is not
+     * restored
+     */
+    private Map<String, String> schemaVersions(DSLContext context) {
+        SystemSettings ss = SystemSettings.SYSTEM_SETTINGS;
+        if (!tables.contains(ss)) {
+            return Collections.emptyMap();
+        }
+        return context.select(ss.settingName, ss.settingValue)
+                .from(ss)
+                .where(ss.settingName.like(SystemSettingsDao.DATABASE_SCHEMA_VERSION + "%"))
+                .fetchMap(ss.settingName, ss.settingValue);
+    }
+
+    /**
+     * Restoring a backup with a different schema version would overwrite the version stored in the database without
+     * running the upgrades, the backup must be restored to an installation with the same schema versions.
+     * Versions of modules which are only present in either the backup or the database are not checked.
+     */
+    private void checkSchemaVersions(Table<?> table, Field<?>[] fields, List<Object[]> chunk,
+                                     Map<String, String> schemaVersions) {
+        SystemSettings ss = SystemSettings.SYSTEM_SETTINGS;
+        if (schemaVersions.isEmpty() || !table.equals(ss)) {
+            return;
+        }
+
+        int nameIndex = -1;
+        int valueIndex = -1;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].getName().equalsIgnoreCase(ss.settingName.getName())) {
+                nameIndex = i;
+            } else if (fields[i].getName().equalsIgnoreCase(ss.settingValue.getName())) {
+                valueIndex = i;
+            }
+        }
+        if (nameIndex < 0 || valueIndex < 0) {
+            return;
+        }
+
+        for (Object[] row : chunk) {
+            String name = (String) row[nameIndex];
+            String current = schemaVersions.get(name);
+            if (current != null && !current.equals(row[valueIndex])) {
+                throw new IllegalStateException("Backup has " + name + " " + row[valueIndex] + " but the database has " +
+                        current + ", restore the backup to an installation with the same schema version");
+            }
+        }
+    }
+
+    private Map<String, Table<?>> tablesByName() {
+        Map<String, Table<?>> tablesByName = new HashMap<>();
+        for (Table<?> table : tables) {
+            tablesByName.put(table.getName().toLowerCase(Locale.ROOT), table);
+        }
+        return tablesByName;
+    }
+
+    /**
+     * Ensure that rows inserted after the restore do not collide with the restored ids
+     */
+    private void restartIdentity(DSLContext context, Table<?> table, Field<?> field) {
+        switch (databaseType) {
+            case MSSQL:
+                // identity seed is updated automatically when explicit values are inserted
+                break;
+            case MYSQL:
+                // auto increment value is updated automatically when explicit values are inserted
+                break;
+            case POSTGRES: {
+                long next = nextIdentityValue(context, table, field);
+                context.alterSequence(table.getName() + "_" + field.getName() + "_seq").restartWith(next).execute();
+                break;
+            }
+            case H2:
+            case DERBY:
+            default: {
+                long next = nextIdentityValue(context, table, field);
+                context.execute("ALTER TABLE " + table.getName() + " ALTER COLUMN " + field.getName() + " RESTART WITH " + next);
+                break;
+            }
+        }
+    }
+
+    private long nextIdentityValue(DSLContext context, Table<?> table, Field<?> field) {
+        Long max = context.select(DSL.max(field)).from(table).fetchOne(0, Long.class);
+        return max == null ? 1 : max + 1;
+    }
+
+    private int snapshotIsolation(Connection connection) throws SQLException {
+        switch (databaseType) {
+            case MSSQL:
+                if (snapshotIsolationAllowed(connection)) {
+                    return MSSQL_TRANSACTION_SNAPSHOT;
+                }
+                LOG.warn("Snapshot isolation is not enabled for this database, the backup may not be consistent. " +
+                        "Enable using ALTER DATABASE <name> SET ALLOW_SNAPSHOT_ISOLATION ON");
+                return Connection.TRANSACTION_READ_COMMITTED;
+            case DERBY:
+                // Derby takes shared locks for repeatable read which would block writers for the whole backup
+                return Connection.TRANSACTION_READ_COMMITTED;
+            case H2:
+            case MYSQL:
+            case POSTGRES:
+            default:
+                // MVCC, all statements read from the snapshot taken at the first read without blocking writers
+                return Connection.TRANSACTION_REPEATABLE_READ;
+        }
+    }
+
+    private boolean snapshotIsolationAllowed(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT snapshot_isolation_state FROM sys.databases WHERE name = DB_NAME()")) {
+            return rs.next() && rs.getInt(1) == 1;
+        }
+    }
+
+    private void rollback(Connection connection, Exception cause) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private void reset(ConnectionProvider connectionProvider, Connection connection, boolean autoCommit, int isolation) throws SQLException {
+        try {
+            connection.setTransactionIsolation(isolation);
+            connection.setAutoCommit(autoCommit);
+        } finally {
+            connectionProvider.release(connection);
+        }
+    }
+
+    /**
+     * Orders the tables so that tables are listed after the tables they reference. Self references are ignored,
+     * tables which are part of a cycle retain their original order and are listed last.
+     */
+    static List<Table<?>> sortByForeignKeys(List<Table<?>> tables) {
+        Map<Table<?>, Set<Table<?>>> dependencies = new LinkedHashMap<>();
+        for (Table<?> table : tables) {
+            Set<Table<?>> references = new LinkedHashSet<>();
+            for (ForeignKey<?, ?> foreignKey : table.getReferences()) {
+                Table<?> referenced = foreignKey.getKey().getTable();
+                if (!referenced.equals(table) && tables.contains(referenced)) {
+                    references.add(referenced);
+                }
+            }
+            dependencies.putIfAbsent(table, references);
+        }
+
+        List<Table<?>> sorted = new ArrayList<>(dependencies.size());
+        Set<Table<?>> added = new LinkedHashSet<>();
+        boolean progress = true;
+        while (progress && sorted.size() < dependencies.size()) {
+            progress = false;
+            for (Map.Entry<Table<?>, Set<Table<?>>> entry : dependencies.entrySet()) {
+                if (!added.contains(entry.getKey()) && added.containsAll(entry.getValue())) {
+                    sorted.add(entry.getKey());
+                    added.add(entry.getKey());
+                    progress = true;
+                }
+            }
+        }
+
+        if (sorted.size() < dependencies.size()) {
+            List<Table<?>> remaining = dependencies.keySet().stream()
+                    .filter(t -> !added.contains(t))
+                    .collect(Collectors.toList());
+            LOG.warn("Circular foreign key references between tables {}", remaining);
+            sorted.addAll(remaining);
+        }
+        return sorted;
+    }
+}
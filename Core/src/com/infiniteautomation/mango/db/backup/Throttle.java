@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.db.backup;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the average rate at which bytes are processed by sleeping the calling thread.
+ */
+class Throttle {
+
+    private final long bytesPerSecond;
+    private final long start = System.nanoTime();
+    private long total;
+
+    /**
+     * @param bytesPerSecond maximum rate, zero or negative for no limit
+     */
+    Throttle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    void acquire(long bytes) throws InterruptedIOException {
+        if (bytesPerSecond <= 0 || bytes <= 0) {
+            return;
+        }
+
+        total += bytes;
+        long expected = (long) ((double) total / bytesPerSecond * TimeUnit.SECONDS.toNanos(1));
+        long sleep = expected - (System.nanoTime() - start);
+        if (sleep > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling");
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.db.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.ExecuteListenerProvider;
+import org.jooq.impl.DefaultExecuteListener;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Collects execution statistics for every statement executed via jOOQ, grouped by the shape of the statement (see
+ * {@link QueryShapes}). Keeps a ring buffer of the most recent statements which exceeded the slow query threshold.
+ *
+ * <p>Register with a jOOQ configuration as an {@link ExecuteListenerProvider}.</p>
+ */
+public class QueryMetrics implements ExecuteListenerProvider {
+
+    /**
+     * Shape used to record statements once the maximum number of shapes is reached
+     */
+    public static final String OTHER_SHAPE = "other";
+
+    private static final String CONTEXT_KEY = QueryMetrics.class.getName();
+
+    private final int maxShapes;
+    private final long slowQueryThreshold;
+    private final Map<String, ShapeMetrics> shapes = new ConcurrentHashMap<>();
+    private final Cache<String, String> shapeCache = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .build();
+    private final AtomicReferenceArray<SlowQuery> slowQueries;
+    private final AtomicLong slowQueryCount = new AtomicLong();
+    private final LongAdder queryCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final ExecuteListener listener = new MetricsListener();
+
+    /**
+     * @param maxShapes maximum number of shapes to record, further shapes are recorded as {@link #OTHER_SHAPE}
+     * @param slowQueryThreshold statements taking longer than this (ms) are recorded in the slow query buffer
+     * @param slowQueryBufferSize number of slow statements to keep
+     */
+    public QueryMetrics(int maxShapes, long slowQueryThreshold, int slowQueryBufferSize) {
+        this.maxShapes = maxShapes;
+        this.slowQueryThreshold = TimeUnit.MILLISECONDS.toMicros(slowQueryThreshold);
+        this.slowQueries = new AtomicReferenceArray<>(Math.max(1, slowQueryBufferSize));
+    }
+
+    @Override
+    public ExecuteListener provide() {
+        return listener;
+    }
+
+    /**
+     * Record the execution of a statement
+     *
+     * @param sql statement as executed, may contain literals
+     * @param duration execution time in nanoseconds
+     * @param rowsFetched number of records fetched
+     * @param error exception thrown by the statement
+     */
+    public void record(String sql, long duration, long rowsFetched, @Nullable Throwable error) {
+        String shape = shapeCache.get(sql, QueryShapes::shapeOf);
+        ShapeMetrics metrics = shapes.get(shape);
+        if (metrics == null) {
+            if (shapes.size() >= maxShapes) {
+                shape = OTHER_SHAPE;
+            }
+            metrics = shapes.computeIfAbsent(shape, ShapeMetrics::new);
+        }
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(duration);
+        queryCount.increment();
+        metrics.count.increment();
+        metrics.totalTime.add(micros);
+        metrics.rowsFetched.add(rowsFetched);
+        metrics.latency.update(micros);
+        if (error != null) {
+            errorCount.increment();
+            metrics.errors.increment();
+        }
+
+        if (micros >= slowQueryThreshold) {
+            SlowQuery slowQuery = new SlowQuery(System.currentTimeMillis(), shape, QueryShapes.redact(sql), micros,
+                    rowsFetched, error == null ? null : error.getClass().getName());
+            long index = slowQueryCount.getAndIncrement();
+            slowQueries.set((int) (index % slowQueries.length()), slowQuery);
+        }
+    }
+
+    /**
+     * @return statistics for each shape, ordered by total execution time descending
+     */
+    public List<QueryShapeStatistics> getShapes() {
+        List<QueryShapeStatistics> result = new ArrayList<>(shapes.size());
+        for (ShapeMetrics metrics : shapes.values()) {
+            result.add(metrics.statistics());
+        }
+        result.sort(Comparator.comparingLong(QueryShapeStatistics::getTotalTime).reversed());
+        return result;
+    }
+
+    public @Nullable QueryShapeStatistics getShape(String shape) {
+        ShapeMetrics metrics = shapes.get(shape);
+        return metrics == null ? null : metrics.statistics();
+    }
+
+    /**
+     * @return the most recent slow statements, newest first
+     */
+    public List<SlowQuery> getSlowQueries() {
+        int length = slowQueries.length();
+        long end = slowQueryCount.get();
+        long start = Math.max(0, end - length);
+        List<SlowQuery> result = new ArrayList<>((int) (end - start));
+        for (long i = end - 1; i >= start; i--) {
+            SlowQuery slowQuery = slowQueries.get((int) (i % length));
+            if (slowQuery != null) {
+                result.add(slowQuery);
+            }
+        }
+        return result;
+    }
+
+    public long getQueryCount() {
+        return queryCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getSlowQueryCount() {
+        return slowQueryCount.get();
+    }
+
+    public int getShapeCount() {
+        return shapes.size();
+    }
+
+    public void reset() {
+        shapes.clear();
+        for (int i = 0; i < slowQueries.length(); i++) {
+            slowQueries.set(i, null);
+        }
+        slowQueryCount.set(0);
+        queryCount.reset();
+        errorCount.reset();
+    }
+
+    private static final class ShapeMetrics {
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rowsFetched = new LongAdder();
+        private final LongAdder totalTime = new LongAdder();
+        private final Histogram latency = new Histogram(new ExponentiallyDecayingReservoir());
+
+        private ShapeMetrics(String shape) {
+            this.shape = shape;
+        }
+
+        private QueryShapeStatistics statistics() {
+            return new QueryShapeStatistics(shape, count.sum(), errors.sum(), rowsFetched.sum(), totalTime.sum(),
+                    latency.getSnapshot());
+        }
+    }
+
+    /**
+     * State for a single execution, stored in the {@link ExecuteContext}
+     */
+    private static final class Execution {
+        private final long start = System.nanoTime();
+        private long rowsFetched;
+        private boolean recorded;
+    }
+
+    private final class MetricsListener extends DefaultExecuteListener {
+
+        @Override
+        public void start(ExecuteContext ctx) {
+            ctx.data(CONTEXT_KEY, new Execution());
+        }
+
+        @Override
+        public void recordEnd(ExecuteContext ctx) {
+            Execution execution = (Execution) ctx.data(CONTEXT_KEY);
+            if (execution != null) {
+                execution.rowsFetched++;
+            }
+        }
+
+        @Override
+        public void exception(ExecuteContext ctx) {
+            record(ctx, ctx.exception());
+        }
+
+        @Override
+        public void end(ExecuteContext ctx) {
+            record(ctx, null);
+        }
+
+        private void record(ExecuteContext ctx, @Nullable Throwable error) {
+            Execution execution = (Execution) ctx.data(CONTEXT_KEY);
+            if (execution == null || execution.recorded) {
+                return;
+            }
+            String sql = ctx.sql();
+            if (sql == null) {
+                String[] batchSql = ctx.batchSQL();
+                if (batchSql.length == 0 || batchSql[0] == null) {
+                    return;
+                }
+                sql = batchSql[0];
+            }
+            execution.recorded = true;
+            QueryMetrics.this.record(sql, System.nanoTime() - execution.start, execution.rowsFetched, error);
+        }
+    }
+}
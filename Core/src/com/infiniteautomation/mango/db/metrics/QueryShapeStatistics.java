@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.db.metrics;
+
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Point in time statistics for all statements sharing a shape, see {@link QueryShapes#shapeOf(String)}.
+ * Latencies are in microseconds.
+ */
+public class QueryShapeStatistics {
+
+    private final String shape;
+    private final long count;
+    private final long errorCount;
+    private final long rowsFetched;
+    private final long totalTime;
+    private final double mean;
+    private final double median;
+    private final double p90;
+    private final double p99;
+    private final long max;
+
+    QueryShapeStatistics(String shape, long count, long errorCount, long rowsFetched, long totalTime, Snapshot snapshot) {
+        this.shape = shape;
+        this.count = count;
+        this.errorCount = errorCount;
+        this.rowsFetched = rowsFetched;
+        this.totalTime = totalTime;
+        this.mean = snapshot.getMean();
+        this.median = snapshot.getMedian();
+        this.p90 = snapshot.getValue(0.90);
+        this.p99 = snapshot.get99thPercentile();
+        this.max = snapshot.getMax();
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getRowsFetched() {
+        return rowsFetched;
+    }
+
+    /**
+     * @return total time spent executing statements of this shape
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getMedian() {
+        return median;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public long getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.db.metrics;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes SQL statements so that statements which only differ by their literal values, bind values or the
+ * number of elements in an IN list / VALUES clause are grouped together.
+ */
+public final class QueryShapes {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern REPEATED_ROWS = Pattern.compile("\\(\\?\\)(?:\\s*,\\s*\\(\\?\\))+");
+
+    private QueryShapes() {
+    }
+
+    /**
+     * Replaces string and numeric literals with a bind parameter placeholder and collapses whitespace. The result
+     * does not contain any values and is safe to log.
+     */
+    public static String redact(String sql) {
+        StringBuilder result = new StringBuilder(sql.length());
+        int length = sql.length();
+        boolean whitespace = false;
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                whitespace = true;
+                continue;
+            }
+            if (whitespace) {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                whitespace = false;
+            }
+
+            if (c == '\'') {
+                // string literal, '' is an escaped quote
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    i++;
+                }
+                result.append('?');
+            } else if (c == '"' || c == '`' || c == '[') {
+                // quoted identifier, copied as is
+                char close = c == '[' ? ']' : c;
+                int end = sql.indexOf(close, i + 1);
+                end = end < 0 ? length - 1 : end;
+                result.append(sql, i, end + 1);
+                i = end;
+            } else if (isDigit(c) && !isIdentifierPart(result)) {
+                // numeric literal
+                while (i + 1 < length && (isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.' ||
+                        sql.charAt(i + 1) == 'e' || sql.charAt(i + 1) == 'E')) {
+                    i++;
+                }
+                result.append('?');
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return the redacted statement with IN lists and multi-row VALUES clauses collapsed to a single element
+     */
+    public static String shapeOf(String sql) {
+        String shape = PARAMETER_LIST.matcher(redact(sql)).replaceAll("(?)");
+        shape = REPEATED_ROWS.matcher(shape).replaceAll("(?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ");
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return true if the last character written is part of an identifier, e.g. the 1 in table1 is not a literal
+     */
+    private static boolean isIdentifierPart(StringBuilder result) {
+        if (result.length() == 0) {
+            return false;
+        }
+        char last = result.charAt(result.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.db.metrics;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A statement which took longer than the slow query threshold to execute. The SQL is redacted, it does not contain
+ * bind or literal values.
+ */
+public class SlowQuery {
+
+    private final long timestamp;
+    private final String shape;
+    private final String sql;
+    private final long duration;
+    private final long rowsFetched;
+    private final @Nullable String error;
+
+    SlowQuery(long timestamp, String shape, String sql, long duration, long rowsFetched, @Nullable String error) {
+        this.timestamp = timestamp;
+        this.shape = shape;
+        this.sql = sql;
+        this.duration = duration;
+        this.rowsFetched = rowsFetched;
+        this.error = error;
+    }
+
+    /**
+     * @return epoch milliseconds at which the statement completed
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return duration in microseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public long getRowsFetched() {
+        return rowsFetched;
+    }
+
+    /**
+     * @return exception class name if the statement failed
+     */
+    public @Nullable String getError() {
+        return error;
+    }
+}
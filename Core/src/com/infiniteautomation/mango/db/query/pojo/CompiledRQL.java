@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.db.query.pojo;
+
+import java.util.Comparator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * RQL query compiled by {@link RQLCompiler}, filters, sorts and limits a stream in the same way as
+ * {@link RQLFilter}. Instances are immutable and may be shared between threads.
+ *
+ * @param <T> bean type
+ */
+public final class CompiledRQL<T> implements UnaryOperator<Stream<T>> {
+
+    private final @Nullable Predicate<T> filter;
+    private final @Nullable Comparator<T> sort;
+    private final @Nullable Long limit;
+    private final @Nullable Long offset;
+
+    CompiledRQL(@Nullable Predicate<T> filter, @Nullable Comparator<T> sort, @Nullable Long limit, @Nullable Long offset) {
+        this.filter = filter;
+        this.sort = sort;
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    @Override
+    public Stream<T> apply(Stream<T> stream) {
+        if (this.filter != null) {
+            stream = stream.filter(filter);
+        }
+        if (this.sort != null) {
+            stream = stream.sorted(this.sort);
+        }
+        if (this.offset != null) {
+            stream = stream.skip(this.offset);
+        }
+        if (this.limit != null) {
+            stream = stream.limit(this.limit);
+        }
+        return stream;
+    }
+
+    public long count(Stream<T> stream) {
+        if (this.filter != null) {
+            stream = stream.filter(filter);
+        }
+        return stream.count();
+    }
+
+    public @Nullable Predicate<T> getFilter() {
+        return filter;
+    }
+
+    public @Nullable Comparator<T> getSort() {
+        return sort;
+    }
+
+    public @Nullable Long getLimit() {
+        return limit;
+    }
+
+    public @Nullable Long getOffset() {
+        return offset;
+    }
+}
@@ -51,7 +51,7 @@ public class ObjectComparator implements Comparator<Object> {
         return arg.toString();
     }
 
-    private static boolean isInteger(Object o) {
+    static boolean isInteger(Object o) {
         return o instanceof Integer || o instanceof Long || o instanceof Short || o instanceof Byte || o instanceof AtomicInteger || o instanceof AtomicLong;
     }
 
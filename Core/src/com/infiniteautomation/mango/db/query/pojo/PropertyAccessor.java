@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.db.query.pojo;
+
+import java.beans.IndexedPropertyDescriptor;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.MethodUtils;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Reads a (possibly dotted) property from a bean using {@link MethodHandle} getters which are resolved once.
+ * Each segment of the property is resolved against the static type returned by the previous getter, segments which
+ * can't be resolved statically (maps, dyna beans, indexed/mapped properties or properties only declared by a
+ * subclass) are resolved against the runtime class of the value and fall back to {@link PropertyUtils}, exactly
+ * as {@link RQLFilterJavaBean} does.
+ */
+final class PropertyAccessor {
+
+    private static final MethodHandle IDENTITY = MethodHandles.identity(Object.class);
+    private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType LONG_GETTER = MethodType.methodType(long.class, Object.class);
+    private static final MethodType DOUBLE_GETTER = MethodType.methodType(double.class, Object.class);
+
+    private static final ClassValue<Map<String, Optional<Getter>>> GETTERS = new ClassValue<>() {
+        @Override
+        protected Map<String, Optional<Getter>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final @Nullable String property;
+    private final Class<?> type;
+    private final MethodHandle prefix;
+    private final String[] dynamicNames;
+    private final @Nullable MethodHandle longHandle;
+    private final @Nullable MethodHandle doubleHandle;
+
+    private PropertyAccessor(@Nullable String property, Class<?> type, MethodHandle prefix, String[] dynamicNames,
+                             @Nullable MethodHandle longHandle, @Nullable MethodHandle doubleHandle) {
+        this.property = property;
+        this.type = type;
+        this.prefix = prefix;
+        this.dynamicNames = dynamicNames;
+        this.longHandle = longHandle;
+        this.doubleHandle = doubleHandle;
+    }
+
+    /**
+     * @param beanClass class of the items which will be passed to {@link #get(Object)}
+     * @param property dotted property path, null or empty returns the item itself
+     */
+    static PropertyAccessor forProperty(Class<?> beanClass, @Nullable String property) {
+        String[] names = property == null ? new String[0] : RQLFilterJavaBean.PROPERTY_SEPARATOR.split(property);
+
+        Class<?> type = beanClass.isPrimitive() ? Object.class : beanClass;
+        MethodHandle handle = IDENTITY.asType(MethodType.methodType(type, Object.class));
+
+        int i = 0;
+        for (; i < names.length; i++) {
+            String name = names[i];
+            if (name.isEmpty()) {
+                continue;
+            }
+            Getter getter = findGetter(type, name);
+            if (getter == null) {
+                break;
+            }
+            MethodHandle exact = getter.exact;
+            handle = MethodHandles.filterReturnValue(
+                    handle.asType(handle.type().changeReturnType(exact.type().parameterType(0))), exact);
+            type = exact.type().returnType();
+        }
+
+        List<String> dynamicNames = new ArrayList<>();
+        for (; i < names.length; i++) {
+            if (!names[i].isEmpty()) {
+                dynamicNames.add(names[i]);
+            }
+        }
+
+        MethodHandle longHandle = null;
+        MethodHandle doubleHandle = null;
+        if (dynamicNames.isEmpty()) {
+            if (isIntegral(type)) {
+                longHandle = handle.asType(LONG_GETTER);
+            }
+            if (isIntegral(type) || type == float.class || type == double.class) {
+                doubleHandle = handle.asType(DOUBLE_GETTER);
+            }
+        } else {
+            type = Object.class;
+        }
+
+        return new PropertyAccessor(property, type, handle.asType(OBJECT_GETTER),
+                dynamicNames.toArray(new String[0]), longHandle, doubleHandle);
+    }
+
+    /**
+     * @return the type returned by the getter, or Object if the property is resolved at runtime
+     */
+    Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return true if the property is a primitive int, long, short or byte and {@link #getLong(Object)} may be used
+     */
+    boolean isIntegral() {
+        return longHandle != null;
+    }
+
+    /**
+     * @return true if the property is a primitive number and {@link #getDouble(Object)} may be used
+     */
+    boolean isNumeric() {
+        return doubleHandle != null;
+    }
+
+    Object get(Object bean) {
+        Object value;
+        try {
+            value = (Object) prefix.invokeExact(bean);
+        } catch (Throwable t) {
+            throw error(property, t);
+        }
+        for (String name : dynamicNames) {
+            value = getDynamic(value, name);
+        }
+        return value;
+    }
+
+    long getLong(Object bean) {
+        try {
+            //noinspection ConstantConditions
+            return (long) longHandle.invokeExact(bean);
+        } catch (Throwable t) {
+            throw error(property, t);
+        }
+    }
+
+    double getDouble(Object bean) {
+        try {
+            //noinspection ConstantConditions
+            return (double) doubleHandle.invokeExact(bean);
+        } catch (Throwable t) {
+            throw error(property, t);
+        }
+    }
+
+    private static Object getDynamic(Object value, String name) {
+        if (value != null && !(value instanceof Map)) {
+            Getter getter = findGetter(value.getClass(), name);
+            if (getter != null) {
+                try {
+                    return (Object) getter.generic.invokeExact(value);
+                } catch (Throwable t) {
+                    throw error(name, t);
+                }
+            }
+        }
+
+        try {
+            return PropertyUtils.getProperty(value, name);
+        } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            throw new IllegalArgumentException("Error getting value for property " + name, e);
+        }
+    }
+
+    private static @Nullable Getter findGetter(Class<?> type, String name) {
+        if (type.isPrimitive() || type.isArray() || Map.class.isAssignableFrom(type) ||
+                DynaBean.class.isAssignableFrom(type) || name.indexOf('[') >= 0 || name.indexOf('(') >= 0) {
+            return null;
+        }
+        return GETTERS.get(type).computeIfAbsent(name, n -> Optional.ofNullable(lookupGetter(type, n))).orElse(null);
+    }
+
+    private static @Nullable Getter lookupGetter(Class<?> type, String name) {
+        for (PropertyDescriptor descriptor : PropertyUtils.getPropertyDescriptors(type)) {
+            if (!name.equals(descriptor.getName())) {
+                continue;
+            }
+            if (descriptor instanceof IndexedPropertyDescriptor || descriptor.getReadMethod() == null) {
+                return null;
+            }
+            Method readMethod = MethodUtils.getAccessibleMethod(type, descriptor.getReadMethod());
+            if (readMethod == null) {
+                return null;
+            }
+            try {
+                MethodHandle exact = MethodHandles.publicLookup().unreflect(readMethod);
+                return new Getter(exact, exact.asType(OBJECT_GETTER));
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIntegral(Class<?> type) {
+        return type == int.class || type == long.class || type == short.class || type == byte.class;
+    }
+
+    private static IllegalArgumentException error(@Nullable String property, Throwable cause) {
+        return new IllegalArgumentException("Error getting value for property " + property, cause);
+    }
+
+    private static final class Getter {
+        /**
+         * Type is (DeclaringClass)ReturnType
+         */
+        private final MethodHandle exact;
+        /**
+         * Type is (Object)Object
+         */
+        private final MethodHandle generic;
+
+        private Getter(MethodHandle exact, MethodHandle generic) {
+            this.exact = exact;
+            this.generic = generic;
+        }
+    }
+}
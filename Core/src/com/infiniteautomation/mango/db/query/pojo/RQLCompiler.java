@@ -0,0 +1,442 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.db.query.pojo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.infiniteautomation.mango.db.query.RQLMatchToken;
+import com.infiniteautomation.mango.db.query.RQLOperation;
+import com.serotonin.m2m2.i18n.TranslatableMessage;
+import com.serotonin.m2m2.i18n.Translations;
+
+import net.jazdw.rql.parser.ASTNode;
+
+/**
+ * Compiles an RQL AST into a {@link CompiledRQL} for filtering and sorting beans in memory. The result has the same
+ * semantics as {@link RQLFilterJavaBean}, however the AST is only walked once and properties are read using
+ * {@link java.lang.invoke.MethodHandle} getters which are resolved once per query rather than via
+ * {@link org.apache.commons.beanutils.PropertyUtils} for every item. Comparisons against primitive number and enum
+ * properties are specialized so that the property value does not have to be boxed and compared via
+ * {@link ObjectComparator}.
+ *
+ * <p>Compiled queries are cached by their normalized AST, bean class and translations. The runtime context provides a
+ * shared instance, pass it to {@link RQLFilterJavaBean} to filter via the compiler.</p>
+ */
+public class RQLCompiler {
+
+    private final Cache<Key, CompiledRQL<?>> cache;
+
+    public RQLCompiler(long cacheSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    /**
+     * @param node RQL AST, may be null in which case the result does not filter, sort or limit
+     * @param beanClass class of the beans that will be filtered
+     * @param translations used to compare and match translatable messages, may be null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompiledRQL<T> compile(@Nullable ASTNode node, Class<T> beanClass, @Nullable Translations translations) {
+        if (node == null) {
+            return new CompiledRQL<>(null, null, null, null);
+        }
+
+        StringBuilder normalized = new StringBuilder();
+        if (!normalize(node, normalized)) {
+            // AST contains an argument which we can't reliably normalize
+            return new Compilation<>(beanClass, translations).compile(node);
+        }
+        Key key = new Key(normalized.toString(), beanClass, translations);
+        return (CompiledRQL<T>) cache.get(key, k -> new Compilation<>(beanClass, translations).compile(node));
+    }
+
+    public void clearCache() {
+        cache.invalidateAll();
+    }
+
+    public long getCacheSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Writes the AST in a form where every argument is prefixed by its type and length so that e.g. the string "1"
+     * and the number 1 produce different keys.
+     *
+     * @return false if the AST contains an argument that can't be normalized
+     */
+    private static boolean normalize(@Nullable Object argument, StringBuilder builder) {
+        if (argument == null) {
+            builder.append('~');
+        } else if (argument instanceof ASTNode) {
+            ASTNode node = (ASTNode) argument;
+            builder.append(node.getName().toLowerCase()).append('(');
+            for (Object child : node.getArguments()) {
+                if (!normalize(child, builder)) {
+                    return false;
+                }
+                builder.append(',');
+            }
+            builder.append(')');
+        } else if (argument instanceof List) {
+            builder.append('[');
+            for (Object child : (List<?>) argument) {
+                if (!normalize(child, builder)) {
+                    return false;
+                }
+                builder.append(',');
+            }
+            builder.append(']');
+        } else {
+            String value;
+            if (argument instanceof String || argument instanceof Number || argument instanceof Boolean ||
+                    argument instanceof Enum) {
+                value = argument.toString();
+            } else if (argument instanceof Date) {
+                value = Long.toString(((Date) argument).getTime());
+            } else {
+                return false;
+            }
+            builder.append(argument.getClass().getName()).append(':')
+                    .append(value.length()).append(':').append(value);
+        }
+        return true;
+    }
+
+    private static final class Key {
+        private final String normalized;
+        private final Class<?> beanClass;
+        private final @Nullable Translations translations;
+
+        private Key(String normalized, Class<?> beanClass, @Nullable Translations translations) {
+            this.normalized = normalized;
+            this.beanClass = beanClass;
+            this.translations = translations;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return normalized.equals(key.normalized) && beanClass == key.beanClass &&
+                    translations == key.translations;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(normalized, beanClass, System.identityHashCode(translations));
+        }
+    }
+
+    /**
+     * Walks the AST once, mirrors the visitor in {@link RQLFilter}
+     */
+    private static final class Compilation<T> {
+        private final Class<T> beanClass;
+        private final @Nullable Translations translations;
+        private final ObjectComparator comparator;
+
+        private Long limit;
+        private Long offset;
+        private Comparator<T> sort;
+
+        private Compilation(Class<T> beanClass, @Nullable Translations translations) {
+            this.beanClass = beanClass;
+            this.translations = translations;
+            this.comparator = new ObjectComparator(translations);
+        }
+
+        private CompiledRQL<T> compile(ASTNode node) {
+            Predicate<T> filter = visit(node);
+            return new CompiledRQL<>(filter, sort, limit, offset);
+        }
+
+        private Predicate<T> visit(ASTNode node) {
+            RQLOperation operation = RQLOperation.convertTo(node.getName().toLowerCase());
+            return visit(operation, node.getArguments());
+        }
+
+        private Predicate<T> visit(RQLOperation operation, List<Object> arguments) {
+            switch (operation) {
+                case AND: {
+                    List<Predicate<T>> children = childPredicates(arguments);
+                    if (children.size() == 1) {
+                        return children.get(0);
+                    }
+                    @SuppressWarnings("unchecked")
+                    Predicate<T>[] predicates = children.toArray(new Predicate[0]);
+                    return item -> {
+                        for (Predicate<T> p : predicates) {
+                            if (!p.test(item)) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    };
+                }
+                case OR: {
+                    List<Predicate<T>> children = childPredicates(arguments);
+                    if (children.size() == 1) {
+                        return children.get(0);
+                    }
+                    @SuppressWarnings("unchecked")
+                    Predicate<T>[] predicates = children.toArray(new Predicate[0]);
+                    return item -> {
+                        for (Predicate<T> p : predicates) {
+                            if (p.test(item)) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    };
+                }
+                case NOT:
+                    return visit(RQLOperation.AND, arguments).negate();
+                case LIMIT:
+                    applyLimit(arguments);
+                    return null;
+                case SORT:
+                    applySort(arguments);
+                    return null;
+                case EQUAL_TO:
+                    return compare(arguments, r -> r == 0);
+                case NOT_EQUAL_TO:
+                    return visit(RQLOperation.EQUAL_TO, arguments).negate();
+                case LESS_THAN:
+                    return compare(arguments, r -> r < 0);
+                case LESS_THAN_EQUAL_TO:
+                    return compare(arguments, r -> r <= 0);
+                case GREATER_THAN:
+                    return visit(RQLOperation.LESS_THAN_EQUAL_TO, arguments).negate();
+                case GREATER_THAN_EQUAL_TO:
+                    return visit(RQLOperation.LESS_THAN, arguments).negate();
+                case IN:
+                    return in(arguments);
+                case MATCH:
+                    return match(arguments);
+                case CONTAINS:
+                    return contains(arguments);
+                default:
+                    throw new UnsupportedOperationException("Unsupported RQL operation " + operation);
+            }
+        }
+
+        private Predicate<T> compare(List<Object> arguments, IntPredicate result) {
+            PropertyAccessor accessor = PropertyAccessor.forProperty(beanClass, (String) arguments.get(0));
+            Object target = arguments.get(1);
+
+            if (target instanceof Number) {
+                if (accessor.isIntegral() && ObjectComparator.isInteger(target)) {
+                    long value = ((Number) target).longValue();
+                    return item -> result.test(Long.compare(accessor.getLong(item), value));
+                } else if (accessor.isNumeric()) {
+                    double value = ((Number) target).doubleValue();
+                    return item -> result.test(Double.compare(accessor.getDouble(item), value));
+                }
+            }
+
+            Object[] constants = accessor.getType().getEnumConstants();
+            if (constants != null) {
+                boolean[] results = new boolean[constants.length];
+                for (int i = 0; i < constants.length; i++) {
+                    results[i] = result.test(comparator.compare(constants[i], target));
+                }
+                boolean nullResult = result.test(comparator.compare(null, target));
+                return item -> {
+                    Object value = accessor.get(item);
+                    return value == null ? nullResult : results[((Enum<?>) value).ordinal()];
+                };
+            }
+
+            return item -> result.test(comparator.compare(accessor.get(item), target));
+        }
+
+        private Predicate<T> in(List<Object> arguments) {
+            PropertyAccessor accessor = PropertyAccessor.forProperty(beanClass, (String) arguments.get(0));
+
+            List<?> args;
+            if (arguments.get(1) instanceof List) {
+                args = (List<?>) arguments.get(1);
+            } else {
+                args = arguments.subList(1, arguments.size());
+            }
+            Object[] targets = args.toArray();
+
+            if (accessor.isIntegral() && args.stream().allMatch(ObjectComparator::isInteger)) {
+                long[] values = args.stream().mapToLong(a -> ((Number) a).longValue()).toArray();
+                return item -> {
+                    long value = accessor.getLong(item);
+                    for (long v : values) {
+                        if (value == v) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            }
+
+            Object[] constants = accessor.getType().getEnumConstants();
+            if (constants != null) {
+                boolean[] results = new boolean[constants.length];
+                for (int i = 0; i < constants.length; i++) {
+                    results[i] = anyEqual(constants[i], targets);
+                }
+                boolean nullResult = anyEqual(null, targets);
+                return item -> {
+                    Object value = accessor.get(item);
+                    return value == null ? nullResult : results[((Enum<?>) value).ordinal()];
+                };
+            }
+
+            return item -> anyEqual(accessor.get(item), targets);
+        }
+
+        private boolean anyEqual(@Nullable Object value, Object[] targets) {
+            for (Object target : targets) {
+                if (comparator.compare(value, target) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Predicate<T> match(List<Object> arguments) {
+            PropertyAccessor accessor = PropertyAccessor.forProperty(beanClass, (String) arguments.get(0));
+            String matchString = arguments.get(1).toString();
+
+            // Converts a match string containing * and ? into a regex pattern.
+            String regex = RQLMatchToken.tokenize(matchString).map(t -> {
+                if (t == RQLMatchToken.SINGLE_CHARACTER_WILDCARD) {
+                    return ".";
+                } else if (t == RQLMatchToken.MULTI_CHARACTER_WILDCARD) {
+                    return ".*";
+                } else {
+                    return Pattern.quote(t.toString());
+                }
+            }).collect(Collectors.joining());
+
+            boolean caseSensitive = false;
+            if (arguments.size() > 2) {
+                caseSensitive = (boolean) arguments.get(2);
+            }
+            Pattern target = Pattern.compile(regex, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
+
+            return item -> {
+                Object value = accessor.get(item);
+                if (value == null) {
+                    return false;
+                }
+
+                String stringValue;
+                if (value instanceof TranslatableMessage) {
+                    stringValue = ((TranslatableMessage) value).translate(this.translations);
+                } else {
+                    stringValue = value.toString();
+                }
+
+                return target.matcher(stringValue).matches();
+            };
+        }
+
+        private Predicate<T> contains(List<Object> arguments) {
+            PropertyAccessor accessor = PropertyAccessor.forProperty(beanClass, (String) arguments.get(0));
+            Object target = arguments.get(1);
+
+            return item -> {
+                Object value = accessor.get(item);
+                if (value instanceof String) {
+                    return ((String) value).contains((String) target);
+                } else if (value instanceof Collection) {
+                    for (Object v : (Collection<?>) value) {
+                        if (comparator.compare(v, target) == 0) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                else throw new UnsupportedOperationException("Cant search inside " + value.getClass());
+            };
+        }
+
+        private Comparator<T> getSortComparator(String property) {
+            PropertyAccessor accessor = PropertyAccessor.forProperty(beanClass, property);
+            if (accessor.isIntegral()) {
+                return Comparator.comparingLong(accessor::getLong);
+            } else if (accessor.isNumeric()) {
+                return Comparator.comparingDouble(accessor::getDouble);
+            }
+            return (a, b) -> comparator.compare(accessor.get(a), accessor.get(b));
+        }
+
+        private List<Predicate<T>> childPredicates(List<Object> arguments) {
+            List<Predicate<T>> predicates = new ArrayList<>(arguments.size());
+            for (Object arg : arguments) {
+                Predicate<T> predicate = visit((ASTNode) arg);
+                if (predicate != null) {
+                    predicates.add(predicate);
+                }
+            }
+            return predicates;
+        }
+
+        private void applyLimit(List<Object> arguments) {
+            if (!arguments.isEmpty()) {
+                this.limit = ((Number) arguments.get(0)).longValue();
+                this.offset = arguments.size() > 1 ? ((Number) arguments.get(1)).longValue() : 0;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void applySort(List<Object> arguments) {
+            this.sort = null;
+            for (Object arg : arguments) {
+                boolean descending = false;
+                String property = null;
+
+                if (arg instanceof List) {
+                    List<Object> sortArgs = (List<Object>) arg;
+                    property = (String) sortArgs.get(0);
+                    if (sortArgs.size() > 1) {
+                        descending = (boolean) sortArgs.get(1);
+                    }
+                } else if (arg != null) {
+                    String argStr = (String) arg;
+                    if (argStr.startsWith("-")) {
+                        descending = true;
+                        property = argStr.substring(1);
+                    } else if (argStr.startsWith("+")) {
+                        property = argStr.substring(1);
+                    } else {
+                        property = argStr;
+                    }
+                }
+
+                Comparator<T> comparator = getSortComparator(property);
+                if (descending) {
+                    comparator = comparator.reversed();
+                }
+                if (this.sort == null) {
+                    this.sort = comparator;
+                } else {
+                    this.sort = this.sort.thenComparing(comparator);
+                }
+            }
+        }
+    }
+}
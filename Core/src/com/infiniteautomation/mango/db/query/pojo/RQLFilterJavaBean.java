@@ -4,16 +4,24 @@
 package com.infiniteautomation.mango.db.query.pojo;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.Comparator;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.apache.commons.beanutils.PropertyUtils;
+import org.springframework.context.ApplicationContext;
 
+import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.i18n.Translations;
 
 import net.jazdw.rql.parser.ASTNode;
 
 /**
- * Class that filters Java beans / POJO objects
+ * Class that filters Java beans / POJO objects. When a {@link RQLCompiler} is available (by default the one provided
+ * by the runtime context) the query is compiled once and properties are read via method handles, otherwise properties
+ * are resolved reflectively for every item. Without a bean class properties are resolved against the runtime class of
+ * each item. Subclasses which override how properties are read or compared are never compiled.
  *
  * @author Jared Wiltshire
  */
@@ -21,10 +29,83 @@ public class RQLFilterJavaBean<T> extends RQLFilter<T> {
 
     public static final Pattern PROPERTY_SEPARATOR = Pattern.compile("\\.");
 
+    private final ASTNode node;
+    private final Translations translations;
+    private final Class<T> beanClass;
+    private final RQLCompiler compiler;
+    private CompiledRQL<T> compiled;
+
     /**
+     * Compiles the query using the runtime context's compiler if the runtime context is available
      */
     public RQLFilterJavaBean(ASTNode node, Translations translations) {
+        this(node, null, translations, runtimeCompiler());
+    }
+
+    /**
+     * @param beanClass class of the beans that will be filtered, may be null
+     * @param compiler compiles and caches the query, may be null to resolve properties reflectively
+     */
+    public RQLFilterJavaBean(ASTNode node, Class<T> beanClass, Translations translations, RQLCompiler compiler) {
         super(node, translations);
+        this.node = node;
+        this.translations = translations;
+        this.beanClass = beanClass;
+        this.compiler = getClass() == RQLFilterJavaBean.class ? compiler : null;
+    }
+
+    private static RQLCompiler runtimeCompiler() {
+        ApplicationContext context = Common.getRuntimeContext();
+        return context == null ? null : context.getBean(RQLCompiler.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void build() {
+        if (compiler == null) {
+            super.build();
+        } else if (compiled == null) {
+            Class<T> type = beanClass == null ? (Class<T>) Object.class : beanClass;
+            this.compiled = compiler.compile(node, type, translations);
+        }
+    }
+
+    @Override
+    public Stream<T> apply(Stream<T> stream) {
+        if (compiler == null) {
+            return super.apply(stream);
+        }
+        build();
+        return compiled.apply(stream);
+    }
+
+    @Override
+    public long count(Stream<T> stream) {
+        if (compiler == null) {
+            return super.count(stream);
+        }
+        build();
+        return compiled.count(stream);
+    }
+
+    @Override
+    public Predicate<T> getFilter() {
+        return compiled == null ? super.getFilter() : compiled.getFilter();
+    }
+
+    @Override
+    public Long getLimit() {
+        return compiled == null ? super.getLimit() : compiled.getLimit();
+    }
+
+    @Override
+    public Long getOffset() {
+        return compiled == null ? super.getOffset() : compiled.getOffset();
+    }
+
+    @Override
+    public Comparator<T> getSort() {
+        return compiled == null ? super.getSort() : compiled.getSort();
     }
 
     @Override
@@ -7,6 +7,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.serotonin.json.JsonException;
 import com.serotonin.json.JsonReader;
+import com.serotonin.json.type.JsonValue;
 import com.serotonin.m2m2.i18n.ProcessMessage;
 import com.serotonin.m2m2.i18n.ProcessMessage.Level;
 import com.serotonin.m2m2.i18n.ProcessResult;
@@ -27,6 +28,14 @@ public class ImportContext {
         result.setMessages(new CopyOnWriteArrayList<ProcessMessage>());
     }
     
+    /**
+     * Create a context for an importer running on another thread, it has its own reader and result. The messages of
+     * the result should be added to this context's result by the importing thread once the importer is done.
+     */
+    public ImportContext fork() {
+        return new ImportContext(new JsonReader(reader.getContext(), (JsonValue) null), new ProcessResult(), translations);
+    }
+
     public JsonReader getReader() {
         return reader;
     }
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.emport;
+
+import com.infiniteautomation.mango.util.ConfigurationExportData;
+
+/**
+ * The order in which the sections of a configuration are imported. All items of a level are imported before the
+ * next level is started so that items may reference items of previous levels, e.g. data points reference data sources.
+ *
+ * @see ImportTask
+ */
+public enum ImportLevel {
+    GLOBAL_SCRIPTS(null, false),
+    ROLES(ConfigurationExportData.ROLES, false),
+    PERMISSIONS(ConfigurationExportData.PERMISSIONS, false),
+    USERS(ConfigurationExportData.USERS, false),
+    DATA_SOURCES(ConfigurationExportData.DATA_SOURCES, false),
+    DATA_POINTS(ConfigurationExportData.DATA_POINTS, true),
+    EVENT_DETECTORS(ConfigurationExportData.EVENT_DETECTORS, false),
+    MAILING_LISTS(ConfigurationExportData.MAILING_LISTS, false),
+    EVENT_HANDLERS(ConfigurationExportData.EVENT_HANDLERS, false),
+    PUBLISHERS(ConfigurationExportData.PUBLISHERS, false),
+    PUBLISHED_POINTS(ConfigurationExportData.PUBLISHED_POINTS, false),
+    SYSTEM_SETTINGS(ConfigurationExportData.SYSTEM_SETTINGS, false),
+    VIRTUAL_SERIAL_PORTS(ConfigurationExportData.VIRTUAL_SERIAL_PORTS, false),
+    JSON_DATA(ConfigurationExportData.JSON_DATA, false);
+
+    private final String section;
+    private final boolean concurrent;
+
+    ImportLevel(String section, boolean concurrent) {
+        this.section = section;
+        this.concurrent = concurrent;
+    }
+
+    /**
+     * @return the key of the section of the configuration which is imported at this level
+     */
+    public String getSection() {
+        return section;
+    }
+
+    /**
+     * @return true if the items of this level do not depend on each other and may be imported concurrently
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    /**
+     * @return the level for a section key, or null if the section is not imported by a core importer
+     */
+    public static ImportLevel forSection(String section) {
+        for (ImportLevel level : values()) {
+            if (level.section != null && level.section.equals(section)) {
+                return level;
+            }
+        }
+        return null;
+    }
+}
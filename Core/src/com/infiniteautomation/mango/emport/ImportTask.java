@@ -3,24 +3,46 @@
  */
 package com.infiniteautomation.mango.emport;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import com.infiniteautomation.mango.spring.events.audit.AuditBulkScope;
+import com.infiniteautomation.mango.spring.service.AuditEventService;
 import com.infiniteautomation.mango.spring.service.DataPointService;
 import com.infiniteautomation.mango.spring.service.EventDetectorsService;
 import com.infiniteautomation.mango.util.ConfigurationExportData;
 import com.infiniteautomation.mango.util.exception.ValidationException;
 import com.serotonin.json.JsonException;
 import com.serotonin.json.JsonReader;
+import com.serotonin.json.JsonWriter;
 import com.serotonin.json.type.JsonArray;
 import com.serotonin.json.type.JsonObject;
+import com.serotonin.json.type.JsonTypeReader;
 import com.serotonin.json.type.JsonValue;
 import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.i18n.ProcessResult;
@@ -30,25 +52,70 @@ import com.serotonin.m2m2.util.timeout.ProgressiveTask;
 import com.serotonin.m2m2.vo.dataPoint.DataPointWithEventDetectors;
 import com.serotonin.m2m2.vo.event.detector.AbstractPointEventDetectorVO;
 import com.serotonin.m2m2.vo.permission.PermissionHolder;
+import com.serotonin.timer.RejectedTaskReason;
 import com.serotonin.util.ProgressiveTaskListener;
 
 /**
+ * Imports a JSON configuration. The items are imported level by level in the order of {@link ImportLevel}, e.g. all
+ * data sources are imported before any data points. Items which fail are retried within their level while the level
+ * is making progress, then once more after all the levels have been imported in case they depend on an item of a later
+ * level. Items of concurrent levels are imported in parallel, see emport.import.parallelism in mango.properties.
+ * Items with the same XID are never imported concurrently.
+ *
  * @author Matthew Lohbihler
  */
 public class ImportTask extends ProgressiveTask {
 
     private static Logger LOG = LoggerFactory.getLogger(ImportTask.class);
 
+    private static final String GLOBAL_SCRIPTS_ID = "sstGlobalScripts";
+
+    private enum Stage {
+        LEVELS, RETRY, ITEMS, RETRY_AFTER_ITEMS
+    }
+
     protected final ImportContext importContext;
     protected float progress = 0f;
-    protected float progressChunk;
 
-    protected final List<Importer> importers = new ArrayList<Importer>();
+    protected final Map<ImportLevel, List<Importer>> levelImporters = new EnumMap<>(ImportLevel.class);
+    /**
+     * Items of the sections read by the streaming constructor, they are read back a chunk at a time when their level
+     * is imported
+     */
+    private final Map<ImportLevel, SpooledSection> spooledSections = new EnumMap<>(ImportLevel.class);
     protected final List<ImportItem> importItems = new ArrayList<ImportItem>();
-    protected final Map<String, DataPointWithEventDetectors> eventDetectorPoints = new HashMap<>();
+    protected final Map<String, DataPointWithEventDetectors> eventDetectorPoints = new ConcurrentHashMap<>();
 
     protected final DataPointService dataPointService;
     protected final EventDetectorsService eventDetectorService;
+    private final ImportTaskDependencies dependencies;
+
+    private final int parallelism;
+    private final int chunkSize;
+
+    /**
+     * Collapses the audit events of the imported objects into one record per object, opened when the task starts
+     * running and closed once it has finished
+     */
+    private AuditBulkScope auditScope;
+    private boolean finished;
+
+    /**
+     * Importers that failed and will be retried after all the levels are imported, importers created by other
+     * importers are also added here
+     */
+    private final List<Importer> deferred = Collections.synchronizedList(new ArrayList<>());
+    private Stage stage = Stage.LEVELS;
+    private int levelIndex = -1;
+    private ImportLevel level;
+    private Iterator<Importer> pending = Collections.emptyIterator();
+    private List<Importer> failedThisPass = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean passSuccess;
+
+    private int totalCount;
+    private final AtomicInteger importedCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private int itemsImported;
 
     /**
      * Who is running this import, useful for things like not importing the logged in user
@@ -62,63 +129,133 @@ public class ImportTask extends ProgressiveTask {
     public ImportTask(JsonObject root,
             ImportTaskDependencies dependencies,
             ProgressiveTaskListener listener, boolean schedule) {
-        super("JSON import task", "JsonImport", 10, listener);
+        this(new JsonReader(Common.JSON_CONTEXT, root), dependencies, listener);
 
-        //Get the current user to use during imports
-        this.user = Common.getUser();
-        this.dataPointService = dependencies.getDataPointService();
-        this.eventDetectorService = dependencies.getEventDetectorService();
-        JsonReader reader = new JsonReader(Common.JSON_CONTEXT, root);
-        this.importContext = new ImportContext(reader, new ProcessResult(), dependencies.getTranslations());
+        for (ImportLevel level : ImportLevel.values()) {
+            if (level.getSection() != null && level != ImportLevel.SYSTEM_SETTINGS) {
+                for (JsonValue jv : nonNullList(root, level.getSection()))
+                    addImporter(level, createImporter(level, jv));
+            }
+        }
 
-        for (JsonValue jv : nonNullList(root, ConfigurationExportData.ROLES))
-            addImporter(new RoleImporter(jv.toJsonObject(), dependencies.getRoleService()));
+        addRemainingImporters(root);
 
-        for (JsonValue jv : nonNullList(root, ConfigurationExportData.PERMISSIONS))
-            addImporter(new PermissionImporter(jv.toJsonObject(), dependencies.getPermissionService()));
+        if(schedule)
+            Common.backgroundProcessing.execute(this);
+    }
 
-        for (JsonValue jv : nonNullList(root, ConfigurationExportData.USERS))
-            addImporter(new UserImporter(jv.toJsonObject(), dependencies.getUsersService(), user));
+    /**
+     * Create an Import task which reads the configuration from a reader. The items of the sections imported by
+     * the core importers are not held in memory, they are read one at a time and written to temporary files which
+     * are read back a chunk at a time during the import.
+     */
+    public ImportTask(Reader reader,
+            ImportTaskDependencies dependencies,
+            ProgressiveTaskListener listener, boolean schedule) throws JsonException, IOException {
+        this(new JsonReader(Common.JSON_CONTEXT, new JsonObject()), dependencies, listener);
 
-        for (JsonValue jv : nonNullList(root, ConfigurationExportData.DATA_SOURCES))
-            addImporter(new DataSourceImporter(jv.toJsonObject(), dependencies.getDataSourceService()));
+        JsonObject root;
+        try {
+            root = new JsonTypeReader(reader).readObject(new JsonTypeReader.ObjectStreamHandler() {
+                @Override
+                public boolean streamArray(String name) {
+                    return ImportLevel.forSection(name) != null;
+                }
 
-        for (JsonValue jv : nonNullList(root, ConfigurationExportData.DATA_POINTS))
-            addImporter(new DataPointImporter(jv.toJsonObject(), eventDetectorPoints, dataPointService, dependencies.getDataSourceService()));
+                @Override
+                public void element(String name, JsonValue element) throws JsonException {
+                    ImportLevel level = ImportLevel.forSection(name);
+                    try {
+                        SpooledSection section = spooledSections.get(level);
+                        if (section == null) {
+                            section = new SpooledSection(level);
+                            spooledSections.put(level, section);
+                        }
+                        section.add(element);
+                    } catch (IOException e) {
+                        throw new JsonException(e);
+                    }
+                    totalCount++;
+                }
+            });
+            for (SpooledSection section : spooledSections.values()) {
+                section.finishWriting();
+            }
+        } catch (JsonException | IOException | RuntimeException e) {
+            closeSpooledSections();
+            throw e;
+        }
 
-        for (JsonValue jv : nonNullList(root, ConfigurationExportData.MAILING_LISTS))
-            addImporter(new MailingListImporter(jv.toJsonObject(), dependencies.getMailingListService()));
+        addRemainingImporters(root);
 
-        for (JsonValue jv : nonNullList(root, ConfigurationExportData.PUBLISHERS))
-            addImporter(new PublisherImporter(jv.toJsonObject(), dependencies.getPublisherService(), dependencies.getPublishedPointService(),
-                    dependencies.getDataPointService()));
+        if(schedule)
+            Common.backgroundProcessing.execute(this);
+    }
 
-        for (JsonValue jv : nonNullList(root, ConfigurationExportData.PUBLISHED_POINTS))
-            addImporter(new PublishedPointImporter(jv.toJsonObject(), dependencies.getPublishedPointService(), dependencies.getPublisherService(),
-                    dependencies.getDataPointService()));
+    private ImportTask(JsonReader reader, ImportTaskDependencies dependencies, ProgressiveTaskListener listener) {
+        super("JSON import task", "JsonImport", 10, listener);
 
-        for (JsonValue jv : nonNullList(root, ConfigurationExportData.EVENT_HANDLERS))
-            addImporter(new EventHandlerImporter(jv.toJsonObject(), dependencies.getEventHandlerService()));
+        //Get the current user to use during imports
+        this.user = Common.getUser();
+        this.dataPointService = dependencies.getDataPointService();
+        this.eventDetectorService = dependencies.getEventDetectorService();
+        this.dependencies = dependencies;
+        this.importContext = new ImportContext(reader, new ProcessResult(), dependencies.getTranslations());
+        this.parallelism = Math.max(1, Common.envProps.getInt("emport.import.parallelism", 4));
+        this.chunkSize = Math.max(1, Common.envProps.getInt("emport.import.chunkSize", 100));
+    }
+
+    private Importer createImporter(ImportLevel level, JsonValue jv) {
+        switch (level) {
+            case ROLES:
+                return new RoleImporter(jv.toJsonObject(), dependencies.getRoleService());
+            case PERMISSIONS:
+                return new PermissionImporter(jv.toJsonObject(), dependencies.getPermissionService());
+            case USERS:
+                return new UserImporter(jv.toJsonObject(), dependencies.getUsersService(), user);
+            case DATA_SOURCES:
+                return new DataSourceImporter(jv.toJsonObject(), dependencies.getDataSourceService());
+            case DATA_POINTS:
+                return new DataPointImporter(jv.toJsonObject(), eventDetectorPoints, dataPointService, dependencies.getDataSourceService());
+            case EVENT_DETECTORS:
+                return new EventDetectorImporter(jv.toJsonObject(), eventDetectorPoints, dataPointService);
+            case MAILING_LISTS:
+                return new MailingListImporter(jv.toJsonObject(), dependencies.getMailingListService());
+            case EVENT_HANDLERS:
+                return new EventHandlerImporter(jv.toJsonObject(), dependencies.getEventHandlerService());
+            case PUBLISHERS:
+                return new PublisherImporter(jv.toJsonObject(), dependencies.getPublisherService(), dependencies.getPublishedPointService(),
+                        dependencies.getDataPointService());
+            case PUBLISHED_POINTS:
+                return new PublishedPointImporter(jv.toJsonObject(), dependencies.getPublishedPointService(), dependencies.getPublisherService(),
+                        dependencies.getDataPointService());
+            case SYSTEM_SETTINGS:
+                return new SystemSettingsImporter(jv.toJsonObject(), user, dependencies.getPermissionService(),
+                        dependencies.getRoleService());
+            case VIRTUAL_SERIAL_PORTS:
+                return new VirtualSerialPortImporter(jv.toJsonObject());
+            case JSON_DATA:
+                return new JsonDataImporter(jv.toJsonObject(), dependencies.getJsonDataService());
+            default:
+                throw new IllegalArgumentException("No importer for level " + level);
+        }
+    }
 
+    /**
+     * Add the importers for the system settings and module sections
+     */
+    private void addRemainingImporters(JsonObject root) {
         JsonObject obj = root.getJsonObject(ConfigurationExportData.SYSTEM_SETTINGS);
         if(obj != null)
-            addImporter(new SystemSettingsImporter(obj, user, dependencies.getPermissionService(),
-                    dependencies.getRoleService()));
+            addImporter(ImportLevel.SYSTEM_SETTINGS, createImporter(ImportLevel.SYSTEM_SETTINGS, obj));
 
-        for (JsonValue jv : nonNullList(root, ConfigurationExportData.VIRTUAL_SERIAL_PORTS))
-            addImporter(new VirtualSerialPortImporter(jv.toJsonObject()));
-
-        for(JsonValue jv : nonNullList(root, ConfigurationExportData.JSON_DATA))
-            addImporter(new JsonDataImporter(jv.toJsonObject(), dependencies.getJsonDataService()));
-
-        final String globalScriptId = "sstGlobalScripts";
-        List<Importer> globalScriptImporters = new ArrayList<>();
         for (EmportDefinition def : ModuleRegistry.getDefinitions(EmportDefinition.class)) {
-            if(globalScriptId.equals(def.getElementId())) {
+            if(GLOBAL_SCRIPTS_ID.equals(def.getElementId())) {
+                //Global Scripts are imported first in case they are used in scripts that will be loaded during this import
                 JsonValue scripts = root.get(def.getElementId());
                 if(scripts != null) {
                     for(JsonValue script : scripts.toJsonArray()) {
-                        globalScriptImporters.add(new Importer(null) {
+                        addImporter(ImportLevel.GLOBAL_SCRIPTS, new Importer(null) {
                             @Override
                             protected void importImpl() {
                                 try {
@@ -135,19 +272,6 @@ public class ImportTask extends ProgressiveTask {
                 importItems.add(importItem);
             }
         }
-
-        for(JsonValue jv : nonNullList(root, ConfigurationExportData.EVENT_DETECTORS))
-            addImporter(new EventDetectorImporter(jv.toJsonObject(), eventDetectorPoints, dataPointService));
-
-        //Quick hack to ensure the Global Scripts are imported first in case they are used in scripts that will be loaded during this import
-        for(Importer importer : globalScriptImporters){
-            importers.add(0, importer);
-        }
-
-        this.progressChunk = 100f/((float)importers.size() + (float)importItems.size() + 1);  //+1 for processUpdatedDetectors
-
-        if(schedule)
-            Common.backgroundProcessing.execute(this);
     }
 
     private List<JsonValue> nonNullList(JsonObject root, String key) {
@@ -157,127 +281,328 @@ public class ImportTask extends ProgressiveTask {
         return arr;
     }
 
-    private void addImporter(Importer importer) {
+    private void addImporter(ImportLevel level, Importer importer) {
+        prepareImporter(importer);
+        levelImporters.computeIfAbsent(level, l -> new ArrayList<>()).add(importer);
+        totalCount++;
+    }
+
+    private Importer prepareImporter(Importer importer) {
         importer.setImportContext(importContext);
-        importer.setImporters(importers);
-        importers.add(importer);
+        importer.setImporters(deferred);
+        return importer;
     }
 
     public ProcessResult getResponse() {
         return importContext.getResult();
     }
 
-    protected int importerIndex;
-    protected boolean importerSuccess;
-    protected boolean importedItems;
+    /**
+     * @return number of items (not including module items) in the configuration
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return number of items (not including module items) which have been imported successfully
+     */
+    public int getImportedCount() {
+        return importedCount.get();
+    }
+
+    /**
+     * @return number of items (not including module items) which could not be imported, only known once the import
+     * has completed as items are retried
+     */
+    public int getFailedCount() {
+        return failedCount.get();
+    }
 
     @Override
     protected void runImpl() {
-        this.runImplAsAdmin();
+        AuditBulkScope scope = openAuditScope();
+        try {
+            scope.run(this::runImplAsAdmin);
+        } catch (RuntimeException | Error e) {
+            finish();
+            throw e;
+        }
+        if (completed || isCancelled()) {
+            finish();
+        }
+    }
+
+    @Override
+    public boolean cancel() {
+        boolean cancelled = super.cancel();
+        finish();
+        return cancelled;
+    }
+
+    @Override
+    public void rejected(RejectedTaskReason reason) {
+        super.rejected(reason);
+        finish();
+    }
+
+    private synchronized AuditBulkScope openAuditScope() {
+        if (auditScope == null) {
+            auditScope = Common.getBean(AuditEventService.class).openBulkScope();
+            // cancelled before the task started running, nothing will be added to the scope
+            if (finished) {
+                auditScope.close();
+            }
+        }
+        return auditScope;
+    }
+
+    /**
+     * Submit the collapsed audit events and release the spooled sections, called once the task is completed,
+     * cancelled, rejected or has failed
+     */
+    private synchronized void finish() {
+        finished = true;
+        if (auditScope != null) {
+            auditScope.close();
+        }
+        closeSpooledSections();
+    }
+
+    private void closeSpooledSections() {
+        for (SpooledSection section : spooledSections.values()) {
+            section.close();
+        }
     }
 
     protected void runImplAsAdmin() {
         try {
-            if (!importers.isEmpty()) {
-                if (importerIndex >= importers.size()) {
-                    // A run through the importers has been completed.
-                    if (importerSuccess) {
-                        // If there were successes with the importers and there are still more to do, run through
-                        // them again.
-                        importerIndex = 0;
-                        importerSuccess = false;
-                    } else if(!importedItems) {
-                        try {
-                            for (ImportItem importItem : importItems) {
-                                if (!importItem.isComplete()) {
-                                    importItem.importNext(importContext, user);
-                                    return;
-                                }
-                            }
-                            importedItems = true;   // We may have imported a dependency in a module
-                            importerIndex = 0;
-                        }
-                        catch (Exception e) {
-                            addException(e);
-                        }
-                    } else {
-                        // There are importers left in the list, but there were no successful imports in the last run
-                        // of the set. So, all that is left is stuff that will always fail. Copy the validation
-                        // messages to the context for each.
-                        // Run the import items.
-                        for (Importer importer : importers)
-                            importer.copyMessages();
-                        importers.clear();
-                        completed = true;
+            if (stage == Stage.ITEMS) {
+                for (ImportItem importItem : importItems) {
+                    if (!importItem.isComplete()) {
+                        importItem.importNext(importContext, user);
+                        processUpdatedDetectors(eventDetectorPoints);
                         return;
                     }
                 }
+                itemsImported = importItems.size();
+                nextStage();
+            } else if (pending.hasNext()) {
+                runChunk();
+            } else {
+                completePass();
+            }
+        }
+        catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            addException(e);
+        }
+        finally {
+            //Only declare if we are < 100 since we will declare 100 when done
+            int total = totalCount + importItems.size() + 1;
+            int done = importedCount.get() + failedCount.get() + itemsImported + (completed ? 1 : 0);
+            this.progress = 100f * done / total;
+            if(progress < 100f)
+                declareProgress(this.progress);
+        }
+    }
 
-                // Run the next importer
-                Importer importer = importers.get(importerIndex);
-                try {
-                    importer.doImport();
-                    if (importer.success()) {
-                        // The import was successful. Note the success and remove the importer from the list.
-                        importerSuccess = true;
-                        importers.remove(importerIndex);
-                    }
-                    else{
-                        // The import failed. Leave it in the list since the run of another importer
-                        // may resolved the problem.
-                        importerIndex++;
-                    }
-                    //Import new detectors in case an event handler needs them
-                    processUpdatedDetectors(eventDetectorPoints);
+    /**
+     * Run the next chunk of importers of the current pass. For concurrent levels the importers of the chunk are run
+     * in parallel, except importers with the same XID as an earlier importer of the chunk which are run afterwards in
+     * order.
+     */
+    private void runChunk() {
+        List<Importer> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && pending.hasNext()) {
+            chunk.add(pending.next());
+        }
+
+        if (level != null && level.isConcurrent() && parallelism > 1 && chunk.size() > 1) {
+            List<Importer> concurrent = new ArrayList<>(chunk.size());
+            List<Importer> sequential = new ArrayList<>();
+            Set<String> xids = new HashSet<>();
+            for (Importer importer : chunk) {
+                String xid = importer.json == null ? null : importer.json.getString("xid");
+                if (xid == null || xids.add(xid)) {
+                    concurrent.add(importer);
+                } else {
+                    sequential.add(importer);
                 }
-                catch (Exception e) {
-                    // Uh oh...
-                    LOG.error(e.getMessage(),e);
-                    addException(e);
-                    importers.remove(importerIndex);
+            }
+            runConcurrently(concurrent);
+            for (Importer importer : sequential) {
+                runImporter(importer, importContext);
+            }
+        } else {
+            for (Importer importer : chunk) {
+                runImporter(importer, importContext);
+            }
+        }
+    }
+
+    /**
+     * Run the importers using up to parallelism threads, one of which is the current thread. Each importer runs with
+     * its own forked context (reader and result), the messages are then added to the import result on this thread in
+     * the order of the chunk.
+     */
+    private void runConcurrently(List<Importer> chunk) {
+        ImportContext[] contexts = new ImportContext[chunk.size()];
+        for (int i = 0; i < contexts.length; i++) {
+            contexts[i] = importContext.fork();
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < chunk.size()) {
+                runImporter(chunk.get(i), contexts[i]);
+            }
+        };
+
+        ExecutorService executor = Common.getBean(ExecutorService.class);
+        int workers = Math.min(parallelism, chunk.size()) - 1;
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            futures.add(executor.submit(DelegatingSecurityContextRunnable.create(auditScope.wrap(worker), SecurityContextHolder.getContext())));
+        }
+        try {
+            worker.run();
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
                 }
+            }
+        } finally {
+            for (int i = 0; i < contexts.length; i++) {
+                importContext.getResult().addMessages(contexts[i].getResult());
+                chunk.get(i).setImportContext(importContext);
+            }
+        }
+    }
 
-                return;
+    private void runImporter(Importer importer, ImportContext ctx) {
+        importer.setImportContext(ctx);
+        try {
+            importer.doImport();
+            if (importer.success()) {
+                // The import was successful. Note the success, the importer is not retried.
+                passSuccess = true;
+                importedCount.incrementAndGet();
+            }
+            else{
+                // The import failed. Retry it since the run of another importer may resolve the problem.
+                failedThisPass.add(importer);
             }
+        }
+        catch (Exception e) {
+            // Uh oh...
+            LOG.error(e.getMessage(),e);
+            addException(ctx, e);
+            failedCount.incrementAndGet();
+        }
+    }
 
-            // Run the import items.
-            try {
-                for (ImportItem importItem : importItems) {
-                    if (!importItem.isComplete()) {
-                        importItem.importNext(importContext, user);
-                        processUpdatedDetectors(eventDetectorPoints);
+    /**
+     * All importers of the current pass have been run, retry the failed importers if the pass made progress
+     * otherwise move on to the next stage.
+     */
+    private void completePass() {
+        //Import new detectors in case an event handler needs them
+        processUpdatedDetectors(eventDetectorPoints);
+
+        List<Importer> failed = failedThisPass;
+        this.failedThisPass = Collections.synchronizedList(new ArrayList<>());
+        if (!failed.isEmpty() && passSuccess) {
+            startPass(level, failed.iterator());
+            return;
+        }
+
+        deferred.addAll(failed);
+        nextStage();
+    }
+
+    private void startPass(ImportLevel level, Iterator<Importer> importers) {
+        this.level = level;
+        this.pending = importers;
+        this.passSuccess = false;
+    }
+
+    /**
+     * Retry the deferred importers
+     * @return false if there are none
+     */
+    private boolean startRetry() {
+        List<Importer> retry;
+        synchronized (deferred) {
+            if (deferred.isEmpty()) {
+                return false;
+            }
+            retry = new ArrayList<>(deferred);
+            deferred.clear();
+        }
+        startPass(null, retry.iterator());
+        return true;
+    }
+
+    private void nextStage() {
+        switch (stage) {
+            case LEVELS:
+                ImportLevel[] levels = ImportLevel.values();
+                while (++levelIndex < levels.length) {
+                    List<Importer> importers = levelImporters.remove(levels[levelIndex]);
+                    SpooledSection section = spooledSections.get(levels[levelIndex]);
+                    if (section != null) {
+                        // only the streaming constructor spools, it doesn't add importers for the same levels
+                        startPass(levels[levelIndex], section.importers());
+                        return;
+                    } else if (importers != null) {
+                        startPass(levels[levelIndex], importers.iterator());
                         return;
-                    }else {
-                        processUpdatedDetectors(eventDetectorPoints);
                     }
                 }
-
+                stage = Stage.RETRY;
+                if (startRetry()) {
+                    return;
+                }
+                // nothing to retry, fall through to the next stage
+            case RETRY:
+                stage = Stage.ITEMS;
+                startPass(null, Collections.emptyIterator());
+                return;
+            case ITEMS:
+                // We may have imported a dependency in a module
+                stage = Stage.RETRY_AFTER_ITEMS;
+                if (startRetry()) {
+                    return;
+                }
+                // nothing to retry, fall through to the next stage
+            case RETRY_AFTER_ITEMS:
+            default:
+                // All that is left is stuff that will always fail. Copy the validation messages to the context for each.
+                synchronized (deferred) {
+                    for (Importer importer : deferred) {
+                        importer.setImportContext(importContext);
+                        importer.copyMessages();
+                        failedCount.incrementAndGet();
+                    }
+                    deferred.clear();
+                }
                 //Ensure all detectors that can be, are imported
                 processUpdatedDetectors(eventDetectorPoints);
                 completed = true;
-            }
-            catch (Exception e) {
-                addException(e);
-            }
-        }
-        finally {
-            //Compute progress, but only declare if we are < 100 since we will declare 100 when done
-            //Our progress is 100 - chunk*importersLeft
-            int importItemsLeft = 1;
-            if(completed)
-                importItemsLeft = 0; //Since we know we ran the processUpdatedDetectors method
-            for(ImportItem item : importItems)
-                if(!item.isComplete())
-                    importItemsLeft++;
-            this.progress = 100f - progressChunk*((float)importers.size() + (float)importItemsLeft);
-            if(progress < 100f)
-                declareProgress(this.progress);
         }
     }
 
     /**
      * Since detectors can be attached to a data point we will import them in bulk here.  This will
-     *  remove any fully imported detectors and their container after there are no more detectors to import 
+     *  remove any fully imported detectors and their container after there are no more detectors to import
      *  for that point.
      */
     private void processUpdatedDetectors(Map<String, DataPointWithEventDetectors> eventDetectorMap) {
@@ -321,13 +646,101 @@ public class ImportTask extends ProgressiveTask {
     }
 
     private void addException(Exception e) {
+        addException(importContext, e);
+    }
+
+    /**
+     * The items of a configuration section written to a temporary file by the streaming constructor
+     */
+    private final class SpooledSection implements Closeable {
+        private final ImportLevel level;
+        private final Path file;
+        private Writer writer;
+        private Reader reader;
+        private int count;
+
+        private SpooledSection(ImportLevel level) throws IOException {
+            this.level = level;
+            this.file = Files.createTempFile(Common.getTempPath(), "mango-import-", ".json");
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        }
+
+        private void add(JsonValue element) throws JsonException, IOException {
+            new JsonWriter(Common.JSON_CONTEXT, writer).writeObject(element);
+            writer.write('\n');
+            count++;
+        }
+
+        private void finishWriting() throws IOException {
+            writer.close();
+            writer = null;
+        }
+
+        /**
+         * @return importers for the items, each item is read from the file when the iterator advances. The file is
+         * deleted once all the items have been read.
+         */
+        private Iterator<Importer> importers() {
+            return new Iterator<>() {
+                private JsonTypeReader jsonReader;
+                private int read;
+
+                @Override
+                public boolean hasNext() {
+                    return read < count;
+                }
+
+                @Override
+                public Importer next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    try {
+                        if (jsonReader == null) {
+                            reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+                            jsonReader = new JsonTypeReader(reader);
+                        }
+                        JsonValue element = jsonReader.read();
+                        if (++read == count) {
+                            close();
+                        }
+                        return prepareImporter(createImporter(level, element));
+                    } catch (JsonException | IOException e) {
+                        // the remaining items can't be read
+                        read = count;
+                        close();
+                        throw new IllegalStateException("Failed to read " + level.getSection() + " from " + file, e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (writer != null) {
+                    writer.close();
+                    writer = null;
+                }
+                if (reader != null) {
+                    reader.close();
+                    reader = null;
+                }
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.warn("Failed to delete temporary import file " + file, e);
+            }
+        }
+    }
+
+    private void addException(ImportContext ctx, Exception e) {
         String msg = e.getMessage();
         Throwable t = e;
         while ((t = t.getCause()) != null)
-            msg += ", " + importContext.getTranslations().translate("emport.causedBy") + " '" + t.getMessage() + "'";
+            msg += ", " + ctx.getTranslations().translate("emport.causedBy") + " '" + t.getMessage() + "'";
         //We were missing NPE and others without a msg
         if(msg == null)
             msg = e.getClass().getCanonicalName();
-        importContext.getResult().addGenericMessage("common.default", msg);
+        ctx.getResult().addGenericMessage("common.default", msg);
     }
 }
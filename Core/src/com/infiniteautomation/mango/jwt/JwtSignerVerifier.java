@@ -7,6 +7,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.KeyFactory;
 import java.security.KeyPair;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
@@ -14,9 +15,12 @@ import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.time.Clock;
 import java.util.Base64;
 import java.util.Base64.Decoder;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import javax.annotation.PostConstruct;
 
@@ -24,6 +28,10 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.serotonin.ShouldNeverHappenException;
 
 import io.jsonwebtoken.ClaimJwtException;
@@ -47,12 +55,34 @@ public abstract class JwtSignerVerifier<T> {
     public static final String INCORRECT_TYPE_EXPECTED_CLAIM_MESSAGE_TEMPLATE = "Expected %s claim to be of type: %s, but was: %s.";
     public static final String MISSING_TYPE_EXPECTED_CLAIM_MESSAGE_TEMPLATE = "Expected %s claim to be of type: %s, but was not present.";
 
-    private KeyPair keyPair;
-    private JwtParser parser;
+    private volatile KeyPair keyPair;
+    private volatile JwtParser parser;
 
+    /**
+     * Optional cache of parsed, signature verified tokens keyed by a digest of the token.
+     * Entries expire with the token. A token is only cached if no invalidation happened while it was being verified,
+     * see {@link #generation}.
+     */
+    private volatile Cache<String, Jws<Claims>> verifiedTokens;
+
+    /**
+     * Incremented under the lock by every invalidation (including a key change), a token is only put in the cache if
+     * the generation read before verifying it is still current.
+     */
+    private volatile long generation;
+
+    private final Clock clock;
     protected final Logger log;
 
     protected JwtSignerVerifier() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * @param clock used to check token expiration and to expire cached tokens
+     */
+    protected JwtSignerVerifier(Clock clock) {
+        this.clock = clock;
         this.log = LoggerFactory.getLogger(this.getClass());
     }
 
@@ -62,22 +92,102 @@ public abstract class JwtSignerVerifier<T> {
         if (keyPair == null) {
             this.generateNewKeyPair();
         } else {
-            this.parser = Jwts.parserBuilder()
-                    .require(TOKEN_TYPE_CLAIM, this.tokenType())
-                    .setSigningKey(keyPair.getPublic())
-                    .build();
-            this.keyPair = keyPair;
+            this.setKeyPair(keyPair);
         }
     }
 
     protected synchronized final void generateNewKeyPair() {
         KeyPair keyPair = Keys.keyPairFor(SignatureAlgorithm.ES512);
+        this.setKeyPair(keyPair);
+        this.saveKeyPair(keyPair);
+    }
+
+    /**
+     * Swap the parser and drop all verified tokens, no token verified with the previous key can be cached after this
+     * returns as the invalidation increments the generation.
+     */
+    private synchronized void setKeyPair(KeyPair keyPair) {
         this.parser = Jwts.parserBuilder()
                 .require(TOKEN_TYPE_CLAIM, this.tokenType())
                 .setSigningKey(keyPair.getPublic())
+                .setClock(() -> new Date(clock.millis()))
                 .build();
         this.keyPair = keyPair;
-        this.saveKeyPair(this.keyPair);
+        this.invalidateVerifiedTokens();
+    }
+
+    /**
+     * Enable caching of signature verified tokens, subsequent calls to {@link #parse(String)} for the same
+     * token will not repeat the signature verification until the token expires or the cache is invalidated.
+     *
+     * @param maximumSize maximum number of tokens to hold
+     */
+    protected final void enableVerifiedTokenCache(long maximumSize) {
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .expireAfter(new Expiry<String, Jws<Claims>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Jws<Claims> value, long currentTime) {
+                        Date expiration = value.getBody().getExpiration();
+                        if (expiration == null) {
+                            return Long.MAX_VALUE;
+                        }
+                        long remaining = expiration.getTime() - clock.millis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remaining));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Jws<Claims> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Jws<Claims> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Remove all tokens from the verified token cache, tokens which are being verified concurrently are not cached
+     */
+    public synchronized void invalidateVerifiedTokens() {
+        generation++;
+        Cache<String, Jws<Claims>> cache = this.verifiedTokens;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Remove tokens whose claims match the predicate from the verified token cache, tokens which are being verified
+     * concurrently are not cached
+     */
+    public synchronized void invalidateVerifiedTokens(Predicate<Claims> predicate) {
+        generation++;
+        Cache<String, Jws<Claims>> cache = this.verifiedTokens;
+        if (cache != null) {
+            cache.asMap().values().removeIf(jws -> predicate.test(jws.getBody()));
+        }
+    }
+
+    /**
+     * @return statistics for the verified token cache, or {@link CacheStats#empty()} if it is not enabled
+     */
+    public CacheStats verifiedTokenCacheStats() {
+        Cache<String, Jws<Claims>> cache = this.verifiedTokens;
+        return cache != null ? cache.stats() : CacheStats.empty();
+    }
+
+    /**
+     * @return number of tokens in the verified token cache
+     */
+    public long verifiedTokenCacheSize() {
+        Cache<String, Jws<Claims>> cache = this.verifiedTokens;
+        return cache != null ? cache.estimatedSize() : 0;
     }
 
     protected abstract String tokenType();
@@ -107,7 +217,33 @@ public abstract class JwtSignerVerifier<T> {
      * Parses the token and verifies it's signature and expiration. Does NOT verify any other claims!
      */
     public final Jws<Claims> parse(String token) {
-        return parser.parseClaimsJws(token);
+        Cache<String, Jws<Claims>> cache = this.verifiedTokens;
+        if (cache == null) {
+            return parser.parseClaimsJws(token);
+        }
+
+        String digest = digest(token);
+        Jws<Claims> jws = cache.getIfPresent(digest);
+        if (jws == null) {
+            // read the generation before the parser, a key change swaps the parser before incrementing it
+            long generation = this.generation;
+            jws = this.parser.parseClaimsJws(token);
+            synchronized (this) {
+                if (generation == this.generation) {
+                    cache.put(digest, jws);
+                }
+            }
+        }
+        return jws;
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new ShouldNeverHappenException(e);
+        }
     }
 
     /**
@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.pointvaluecache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import com.serotonin.m2m2.db.dao.PointValueDao;
+import com.serotonin.m2m2.db.dao.pointvalue.TimeOrder;
+import com.serotonin.m2m2.rt.dataImage.IAnnotated;
+import com.serotonin.m2m2.rt.dataImage.IdPointValueTime;
+import com.serotonin.m2m2.rt.dataImage.PointValueTime;
+import com.serotonin.m2m2.rt.dataImage.types.BinaryValue;
+import com.serotonin.m2m2.rt.dataImage.types.DataValue;
+import com.serotonin.m2m2.rt.dataImage.types.MultistateValue;
+import com.serotonin.m2m2.rt.dataImage.types.NumericValue;
+import com.serotonin.m2m2.vo.DataPointVO;
+
+/**
+ * Implementation of a {@link PointValueCache} which keeps the cached values outside the Java heap. Each series is
+ * assigned a region of fixed width slots (time, value and a type byte) inside large direct {@link ByteBuffer} arenas,
+ * so that the cached values do not add to the number of objects the garbage collector has to trace.
+ *
+ * <p>Numeric, binary and multistate values are stored in the slots. Annotated and alphanumeric values can't be stored
+ * in a fixed width slot, these are spilled to a small per series side table and the slot stores the index into this
+ * table.</p>
+ *
+ * <p>A region holds a power of two number of slots, it is sized using the larger of the point's default cache size
+ * and the number of values. When the default cache size changes the region is moved to a larger or smaller size
+ * class, the old region is returned to a free list for reuse by other series.</p>
+ */
+public class OffHeapPointValueCache implements PointValueCache {
+
+    static final int SLOT_SIZE = 17;
+    private static final int VALUE_OFFSET = 8;
+    private static final int TYPE_OFFSET = 16;
+
+    private static final byte TYPE_SPILLED = 0;
+    private static final byte TYPE_NUMERIC = 1;
+    private static final byte TYPE_BINARY = 2;
+    private static final byte TYPE_MULTISTATE = 3;
+
+    private final ConcurrentMap<Integer, Series> cache = new ConcurrentHashMap<>();
+    private final PointValueDao pointValueDao;
+    private final ArenaAllocator allocator;
+
+    /**
+     * @param pointValueDao dao used to load values which are not in the cache
+     * @param arenaSize size in bytes of each direct buffer arena
+     */
+    public OffHeapPointValueCache(PointValueDao pointValueDao, int arenaSize) {
+        this.pointValueDao = pointValueDao;
+        this.allocator = new ArenaAllocator(arenaSize);
+    }
+
+    @Override
+    public List<PointValueTime> loadCache(DataPointVO vo, int size) {
+        List<PointValueTime> result = new ArrayList<>();
+        cache.compute(vo.getSeriesId(), (k, series) -> {
+            if (series == null || series.size < size) {
+                List<PointValueTime> values = pointValueDao.getLatestPointValues(vo, size);
+                series = write(series, values, Math.max(size, vo.getDefaultCacheSize()));
+                result.addAll(values);
+            } else {
+                read(series, result);
+            }
+            return series;
+        });
+        return result;
+    }
+
+    @Override
+    public void updateCache(DataPointVO vo, List<PointValueTime> values) {
+        cache.compute(vo.getSeriesId(), (k, series) -> write(series, values, vo.getDefaultCacheSize()));
+    }
+
+    @Override
+    public Map<Integer, List<PointValueTime>> loadCaches(List<DataPointVO> vos, int size) {
+        Map<Integer, List<PointValueTime>> result = new HashMap<>(vos.size());
+        List<DataPointVO> missingPoints = new ArrayList<>();
+
+        for (DataPointVO vo : vos) {
+            Optional<List<PointValueTime>> values = getCache(vo);
+            if (values.isEmpty()) {
+                // find which points are missing from the cache
+                missingPoints.add(vo);
+                result.put(vo.getSeriesId(), Collections.emptyList());
+            } else {
+                result.put(vo.getSeriesId(), values.get());
+            }
+        }
+
+        // need to load point values from time series database and store in cache
+        if (!missingPoints.isEmpty()) {
+            Map<Integer, DataPointVO> pointsBySeries = missingPoints.stream()
+                    .collect(Collectors.toMap(DataPointVO::getSeriesId, Function.identity()));
+            Map<Integer, List<PointValueTime>> loaded = loadFromDatabase(missingPoints);
+
+            for (Map.Entry<Integer, List<PointValueTime>> entry : loaded.entrySet()) {
+                DataPointVO vo = pointsBySeries.get(entry.getKey());
+                cache.compute(entry.getKey(), (k, series) -> write(series, entry.getValue(), vo.getDefaultCacheSize()));
+            }
+            result.putAll(loaded);
+        }
+
+        return result;
+    }
+
+    private Map<Integer, List<PointValueTime>> loadFromDatabase(List<DataPointVO> points) {
+        Map<Integer, DataPointVO> pointsBySeries = points.stream()
+                .collect(Collectors.toMap(DataPointVO::getSeriesId, Function.identity()));
+
+        int queryLimit = points.stream().mapToInt(DataPointVO::getDefaultCacheSize)
+                .max().orElse(0);
+
+        Map<Integer, List<PointValueTime>> result = new HashMap<>(points.size());
+        pointValueDao.getPointValuesPerPoint(points, null, null, queryLimit, TimeOrder.DESCENDING, (Consumer<? super IdPointValueTime>) (pvt) -> {
+            DataPointVO point = pointsBySeries.get(pvt.getSeriesId());
+            List<PointValueTime> values = result.computeIfAbsent(pvt.getSeriesId(), k -> new ArrayList<>(point.getDefaultCacheSize()));
+
+            // we may retrieve up to maxCacheSize values, however don't store more than the point's cache size
+            if (values.size() < point.getDefaultCacheSize()) {
+                values.add(pvt);
+            }
+        });
+
+        return result;
+    }
+
+    @Override
+    public Optional<List<PointValueTime>> getCache(DataPointVO vo) {
+        List<PointValueTime> result = new ArrayList<>();
+        // read inside compute so the region can't be released or reused while we are decoding it
+        Series series = cache.computeIfPresent(vo.getSeriesId(), (k, v) -> {
+            read(v, result);
+            return v;
+        });
+        return series == null ? Optional.empty() : Optional.of(result);
+    }
+
+    @Override
+    public void deleteCache(DataPointVO vo) {
+        cache.computeIfPresent(vo.getSeriesId(), (k, series) -> {
+            release(series);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeValueAt(DataPointVO vo, long timestamp) {
+        removeValues(vo, value -> value.getTime() == timestamp);
+    }
+
+    @Override
+    public void removeValuesBefore(DataPointVO vo, long before) {
+        removeValues(vo, value -> value.getTime() < before);
+    }
+
+    @Override
+    public void removeValuesBetween(DataPointVO vo, long startTime, long endTime) {
+        removeValues(vo, value -> value.getTime() >= startTime && value.getTime() < endTime);
+    }
+
+    private void removeValues(DataPointVO vo, Predicate<PointValueTime> predicate) {
+        cache.computeIfPresent(vo.getSeriesId(), (k, series) -> {
+            if (series.size == 0) return series;
+            List<PointValueTime> values = new ArrayList<>(series.size);
+            read(series, values);
+            if (values.removeIf(predicate)) {
+                series = write(series, values, vo.getDefaultCacheSize());
+            }
+            return series;
+        });
+    }
+
+    /**
+     * Releases all arenas, the cache is empty afterwards.
+     */
+    public void clear() {
+        cache.clear();
+        allocator.clear();
+    }
+
+    /**
+     * @return number of bytes of direct memory reserved for arenas
+     */
+    public long getReservedBytes() {
+        return allocator.getReservedBytes();
+    }
+
+    /**
+     * @return number of bytes of direct memory held by series regions
+     */
+    public long getUsedBytes() {
+        return allocator.getUsedBytes();
+    }
+
+    private Series write(Series series, List<PointValueTime> values, int cacheSize) {
+        int size = values.size();
+        int capacity = ArenaAllocator.capacityFor(Math.max(size, cacheSize));
+
+        if (series == null) {
+            series = new Series();
+        }
+        if (series.region == null || series.region.capacity != capacity) {
+            Region previous = series.region;
+            series.region = allocator.allocate(capacity);
+            if (previous != null) {
+                allocator.free(previous);
+            }
+        }
+
+        ByteBuffer buffer = series.region.buffer;
+        int offset = series.region.offset;
+        PointValueTime[] spilled = null;
+        int spilledCount = 0;
+
+        for (PointValueTime value : values) {
+            DataValue dataValue = value.getValue();
+            buffer.putLong(offset, value.getTime());
+            if (!(value instanceof IAnnotated) && dataValue instanceof NumericValue) {
+                buffer.putDouble(offset + VALUE_OFFSET, dataValue.getDoubleValue());
+                buffer.put(offset + TYPE_OFFSET, TYPE_NUMERIC);
+            } else if (!(value instanceof IAnnotated) && dataValue instanceof BinaryValue) {
+                buffer.putLong(offset + VALUE_OFFSET, dataValue.getBooleanValue() ? 1 : 0);
+                buffer.put(offset + TYPE_OFFSET, TYPE_BINARY);
+            } else if (!(value instanceof IAnnotated) && dataValue instanceof MultistateValue) {
+                buffer.putLong(offset + VALUE_OFFSET, dataValue.getIntegerValue());
+                buffer.put(offset + TYPE_OFFSET, TYPE_MULTISTATE);
+            } else {
+                if (spilled == null) {
+                    spilled = new PointValueTime[size];
+                }
+                buffer.putLong(offset + VALUE_OFFSET, spilledCount);
+                buffer.put(offset + TYPE_OFFSET, TYPE_SPILLED);
+                spilled[spilledCount++] = value;
+            }
+            offset += SLOT_SIZE;
+        }
+
+        series.size = size;
+        series.spilled = spilled == null || spilledCount == spilled.length ? spilled : Arrays.copyOf(spilled, spilledCount);
+        return series;
+    }
+
+    private void read(Series series, List<PointValueTime> result) {
+        ByteBuffer buffer = series.region.buffer;
+        int offset = series.region.offset;
+
+        for (int i = 0; i < series.size; i++) {
+            long time = buffer.getLong(offset);
+            byte type = buffer.get(offset + TYPE_OFFSET);
+            switch (type) {
+                case TYPE_NUMERIC:
+                    result.add(new PointValueTime(buffer.getDouble(offset + VALUE_OFFSET), time));
+                    break;
+                case TYPE_BINARY:
+                    result.add(new PointValueTime(buffer.getLong(offset + VALUE_OFFSET) != 0, time));
+                    break;
+                case TYPE_MULTISTATE:
+                    result.add(new PointValueTime((int) buffer.getLong(offset + VALUE_OFFSET), time));
+                    break;
+                default:
+                    result.add(series.spilled[(int) buffer.getLong(offset + VALUE_OFFSET)]);
+                    break;
+            }
+            offset += SLOT_SIZE;
+        }
+    }
+
+    private void release(Series series) {
+        if (series.region != null) {
+            allocator.free(series.region);
+            series.region = null;
+        }
+        series.spilled = null;
+        series.size = 0;
+    }
+
+    /**
+     * Guarded by the lock of the {@link ConcurrentMap} entry
+     */
+    private static final class Series {
+        Region region;
+        int size;
+        PointValueTime[] spilled;
+    }
+
+    private static final class Region {
+        final ByteBuffer buffer;
+        final int offset;
+        final int capacity;
+        final boolean dedicated;
+
+        Region(ByteBuffer buffer, int offset, int capacity, boolean dedicated) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.capacity = capacity;
+            this.dedicated = dedicated;
+        }
+    }
+
+    /**
+     * Carves power of two sized regions out of direct buffer arenas. Freed regions are kept on a free list per size
+     * class, regions which are larger than an arena are given their own buffer.
+     */
+    static final class ArenaAllocator {
+        private static final int SIZE_CLASSES = 31;
+        static final int MAX_CAPACITY = 1 << 26;
+
+        private final int arenaSize;
+        private final List<ArrayDeque<Region>> freeLists = new ArrayList<>(SIZE_CLASSES);
+        private ByteBuffer current;
+        private long reservedBytes;
+        private long usedBytes;
+
+        ArenaAllocator(int arenaSize) {
+            if (arenaSize < SLOT_SIZE) {
+                throw new IllegalArgumentException("Arena size must be at least " + SLOT_SIZE + " bytes");
+            }
+            this.arenaSize = arenaSize;
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                freeLists.add(new ArrayDeque<>());
+            }
+        }
+
+        static int capacityFor(int slots) {
+            if (slots > MAX_CAPACITY) {
+                throw new IllegalArgumentException("Cache size too large: " + slots);
+            }
+            return slots <= 1 ? 1 : Integer.highestOneBit(slots - 1) << 1;
+        }
+
+        synchronized Region allocate(int capacity) {
+            int bytes = capacity * SLOT_SIZE;
+            Region region = freeLists.get(Integer.numberOfTrailingZeros(capacity)).pollFirst();
+            if (region == null) {
+                if (bytes > arenaSize) {
+                    region = new Region(ByteBuffer.allocateDirect(bytes), 0, capacity, true);
+                    reservedBytes += bytes;
+                } else {
+                    if (current == null || current.remaining() < bytes) {
+                        current = ByteBuffer.allocateDirect(arenaSize);
+                        reservedBytes += arenaSize;
+                    }
+                    region = new Region(current, current.position(), capacity, false);
+                    current.position(current.position() + bytes);
+                }
+            }
+            usedBytes += bytes;
+            return region;
+        }
+
+        synchronized void free(Region region) {
+            usedBytes -= (long) region.capacity * SLOT_SIZE;
+            if (region.dedicated) {
+                // buffer is released by the garbage collector
+                reservedBytes -= (long) region.capacity * SLOT_SIZE;
+            } else {
+                freeLists.get(Integer.numberOfTrailingZeros(region.capacity)).addFirst(region);
+            }
+        }
+
+        synchronized void clear() {
+            freeLists.forEach(ArrayDeque::clear);
+            current = null;
+            reservedBytes = 0;
+            usedBytes = 0;
+        }
+
+        synchronized long getReservedBytes() {
+            return reservedBytes;
+        }
+
+        synchronized long getUsedBytes() {
+            return usedBytes;
+        }
+    }
+}
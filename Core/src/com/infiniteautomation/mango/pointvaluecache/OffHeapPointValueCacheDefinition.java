@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.pointvaluecache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+
+import com.serotonin.m2m2.db.dao.PointValueDao;
+import com.serotonin.m2m2.module.ConditionalDefinition;
+
+/**
+ * Stores the point value caches in direct memory, see {@link OffHeapPointValueCache}.
+ */
+@ConditionalDefinition("cache.offHeap.enabled")
+public class OffHeapPointValueCacheDefinition extends PointValueCacheDefinition {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Autowired
+    private PointValueDao pointValueDao;
+    @Autowired
+    private Environment env;
+    private OffHeapPointValueCache pointValueCache;
+
+    @Override
+    public void initialize() {
+        int arenaSize = env.getProperty("cache.offHeap.arenaSize", Integer.class, 8 * 1024 * 1024);
+        this.pointValueCache = new OffHeapPointValueCache(pointValueDao, arenaSize);
+        if (log.isInfoEnabled()) {
+            log.info("Point value caches are stored off heap, arena size {} bytes", arenaSize);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (pointValueCache != null) {
+            pointValueCache.clear();
+        }
+    }
+
+    @Override
+    public PointValueCache getPointValueCache() {
+        return pointValueCache;
+    }
+}
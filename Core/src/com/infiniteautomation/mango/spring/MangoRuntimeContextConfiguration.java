@@ -45,6 +45,7 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.infiniteautomation.mango.db.query.pojo.RQLCompiler;
 import com.infiniteautomation.mango.monitor.MonitoredValues;
 import com.infiniteautomation.mango.pointvaluecache.PointValueCache;
 import com.infiniteautomation.mango.pointvaluecache.PointValueCacheDefinition;
@@ -280,6 +281,11 @@ public class MangoRuntimeContextConfiguration implements ApplicationContextAware
         return new EventMulticasterRegistry();
     }
 
+    @Bean
+    public RQLCompiler rqlCompiler(@Value("${cache.rqlQueries.size:1000}") long cacheSize) {
+        return new RQLCompiler(cacheSize);
+    }
+
     @Bean
     public IMangoLifecycle lifecycle() {
         return Providers.get(IMangoLifecycle.class);
@@ -0,0 +1,535 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.spring.components;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.infiniteautomation.mango.monitor.MonitoredValues;
+import com.serotonin.m2m2.i18n.TranslatableMessage;
+
+/**
+ * Runs external processes (e.g. for process event handlers) without tying up a thread per process. Commands are
+ * started with a {@link ProcessBuilder} and completed via {@link Process#onExit()}, the output of all running processes
+ * is captured by a single pump thread. The number of processes running at once is limited, further commands wait in a
+ * bounded queue. On timeout the process and all of its descendants are killed.
+ */
+@Component
+public class ProcessRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProcessRunner.class);
+
+    public static final String RUNNING_MONITOR_ID = "com.infiniteautomation.mango.spring.components.ProcessRunner.running";
+    public static final String QUEUED_MONITOR_ID = "com.infiniteautomation.mango.spring.components.ProcessRunner.queued";
+    public static final String REJECTED_MONITOR_ID = "com.infiniteautomation.mango.spring.components.ProcessRunner.rejected";
+    public static final String TIMED_OUT_MONITOR_ID = "com.infiniteautomation.mango.spring.components.ProcessRunner.timedOut";
+
+    private final ScheduledExecutorService scheduledExecutor;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final int maxOutputBytes;
+    private final long pumpIntervalNanos;
+
+    private final Queue<PendingCommand> queue = new ArrayDeque<>();
+    private int running;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    private final Queue<OutputCapture> captures = new ConcurrentLinkedQueue<>();
+    private final Thread pumpThread;
+    private volatile boolean terminated;
+
+    @Autowired
+    public ProcessRunner(ScheduledExecutorService scheduledExecutor,
+                         @Value("${process.runner.maxConcurrent:4}") int maxConcurrent,
+                         @Value("${process.runner.maxQueued:1000}") int maxQueued,
+                         @Value("${process.runner.maxOutputBytes:1048576}") int maxOutputBytes,
+                         @Value("${process.runner.pumpInterval:10}") long pumpIntervalMs,
+                         MonitoredValues monitoredValues) {
+        this.scheduledExecutor = scheduledExecutor;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.maxOutputBytes = Math.max(0, maxOutputBytes);
+        this.pumpIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, pumpIntervalMs));
+
+        monitoredValues.<Integer>create(RUNNING_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.PROCESS_RUNNER_RUNNING"))
+                .supplier(this::getRunningCount)
+                .buildReadThrough();
+        monitoredValues.<Integer>create(QUEUED_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.PROCESS_RUNNER_QUEUED"))
+                .supplier(this::getQueuedCount)
+                .buildReadThrough();
+        monitoredValues.<Long>create(REJECTED_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.PROCESS_RUNNER_REJECTED"))
+                .supplier(rejected::get)
+                .buildReadThrough();
+        monitoredValues.<Long>create(TIMED_OUT_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.PROCESS_RUNNER_TIMED_OUT"))
+                .supplier(timedOut::get)
+                .buildReadThrough();
+
+        this.pumpThread = new Thread(this::pump, "Process output pump");
+        pumpThread.setDaemon(true);
+        pumpThread.start();
+    }
+
+    /**
+     * Run a command, the command is split into arguments by {@link #parseCommand(String)}
+     *
+     * @return stage completed once the process has exited, completed exceptionally if the process could not be
+     * started or the queue is full
+     */
+    public CompletionStage<CommandResult> run(String command, int timeoutSeconds) {
+        return run(command, UnaryOperator.identity(), timeoutSeconds);
+    }
+
+    /**
+     * Run a command, the command is split into arguments by {@link #parseCommand(String)} and then each argument is
+     * passed through the interpolator. Values substituted into an argument (e.g. an event message containing spaces
+     * or quotes) stay part of that argument and need no escaping.
+     *
+     * @return stage completed once the process has exited, completed exceptionally if the command could not be
+     * parsed or interpolated, the process could not be started or the queue is full
+     */
+    public CompletionStage<CommandResult> run(String command, UnaryOperator<String> interpolator, int timeoutSeconds) {
+        List<String> args;
+        try {
+            args = parseCommand(command).stream()
+                    .map(interpolator)
+                    .collect(Collectors.toList());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return run(args, Duration.ofSeconds(timeoutSeconds));
+    }
+
+    /**
+     * Run a command
+     *
+     * @param command the program followed by its arguments
+     * @param timeout the process tree is killed if it has not exited within this time
+     */
+    public CompletionStage<CommandResult> run(List<String> command, Duration timeout) {
+        CompletableFuture<CommandResult> future = new CompletableFuture<>();
+        if (command.isEmpty()) {
+            future.completeExceptionally(new IllegalArgumentException("Command is empty"));
+            return future;
+        }
+        PendingCommand pending = new PendingCommand(command, timeout, future);
+
+        synchronized (queue) {
+            if (terminated) {
+                future.completeExceptionally(new RejectedExecutionException("Process runner is terminated"));
+                return future;
+            }
+            if (running >= maxConcurrent) {
+                if (queue.size() >= maxQueued) {
+                    rejected.incrementAndGet();
+                    future.completeExceptionally(new RejectedExecutionException(
+                            "Too many processes queued, rejected command: " + pending.getDescription()));
+                } else {
+                    queue.add(pending);
+                }
+                return future;
+            }
+            running++;
+        }
+        if (!start(pending)) {
+            finished();
+        }
+        return future;
+    }
+
+    /**
+     * @return false if the process could not be started, the command is completed exceptionally
+     */
+    private boolean start(PendingCommand pending) {
+        Process process;
+        try {
+            process = new ProcessBuilder(pending.command).start();
+        } catch (IOException | RuntimeException e) {
+            pending.future.completeExceptionally(e);
+            return false;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Started command {}, pid is {}", pending.getDescription(), process.pid());
+        }
+
+        OutputCapture capture = new OutputCapture(process);
+        ScheduledFuture<?> timeout = scheduledExecutor.schedule(() -> {
+            if (process.isAlive()) {
+                LOG.warn("Timeout waiting for process to end, killing process tree. command={}", pending.getDescription());
+                capture.timedOut = true;
+                timedOut.incrementAndGet();
+                killTree(process.toHandle());
+            }
+        }, pending.timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        process.onExit().thenRun(() -> {
+            timeout.cancel(false);
+            capture.exited = true;
+            LockSupport.unpark(pumpThread);
+        });
+
+        capture.done.whenComplete((result, error) -> {
+            finished();
+            if (error != null) {
+                pending.future.completeExceptionally(error);
+            } else {
+                pending.future.complete(result);
+            }
+        });
+
+        captures.add(capture);
+        LockSupport.unpark(pumpThread);
+        return true;
+    }
+
+    /**
+     * Start the next queued command, if any
+     */
+    private void finished() {
+        while (true) {
+            PendingCommand next;
+            synchronized (queue) {
+                next = queue.poll();
+                if (next == null) {
+                    running--;
+                    return;
+                }
+            }
+            if (start(next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Kill the process and all of its descendants, the descendants are collected first as they are no longer
+     * descendants once their parent has exited
+     */
+    private static void killTree(ProcessHandle handle) {
+        List<ProcessHandle> descendants = handle.descendants().collect(Collectors.toList());
+        handle.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
+    }
+
+    /**
+     * Reads the available output of all running processes, output which is still available once a process has exited
+     * is drained and the capture completed. Streams are not read until EOF as a forked child may hold them open.
+     * Once terminated the pump runs until the killed processes have exited.
+     */
+    private void pump() {
+        byte[] buffer = new byte[8192];
+        while (!terminated || !captures.isEmpty()) {
+            boolean read = false;
+            for (Iterator<OutputCapture> it = captures.iterator(); it.hasNext();) {
+                OutputCapture capture = it.next();
+                try {
+                    read |= capture.pump(buffer);
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Error reading process output", e);
+                    capture.exited = true;
+                    capture.complete(e);
+                    it.remove();
+                    continue;
+                }
+                if (capture.isComplete()) {
+                    it.remove();
+                }
+            }
+            if (captures.isEmpty()) {
+                // unparked when a process is started or the runner is terminated
+                LockSupport.park(this);
+            } else if (!read) {
+                LockSupport.parkNanos(this, pumpIntervalNanos);
+            }
+        }
+    }
+
+    /**
+     * Split a command into arguments at whitespace, single or double quotes group an argument containing whitespace.
+     * Inside double quotes a backslash escapes a double quote or a backslash, elsewhere it is a literal character so
+     * that Windows paths (e.g. C:\scripts\run.bat) need no escaping.
+     *
+     * @throws IllegalArgumentException if a quote is not closed
+     */
+    public static List<String> parseCommand(String command) {
+        List<String> args = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+        for (int i = 0; i < command.length(); i++) {
+            char c = command.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else if (c == '\\' && quote == '"' && i + 1 < command.length()
+                        && (command.charAt(i + 1) == '"' || command.charAt(i + 1) == '\\')) {
+                    current.append(command.charAt(++i));
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inArg = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArg) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                current.append(c);
+                inArg = true;
+            }
+        }
+        if (quote != 0) {
+            throw new IllegalArgumentException("Unclosed quote in command: " + command);
+        }
+        if (inArg) {
+            args.add(current.toString());
+        }
+        return args;
+    }
+
+    public int getRunningCount() {
+        synchronized (queue) {
+            return running;
+        }
+    }
+
+    public int getQueuedCount() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    /**
+     * Kill all running processes and fail the queued commands
+     */
+    @PreDestroy
+    public void terminate() {
+        List<PendingCommand> pending;
+        synchronized (queue) {
+            terminated = true;
+            pending = new ArrayList<>(queue);
+            queue.clear();
+        }
+        pending.forEach(p -> p.future.completeExceptionally(new RejectedExecutionException("Process runner is terminated")));
+        for (OutputCapture capture : captures) {
+            killTree(capture.process.toHandle());
+        }
+        LockSupport.unpark(pumpThread);
+    }
+
+    private static class PendingCommand {
+        private final List<String> command;
+        private final Duration timeout;
+        private final CompletableFuture<CommandResult> future;
+
+        private PendingCommand(List<String> command, Duration timeout, CompletableFuture<CommandResult> future) {
+            this.command = command;
+            this.timeout = timeout;
+            this.future = future;
+        }
+
+        private String getDescription() {
+            return String.join(" ", command);
+        }
+    }
+
+    private class OutputCapture {
+        private final Process process;
+        private final InputStream out;
+        private final InputStream err;
+        private final CappedOutput output = new CappedOutput();
+        private final CappedOutput error = new CappedOutput();
+        private final CompletableFuture<CommandResult> done = new CompletableFuture<>();
+        private volatile boolean exited;
+        private volatile boolean timedOut;
+
+        private OutputCapture(Process process) {
+            this.process = process;
+            this.out = process.getInputStream();
+            this.err = process.getErrorStream();
+            // nothing is written to the process
+            try {
+                process.getOutputStream().close();
+            } catch (IOException e) {
+                // no op
+            }
+        }
+
+        /**
+         * @return true if any output was read
+         */
+        private boolean pump(byte[] buffer) throws IOException {
+            // read the flag first so that all output written before the exit is drained below
+            boolean drain = exited;
+            boolean read = output.read(out, buffer, drain) | error.read(err, buffer, drain);
+            if (drain) {
+                complete(null);
+            }
+            return read;
+        }
+
+        private void complete(Exception e) {
+            closeQuietly(out);
+            closeQuietly(err);
+            if (e != null) {
+                done.completeExceptionally(e);
+            } else {
+                done.complete(new CommandResult(process.pid(), process.exitValue(), timedOut,
+                        output.toString(), output.truncated, error.toString(), error.truncated));
+            }
+        }
+
+        private boolean isComplete() {
+            return done.isDone();
+        }
+    }
+
+    private class CappedOutput extends ByteArrayOutputStream {
+        private boolean truncated;
+
+        /**
+         * Read the available bytes, bytes over the cap are discarded
+         * @param drain read until no more bytes are available
+         */
+        private boolean read(InputStream in, byte[] buffer, boolean drain) throws IOException {
+            boolean read = false;
+            int available;
+            while ((available = in.available()) > 0) {
+                int n = in.read(buffer, 0, Math.min(available, buffer.length));
+                if (n <= 0) {
+                    break;
+                }
+                read = true;
+                int keep = Math.min(n, maxOutputBytes - count);
+                if (keep > 0) {
+                    write(buffer, 0, keep);
+                }
+                if (keep < n) {
+                    truncated = true;
+                }
+                if (!drain) {
+                    break;
+                }
+            }
+            return read;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return toString(Charset.defaultCharset());
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // no op
+        }
+    }
+
+    /**
+     * Exit value and captured output of a process
+     */
+    public static class CommandResult {
+        private final long pid;
+        private final int exitValue;
+        private final boolean timedOut;
+        private final String output;
+        private final boolean outputTruncated;
+        private final String error;
+        private final boolean errorTruncated;
+
+        public CommandResult(long pid, int exitValue, boolean timedOut, String output, boolean outputTruncated,
+                             String error, boolean errorTruncated) {
+            this.pid = pid;
+            this.exitValue = exitValue;
+            this.timedOut = timedOut;
+            this.output = output;
+            this.outputTruncated = outputTruncated;
+            this.error = error;
+            this.errorTruncated = errorTruncated;
+        }
+
+        public long getPid() {
+            return pid;
+        }
+
+        public int getExitValue() {
+            return exitValue;
+        }
+
+        /**
+         * @return true if the process tree was killed as it did not exit within the timeout
+         */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * @return standard output, at most process.runner.maxOutputBytes
+         */
+        public String getOutput() {
+            return output;
+        }
+
+        public boolean isOutputTruncated() {
+            return outputTruncated;
+        }
+
+        /**
+         * @return standard error, at most process.runner.maxOutputBytes
+         */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isErrorTruncated() {
+            return errorTruncated;
+        }
+    }
+}
@@ -5,13 +5,19 @@ package com.infiniteautomation.mango.spring.components;
 
 import java.security.KeyPair;
 import java.util.Date;
+import java.util.Objects;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
 import com.infiniteautomation.mango.jwt.JwtSignerVerifier;
+import com.infiniteautomation.mango.monitor.MonitoredValues;
 import com.infiniteautomation.mango.spring.events.AuthTokensRevokedEvent;
+import com.infiniteautomation.mango.spring.events.DaoEvent;
+import com.infiniteautomation.mango.spring.events.DaoEventType;
 import com.infiniteautomation.mango.spring.service.PermissionService;
 import com.infiniteautomation.mango.spring.service.UsersService;
 import com.infiniteautomation.mango.util.exception.NotFoundException;
@@ -39,6 +45,9 @@ public final class TokenAuthenticationService extends JwtSignerVerifier<User> {
     public static final String USER_ID_CLAIM = "id";
     public static final String USER_TOKEN_VERSION_CLAIM = "v";
 
+    public static final String TOKEN_CACHE_HIT_RATE_MONITOR_ID = "com.infiniteautomation.mango.spring.components.TokenAuthenticationService.cacheHitRate";
+    public static final String TOKEN_CACHE_SIZE_MONITOR_ID = "com.infiniteautomation.mango.spring.components.TokenAuthenticationService.cacheSize";
+
     private static final int DEFAULT_EXPIRY = 5 * 60 * 1000; // 5 minutes
 
     private final PermissionService permissionService;
@@ -51,12 +60,26 @@ public final class TokenAuthenticationService extends JwtSignerVerifier<User> {
     public TokenAuthenticationService(
             PermissionService permissionService,
             UsersService usersService,
-            ApplicationContext context, RunAs runAs, UserDao userDao) {
+            ApplicationContext context, RunAs runAs, UserDao userDao,
+            Environment env, MonitoredValues monitoredValues) {
         this.permissionService = permissionService;
         this.usersService = usersService;
         this.context = context;
         this.runAs = runAs;
         this.userDao = userDao;
+
+        long cacheSize = env.getProperty("authentication.token.cache.size", Long.class, 10000L);
+        if (cacheSize > 0) {
+            this.enableVerifiedTokenCache(cacheSize);
+            monitoredValues.<Double>create(TOKEN_CACHE_HIT_RATE_MONITOR_ID)
+                    .name(new TranslatableMessage("internal.monitor.TOKEN_CACHE_HIT_RATE"))
+                    .supplier(() -> verifiedTokenCacheStats().hitRate())
+                    .buildReadThrough();
+            monitoredValues.<Long>create(TOKEN_CACHE_SIZE_MONITOR_ID)
+                    .name(new TranslatableMessage("internal.monitor.TOKEN_CACHE_SIZE"))
+                    .supplier(this::verifiedTokenCacheSize)
+                    .buildReadThrough();
+        }
     }
 
     @Override
@@ -90,6 +113,34 @@ public final class TokenAuthenticationService extends JwtSignerVerifier<User> {
         this.context.publishEvent(new AuthTokensRevokedEvent(this));
     }
 
+    @EventListener
+    protected void tokensRevoked(AuthTokensRevokedEvent event) {
+        this.invalidateVerifiedTokens();
+    }
+
+    /**
+     * Drop cached tokens for a user when it is deleted, renamed or its tokens are revoked. The token version claim is
+     * also verified against the user on every request so this only frees up the cache entries early.
+     */
+    @EventListener
+    protected void userUpdated(DaoEvent<? extends User> event) {
+        User original;
+        if (event.getType() == DaoEventType.DELETE) {
+            original = event.getVo();
+        } else if (event.getType() == DaoEventType.UPDATE) {
+            original = event.getOriginalVo();
+            User updated = event.getVo();
+            if (original == null || original.getTokenVersion() == updated.getTokenVersion() &&
+                    Objects.equals(original.getUsername(), updated.getUsername())) {
+                return;
+            }
+        } else {
+            return;
+        }
+        String username = original.getUsername();
+        this.invalidateVerifiedTokens(claims -> username.equals(claims.getSubject()));
+    }
+
     public String generateToken(User user) {
         return this.generateToken(user, null);
     }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.spring.components.executors;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * {@link FutureTask} that completes a {@link CompletableFuture} as soon as the task finishes, so no thread ever
+ * has to poll it. Cancelling the {@link CompletableFuture} cancels the task.
+ */
+public class CompletableFutureTask<T> extends FutureTask<T> {
+
+    private final CompletableFuture<T> completableFuture = new CompletableFuture<T>() {
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            CompletableFutureTask.this.cancel(mayInterruptIfRunning);
+            return cancelled;
+        }
+    };
+
+    public CompletableFutureTask(Callable<T> callable) {
+        super(callable);
+    }
+
+    public CompletableFutureTask(Runnable runnable, T result) {
+        super(runnable, result);
+    }
+
+    /**
+     * @return future which is completed when this task completes
+     */
+    public CompletableFuture<T> getCompletableFuture() {
+        return completableFuture;
+    }
+
+    @Override
+    protected void done() {
+        try {
+            // task is done so this will not block
+            completableFuture.complete(get());
+        } catch (ExecutionException e) {
+            completableFuture.completeExceptionally(e.getCause());
+        } catch (CancellationException e) {
+            completableFuture.completeExceptionally(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completableFuture.completeExceptionally(e);
+        }
+    }
+}
@@ -5,14 +5,21 @@ package com.infiniteautomation.mango.spring.components.executors;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.PreDestroy;
 
@@ -41,7 +48,12 @@ public final class MangoExecutors {
     private final ScheduledExecutorService delegatingScheduledExecutor;
     private final ScheduledExecutorService superadminScheduledExecutor;
 
-    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+    /**
+     * Cached thread pool (same configuration as {@link java.util.concurrent.Executors#newCachedThreadPool()}) whose
+     * tasks complete a {@link CompletableFuture} when done, see {@link #makeCompletable(Future)}.
+     */
+    private final ExecutorService executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), new ThreadFactory() {
         @Override
         public Thread newThread(Runnable r) {
             Thread thread = new Thread(r, "Mango shared executor service");
@@ -49,19 +61,32 @@ public final class MangoExecutors {
             thread.setContextClassLoader(Common.getModuleClassLoader());
             return thread;
         }
-    });
+    }) {
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+            return new CompletableFutureTask<>(callable);
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+            return new CompletableFutureTask<>(runnable, value);
+        }
+    };
     private final ExecutorService delegatingExecutor;
     private final ExecutorService superadminExecutor;
 
-    private volatile Thread futureConverterThread;
-    private final LazyInitSupplier<FutureConverter> futureConverter = new LazyInitSupplier<>(() -> {
-        FutureConverter converter = new FutureConverter(getExecutor());
+    private static final long MAX_POLL_INTERVAL_MILLIS = 100;
+
+    private volatile Thread timerWheelThread;
+    private final LazyInitSupplier<TimerWheel> timerWheel = new LazyInitSupplier<>(() -> {
+        TimerWheel wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 512, getExecutor());
 
-        futureConverterThread = new Thread(converter, "Mango FutureConverter loop");
-        futureConverterThread.setUncaughtExceptionHandler(new MangoUncaughtExceptionHandler());
-        futureConverterThread.start();
+        timerWheelThread = new Thread(wheel, "Mango timer wheel");
+        timerWheelThread.setDaemon(true);
+        timerWheelThread.setUncaughtExceptionHandler(new MangoUncaughtExceptionHandler());
+        timerWheelThread.start();
 
-        return converter;
+        return wheel;
     });
 
     @Autowired
@@ -93,10 +118,10 @@ public final class MangoExecutors {
         scheduledExecutor.shutdown();
         executor.shutdown();
 
-        // interrupt the FutureConverter thread
-        Thread futureConverterThread = this.futureConverterThread;
-        if (futureConverterThread != null) {
-            futureConverterThread.interrupt();
+        // interrupt the timer wheel thread
+        Thread timerWheelThread = this.timerWheelThread;
+        if (timerWheelThread != null) {
+            timerWheelThread.interrupt();
         }
 
         awaitTermination(Arrays.asList(scheduledExecutor, executor));
@@ -164,12 +189,84 @@ public final class MangoExecutors {
         return this.superadminExecutor;
     }
 
+    /**
+     * Submit a task to the shared executor
+     * @return future which is completed directly by the task (no polling)
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFutureTask<T> future = new CompletableFutureTask<>(task);
+        getExecutor().execute(future);
+        return future.getCompletableFuture();
+    }
+
     public <T> CompletableFuture<T> makeCompletable(Future<T> future) {
-        return futureConverter.get().submit(future, 0, null);
+        return makeCompletable(future, 0, null);
     }
 
+    /**
+     * Convert a future to a {@link CompletableFuture}. The returned future is always completed on the shared executor.
+     * Futures from the shared executor (and CompletableFutures) are completed via a callback, any other type of future
+     * is checked on the timer wheel with an increasing interval.
+     *
+     * @param timeout if timeoutUnit is not null the returned future is completed with a {@link TimeoutException} after this time
+     */
     public <T> CompletableFuture<T> makeCompletable(Future<T> future, long timeout, TimeUnit timeoutUnit) {
-        return futureConverter.get().submit(future, timeout, timeoutUnit);
+        CompletableFuture<T> source;
+        if (future instanceof CompletableFutureTask) {
+            source = ((CompletableFutureTask<T>) future).getCompletableFuture();
+        } else if (future instanceof CompletableFuture) {
+            source = (CompletableFuture<T>) future;
+        } else {
+            source = new CompletableFuture<>();
+            pollUntilDone(future, source, 1);
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        source.whenCompleteAsync((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            } else {
+                result.complete(value);
+            }
+        }, getExecutor());
+
+        if (timeout >= 0 && timeoutUnit != null) {
+            TimerWheel.Timeout task = timerWheel.get().schedule(() -> result.completeExceptionally(new TimeoutException()), timeout, timeoutUnit);
+            result.whenComplete((value, error) -> task.cancel());
+        }
+        return result;
+    }
+
+    /**
+     * Fallback for futures that do not support completion callbacks, checks {@link Future#isDone()} (non-blocking)
+     * at an exponentially increasing interval
+     */
+    private <T> void pollUntilDone(Future<T> future, CompletableFuture<T> target, long intervalMillis) {
+        if (target.isDone()) {
+            return;
+        }
+        if (future.isDone()) {
+            try {
+                target.complete(future.get());
+            } catch (ExecutionException e) {
+                target.completeExceptionally(e.getCause());
+            } catch (CancellationException e) {
+                target.completeExceptionally(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                target.completeExceptionally(e);
+            }
+            return;
+        }
+        long next = Math.min(intervalMillis * 2, MAX_POLL_INTERVAL_MILLIS);
+        timerWheel.get().schedule(() -> pollUntilDone(future, target, next), intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return number of timeouts and deferred checks waiting on the timer wheel
+     */
+    public int pendingTimerCount() {
+        return timerWheel.getIfInitialized().map(TimerWheel::pendingCount).orElse(0);
     }
 
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.spring.components.executors;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timer wheel used for timeouts and deferred checks. Scheduling and cancelling are O(1) and the wheel thread
+ * only wakes once per tick regardless of how many timeouts are pending. When nothing is pending the wheel thread parks
+ * until a task is scheduled. Expired tasks are run on the supplied executor so that the wheel thread never runs user
+ * code.
+ *
+ * Timeouts fire no earlier than requested and at most one tick late.
+ */
+class TimerWheel implements Runnable {
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    private final long tickNanos;
+    private final int mask;
+    private final ArrayDeque<TimerTask>[] buckets;
+    private final Queue<TimerTask> added = new ConcurrentLinkedQueue<>();
+    private final Executor executor;
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile Thread wheelThread;
+
+    /**
+     * @param tickDuration duration of each tick, resolution of the timer
+     * @param wheelSize number of buckets, rounded up to a power of two
+     * @param executor used to run expired tasks, if null tasks are run on the wheel thread
+     */
+    @SuppressWarnings("unchecked")
+    TimerWheel(long tickDuration, TimeUnit unit, int wheelSize, Executor executor) {
+        this.tickNanos = Math.max(1, unit.toNanos(tickDuration));
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.mask = size - 1;
+        this.buckets = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Handle to a scheduled task
+     */
+    interface Timeout {
+        /**
+         * @return true if the task was cancelled before it expired
+         */
+        boolean cancel();
+    }
+
+    private static final int WAITING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final class TimerTask implements Timeout {
+        final long deadline;
+        final Runnable task;
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        long remainingRounds;
+
+        TimerTask(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        boolean expire() {
+            if (state.compareAndSet(WAITING, EXPIRED)) {
+                pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        TimerTask timerTask = new TimerTask(System.nanoTime() + unit.toNanos(delay), task);
+        pending.incrementAndGet();
+        added.add(timerTask);
+
+        Thread wheelThread = this.wheelThread;
+        if (wheelThread != null) {
+            LockSupport.unpark(wheelThread);
+        }
+        return timerTask;
+    }
+
+    /**
+     * @return number of tasks that are scheduled and have not expired or been cancelled
+     */
+    int pendingCount() {
+        return pending.get();
+    }
+
+    @Override
+    public void run() {
+        this.wheelThread = Thread.currentThread();
+        long start = System.nanoTime();
+        long tick = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (pending.get() == 0) {
+                    // drop cancelled tasks which have not been transferred yet, then wait for schedule() to unpark us
+                    transferAdded(start, tick);
+                    while (pending.get() == 0) {
+                        LockSupport.park(this);
+                        if (Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                    }
+                    // skip the ticks that passed while idle, no waiting task is in the buckets
+                    tick = Math.max(tick, (System.nanoTime() - start) / tickNanos);
+                }
+
+                long tickDeadline = start + (tick + 1) * tickNanos;
+                long sleep;
+                while ((sleep = tickDeadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(this, sleep);
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                }
+
+                transferAdded(start, tick);
+                expireBucket(buckets[(int) (tick & mask)]);
+                tick++;
+            } catch (Exception e) {
+                if (log.isErrorEnabled()) {
+                    log.error("Error in timer wheel loop", e);
+                }
+            }
+        }
+    }
+
+    private void transferAdded(long start, long currentTick) {
+        TimerTask task;
+        while ((task = added.poll()) != null) {
+            if (task.state.get() != WAITING) {
+                continue;
+            }
+            long ticks = Math.max((task.deadline - start + tickNanos - 1) / tickNanos, currentTick);
+            task.remainingRounds = (ticks - currentTick) / buckets.length;
+            buckets[(int) (ticks & mask)].add(task);
+        }
+    }
+
+    private void expireBucket(ArrayDeque<TimerTask> bucket) {
+        long now = System.nanoTime();
+        Iterator<TimerTask> it = bucket.iterator();
+        while (it.hasNext()) {
+            TimerTask task = it.next();
+            if (task.state.get() != WAITING) {
+                it.remove();
+            } else if (task.remainingRounds <= 0 && task.deadline - now <= 0) {
+                it.remove();
+                if (task.expire()) {
+                    runTask(task.task);
+                }
+            } else if (task.remainingRounds > 0) {
+                task.remainingRounds--;
+            }
+        }
+    }
+
+    private void runTask(Runnable task) {
+        if (executor != null) {
+            try {
+                executor.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                // executor is shutting down, run it here
+            }
+        }
+        task.run();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.spring.events.audit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.serotonin.m2m2.vo.AbstractVO;
+import com.serotonin.m2m2.vo.permission.PermissionHolder;
+
+/**
+ * Holds the audit events raised during a bulk operation (e.g. an import) and collapses them into one event per
+ * object when closed. Consecutive changes to an object become a single change from the first state to the last
+ * state, and changes following the creation of an object are folded into the create event. Toggle and delete events
+ * are kept as they are.
+ *
+ * <p>The events for each object are submitted in the order they were raised, objects are submitted in the order
+ * they were first changed. The scope is thread safe and may be bound to several threads at once.</p>
+ */
+public class AuditBulkScope implements AutoCloseable {
+
+    private final AuditEventSink sink;
+    private final int maxPending;
+    private final Map<Object, List<AuditEvent>> pending = new LinkedHashMap<>();
+    private int pendingCount;
+    private int collapsedCount;
+    private boolean closed;
+
+    AuditBulkScope(AuditEventSink sink, int maxPending) {
+        this.sink = sink;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Run the task with this scope bound to the current thread
+     */
+    public void run(Runnable task) {
+        AuditBulkScope previous = sink.getCurrentScope();
+        sink.setCurrentScope(this);
+        try {
+            task.run();
+        } finally {
+            sink.setCurrentScope(previous);
+        }
+    }
+
+    /**
+     * @return a task which runs the supplied task with this scope bound to the running thread
+     */
+    public Runnable wrap(Runnable task) {
+        return () -> run(task);
+    }
+
+    /**
+     * @return false if the scope is closed and the event was not added
+     */
+    synchronized boolean add(AuditEvent event) {
+        if (closed) {
+            return false;
+        }
+
+        List<AuditEvent> events = pending.computeIfAbsent(keyFor(event), k -> new ArrayList<>(1));
+        int last = events.size() - 1;
+        AuditEvent collapsed = last >= 0 ? collapse(events.get(last), event) : null;
+        if (collapsed != null) {
+            events.set(last, collapsed);
+            collapsedCount++;
+        } else {
+            events.add(event);
+            pendingCount++;
+        }
+
+        if (pendingCount >= maxPending) {
+            submitPending();
+        }
+        return true;
+    }
+
+    /**
+     * Submit the pending events, events raised after the scope is closed are submitted directly
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            submitPending();
+        }
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return number of events which were merged into an earlier event for the same object
+     */
+    public synchronized int getCollapsedCount() {
+        return collapsedCount;
+    }
+
+    private void submitPending() {
+        List<AuditEvent> events = new ArrayList<>(pendingCount);
+        for (List<AuditEvent> objectEvents : pending.values()) {
+            events.addAll(objectEvents);
+        }
+        pending.clear();
+        pendingCount = 0;
+        sink.enqueue(events);
+    }
+
+    private Object keyFor(AuditEvent event) {
+        AbstractVO vo = voFor(event);
+        if (vo != null) {
+            return new ObjectKey(event.getAuditEventType(), vo.getId());
+        } else if (event instanceof SystemSettingChangeAuditEvent) {
+            return new ObjectKey(event.getAuditEventType(), ((SystemSettingChangeAuditEvent) event).getKey());
+        } else if (event instanceof SystemSettingDeleteAuditEvent) {
+            return new ObjectKey(event.getAuditEventType(), ((SystemSettingDeleteAuditEvent) event).getKey());
+        }
+        return new ObjectKey(event.getAuditEventType(), event);
+    }
+
+    private AbstractVO voFor(AuditEvent event) {
+        if (event instanceof CreateAuditEvent) {
+            return ((CreateAuditEvent<?>) event).getVo();
+        } else if (event instanceof ChangeAuditEvent) {
+            return ((ChangeAuditEvent<?>) event).getVo();
+        } else if (event instanceof ToggleAuditEvent) {
+            return ((ToggleAuditEvent<?>) event).getVo();
+        } else if (event instanceof DeleteAuditEvent) {
+            return ((DeleteAuditEvent<?>) event).getVo();
+        }
+        return null;
+    }
+
+    /**
+     * @return an event representing both events or null if they can't be combined
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private AuditEvent collapse(AuditEvent previous, AuditEvent next) {
+        if (!(next instanceof ChangeAuditEvent) || !sameHolder(previous.getRaisingHolder(), next.getRaisingHolder())) {
+            return null;
+        }
+
+        AbstractVO vo = ((ChangeAuditEvent<?>) next).getVo();
+        AuditEvent collapsed;
+        if (previous instanceof CreateAuditEvent) {
+            collapsed = new CreateAuditEvent(previous.getAuditEventType(), previous.getRaisingHolder(), vo);
+        } else if (previous instanceof ChangeAuditEvent) {
+            AbstractVO from = ((ChangeAuditEvent<?>) previous).getFrom();
+            collapsed = new ChangeAuditEvent(previous.getAuditEventType(), previous.getRaisingHolder(), from, vo);
+        } else {
+            return null;
+        }
+        // the record describes the state after the last change
+        collapsed.setTimestamp(next.getTimestamp());
+        return collapsed;
+    }
+
+    private boolean sameHolder(PermissionHolder a, PermissionHolder b) {
+        if (a == b) {
+            return true;
+        }
+        return a != null && b != null && Objects.equals(a.getPermissionHolderName(), b.getPermissionHolderName());
+    }
+
+    private static final class ObjectKey {
+        private final String auditEventType;
+        private final Object id;
+
+        private ObjectKey(String auditEventType, Object id) {
+            this.auditEventType = auditEventType;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ObjectKey that = (ObjectKey) o;
+            return Objects.equals(auditEventType, that.auditEventType) && id.equals(that.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(auditEventType, id);
+        }
+    }
+}
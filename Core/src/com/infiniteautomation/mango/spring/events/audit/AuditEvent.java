@@ -6,6 +6,7 @@
 
 package com.infiniteautomation.mango.spring.events.audit;
 
+import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.vo.permission.PermissionHolder;
 
 /**
@@ -15,10 +16,15 @@ public abstract class AuditEvent {
 
     protected String auditEventType;
     protected PermissionHolder raisingHolder;
+    /**
+     * When the change was made, the audit event instance is created later on the sink's worker thread
+     */
+    protected long timestamp;
 
     public AuditEvent(String auditEventType, PermissionHolder holder) {
         this.auditEventType = auditEventType;
         this.raisingHolder = holder;
+        this.timestamp = Common.timer.currentTimeMillis();
     }
 
     public String getAuditEventType() {
@@ -36,4 +42,12 @@ public abstract class AuditEvent {
     public void setRaisingHolder(PermissionHolder raisingHolder) {
         this.raisingHolder = raisingHolder;
     }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
 }
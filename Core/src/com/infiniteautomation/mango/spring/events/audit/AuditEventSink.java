@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.spring.events.audit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queues audit events so that the audit records are created off the thread which modified the audited object.
+ * A single worker thread drains the queue in batches, events are always processed in the order they were submitted
+ * so the audit records for an object are created in the order the changes were made.
+ *
+ * <p>Events raised inside a {@link AuditBulkScope} are held by the scope and collapsed into one record per object
+ * when the scope is closed.</p>
+ */
+public class AuditEventSink {
+
+    public enum BackpressurePolicy {
+        /**
+         * Block the submitting thread until there is space in the queue
+         */
+        BLOCK,
+        /**
+         * Discard events which can't be queued
+         */
+        DISCARD
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(AuditEventSink.class);
+
+    /**
+     * Queued by {@link #stop(long, TimeUnit)} to signal the worker to exit
+     */
+    private static final AuditEvent STOP = new AuditEvent(null, null) {};
+
+    private final Consumer<List<AuditEvent>> processor;
+    private final BlockingQueue<AuditEvent> queue;
+    private final int batchSize;
+    private final BackpressurePolicy backpressurePolicy;
+    private final int maxScopePending;
+    private final ThreadLocal<AuditBulkScope> currentScope = new ThreadLocal<>();
+
+    /**
+     * Events submitted by the worker thread itself (e.g. by an event handler), these can't be put in the queue
+     * as the worker would block on itself. Only accessed by the worker thread.
+     */
+    private final Queue<AuditEvent> workerOverflow = new ArrayDeque<>();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final Object processedLock = new Object();
+    private long processed;
+
+    private volatile @Nullable Thread worker;
+    private volatile boolean running;
+
+    /**
+     * @param processor creates the audit records for a batch of events, called from the worker thread
+     * @param queueSize maximum number of events waiting to be processed
+     * @param batchSize maximum number of events passed to the processor at once
+     * @param backpressurePolicy what to do when the queue is full
+     * @param maxScopePending number of events a bulk scope holds before it collapses and submits them
+     */
+    public AuditEventSink(Consumer<List<AuditEvent>> processor, int queueSize, int batchSize,
+                          BackpressurePolicy backpressurePolicy, int maxScopePending) {
+        this.processor = processor;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.batchSize = Math.max(1, batchSize);
+        this.backpressurePolicy = backpressurePolicy;
+        this.maxScopePending = Math.max(1, maxScopePending);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::run, "Audit event sink");
+        thread.setDaemon(true);
+        this.worker = thread;
+        thread.start();
+    }
+
+    /**
+     * Stop the worker thread after it has processed the queued events, events submitted after this are
+     * processed on the submitting thread.
+     */
+    public void stop(long timeout, TimeUnit unit) throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = this.worker;
+            if (!running || thread == null) {
+                return;
+            }
+            running = false;
+        }
+        queue.put(STOP);
+        thread.join(unit.toMillis(timeout));
+        if (thread.isAlive()) {
+            LOG.warn("Audit event sink did not finish processing queued events within {} {}", timeout, unit);
+            return;
+        }
+        this.worker = null;
+
+        // events queued by threads which raced with stop
+        List<AuditEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            process(remaining);
+        }
+    }
+
+    /**
+     * Submit an event, if a bulk scope is bound to the current thread the event is held by the scope.
+     */
+    public void submit(AuditEvent event) {
+        AuditBulkScope scope = currentScope.get();
+        if (scope != null && scope.add(event)) {
+            return;
+        }
+        enqueue(event);
+    }
+
+    /**
+     * Submit events, bypassing any bulk scope bound to the current thread
+     */
+    void enqueue(List<AuditEvent> events) {
+        for (AuditEvent event : events) {
+            enqueue(event);
+        }
+    }
+
+    private void enqueue(AuditEvent event) {
+        Thread thread = this.worker;
+        if (!running || thread == null) {
+            processor.accept(Collections.singletonList(event));
+            return;
+        }
+
+        if (Thread.currentThread() == thread) {
+            workerOverflow.add(event);
+            accepted.incrementAndGet();
+            return;
+        }
+
+        boolean queued;
+        if (backpressurePolicy == BackpressurePolicy.BLOCK) {
+            try {
+                queue.put(event);
+                queued = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+        } else {
+            queued = queue.offer(event);
+        }
+
+        if (queued) {
+            accepted.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Audit event queue is full, discarded {} event", event.getAuditEventType());
+            }
+        }
+    }
+
+    /**
+     * Create a bulk scope, the scope must be bound to the threads which should use it via
+     * {@link AuditBulkScope#run(Runnable)} and closed once the bulk operation completes.
+     */
+    public AuditBulkScope openBulkScope() {
+        return new AuditBulkScope(this, maxScopePending);
+    }
+
+    @Nullable AuditBulkScope getCurrentScope() {
+        return currentScope.get();
+    }
+
+    void setCurrentScope(@Nullable AuditBulkScope scope) {
+        if (scope == null) {
+            currentScope.remove();
+        } else {
+            currentScope.set(scope);
+        }
+    }
+
+    /**
+     * Wait for the events submitted before this call to be processed. Events held by a bulk scope are not
+     * submitted until the scope is closed.
+     *
+     * @return true if the events were processed within the timeout
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        if (Thread.currentThread() == worker) {
+            return false;
+        }
+
+        long target = accepted.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (processedLock) {
+            while (processed < target) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0 || worker == null) {
+                    return processed >= target;
+                }
+                processedLock.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        boolean stop = false;
+        while (!stop) {
+            if (workerOverflow.isEmpty()) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+            } else {
+                drainOverflow(batch);
+            }
+
+            stop = batch.remove(STOP);
+            if (!batch.isEmpty()) {
+                process(batch);
+                batch.clear();
+            }
+
+            // events raised while processing the batch are processed next
+            while (!workerOverflow.isEmpty()) {
+                drainOverflow(batch);
+                process(batch);
+                batch.clear();
+            }
+        }
+
+        while (queue.drainTo(batch, batchSize) > 0) {
+            process(batch);
+            batch.clear();
+        }
+    }
+
+    private void drainOverflow(List<AuditEvent> batch) {
+        AuditEvent event;
+        while (batch.size() < batchSize && (event = workerOverflow.poll()) != null) {
+            batch.add(event);
+        }
+    }
+
+    private void process(List<AuditEvent> batch) {
+        try {
+            processor.accept(Collections.unmodifiableList(batch));
+        } catch (Exception e) {
+            LOG.error("Failed to create audit records for {} events", batch.size(), e);
+        } finally {
+            batches.incrementAndGet();
+            synchronized (processedLock) {
+                processed += batch.size();
+                processedLock.notifyAll();
+            }
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getProcessedCount() {
+        synchronized (processedLock) {
+            return processed;
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return backpressurePolicy;
+    }
+}
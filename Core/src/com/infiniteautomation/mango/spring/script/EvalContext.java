@@ -9,7 +9,10 @@ import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.script.Bindings;
+
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import com.google.common.io.CharStreams;
 
@@ -21,6 +24,7 @@ public class EvalContext {
     Writer errorWriter;
     Reader reader;
     Map<String, Object> bindings;
+    Bindings engineBindings;
 
     public EvalContext() {
         this(new HashMap<>());
@@ -60,4 +64,10 @@ public class EvalContext {
     public void addBinding(String key, Object value) {
         this.bindings.put(key, value);
     }
+    /**
+     * @return the engine scope bindings of the engine the script was evaluated in, null until it is evaluated
+     */
+    public @Nullable Bindings getEngineBindings() {
+        return engineBindings;
+    }
 }
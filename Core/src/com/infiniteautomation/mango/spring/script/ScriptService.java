@@ -151,6 +151,7 @@ public class ScriptService {
         Bindings engineBindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
 
         engineBindings.putAll(evalContext.bindings);
+        evalContext.engineBindings = engineBindings;
         context.setWriter(evalContext.writer);
         context.setErrorWriter(evalContext.errorWriter);
         context.setReader(evalContext.reader);
@@ -6,17 +6,28 @@ package com.infiniteautomation.mango.spring.service;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import com.infiniteautomation.mango.monitor.MonitoredValues;
+import com.infiniteautomation.mango.spring.events.audit.AuditBulkScope;
 import com.infiniteautomation.mango.spring.events.audit.AuditEvent;
+import com.infiniteautomation.mango.spring.events.audit.AuditEventSink;
+import com.infiniteautomation.mango.spring.events.audit.AuditEventSink.BackpressurePolicy;
 import com.infiniteautomation.mango.spring.events.audit.ChangeAuditEvent;
 import com.infiniteautomation.mango.spring.events.audit.CreateAuditEvent;
 import com.infiniteautomation.mango.spring.events.audit.DeleteAuditEvent;
@@ -28,15 +39,14 @@ import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.db.dao.AuditEventDao;
 import com.serotonin.m2m2.i18n.ProcessResult;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
+import com.serotonin.m2m2.rt.event.EventInstance;
 import com.serotonin.m2m2.rt.event.type.AuditEventType;
-import com.serotonin.m2m2.rt.maint.work.WorkItem;
 import com.serotonin.m2m2.util.JsonSerializableUtility;
 import com.serotonin.m2m2.vo.AbstractActionVO;
 import com.serotonin.m2m2.vo.AbstractVO;
 import com.serotonin.m2m2.vo.User;
 import com.serotonin.m2m2.vo.event.audit.AuditEventInstanceVO;
 import com.serotonin.m2m2.vo.permission.PermissionHolder;
-import com.serotonin.timer.RejectedTaskReason;
 
 /**
  *
@@ -45,11 +55,55 @@ import com.serotonin.timer.RejectedTaskReason;
 @Service
 public class AuditEventService extends AbstractBasicVOService<AuditEventInstanceVO, AuditEventDao> {
 
+    public static final String QUEUE_SIZE_MONITOR_ID = "com.infiniteautomation.mango.spring.service.AuditEventService.queueSize";
+    public static final String PROCESSED_COUNT_MONITOR_ID = "com.infiniteautomation.mango.spring.service.AuditEventService.processedCount";
+    public static final String DROPPED_COUNT_MONITOR_ID = "com.infiniteautomation.mango.spring.service.AuditEventService.droppedCount";
+    public static final String BATCH_COUNT_MONITOR_ID = "com.infiniteautomation.mango.spring.service.AuditEventService.batchCount";
+
     private final Logger log = LoggerFactory.getLogger(AuditEventService.class);
+    private final AuditEventSink sink;
+    private final long shutdownTimeout;
 
     @Autowired
-    public AuditEventService(AuditEventDao dao, ServiceDependencies dependencies) {
+    public AuditEventService(AuditEventDao dao, ServiceDependencies dependencies, Environment env, MonitoredValues monitoredValues) {
         super(dao, dependencies);
+        this.sink = new AuditEventSink(this::raiseEvents,
+                env.getProperty("audit.queueSize", int.class, 10000),
+                env.getProperty("audit.batchSize", int.class, 500),
+                env.getProperty("audit.backpressurePolicy", BackpressurePolicy.class, BackpressurePolicy.BLOCK),
+                env.getProperty("audit.bulkScope.maxPending", int.class, 50000));
+        this.shutdownTimeout = env.getProperty("audit.shutdownTimeout", long.class, 30000L);
+
+        monitoredValues.<Integer>create(QUEUE_SIZE_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.AUDIT_QUEUE_SIZE"))
+                .supplier(sink::getQueueSize)
+                .buildReadThrough();
+        monitoredValues.<Long>create(PROCESSED_COUNT_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.AUDIT_PROCESSED_COUNT"))
+                .supplier(sink::getProcessedCount)
+                .buildReadThrough();
+        monitoredValues.<Long>create(DROPPED_COUNT_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.AUDIT_DROPPED_COUNT"))
+                .supplier(sink::getDroppedCount)
+                .buildReadThrough();
+        monitoredValues.<Long>create(BATCH_COUNT_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.AUDIT_BATCH_COUNT"))
+                .supplier(sink::getBatchCount)
+                .buildReadThrough();
+    }
+
+    @PostConstruct
+    private void start() {
+        sink.start();
+    }
+
+    @PreDestroy
+    private void stop() {
+        try {
+            sink.stop(shutdownTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Override
@@ -69,13 +123,67 @@ public class AuditEventService extends AbstractBasicVOService<AuditEventInstance
 
     @EventListener
     protected void raiseAuditEvent(AuditEvent event) {
-        Common.backgroundProcessing.addWorkItem(new AuditEventWorkItem(event, this));
+        sink.submit(event);
+    }
+
+    /**
+     * Start a bulk operation, the audit events raised by the threads the scope is bound to are collapsed into one
+     * record per object and created when the scope is closed.
+     */
+    public AuditBulkScope openBulkScope() {
+        return sink.openBulkScope();
+    }
+
+    /**
+     * Wait for the audit records of previously raised audit events to be created
+     *
+     * @return true if the records were created within the timeout
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        return sink.flush(timeout, unit);
+    }
+
+    /**
+     * Create the audit records for a batch of events, called from the audit event sink's worker thread
+     */
+    protected void raiseEvents(List<AuditEvent> events) {
+        List<EventInstance> instances = new ArrayList<>(events.size());
+        for (AuditEvent event : events) {
+            try {
+                EventInstance instance = createEventInstance(event);
+                if (instance != null) {
+                    instances.add(instance);
+                }
+            } catch (Exception e) {
+                log.error("Failed to create {} audit event", event.getAuditEventType(), e);
+            }
+        }
+        if (!instances.isEmpty()) {
+            Common.eventManager.raiseEvents(instances);
+        }
+    }
+
+    private EventInstance createEventInstance(AuditEvent auditEvent) {
+        if(auditEvent instanceof CreateAuditEvent) {
+            return createCreatedEvent((CreateAuditEvent<?>)auditEvent);
+        }else if(auditEvent instanceof ChangeAuditEvent) {
+            return createChangedEvent((ChangeAuditEvent<?>)auditEvent);
+        }else if(auditEvent instanceof ToggleAuditEvent) {
+            return createToggledEvent((ToggleAuditEvent<?>)auditEvent);
+        }else if(auditEvent instanceof DeleteAuditEvent) {
+            return createDeletedEvent((DeleteAuditEvent<?>)auditEvent);
+        }else if(auditEvent instanceof SystemSettingChangeAuditEvent) {
+            return createSystemSettingChangedEvent((SystemSettingChangeAuditEvent)auditEvent);
+        }else if(auditEvent instanceof SystemSettingDeleteAuditEvent) {
+            return createSystemSettingDeletedEvent((SystemSettingDeleteAuditEvent)auditEvent);
+        }
+        return null;
     }
 
     /**
      * VO created
      */
-    protected void raiseCreatedEvent(CreateAuditEvent event) {
+    protected EventInstance createCreatedEvent(CreateAuditEvent<?> event) {
         Assert.notNull(event.getAuditEventType(), "auditEventType cannot be null");
         Map<String, Object> context = new HashMap<String, Object>();
         JsonSerializableUtility scanner = new JsonSerializableUtility();
@@ -85,13 +193,13 @@ public class AuditEventService extends AbstractBasicVOService<AuditEventInstance
                 | InvocationTargetException | JsonException | IOException e) {
             log.error(e.getMessage(), e);
         }
-        raiseVoAuditEvent(AuditEventInstanceVO.CHANGE_TYPE_CREATE, event.getAuditEventType(), event.getRaisingHolder(), event.getVo(), "event.audit.extended.added", context);
+        return createVoAuditEvent(event.getTimestamp(), AuditEventInstanceVO.CHANGE_TYPE_CREATE, event.getAuditEventType(), event.getRaisingHolder(), event.getVo(), "event.audit.extended.added", context);
     }
 
     /**
      * VO changed
      */
-    protected void raiseChangedEvent(ChangeAuditEvent event) {
+    protected EventInstance createChangedEvent(ChangeAuditEvent<?> event) {
         Assert.notNull(event.getAuditEventType(), "auditEventType cannot be null");
         Map<String, Object> context = new HashMap<String, Object>();
 
@@ -101,42 +209,42 @@ public class AuditEventService extends AbstractBasicVOService<AuditEventInstance
             context = scanner.findChanges(event.getFrom(), event.getVo());
             if (context.size() == 0)
                 // If the object wasn't in fact changed, don't raise an event.
-                return;
+                return null;
         } catch (IllegalAccessException | IllegalArgumentException
                 | InvocationTargetException | JsonException | IOException e) {
             log.error(e.getMessage(), e);
         }
 
-        raiseVoAuditEvent(AuditEventInstanceVO.CHANGE_TYPE_MODIFY, event.getAuditEventType(), event.getRaisingHolder(), event.getVo(), "event.audit.extended.changed", context);
+        return createVoAuditEvent(event.getTimestamp(), AuditEventInstanceVO.CHANGE_TYPE_MODIFY, event.getAuditEventType(), event.getRaisingHolder(), event.getVo(), "event.audit.extended.changed", context);
     }
 
     /**
      * An action VO was toggled
      */
-    protected void raiseToggledEvent(ToggleAuditEvent event) {
+    protected EventInstance createToggledEvent(ToggleAuditEvent<?> event) {
         Assert.notNull(event.getAuditEventType(), "auditEventType cannot be null");
         Map<String, Object> context = new HashMap<String, Object>();
         context.put(AbstractActionVO.ENABLED_KEY, event.getVo().isEnabled());
-        raiseVoAuditEvent(AuditEventInstanceVO.CHANGE_TYPE_MODIFY, event.getAuditEventType(), event.getRaisingHolder(), event.getVo(), "event.audit.extended.toggled", context);
+        return createVoAuditEvent(event.getTimestamp(), AuditEventInstanceVO.CHANGE_TYPE_MODIFY, event.getAuditEventType(), event.getRaisingHolder(), event.getVo(), "event.audit.extended.toggled", context);
     }
 
     /**
      * VO deleted
      */
-    protected void raiseDeletedEvent(DeleteAuditEvent event) {
+    protected EventInstance createDeletedEvent(DeleteAuditEvent<?> event) {
         Assert.notNull(event.getAuditEventType(), "auditEventType cannot be null");
         Map<String, Object> context = new HashMap<String, Object>();
-        raiseVoAuditEvent(AuditEventInstanceVO.CHANGE_TYPE_DELETE, event.getAuditEventType(), event.getRaisingHolder(), event.getVo(), "event.audit.extended.deleted", context);
+        return createVoAuditEvent(event.getTimestamp(), AuditEventInstanceVO.CHANGE_TYPE_DELETE, event.getAuditEventType(), event.getRaisingHolder(), event.getVo(), "event.audit.extended.deleted", context);
     }
 
     /**
      * System setting changed
      */
-    protected void raiseSystemSettingChangedEvent(SystemSettingChangeAuditEvent event) {
+    protected EventInstance createSystemSettingChangedEvent(SystemSettingChangeAuditEvent event) {
         Assert.notNull(event.getAuditEventType(), "auditEventType cannot be null");
         Map<String, Object> context = new HashMap<String, Object>();
         context.put(event.getKey(), event.getToValue());
-        raiseSystemSettingAuditEvent(AuditEventInstanceVO.CHANGE_TYPE_MODIFY,
+        return createSystemSettingAuditEvent(event.getTimestamp(), AuditEventInstanceVO.CHANGE_TYPE_MODIFY,
                 event.getAuditEventType(), event.getRaisingHolder(),
                 event.getKey(), "event.audit.systemSetting.changed", context);
     }
@@ -144,15 +252,15 @@ public class AuditEventService extends AbstractBasicVOService<AuditEventInstance
     /**
      * System setting deleted (set back to default)
      */
-    protected void raiseSystemSettingDeletedEvent(SystemSettingDeleteAuditEvent event) {
+    protected EventInstance createSystemSettingDeletedEvent(SystemSettingDeleteAuditEvent event) {
         Assert.notNull(event.getAuditEventType(), "auditEventType cannot be null");
         Map<String, Object> context = new HashMap<String, Object>();
-        raiseSystemSettingAuditEvent(AuditEventInstanceVO.CHANGE_TYPE_DELETE,
+        return createSystemSettingAuditEvent(event.getTimestamp(), AuditEventInstanceVO.CHANGE_TYPE_DELETE,
                 event.getAuditEventType(), event.getRaisingHolder(),
                 event.getKey(), "event.audit.systemSetting.deleted", context);
     }
 
-    private void raiseSystemSettingAuditEvent(int changeType, String auditEventType, PermissionHolder permissionHolder,
+    private EventInstance createSystemSettingAuditEvent(long time, int changeType, String auditEventType, PermissionHolder permissionHolder,
             String systemSettingKey, String key, Map<String, Object> context) {
         User raisingUser = permissionHolder.getUser();
         Object username = permissionHolder.getPermissionHolderName();
@@ -165,17 +273,17 @@ public class AuditEventService extends AbstractBasicVOService<AuditEventInstance
         AuditEventType type = new AuditEventType(auditEventType, changeType, Common.NEW_ID);
         type.setRaisingUser(raisingUser);
 
-        Common.eventManager.raiseEvent(type, Common.timer.currentTimeMillis(), false,
+        return new EventInstance(type, time, false,
                 AuditEventType.getEventType(type.getAuditEventType()).getAlarmLevel(),
                 message, context);
     }
 
 
     /**
-     * Common raise event logic
+     * Common create event logic
      *
      */
-    private void raiseVoAuditEvent(int changeType, String auditEventType, PermissionHolder permissionHolder, AbstractVO to, String key, Map<String, Object> context) {
+    private EventInstance createVoAuditEvent(long time, int changeType, String auditEventType, PermissionHolder permissionHolder, AbstractVO to, String key, Map<String, Object> context) {
 
         User raisingUser = permissionHolder.getUser();
         Object username = permissionHolder.getPermissionHolderName();
@@ -189,62 +297,8 @@ public class AuditEventService extends AbstractBasicVOService<AuditEventInstance
         AuditEventType type = new AuditEventType(auditEventType, changeType, to.getId());
         type.setRaisingUser(raisingUser);
 
-        Common.eventManager.raiseEvent(type, Common.timer.currentTimeMillis(), false,
+        return new EventInstance(type, time, false,
                 AuditEventType.getEventType(type.getAuditEventType()).getAlarmLevel(),
                 message, context);
     }
-
-    static class AuditEventWorkItem implements WorkItem {
-
-        private final AuditEventService service;
-        private final AuditEvent auditEvent;
-
-        public AuditEventWorkItem(AuditEvent event, AuditEventService service) {
-            this.service = service;
-            this.auditEvent = event;
-        }
-
-        @Override
-        public void execute() {
-            if(auditEvent instanceof CreateAuditEvent) {
-                service.raiseCreatedEvent((CreateAuditEvent)auditEvent);
-            }else if(auditEvent instanceof ChangeAuditEvent) {
-                service.raiseChangedEvent((ChangeAuditEvent)auditEvent);
-            }else if(auditEvent instanceof ToggleAuditEvent) {
-                service.raiseToggledEvent((ToggleAuditEvent)auditEvent);
-            }else if(auditEvent instanceof DeleteAuditEvent) {
-                service.raiseDeletedEvent((DeleteAuditEvent)auditEvent);
-            }else if(auditEvent instanceof SystemSettingChangeAuditEvent) {
-                service.raiseSystemSettingChangedEvent((SystemSettingChangeAuditEvent)auditEvent);
-            }else if(auditEvent instanceof SystemSettingDeleteAuditEvent) {
-                service.raiseSystemSettingDeletedEvent((SystemSettingDeleteAuditEvent)auditEvent);
-            }
-        }
-
-        @Override
-        public int getPriority() {
-            return WorkItem.PRIORITY_LOW;
-        }
-
-        @Override
-        public String getDescription() {
-            return auditEvent.getAuditEventType();
-        }
-
-        @Override
-        public String getTaskId() {
-            // No Order required
-            return null;
-        }
-
-        @Override
-        public int getQueueSize() {
-            return 0;
-        }
-
-        @Override
-        public void rejected(RejectedTaskReason reason) {
-            //No special handling, tracking/logging handled by WorkItemRunnable
-        }
-    }
 }
@@ -85,7 +85,7 @@ import com.serotonin.validation.StringValidation;
  *
  */
 @Service
-public class DataPointService extends AbstractVOService<DataPointVO, DataPointDao> {
+public class DataPointService extends AbstractVOService<DataPointVO, DataPointDao> implements CachingService {
 
     private final DataSourceDao dataSourceDao;
     private final EventDetectorDao eventDetectorDao;
@@ -796,4 +796,10 @@ public class DataPointService extends AbstractVOService<DataPointVO, DataPointDa
         permissionService.ensurePermission(user, read);
         return read;
     }
+
+    @Override
+    public void clearCaches(boolean force) {
+        permissionService.ensureAdminRole(Common.getUser());
+        dao.clearCache();
+    }
 }
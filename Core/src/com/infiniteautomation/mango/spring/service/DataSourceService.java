@@ -38,7 +38,7 @@ import com.serotonin.validation.StringValidation;
  *
  */
 @Service
-public class DataSourceService extends AbstractVOService<DataSourceVO, DataSourceDao> {
+public class DataSourceService extends AbstractVOService<DataSourceVO, DataSourceDao> implements CachingService {
 
     private final DataPointService dataPointService;
     private final DataSourcePermissionDefinition createPermission;
@@ -288,4 +288,10 @@ public class DataSourceService extends AbstractVOService<DataSourceVO, DataSourc
         permissionService.ensurePermission(user, read);
         return read;
     }
+
+    @Override
+    public void clearCaches(boolean force) {
+        permissionService.ensureAdminRole(Common.getUser());
+        dao.clearCache();
+    }
 }
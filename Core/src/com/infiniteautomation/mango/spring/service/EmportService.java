@@ -4,6 +4,7 @@
 package com.infiniteautomation.mango.spring.service;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Map;
@@ -86,8 +87,20 @@ public class EmportService {
      */
     public ImportTask getImportTask(JsonObject root, ProgressiveTaskListener listener, boolean schedule, Translations translations) {
         permissionService.ensurePermission(Common.getUser(), importPermissionDefinition.getPermission());
-        return new ImportTask(root,
-                new ImportTaskDependencies(translations,
+        return new ImportTask(root, createImportTaskDependencies(translations), listener, schedule);
+    }
+
+    /**
+     * Create an import task which streams the JSON configuration from the reader, the reader is fully consumed
+     * before this method returns
+     */
+    public ImportTask getImportTask(Reader reader, ProgressiveTaskListener listener, boolean schedule, Translations translations) throws JsonException, IOException {
+        permissionService.ensurePermission(Common.getUser(), importPermissionDefinition.getPermission());
+        return new ImportTask(reader, createImportTaskDependencies(translations), listener, schedule);
+    }
+
+    private ImportTaskDependencies createImportTaskDependencies(Translations translations) {
+        return new ImportTaskDependencies(translations,
                 roleService,
                 usersService,
                 mailingListService,
@@ -98,8 +111,7 @@ public class EmportService {
                 eventHandlerService,
                 jsonDataService,
                 eventDetectorService,
-                systemPermissionService),
-                listener, schedule);
+                systemPermissionService);
     }
 
     /**
@@ -32,6 +32,7 @@ import com.infiniteautomation.mango.util.exception.NotFoundException;
 import com.infiniteautomation.mango.util.exception.TranslatableRuntimeException;
 import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.db.dao.DataPointDao;
+import com.serotonin.m2m2.db.dao.EventDao;
 import com.serotonin.m2m2.db.dao.EventInstanceDao;
 import com.serotonin.m2m2.i18n.ProcessResult;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
@@ -57,6 +58,7 @@ import net.jazdw.rql.parser.ASTNode;
 public class EventInstanceService extends AbstractVOService<EventInstanceVO, EventInstanceDao> {
 
     private final DataPointDao dataPointDao;
+    private final EventDao eventDao;
     private final EventsViewPermissionDefinition eventsViewPermission;
     private final EventsSuperadminViewPermissionDefinition eventsSuperadminViewPermission;
     /**
@@ -71,11 +73,13 @@ public class EventInstanceService extends AbstractVOService<EventInstanceVO, Eve
     public EventInstanceService(EventInstanceDao dao,
                                 ServiceDependencies dependencies,
                                 DataPointDao dataPointDao,
+                                EventDao eventDao,
                                 @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") EventsViewPermissionDefinition eventsViewPermission,
                                 @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") EventsSuperadminViewPermissionDefinition eventsSuperadminViewPermission,
                                 RunAs runAs) {
         super(dao, dependencies);
         this.dataPointDao = dataPointDao;
+        this.eventDao = eventDao;
         this.eventsViewPermission = eventsViewPermission;
         this.eventsSuperadminViewPermission = eventsSuperadminViewPermission;
         this.runAs = runAs;
@@ -164,6 +168,15 @@ public class EventInstanceService extends AbstractVOService<EventInstanceVO, Eve
         return map.values();
     }
 
+    /**
+     * Rebuild the summary table used to answer data point event count queries from the events table
+     * @return number of summary rows
+     */
+    public int rebuildDataPointEventCounts() {
+        permissionService.ensureAdminRole(Common.getUser());
+        return eventDao.rebuildDataPointEventCounts();
+    }
+
     /**
      */
     public List<EventInstance> getAllActiveUserEvents() {
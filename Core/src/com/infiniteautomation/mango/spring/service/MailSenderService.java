@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.spring.service;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.InternetAddress;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.stereotype.Service;
+
+import com.infiniteautomation.mango.spring.components.executors.MangoExecutors;
+import com.infiniteautomation.mango.util.LazyInitSupplier;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.db.dao.SystemSettingsDao;
+import com.serotonin.m2m2.email.EmailDigestCoalescer;
+import com.serotonin.m2m2.email.PostEmailRunnable;
+import com.serotonin.m2m2.i18n.TranslatableMessage;
+import com.serotonin.m2m2.rt.maint.work.EmailWorkItem;
+import com.serotonin.m2m2.vo.systemSettings.SystemSettingsListener;
+import com.serotonin.web.mail.EmailContent;
+import com.serotonin.web.mail.EmailSender;
+import com.serotonin.web.mail.SmtpConnectionPool;
+
+/**
+ * Sends email using pooled SMTP connections. The SMTP settings are read once and cached until they are changed.
+ * Event emails may be merged into a digest per list of recipients, see mail.digest.window in mango.properties.
+ */
+@Service
+public class MailSenderService implements SystemSettingsListener {
+    private static final Logger LOG = LoggerFactory.getLogger(MailSenderService.class);
+
+    private final SystemSettingsDao systemSettingsDao;
+    private final int maxConnections;
+    private final long idleTimeout;
+    private final EmailDigestCoalescer digestCoalescer;
+
+    private final LazyInitSupplier<SmtpConnectionPool> connectionPool = new LazyInitSupplier<>(this::createConnectionPool);
+    private final LazyInitSupplier<InternetAddress> fromAddress = new LazyInitSupplier<>(this::createFromAddress);
+
+    @Autowired
+    public MailSenderService(SystemSettingsDao systemSettingsDao, Environment env, MangoExecutors executors) {
+        this.systemSettingsDao = systemSettingsDao;
+        this.maxConnections = env.getProperty("mail.smtp.pool.maxConnections", Integer.class, 2);
+        this.idleTimeout = env.getProperty("mail.smtp.pool.idleTimeout", Long.class, 30000L);
+
+        long digestWindow = env.getProperty("mail.digest.window", Long.class, 0L);
+        if (digestWindow > 0) {
+            this.digestCoalescer = new EmailDigestCoalescer(digestWindow, executors.getScheduledExecutor(),
+                    (to, subject, content) -> Common.backgroundProcessing.addWorkItem(
+                            new EmailWorkItem(to, subject, content, null)),
+                    (subject, count) -> new TranslatableMessage("ftl.subject.digest", subject, count - 1)
+                            .translate(Common.getTranslations()));
+        } else {
+            this.digestCoalescer = null;
+        }
+    }
+
+    private SmtpConnectionPool createConnectionPool() {
+        return new SmtpConnectionPool(
+                systemSettingsDao.getValue(SystemSettingsDao.EMAIL_SMTP_HOST),
+                systemSettingsDao.getIntValue(SystemSettingsDao.EMAIL_SMTP_PORT),
+                systemSettingsDao.getBooleanValue(SystemSettingsDao.EMAIL_AUTHORIZATION),
+                systemSettingsDao.getValue(SystemSettingsDao.EMAIL_SMTP_USERNAME),
+                systemSettingsDao.getValue(SystemSettingsDao.EMAIL_SMTP_PASSWORD),
+                systemSettingsDao.getBooleanValue(SystemSettingsDao.EMAIL_TLS),
+                systemSettingsDao.getIntValue(SystemSettingsDao.EMAIL_SEND_TIMEOUT),
+                maxConnections, idleTimeout);
+    }
+
+    private InternetAddress createFromAddress() {
+        String addr = systemSettingsDao.getValue(SystemSettingsDao.EMAIL_FROM_ADDRESS);
+        String pretty = systemSettingsDao.getValue(SystemSettingsDao.EMAIL_FROM_NAME);
+        try {
+            return new InternetAddress(addr, pretty, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new MailPreparationException(e);
+        }
+    }
+
+    /**
+     * @return the from address configured in the system settings
+     */
+    public InternetAddress getFromAddress() {
+        return fromAddress.get();
+    }
+
+    /**
+     * Send an email immediately (on the calling thread) using a pooled connection
+     */
+    public void send(InternetAddress from, InternetAddress[] to, String subject, EmailContent content) {
+        connectionPool.get().send(EmailSender.preparator(from, null, to, null, null, subject, content));
+    }
+
+    /**
+     * Queue an email for an event. If a digest window is configured the email is merged with other event emails for
+     * the same recipients, emails with post send tasks are never merged.
+     */
+    public void queueEventEmail(String[] toAddrs, String subject, EmailContent content, PostEmailRunnable[] postSendExecution) throws AddressException {
+        if (digestCoalescer == null || postSendExecution != null) {
+            EmailWorkItem.queueEmail(toAddrs, subject, content, postSendExecution);
+            return;
+        }
+
+        if (systemSettingsDao.getBooleanValue(SystemSettingsDao.EMAIL_DISABLED)) {
+            LOG.warn("Not sending email because email is disabled globally.");
+            return;
+        }
+
+        InternetAddress[] toAddresses = new InternetAddress[toAddrs.length];
+        for (int i = 0; i < toAddrs.length; i++)
+            toAddresses[i] = new InternetAddress(toAddrs[i]);
+        digestCoalescer.add(toAddresses, subject, content);
+    }
+
+    @Override
+    public void systemSettingsSaved(String key, String oldValue, String newValue) {
+        resetConnectionPool();
+    }
+
+    /**
+     * The default implementation ignores settings without a default value, e.g. the SMTP username and password
+     */
+    @Override
+    public void systemSettingsRemoved(String key, String lastValue, String defaultValue) {
+        resetConnectionPool();
+    }
+
+    private void resetConnectionPool() {
+        fromAddress.reset();
+        SmtpConnectionPool pool = connectionPool.getIfInitialized().orElse(null);
+        connectionPool.reset();
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Override
+    public List<String> getKeys() {
+        return Arrays.asList(SystemSettingsDao.EMAIL_SMTP_HOST,
+                SystemSettingsDao.EMAIL_SMTP_PORT,
+                SystemSettingsDao.EMAIL_FROM_ADDRESS,
+                SystemSettingsDao.EMAIL_FROM_NAME,
+                SystemSettingsDao.EMAIL_AUTHORIZATION,
+                SystemSettingsDao.EMAIL_SMTP_USERNAME,
+                SystemSettingsDao.EMAIL_SMTP_PASSWORD,
+                SystemSettingsDao.EMAIL_TLS,
+                SystemSettingsDao.EMAIL_SEND_TIMEOUT);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (digestCoalescer != null) {
+            digestCoalescer.flushAll();
+        }
+        connectionPool.getIfInitialized().ifPresent(SmtpConnectionPool::close);
+    }
+}
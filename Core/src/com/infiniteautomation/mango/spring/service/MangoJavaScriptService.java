@@ -16,7 +16,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 
 import javax.script.Bindings;
@@ -29,15 +34,21 @@ import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 import javax.script.SimpleBindings;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.infiniteautomation.mango.monitor.MonitoredValues;
 import com.infiniteautomation.mango.pointvaluecache.PointValueCache;
 import com.infiniteautomation.mango.spring.components.RunAs;
 import com.infiniteautomation.mango.spring.script.engines.NashornScriptEngineDefinition;
 import com.infiniteautomation.mango.util.exception.ValidationException;
 import com.infiniteautomation.mango.util.script.CompiledMangoJavaScript;
+import com.infiniteautomation.mango.util.script.IsolatedScriptEngine;
 import com.infiniteautomation.mango.util.script.MangoJavaScript;
 import com.infiniteautomation.mango.util.script.MangoJavaScriptAction;
 import com.infiniteautomation.mango.util.script.MangoJavaScriptError;
@@ -113,6 +124,11 @@ public class MangoJavaScriptService {
 
     private static final String DATE_FORMAT = "dd MMM yyyy HH:mm:ss z";
 
+    public static final String ENGINE_COUNT_MONITOR_ID = "com.infiniteautomation.mango.spring.service.MangoJavaScriptService.engineCount";
+    public static final String COMPILED_CACHE_SIZE_MONITOR_ID = "com.infiniteautomation.mango.spring.service.MangoJavaScriptService.compiledCacheSize";
+    public static final String COMPILE_COUNT_MONITOR_ID = "com.infiniteautomation.mango.spring.service.MangoJavaScriptService.compileCount";
+    public static final String COMPILE_TIME_MONITOR_ID = "com.infiniteautomation.mango.spring.service.MangoJavaScriptService.compileTime";
+
     private static final Object globalFunctionsLock = new Object();
 
     private final PermissionService permissionService;
@@ -124,6 +140,15 @@ public class MangoJavaScriptService {
     private final PointValueDao pointValueDao;
     private final PointValueCache pointValueCache;
 
+    // Shared engines, compiled code is shared between all scripts that run on the same engine
+    private final ScriptEngine[] adminEngines;
+    private final ScriptEngine[] userEngines;
+    private final Cache<CompiledScriptKey, CompiledScript> compiledScripts;
+    private final Map<ScriptEngine, CompiledScript> compiledGlobalFunctions = new ConcurrentHashMap<>();
+    private final AtomicInteger engineCount = new AtomicInteger();
+    private final LongAdder compileCount = new LongAdder();
+    private final LongAdder compileTimeNanos = new LongAdder();
+
     @Autowired
     public MangoJavaScriptService(PermissionService permissionService,
                                   @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") DataSourcePermissionDefinition dataSourcePermissionDefinition,
@@ -131,7 +156,9 @@ public class MangoJavaScriptService {
                                   ScriptEngineManager manager,
                                   List<ScriptEngineDefinition> engineDefinitions,
                                   PointValueDao pointValueDao,
-                                  PointValueCache pointValueCache) {
+                                  PointValueCache pointValueCache,
+                                  Environment env,
+                                  MonitoredValues monitoredValues) {
         this.dataPointService = dataPointService;
         this.permissionService = permissionService;
         this.dataSourcePermissionDefinition = dataSourcePermissionDefinition;
@@ -150,6 +177,30 @@ public class MangoJavaScriptService {
                 .orElse(null);
         this.pointValueDao = pointValueDao;
         this.pointValueCache = pointValueCache;
+
+        int poolSize = Math.max(1, env.getProperty("script.engine.poolSize", Integer.class, Runtime.getRuntime().availableProcessors()));
+        this.adminEngines = new ScriptEngine[poolSize];
+        this.userEngines = new ScriptEngine[poolSize];
+        this.compiledScripts = Caffeine.newBuilder()
+                .maximumSize(env.getProperty("script.compiledCache.size", Long.class, 10000L))
+                .build();
+
+        monitoredValues.<Integer>create(ENGINE_COUNT_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.SCRIPT_ENGINE_COUNT"))
+                .supplier(engineCount::get)
+                .buildReadThrough();
+        monitoredValues.<Long>create(COMPILED_CACHE_SIZE_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.SCRIPT_COMPILED_CACHE_SIZE"))
+                .supplier(compiledScripts::estimatedSize)
+                .buildReadThrough();
+        monitoredValues.<Long>create(COMPILE_COUNT_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.SCRIPT_COMPILE_COUNT"))
+                .supplier(compileCount::sum)
+                .buildReadThrough();
+        monitoredValues.<Long>create(COMPILE_TIME_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.SCRIPT_COMPILE_TIME"))
+                .supplier(() -> TimeUnit.NANOSECONDS.toMillis(compileTimeNanos.sum()))
+                .buildReadThrough();
     }
 
     /**
@@ -333,50 +384,55 @@ public class MangoJavaScriptService {
     }
 
     /**
-     * Compile a script to be run and add global bindings
+     * Compile a script to be run. Compiled scripts are cached by source and shared, use
+     * {@link #createIsolatedEngine(CompiledScript)} to obtain an engine with its own bindings to run it in.
      *
      */
     public CompiledScript compile(String script, boolean wrapInFunction) throws ScriptError {
-        try {
-            final ScriptEngine engine = newEngine();
-
-            // Add constants to the context
-            Bindings globalBindings = new SimpleBindings();
-
-            //left here for legacy compatibility
-            globalBindings.put("SECOND", Common.TimePeriods.SECONDS);
-            globalBindings.put("MINUTE", Common.TimePeriods.MINUTES);
-            globalBindings.put("HOUR", Common.TimePeriods.HOURS);
-            globalBindings.put("DAY", Common.TimePeriods.DAYS);
-            globalBindings.put("WEEK", Common.TimePeriods.WEEKS);
-            globalBindings.put("MONTH", Common.TimePeriods.MONTHS);
-            globalBindings.put("YEAR", Common.TimePeriods.YEARS);
-
-            for(IntStringPair isp : Common.TIME_PERIOD_CODES.getIdKeys())
-                globalBindings.put(Common.TIME_PERIOD_CODES.getCode(isp.getKey()), isp.getKey());
-
-            for(IntStringPair isp : Common.ROLLUP_CODES.getIdKeys(Common.Rollups.NONE))
-                globalBindings.put(Common.ROLLUP_CODES.getCode(isp.getKey()), isp.getKey());
-
-            //Add in Additional Utilities with Global Scope
-            globalBindings.put(DateTimeUtility.CONTEXT_KEY, new DateTimeUtility());
-            globalBindings.put(UnitUtility.CONTEXT_KEY, new UnitUtility());
-
-            engine.setBindings(globalBindings, ScriptContext.GLOBAL_SCOPE);
+        String toCompile;
+        if(wrapInFunction) {
+            toCompile = SCRIPT_PREFIX + script + SCRIPT_SUFFIX;
+        }else {
+            toCompile = script;
+        }
 
-            String toCompile;
-            if(wrapInFunction) {
-                toCompile = SCRIPT_PREFIX + script + SCRIPT_SUFFIX;
-            }else {
-                toCompile = script;
-            }
+        boolean admin = ensureEnginePermission();
+        CompiledScriptKey key = new CompiledScriptKey(DigestUtils.sha256Hex(toCompile), admin);
+        try {
+            // threads requesting the same script wait for a single compilation
+            return compiledScripts.get(key, k -> {
+                try {
+                    return compile(sharedEngine(admin, k.hashCode()), toCompile);
+                } catch (ScriptException e) {
+                    throw new UncheckedScriptException(e);
+                }
+            });
+        }catch(UncheckedScriptException e) {
+            throw ScriptError.create(e.getCause(), wrapInFunction);
+        }
+    }
 
-            return ((Compilable)engine).compile(toCompile);
-        }catch(ScriptException e) {
-            throw ScriptError.create(e, wrapInFunction);
+    /**
+     * Compile on a pooled engine, Nashorn engines are not thread safe so compilation is serialized per engine
+     */
+    private CompiledScript compile(ScriptEngine shared, String source) throws ScriptException {
+        synchronized (shared) {
+            long start = System.nanoTime();
+            CompiledScript compiled = ((Compilable) shared).compile(source);
+            compileTimeNanos.add(System.nanoTime() - start);
+            compileCount.increment();
+            return compiled;
         }
     }
 
+    /**
+     * Create an engine for running a compiled script, the engine shares the compiled code of the pooled engine
+     * that compiled the script but has its own engine scope and global scope bindings.
+     */
+    public IsolatedScriptEngine createIsolatedEngine(CompiledScript compiled) {
+        return new IsolatedScriptEngine(compiled.getEngine(), createGlobalBindings());
+    }
+
     /**
      * Reset the engine scope of a script and initialize for running
      * @param context - if provided points will be wrapped with script's setter (alternatively use script.addToContext()
@@ -444,7 +500,7 @@ public class MangoJavaScriptService {
         engineScope.put(ScriptLog.CONTEXT_KEY, script.getLog());
 
         try {
-            script.getEngine().eval(getGlobalFunctions());
+            getCompiledGlobalFunctions(script.getEngine()).eval(script.getEngine().getContext());
         } catch (ScriptException e) {
             throw ScriptError.create(e, script.isWrapInFunction());
         } catch (RuntimeException e) {
@@ -480,7 +536,7 @@ public class MangoJavaScriptService {
                 for(ScriptUtility util : script.getAdditionalUtilities())
                     util.setResult(script.getResult());
 
-                Object resultObject = script.getCompiledScript().eval();
+                Object resultObject = script.getCompiledScript().eval(script.getEngine().getContext());
                 script.getResult().setResult(resultObject);
 
                 return null;
@@ -582,13 +638,132 @@ public class MangoJavaScriptService {
      * Create a new script engine
      */
     public ScriptEngine newEngine() {
+        boolean admin = ensureEnginePermission();
+        return nashornEngineDefinition.createScriptEngine(nashornFactory, admin ? null : c -> false);
+    }
+
+    /**
+     * Ensure the current user may use the Nashorn engine
+     * @return true if the user is an admin and the engine can expose Java classes
+     */
+    private boolean ensureEnginePermission() {
         if (nashornFactory == null || nashornEngineDefinition == null) {
             throw new UnsupportedOperationException("Nashorn engine is not available");
         }
 
         PermissionHolder user = Common.getUser();
         permissionService.ensurePermission(user, nashornEngineDefinition.requiredPermission());
-        return nashornEngineDefinition.createScriptEngine(nashornFactory, permissionService.hasAdminRole(user) ? null : c -> false);
+        return permissionService.hasAdminRole(user);
+    }
+
+    /**
+     * Get a pooled engine, the slot is chosen by the script so that the same source always compiles on the same engine
+     */
+    private ScriptEngine sharedEngine(boolean admin, int slot) {
+        ScriptEngine[] pool = admin ? adminEngines : userEngines;
+        int index = Math.floorMod(slot, pool.length);
+        ScriptEngine engine = pool[index];
+        if (engine == null) {
+            synchronized (pool) {
+                engine = pool[index];
+                if (engine == null) {
+                    engine = nashornEngineDefinition.createScriptEngine(nashornFactory, admin ? null : c -> false);
+                    pool[index] = engine;
+                    engineCount.incrementAndGet();
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Global functions are compiled once per pooled engine
+     */
+    private CompiledScript getCompiledGlobalFunctions(ScriptEngine engine) throws ScriptException {
+        ScriptEngine shared = engine instanceof IsolatedScriptEngine ? ((IsolatedScriptEngine) engine).getDelegate() : engine;
+        CompiledScript compiled = compiledGlobalFunctions.get(shared);
+        if (compiled == null) {
+            synchronized (shared) {
+                compiled = compiledGlobalFunctions.get(shared);
+                if (compiled == null) {
+                    compiled = compile(shared, getGlobalFunctions());
+                    compiledGlobalFunctions.put(shared, compiled);
+                }
+            }
+        }
+        return compiled;
+    }
+
+    private static Bindings createGlobalBindings() {
+        // Add constants to the context
+        Bindings globalBindings = new SimpleBindings();
+
+        //left here for legacy compatibility
+        globalBindings.put("SECOND", Common.TimePeriods.SECONDS);
+        globalBindings.put("MINUTE", Common.TimePeriods.MINUTES);
+        globalBindings.put("HOUR", Common.TimePeriods.HOURS);
+        globalBindings.put("DAY", Common.TimePeriods.DAYS);
+        globalBindings.put("WEEK", Common.TimePeriods.WEEKS);
+        globalBindings.put("MONTH", Common.TimePeriods.MONTHS);
+        globalBindings.put("YEAR", Common.TimePeriods.YEARS);
+
+        for(IntStringPair isp : Common.TIME_PERIOD_CODES.getIdKeys())
+            globalBindings.put(Common.TIME_PERIOD_CODES.getCode(isp.getKey()), isp.getKey());
+
+        for(IntStringPair isp : Common.ROLLUP_CODES.getIdKeys(Common.Rollups.NONE))
+            globalBindings.put(Common.ROLLUP_CODES.getCode(isp.getKey()), isp.getKey());
+
+        //Add in Additional Utilities with Global Scope
+        globalBindings.put(DateTimeUtility.CONTEXT_KEY, new DateTimeUtility());
+        globalBindings.put(UnitUtility.CONTEXT_KEY, new UnitUtility());
+        return globalBindings;
+    }
+
+    /**
+     * Remove all cached compiled scripts
+     */
+    public void clearCompiledScripts() {
+        compiledScripts.invalidateAll();
+        compiledGlobalFunctions.clear();
+    }
+
+    private static final class CompiledScriptKey {
+        private final String sourceHash;
+        private final boolean admin;
+
+        private CompiledScriptKey(String sourceHash, boolean admin) {
+            this.sourceHash = sourceHash;
+            this.admin = admin;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CompiledScriptKey that = (CompiledScriptKey) o;
+            return admin == that.admin && sourceHash.equals(that.sourceHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sourceHash, admin);
+        }
+    }
+
+    /**
+     * Carries a compilation failure out of the compiled script cache loader
+     */
+    private static class UncheckedScriptException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private UncheckedScriptException(ScriptException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ScriptException getCause() {
+            return (ScriptException) super.getCause();
+        }
     }
 
     /**
@@ -634,6 +809,7 @@ public class MangoJavaScriptService {
     public void clearGlobalFunctions() {
         synchronized(globalFunctionsLock) {
             FUNCTIONS = null;
+            compiledGlobalFunctions.clear();
         }
     }
 
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.spring.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.stereotype.Service;
+
+import com.infiniteautomation.mango.db.metrics.QueryMetrics;
+import com.infiniteautomation.mango.db.metrics.QueryShapeStatistics;
+import com.infiniteautomation.mango.db.metrics.SlowQuery;
+import com.infiniteautomation.mango.monitor.MonitoredValues;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.db.DatabaseProxy;
+import com.serotonin.m2m2.i18n.TranslatableMessage;
+
+/**
+ * Exposes the per query shape statistics and slow queries collected for the statements executed by the
+ * database proxy's jOOQ context. Query metrics are enabled via the db.queryMetrics.enabled property.
+ */
+@Service
+public class QueryMetricsService {
+
+    public static final String QUERY_COUNT_MONITOR_ID = "com.infiniteautomation.mango.spring.service.QueryMetricsService.queryCount";
+    public static final String ERROR_COUNT_MONITOR_ID = "com.infiniteautomation.mango.spring.service.QueryMetricsService.errorCount";
+    public static final String SLOW_QUERY_COUNT_MONITOR_ID = "com.infiniteautomation.mango.spring.service.QueryMetricsService.slowQueryCount";
+    public static final String SHAPE_COUNT_MONITOR_ID = "com.infiniteautomation.mango.spring.service.QueryMetricsService.shapeCount";
+
+    private final PermissionService permissionService;
+    private final @Nullable QueryMetrics queryMetrics;
+
+    public QueryMetricsService(DatabaseProxy databaseProxy, PermissionService permissionService, MonitoredValues monitoredValues) {
+        this.permissionService = permissionService;
+        this.queryMetrics = databaseProxy.getQueryMetrics();
+
+        if (queryMetrics != null) {
+            monitoredValues.<Long>create(QUERY_COUNT_MONITOR_ID)
+                    .name(new TranslatableMessage("internal.monitor.QUERY_COUNT"))
+                    .supplier(queryMetrics::getQueryCount)
+                    .buildReadThrough();
+            monitoredValues.<Long>create(ERROR_COUNT_MONITOR_ID)
+                    .name(new TranslatableMessage("internal.monitor.QUERY_ERROR_COUNT"))
+                    .supplier(queryMetrics::getErrorCount)
+                    .buildReadThrough();
+            monitoredValues.<Long>create(SLOW_QUERY_COUNT_MONITOR_ID)
+                    .name(new TranslatableMessage("internal.monitor.SLOW_QUERY_COUNT"))
+                    .supplier(queryMetrics::getSlowQueryCount)
+                    .buildReadThrough();
+            monitoredValues.<Integer>create(SHAPE_COUNT_MONITOR_ID)
+                    .name(new TranslatableMessage("internal.monitor.QUERY_SHAPE_COUNT"))
+                    .supplier(queryMetrics::getShapeCount)
+                    .buildReadThrough();
+        }
+    }
+
+    public boolean isEnabled() {
+        return queryMetrics != null;
+    }
+
+    /**
+     * @return statistics for each query shape, ordered by total execution time descending
+     */
+    public List<QueryShapeStatistics> getQueryShapes() {
+        permissionService.ensureAdminRole(Common.getUser());
+        return queryMetrics == null ? Collections.emptyList() : queryMetrics.getShapes();
+    }
+
+    /**
+     * @param shape normalized statement, see {@link com.infiniteautomation.mango.db.metrics.QueryShapes#shapeOf(String)}
+     */
+    public Optional<QueryShapeStatistics> getQueryShape(String shape) {
+        permissionService.ensureAdminRole(Common.getUser());
+        return queryMetrics == null ? Optional.empty() : Optional.ofNullable(queryMetrics.getShape(shape));
+    }
+
+    /**
+     * @return the most recent statements which exceeded the slow query threshold, newest first
+     */
+    public List<SlowQuery> getSlowQueries() {
+        permissionService.ensureAdminRole(Common.getUser());
+        return queryMetrics == null ? Collections.emptyList() : queryMetrics.getSlowQueries();
+    }
+
+    public void reset() {
+        permissionService.ensureAdminRole(Common.getUser());
+        if (queryMetrics != null) {
+            queryMetrics.reset();
+        }
+    }
+}
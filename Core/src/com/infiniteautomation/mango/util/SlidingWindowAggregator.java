@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.infiniteautomation.mango.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToDoubleFunction;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A window of time stamped samples, samples are added in time order and evicted from the oldest end. Samples are
+ * held in a ring buffer so indexed access is O(1) and lookups by time are O(log n).
+ *
+ * <p>When created with a value function the window keeps a running sum of the sample values and tracks the minimum
+ * and maximum using monotonic deques, so the sum, mean, minimum and maximum are available in O(1) and adding or
+ * evicting a sample is amortized O(1).</p>
+ *
+ * <p>Not thread safe.</p>
+ *
+ * @param <T> sample type
+ */
+public class SlidingWindowAggregator<T> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final @Nullable ToDoubleFunction<? super T> valueFunction;
+
+    private Object[] items;
+    private long[] times;
+    private double[] values;
+    private int head;
+    private int size;
+
+    /**
+     * Sequence number of the oldest sample, samples are numbered in the order they were added
+     */
+    private long firstSequence;
+    private double sum;
+    private final SequenceDeque minimums;
+    private final SequenceDeque maximums;
+
+    /**
+     * Create a window which does not aggregate the sample values
+     */
+    public SlidingWindowAggregator() {
+        this(null);
+    }
+
+    /**
+     * @param valueFunction extracts the value to aggregate from a sample, or null to only hold the samples
+     */
+    public SlidingWindowAggregator(@Nullable ToDoubleFunction<? super T> valueFunction) {
+        this.valueFunction = valueFunction;
+        this.items = new Object[DEFAULT_CAPACITY];
+        this.times = new long[DEFAULT_CAPACITY];
+        if (valueFunction != null) {
+            this.values = new double[DEFAULT_CAPACITY];
+            this.minimums = new SequenceDeque();
+            this.maximums = new SequenceDeque();
+        } else {
+            this.minimums = null;
+            this.maximums = null;
+        }
+    }
+
+    /**
+     * Add a sample to the newest end of the window
+     *
+     * @throws IllegalArgumentException if the time is before the newest sample
+     */
+    public void add(long time, T item) {
+        if (size > 0 && time < getTime(size - 1)) {
+            throw new IllegalArgumentException("Samples must be added in time order");
+        }
+        if (size == items.length) {
+            grow();
+        }
+
+        int slot = slot(size);
+        items[slot] = item;
+        times[slot] = time;
+        size++;
+
+        if (valueFunction != null) {
+            double value = valueFunction.applyAsDouble(item);
+            values[slot] = value;
+            sum += value;
+
+            long sequence = firstSequence + size - 1;
+            while (!minimums.isEmpty() && valueOf(minimums.peekLast()) >= value) {
+                minimums.removeLast();
+            }
+            minimums.addLast(sequence);
+            while (!maximums.isEmpty() && valueOf(maximums.peekLast()) <= value) {
+                maximums.removeLast();
+            }
+            maximums.addLast(sequence);
+        }
+    }
+
+    /**
+     * Remove the oldest sample
+     *
+     * @return the removed sample
+     * @throws NoSuchElementException if the window is empty
+     */
+    public T removeFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+
+        T item = get(0);
+        items[head] = null;
+        if (valueFunction != null) {
+            sum -= values[head];
+            if (minimums.peekFirst() == firstSequence) {
+                minimums.removeFirst();
+            }
+            if (maximums.peekFirst() == firstSequence) {
+                maximums.removeFirst();
+            }
+        }
+
+        head = (head + 1) % items.length;
+        size--;
+        firstSequence++;
+        if (size == 0) {
+            // avoid accumulating rounding errors
+            sum = 0;
+        }
+        return item;
+    }
+
+    /**
+     * Remove samples until the window holds no more than the given number of samples
+     *
+     * @return number of samples removed
+     */
+    public int trimToSize(int maxSize) {
+        int removed = 0;
+        while (size > maxSize) {
+            removeFirst();
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Remove the samples older than the cutoff time
+     *
+     * @return number of samples removed
+     */
+    public int evictBefore(long cutoff) {
+        int removed = 0;
+        while (size > 0 && getTime(0) < cutoff) {
+            removeFirst();
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Remove the samples older than the cutoff time except for the newest of those samples, so that the value at
+     * the cutoff time can still be found via {@link #floor(long)}.
+     *
+     * @return number of samples removed
+     */
+    public int evictBeforeKeepingPrevious(long cutoff) {
+        int removed = 0;
+        while (size > 1 && getTime(1) <= cutoff) {
+            removeFirst();
+            removed++;
+        }
+        return removed;
+    }
+
+    public void clear() {
+        while (size > 0) {
+            removeFirst();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param index 0 is the oldest sample
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        checkIndex(index);
+        return (T) items[slot(index)];
+    }
+
+    /**
+     * @param index 0 is the oldest sample
+     */
+    public long getTime(int index) {
+        checkIndex(index);
+        return times[slot(index)];
+    }
+
+    /**
+     * @param index 0 is the oldest sample
+     * @return the aggregated value of the sample
+     */
+    public double getValue(int index) {
+        checkAggregating();
+        checkIndex(index);
+        return values[slot(index)];
+    }
+
+    public @Nullable T first() {
+        return size == 0 ? null : get(0);
+    }
+
+    public @Nullable T last() {
+        return size == 0 ? null : get(size - 1);
+    }
+
+    /**
+     * @return index of the newest sample at or before the time, or -1 if there is none
+     */
+    public int floorIndex(long time) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (getTime(mid) <= time) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * @return the newest sample at or before the time, or null if there is none
+     */
+    public @Nullable T floor(long time) {
+        int index = floorIndex(time);
+        return index < 0 ? null : get(index);
+    }
+
+    /**
+     * @return sum of the sample values, 0 if empty
+     */
+    public double getSum() {
+        checkAggregating();
+        return sum;
+    }
+
+    /**
+     * @return mean of the sample values, NaN if empty
+     */
+    public double getMean() {
+        checkAggregating();
+        return size == 0 ? Double.NaN : sum / size;
+    }
+
+    /**
+     * @return minimum of the sample values, NaN if empty
+     */
+    public double getMinimum() {
+        checkAggregating();
+        return size == 0 ? Double.NaN : valueOf(minimums.peekFirst());
+    }
+
+    /**
+     * @return maximum of the sample values, NaN if empty
+     */
+    public double getMaximum() {
+        checkAggregating();
+        return size == 0 ? Double.NaN : valueOf(maximums.peekFirst());
+    }
+
+    /**
+     * @return the samples, oldest first
+     */
+    public List<T> toList() {
+        List<T> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(get(i));
+        }
+        return list;
+    }
+
+    private double valueOf(long sequence) {
+        return values[slot((int) (sequence - firstSequence))];
+    }
+
+    private int slot(int index) {
+        return (head + index) % items.length;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void checkAggregating() {
+        if (valueFunction == null) {
+            throw new IllegalStateException("Window was not created with a value function");
+        }
+    }
+
+    private void grow() {
+        int capacity = items.length * 2;
+        Object[] newItems = new Object[capacity];
+        long[] newTimes = new long[capacity];
+        double[] newValues = values != null ? new double[capacity] : null;
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            newItems[i] = items[slot];
+            newTimes[i] = times[slot];
+            if (newValues != null) {
+                newValues[i] = values[slot];
+            }
+        }
+        items = newItems;
+        times = newTimes;
+        values = newValues;
+        head = 0;
+    }
+
+    /**
+     * Double ended queue of sample sequence numbers
+     */
+    private static final class SequenceDeque {
+        private long[] elements = new long[DEFAULT_CAPACITY];
+        private int head;
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peekFirst() {
+            return elements[head];
+        }
+
+        long peekLast() {
+            return elements[(head + size - 1) % elements.length];
+        }
+
+        void addLast(long sequence) {
+            if (size == elements.length) {
+                long[] grown = new long[elements.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = elements[(head + i) % elements.length];
+                }
+                elements = grown;
+                head = 0;
+            }
+            elements[(head + size) % elements.length] = sequence;
+            size++;
+        }
+
+        void removeFirst() {
+            head = (head + 1) % elements.length;
+            size--;
+        }
+
+        void removeLast() {
+            size--;
+        }
+    }
+}
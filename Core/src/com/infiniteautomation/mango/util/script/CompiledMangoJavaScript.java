@@ -55,6 +55,7 @@ import com.serotonin.m2m2.vo.permission.PermissionHolder;
 public class CompiledMangoJavaScript {
 
     private CompiledScript compiledScript;
+    private ScriptEngine engine;
 
     private final ScriptPointValueSetter setter;
     private final ScriptLog log;
@@ -149,7 +150,9 @@ public class CompiledMangoJavaScript {
         MutableObject<ScriptError> error = new MutableObject<>();
         try{
             this.compiledScript = service.compile(script, wrapInFunction);
+            this.engine = service.createIsolatedEngine(compiledScript);
             this.wrapInFunction = wrapInFunction;
+            this.initialized = false;
         }catch(ScriptError e) {
             error.setValue(e);
         }
@@ -270,9 +273,12 @@ public class CompiledMangoJavaScript {
         Assert.notNull(compiledScript, "Script must be compiled first");
         return compiledScript;
     }
+    /**
+     * @return the engine this script runs in, compiled code is shared but the bindings are unique to this script
+     */
     public ScriptEngine getEngine() {
         Assert.notNull(compiledScript, "Script must be compiled first");
-        return compiledScript.getEngine();
+        return engine;
     }
     public MangoJavaScriptResult getResult() {
         return result;
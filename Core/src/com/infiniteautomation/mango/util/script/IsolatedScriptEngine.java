@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.util.script;
+
+import java.io.Reader;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+
+/**
+ * A view of a shared (pooled) script engine with its own {@link ScriptContext}. The engine scope bindings are
+ * created by the shared engine so for Nashorn each isolated engine gets its own global object, while compiled code
+ * is shared between all views of the same engine.
+ *
+ * Scripts compiled by the shared engine must be evaluated using {@link CompiledScript#eval(ScriptContext)} with
+ * {@link #getContext()}, {@link CompiledScript#eval()} would run in the shared engine's default context.
+ */
+public class IsolatedScriptEngine extends AbstractScriptEngine implements Compilable, Invocable {
+
+    private final ScriptEngine delegate;
+
+    public IsolatedScriptEngine(ScriptEngine delegate, Bindings globalBindings) {
+        super(delegate.createBindings());
+        this.delegate = delegate;
+        if (globalBindings != null) {
+            setBindings(globalBindings, ScriptContext.GLOBAL_SCOPE);
+        }
+    }
+
+    /**
+     * @return the shared engine backing this view
+     */
+    public ScriptEngine getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        return delegate.eval(script, context);
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return delegate.eval(reader, context);
+    }
+
+    @Override
+    public Bindings createBindings() {
+        return delegate.createBindings();
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return delegate.getFactory();
+    }
+
+    /**
+     * Compilation on the shared engine is serialized as the engine is not thread safe, the compiled code is run
+     * concurrently by the views of the engine.
+     */
+    @Override
+    public CompiledScript compile(String script) throws ScriptException {
+        synchronized (delegate) {
+            return ((Compilable) delegate).compile(script);
+        }
+    }
+
+    @Override
+    public CompiledScript compile(Reader script) throws ScriptException {
+        synchronized (delegate) {
+            return ((Compilable) delegate).compile(script);
+        }
+    }
+
+    @Override
+    public Object invokeMethod(Object thiz, String name, Object... args) throws ScriptException, NoSuchMethodException {
+        return ((Invocable) delegate).invokeMethod(thiz, name, args);
+    }
+
+    @Override
+    public Object invokeFunction(String name, Object... args) throws ScriptException, NoSuchMethodException {
+        // functions are properties of this context's global object
+        return ((Invocable) delegate).invokeMethod(getBindings(ScriptContext.ENGINE_SCOPE), name, args);
+    }
+
+    @Override
+    public <T> T getInterface(Class<T> clasz) {
+        return ((Invocable) delegate).getInterface(getBindings(ScriptContext.ENGINE_SCOPE), clasz);
+    }
+
+    @Override
+    public <T> T getInterface(Object thiz, Class<T> clasz) {
+        return ((Invocable) delegate).getInterface(thiz, clasz);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.infiniteautomation.mango.util.script;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.serotonin.m2m2.Common;
+
+/**
+ * Pool of initialized script contexts (e.g. compiled scripts with their own engine bindings) so that a script which
+ * runs repeatedly is not compiled and initialized for every execution. A context is used by one execution at a time,
+ * concurrent executions use separate contexts. Contexts in excess of the maximum idle count are discarded on release.
+ *
+ * @param <T> context type
+ */
+public class ScriptContextPool<T> {
+
+    private final BlockingQueue<T> idle;
+
+    /**
+     * Pool with a maximum idle count of script.contextPool.maxIdle (defaults to the number of processors)
+     */
+    public ScriptContextPool() {
+        this(Common.envProps.getInt("script.contextPool.maxIdle", Runtime.getRuntime().availableProcessors()));
+    }
+
+    public ScriptContextPool(int maxIdle) {
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdle));
+    }
+
+    /**
+     * @return an idle context or null if the caller must create one
+     */
+    public @Nullable T poll() {
+        return idle.poll();
+    }
+
+    /**
+     * Return a context to the pool once the execution using it has finished
+     */
+    public void release(T context) {
+        idle.offer(context);
+    }
+
+    /**
+     * Discard all idle contexts
+     */
+    public void clear() {
+        idle.clear();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+}
@@ -4,12 +4,21 @@
 
 package com.infiniteautomation.mango.webapp.session;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jetty.server.session.AbstractSessionDataStore;
 import org.eclipse.jetty.server.session.SessionContext;
 import org.eclipse.jetty.server.session.SessionData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.ApplicationEventPublisher;
@@ -23,6 +32,7 @@ import org.springframework.security.web.context.HttpSessionSecurityContextReposi
 import org.springframework.stereotype.Component;
 
 import com.infiniteautomation.mango.spring.components.RunAs;
+import com.infiniteautomation.mango.spring.components.executors.MangoExecutors;
 import com.infiniteautomation.mango.spring.events.SessionLoadedEvent;
 import com.infiniteautomation.mango.spring.service.UsersService;
 import com.serotonin.m2m2.Common;
@@ -33,6 +43,10 @@ import com.serotonin.m2m2.web.mvc.spring.security.authentication.MangoPasswordAu
 import com.serotonin.util.properties.MangoConfigurationWatcher.MangoConfigurationReloadedEvent;
 
 /**
+ * Persists sessions to the database. Session saves are written behind, the latest save for each session is kept in
+ * memory and all pending saves are written in a single JDBC batch every sessionCookie.persistPeriodSeconds.
+ * Pending saves are flushed before checking for expired sessions, when the store is stopped and when there are more
+ * than sessionCookie.maxPendingSaves.
  *
  * @author Terry Packer
  */
@@ -40,24 +54,65 @@ import com.serotonin.util.properties.MangoConfigurationWatcher.MangoConfiguratio
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class MangoJdbcSessionDataStore extends AbstractSessionDataStore implements MangoSessionDataStore {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MangoJdbcSessionDataStore.class);
+
     private final UsersService userService;
     private final MangoSessionDataDao sessionDao;
     private final ApplicationEventPublisher eventPublisher;
     private final RunAs runAs;
     private final Environment env;
+    private final MangoExecutors executors;
+
+    /**
+     * Latest unsaved session data for each session id
+     */
+    private final Map<String, PendingSave> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private volatile ScheduledFuture<?> flushTask;
+    private volatile int maxPendingSaves;
+
+    private static final class PendingSave {
+        private final MangoSessionDataVO vo;
+        private final boolean insert;
+
+        private PendingSave(MangoSessionDataVO vo, boolean insert) {
+            this.vo = vo;
+            this.insert = insert;
+        }
+    }
 
     @Autowired
     public MangoJdbcSessionDataStore(UsersService userService, MangoSessionDataDao sessionDao,
-                                     ApplicationEventPublisher publisher, RunAs runAs, Environment env) {
+                                     ApplicationEventPublisher publisher, RunAs runAs, Environment env,
+                                     MangoExecutors executors) {
         this.userService = userService;
         this.sessionDao = sessionDao;
         this.eventPublisher = publisher;
         this.runAs = runAs;
         this.env = env;
+        this.executors = executors;
 
         updatePersistPeriod();
     }
 
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+        scheduleFlush();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        synchronized (flushLock) {
+            if (flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+        }
+        flush();
+        super.doStop();
+    }
+
     @Override
     public boolean isPassivating() {
         return true;
@@ -65,12 +120,21 @@ public class MangoJdbcSessionDataStore extends AbstractSessionDataStore implemen
 
     @Override
     public boolean exists(String id) throws Exception {
+        PendingSave save = pending.get(id);
+        if (save != null) {
+            long expiry = save.vo.getExpiryTime();
+            return expiry <= 0 || expiry > Common.timer.currentTimeMillis();
+        }
         return sessionDao.sessionExists(id, _context.getCanonicalContextPath(),  _context.getVhost());
     }
 
     @Override
     public boolean delete(String id) throws Exception {
-        return sessionDao.delete(id, _context.getCanonicalContextPath(),  _context.getVhost());
+        // hold the flush lock so that a flush in progress can't write the session back after it is deleted
+        synchronized (flushLock) {
+            PendingSave save = pending.remove(id);
+            return sessionDao.delete(id, _context.getCanonicalContextPath(),  _context.getVhost()) || save != null;
+        }
     }
 
     @Override
@@ -79,16 +143,115 @@ public class MangoJdbcSessionDataStore extends AbstractSessionDataStore implemen
             return;
         }
 
-        if (lastSaveTime <= 0) {
-            MangoSessionDataVO vo = new MangoSessionDataVO(data);
-            vo.setSessionId(id);
-            maybeSetUserId(vo, data);
-            sessionDao.insert(vo);
-        }else{
-            MangoSessionDataVO vo = new MangoSessionDataVO(data);
-            vo.setSessionId(id);
-            maybeSetUserId(vo, data);
-            sessionDao.update(id, _context.getCanonicalContextPath(), _context.getVhost(), vo);
+        MangoSessionDataVO vo = new MangoSessionDataVO(data);
+        vo.setSessionId(id);
+        vo.setContextPath(_context.getCanonicalContextPath());
+        vo.setVirtualHost(_context.getVhost());
+        maybeSetUserId(vo, data);
+
+        if (flushTask == null) {
+            // write through
+            if (lastSaveTime <= 0) {
+                sessionDao.insert(vo);
+            } else {
+                sessionDao.update(id, _context.getCanonicalContextPath(), _context.getVhost(), vo);
+            }
+        } else {
+            // coalesce with any unsaved data for the session, it must still be inserted if it was never saved
+            pending.merge(id, new PendingSave(vo, lastSaveTime <= 0),
+                    (existing, save) -> existing.insert ? new PendingSave(save.vo, true) : save);
+            if (pending.size() >= maxPendingSaves) {
+                flush();
+            }
+        }
+    }
+
+    private void scheduleFlush() {
+        int period = env.getProperty("sessionCookie.persistPeriodSeconds", Integer.class, 30);
+        synchronized (flushLock) {
+            if (flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+            if (period > 0 && isStarted()) {
+                flushTask = executors.getScheduledExecutor().scheduleWithFixedDelay(this::flushQuietly, period, period, TimeUnit.SECONDS);
+            }
+        }
+        if (flushTask == null) {
+            flush();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            LOG.error("Failed to save sessions", e);
+        }
+    }
+
+    /**
+     * Write all pending session saves to the database in a single batch. If the batch fails the sessions are
+     * saved individually.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            List<Entry<String, PendingSave>> saves = new ArrayList<>(pending.entrySet());
+            List<MangoSessionDataVO> inserts = new ArrayList<>();
+            List<MangoSessionDataVO> updates = new ArrayList<>();
+            for (Entry<String, PendingSave> entry : saves) {
+                if (entry.getValue().insert) {
+                    inserts.add(entry.getValue().vo);
+                } else {
+                    updates.add(entry.getValue().vo);
+                }
+            }
+
+            Set<String> failed = new HashSet<>();
+            try {
+                sessionDao.saveBatch(inserts, updates);
+            } catch (Exception e) {
+                LOG.warn("Failed to save {} sessions in batch, saving individually", saves.size(), e);
+                for (Entry<String, PendingSave> entry : saves) {
+                    if (!saveIndividually(entry.getValue())) {
+                        failed.add(entry.getKey());
+                    }
+                }
+            }
+
+            for (Entry<String, PendingSave> entry : saves) {
+                PendingSave save = entry.getValue();
+                boolean saved = !failed.contains(entry.getKey());
+                pending.computeIfPresent(entry.getKey(), (id, current) -> {
+                    if (current == save) {
+                        return null;
+                    }
+                    // replaced while we were writing, once the row is inserted the replacement must be an update
+                    return saved && current.insert ? new PendingSave(current.vo, false) : current;
+                });
+            }
+        }
+    }
+
+    /**
+     * @return false if the session could not be saved
+     */
+    private boolean saveIndividually(PendingSave save) {
+        MangoSessionDataVO vo = save.vo;
+        try {
+            if (save.insert && !sessionDao.sessionExists(vo.getSessionId(), vo.getContextPath(), vo.getVirtualHost())) {
+                sessionDao.insert(vo);
+            } else {
+                sessionDao.update(vo.getSessionId(), vo.getContextPath(), vo.getVirtualHost(), vo);
+            }
+            return true;
+        } catch (Exception e) {
+            LOG.error("Failed to save session {}", vo.getSessionId(), e);
+            return false;
         }
     }
 
@@ -113,7 +276,8 @@ public class MangoJdbcSessionDataStore extends AbstractSessionDataStore implemen
 
     @Override
     public SessionData doLoad(String id) throws Exception {
-        MangoSessionDataVO vo = sessionDao.get(id, _context.getCanonicalContextPath(), _context.getVhost());
+        PendingSave save = pending.get(id);
+        MangoSessionDataVO vo = save != null ? save.vo : sessionDao.get(id, _context.getCanonicalContextPath(), _context.getVhost());
         if(vo == null) {
             return null;
         }
@@ -144,6 +308,9 @@ public class MangoJdbcSessionDataStore extends AbstractSessionDataStore implemen
 
     @Override
     public Set<String> doGetExpired(Set<String> candidates) {
+        //Ensure the expiry times in the database are current
+        flushQuietly();
+
         long now = Common.timer.currentTimeMillis();
         Set<String> expiredSessionKeys = new HashSet<>();
 
@@ -196,22 +363,31 @@ public class MangoJdbcSessionDataStore extends AbstractSessionDataStore implemen
 
     @Override
     public boolean deleteSessionsForUser(int id) {
-        return sessionDao.deleteSessionsForUser(id);
+        synchronized (flushLock) {
+            boolean removed = pending.values().removeIf(save -> save.vo.getUserId() == id);
+            return sessionDao.deleteSessionsForUser(id) || removed;
+        }
     }
 
     @Override
     public MangoSessionDataVO get(String sessionId, String contextPath, String virtualHost) {
+        PendingSave save = pending.get(sessionId);
+        if (save != null && save.vo.getContextPath().equals(contextPath) && save.vo.getVirtualHost().equals(virtualHost)) {
+            return save.vo;
+        }
         return sessionDao.get(sessionId, contextPath, virtualHost);
     }
 
     @Override
     public void update(String sessionId, String contextPath, String virtualHost,
             MangoSessionDataVO vo) {
+        flush();
         sessionDao.update(sessionId, contextPath, virtualHost, vo);
     }
 
     @Override
     public boolean delete(String sessionId, String contextPath, String virtualHost) {
+        flush();
         return sessionDao.delete(sessionId, contextPath, virtualHost);
     }
 
@@ -223,10 +399,12 @@ public class MangoJdbcSessionDataStore extends AbstractSessionDataStore implemen
     @EventListener
     public void propertiesReloaded(MangoConfigurationReloadedEvent event) {
         updatePersistPeriod();
+        scheduleFlush();
     }
 
     private void updatePersistPeriod() {
         this.setSavePeriodSec(env.getProperty("sessionCookie.persistPeriodSeconds", Integer.class, 30));
+        this.maxPendingSaves = Math.max(1, env.getProperty("sessionCookie.maxPendingSaves", Integer.class, 10000));
     }
 
 }
@@ -13,11 +13,10 @@ import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 
 /**
- * TODO Mango 4.2 Set configurable limit on the cache, it is currently unbounded.
- * We may not even need this L2 cache or the CachingSessionDataStore, there is already a L1 cache which stores
+ * TODO Mango 4.2 We may not even need this L2 cache or the CachingSessionDataStore, there is already a L1 cache which stores
  * the sessions in a map.
  *
- * L2 cache for JDBC session store
+ * L2 cache for JDBC session store, bounded by sessionCookie.cacheSize. Evicted sessions are loaded from the store.
  *
  * @author Terry Packer
  */
@@ -25,8 +24,10 @@ public class MangoSessionDataMap extends AbstractLifeCycle implements SessionDat
 
     private final Cache<String, SessionData> cache;
 
-    public MangoSessionDataMap() {
-        this.cache = Caffeine.newBuilder().build();
+    public MangoSessionDataMap(long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
     }
 
     @Override
@@ -85,6 +85,50 @@ public class JsonTypeReader {
         }
     }
 
+    /**
+     * Receives the members of an object as they are read, see {@link #readObject(ObjectStreamHandler)}
+     */
+    public interface ObjectStreamHandler {
+        /**
+         * @param name name of an array member
+         * @return true if the elements of the array should be passed to {@link #element(String, JsonValue)} as they
+         * are read instead of being added to the returned object
+         */
+        boolean streamArray(String name);
+
+        void element(String name, JsonValue element) throws JsonException;
+    }
+
+    /**
+     * Read the next JsonValue from the input source which must be an object. The elements of array members may be
+     * passed to the handler one at a time as they are read, so that the whole array does not need to be held in memory.
+     *
+     * @return the object containing all the members which were not streamed to the handler
+     */
+    public JsonObject readObject(ObjectStreamHandler handler) throws JsonException, IOException {
+        JsonObject object = new JsonObject();
+
+        validateNextChar('{');
+        while (!testNextChar('}', true)) {
+            String name = readString(nextElement());
+            validateNextChar(':');
+            if (testNextChar('[', true) && handler.streamArray(name)) {
+                validateNextChar('[');
+                while (!testNextChar(']', true)) {
+                    handler.element(name, read());
+                    discardOptionalComma();
+                }
+                nextChar(true);
+            } else {
+                object.put(name, read());
+            }
+            discardOptionalComma();
+        }
+        nextChar(true);
+
+        return object;
+    }
+
     private String nextChars(int length) throws JsonException, IOException {
         StringBuilder sb = new StringBuilder();
         while (length-- > 0)
@@ -237,7 +237,7 @@ public class Common {
      *
      */
     public static int getDatabaseSchemaVersion() {
-        return 47;
+        return 48;
     }
 
     public static File getLogsDir() {
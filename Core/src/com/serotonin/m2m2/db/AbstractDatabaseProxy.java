@@ -33,6 +33,7 @@ import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import com.infiniteautomation.mango.db.metrics.QueryMetrics;
 import com.infiniteautomation.mango.db.tables.Users;
 import com.infiniteautomation.mango.spring.DatabaseProxyConfiguration;
 import com.infiniteautomation.mango.spring.DatabaseProxyConfiguration.DatabaseProxyListener;
@@ -54,6 +55,7 @@ abstract public class AbstractDatabaseProxy implements DatabaseProxy {
     protected final ClassLoader classLoader;
     protected final List<DatabaseProxyListener> listeners;
     protected final String propertyPrefix;
+    private final QueryMetrics queryMetrics;
 
     private PlatformTransactionManager transactionManager;
     private DSLContext context;
@@ -65,6 +67,10 @@ abstract public class AbstractDatabaseProxy implements DatabaseProxy {
         this.classLoader = configuration.getClassLoader();
         this.listeners = configuration.getListeners();
         this.propertyPrefix = propertyPrefix;
+        this.queryMetrics = env.getProperty("db.queryMetrics.enabled", boolean.class, true) ?
+                new QueryMetrics(env.getProperty("db.queryMetrics.maxShapes", int.class, 500),
+                        env.getProperty("db.queryMetrics.slowQueryThreshold", long.class, 500L),
+                        env.getProperty("db.queryMetrics.slowQueryBufferSize", int.class, 100)) : null;
     }
 
     @PostConstruct
@@ -310,6 +316,11 @@ abstract public class AbstractDatabaseProxy implements DatabaseProxy {
         return env.getProperty("db.metricsThreshold", long.class, 0L);
     }
 
+    @Override
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
     @Override
     public DSLContext getContext() {
         return context;
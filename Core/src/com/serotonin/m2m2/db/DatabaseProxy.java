@@ -11,17 +11,22 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.sql.DataSource;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.jooq.Configuration;
 import org.jooq.DSLContext;
+import org.jooq.ExecuteListenerProvider;
 import org.jooq.SQLDialect;
 import org.jooq.conf.RenderNameCase;
 import org.jooq.conf.RenderQuotedNames;
 import org.jooq.impl.DefaultConfiguration;
 import org.jooq.tools.StopWatchListener;
 
+import com.infiniteautomation.mango.db.metrics.QueryMetrics;
 import com.infiniteautomation.mango.db.tables.Permissions;
 import com.infiniteautomation.mango.db.tables.RoleInheritance;
 import com.infiniteautomation.mango.db.tables.Roles;
@@ -159,14 +164,29 @@ public interface DatabaseProxy extends TransactionCapable {
         return 0L;
     }
 
+    /**
+     * @return statistics for the statements executed via {@link #getContext()}, null if query metrics are disabled
+     */
+    default @Nullable QueryMetrics getQueryMetrics() {
+        return null;
+    }
+
     default Configuration getConfig() {
         Configuration configuration = new DefaultConfiguration();
         configuration.set(new SpringConnectionProvider(getDataSource()));
 
         boolean useMetrics = isUseMetrics();
         configuration.settings().setExecuteLogging(useMetrics);
+        List<ExecuteListenerProvider> executeListeners = new ArrayList<>();
         if (useMetrics) {
-            configuration.set(StopWatchListener::new);
+            executeListeners.add(StopWatchListener::new);
+        }
+        QueryMetrics queryMetrics = getQueryMetrics();
+        if (queryMetrics != null) {
+            executeListeners.add(queryMetrics);
+        }
+        if (!executeListeners.isEmpty()) {
+            configuration.set(executeListeners.toArray(new ExecuteListenerProvider[0]));
         }
 
         DatabaseType type = getType();
@@ -9,9 +9,12 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import org.jooq.Field;
 import org.jooq.Record;
 import org.jooq.Table;
+import org.springframework.context.event.EventListener;
 import org.springframework.util.Assert;
 
+import com.infiniteautomation.mango.cache.VoCache;
 import com.infiniteautomation.mango.spring.DaoDependencies;
+import com.infiniteautomation.mango.spring.events.DaoEvent;
 import com.infiniteautomation.mango.spring.events.audit.AuditEvent;
 import com.infiniteautomation.mango.spring.events.audit.ChangeAuditEvent;
 import com.infiniteautomation.mango.spring.events.audit.CreateAuditEvent;
@@ -19,6 +22,7 @@ import com.infiniteautomation.mango.spring.events.audit.DeleteAuditEvent;
 import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.vo.AbstractVO;
+import com.serotonin.m2m2.vo.role.RoleVO;
 
 /**
  * Provides an API to retrieve, update and save
@@ -38,6 +42,10 @@ public abstract class AbstractVoDao<T extends AbstractVO, R extends Record, TABL
      * Audit event type name
      */
     protected final String auditEventType;
+    /**
+     * Cache of VOs by id and XID, null if caching is not enabled for this DAO
+     */
+    protected final @Nullable VoCache<T> voCache;
 
     /**
      * @param dependencies DAO dependencies
@@ -60,9 +68,58 @@ public abstract class AbstractVoDao<T extends AbstractVO, R extends Record, TABL
                             String auditEventType,
                             TABLE table,
                             @Nullable TranslatableMessage countMonitorName) {
+        this(dependencies, auditEventType, table, countMonitorName, 0);
+    }
+
+    /**
+     * @param dependencies DAO dependencies
+     * @param auditEventType event type for generated audit events
+     * @param table jOOQ table
+     * @param countMonitorName - If not null create a monitor to track table row count
+     * @param cacheSize - If greater than zero cache up to this many VOs for {@link #get(int)} and {@link #getByXid(String)}
+     */
+    protected AbstractVoDao(DaoDependencies dependencies,
+                            String auditEventType,
+                            TABLE table,
+                            @Nullable TranslatableMessage countMonitorName,
+                            long cacheSize) {
         super(dependencies, table, countMonitorName);
         this.xidPrefix = getXidPrefix();
         this.auditEventType = auditEventType;
+
+        if (cacheSize > 0) {
+            VoCache<T> cache = new VoCache<>(cacheSize, this::copyForCache);
+            Object cacheName = countMonitorName != null ? countMonitorName : table.getName();
+            String monitorId = this.getClass().getCanonicalName();
+            Common.MONITORED_VALUES.<Long>create(monitorId + ".CACHE_HITS")
+                    .name(new TranslatableMessage("internal.monitor.voCache.HITS", cacheName))
+                    .supplier(cache::getHitCount)
+                    .buildReadThrough();
+            Common.MONITORED_VALUES.<Long>create(monitorId + ".CACHE_MISSES")
+                    .name(new TranslatableMessage("internal.monitor.voCache.MISSES", cacheName))
+                    .supplier(cache::getMissCount)
+                    .buildReadThrough();
+            Common.MONITORED_VALUES.<Double>create(monitorId + ".CACHE_HIT_RATE")
+                    .name(new TranslatableMessage("internal.monitor.voCache.HIT_RATE", cacheName))
+                    .supplier(cache::getHitRate)
+                    .buildReadThrough();
+            Common.MONITORED_VALUES.<Long>create(monitorId + ".CACHE_SIZE")
+                    .name(new TranslatableMessage("internal.monitor.voCache.SIZE", cacheName))
+                    .supplier(cache::getSize)
+                    .buildReadThrough();
+            this.voCache = cache;
+        } else {
+            this.voCache = null;
+        }
+    }
+
+    /**
+     * Copy a VO when it is stored in or handed out by the VO cache. Override if the VO holds mutable nested objects
+     * which {@link AbstractVO#copy()} does not copy.
+     */
+    @SuppressWarnings("unchecked")
+    protected T copyForCache(T vo) {
+        return (T) vo.copy();
     }
 
     /**
@@ -105,6 +162,14 @@ public abstract class AbstractVoDao<T extends AbstractVO, R extends Record, TABL
         return null;
     }
 
+    @Override
+    public T get(int id) {
+        if (voCache == null) {
+            return super.get(id);
+        }
+        return voCache.get(id, super::get);
+    }
+
     @Override
     public T getByXid(String xid) {
         Field<String> xidField = getXidField();
@@ -113,6 +178,10 @@ public abstract class AbstractVoDao<T extends AbstractVO, R extends Record, TABL
         }
         Assert.notNull(xid, "Must supply xid");
 
+        if (voCache != null) {
+            return voCache.getByXid(xid, this::getIdByXid, super::get);
+        }
+
         return getJoinedSelectQuery()
                 .where(xidField.eq(xid))
                 .limit(1)
@@ -188,6 +257,50 @@ public abstract class AbstractVoDao<T extends AbstractVO, R extends Record, TABL
         .fetch();
     }
 
+    @Override
+    protected void publishEvent(DaoEvent<T> event) {
+        // invalidate before publishing so that listeners never read the previous version from the cache
+        invalidateCache(event.getVo());
+        if (event.getOriginalVo() != null) {
+            invalidateCache(event.getOriginalVo());
+        }
+        super.publishEvent(event);
+    }
+
+    /**
+     * Remove a VO from the cache, if caching is enabled
+     */
+    protected void invalidateCache(T vo) {
+        if (voCache != null) {
+            voCache.invalidate(vo.getId(), vo.getXid());
+        }
+    }
+
+    /**
+     * Remove all VOs from the cache, if caching is enabled
+     */
+    public void clearCache() {
+        if (voCache != null) {
+            voCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Cached VOs hold resolved permissions, evict them when roles change
+     */
+    @SuppressWarnings("SpringEventListenerInspection")
+    @EventListener
+    protected void handleRoleEvent(DaoEvent<? extends RoleVO> event) {
+        switch (event.getType()) {
+            case DELETE:
+            case UPDATE:
+                clearCache();
+                break;
+            default:
+                break;
+        }
+    }
+
     protected void publishAuditEvent(AuditEvent event) {
         if (this.eventPublisher != null) {
             this.eventPublisher.publishEvent(event);
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.util.List;
 
+import org.jooq.InsertSetMoreStep;
 import org.jooq.Record;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
@@ -14,6 +15,7 @@ import org.springframework.stereotype.Repository;
 import com.infiniteautomation.mango.db.tables.Audit;
 import com.infiniteautomation.mango.db.tables.records.AuditRecord;
 import com.infiniteautomation.mango.spring.DaoDependencies;
+import com.infiniteautomation.mango.spring.events.DaoEventType;
 import com.infiniteautomation.mango.util.LazyInitializer;
 import com.serotonin.json.JsonException;
 import com.serotonin.json.JsonWriter;
@@ -69,6 +71,38 @@ public class AuditEventDao extends AbstractBasicDao<AuditEventInstanceVO, AuditR
         return record;
     }
 
+    /**
+     * Insert audit events using multi-row insert statements, the ids are set on the VOs.
+     */
+    public void insert(List<AuditEventInstanceVO> vos) {
+        int chunkSize = Math.max(1, Math.min(databaseProxy.batchSize(), databaseProxy.maxInParameters() / table.fields().length));
+        for (int i = 0; i < vos.size(); i += chunkSize) {
+            List<AuditEventInstanceVO> chunk = vos.subList(i, Math.min(vos.size(), i + chunkSize));
+            doInTransaction(status -> {
+                InsertSetMoreStep<AuditRecord> insert = create.insertInto(table).set(toRecord(chunk.get(0)));
+                for (int j = 1; j < chunk.size(); j++) {
+                    insert = insert.newRecord().set(toRecord(chunk.get(j)));
+                }
+
+                List<Integer> ids = insert.returningResult(table.id).fetch(table.id);
+                if (ids.size() == chunk.size()) {
+                    for (int j = 0; j < chunk.size(); j++) {
+                        chunk.get(j).setId(ids.get(j));
+                    }
+                } else {
+                    LOG.warn("Database returned {} ids for {} inserted audit events", ids.size(), chunk.size());
+                }
+            });
+        }
+
+        for (AuditEventInstanceVO vo : vos) {
+            publishEvent(createDaoEvent(DaoEventType.CREATE, vo, null));
+        }
+        if (countMonitor != null) {
+            countMonitor.addValue(vos.size());
+        }
+    }
+
     @Override
     public AuditEventInstanceVO mapRecord(Record record) {
         AuditEventInstanceVO vo = new AuditEventInstanceVO();
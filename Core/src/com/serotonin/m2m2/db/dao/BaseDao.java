@@ -24,6 +24,7 @@ import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.db.DatabaseProxy;
 import com.serotonin.m2m2.db.DatabaseType;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
+import com.serotonin.m2m2.i18n.TranslatableMessageCodec;
 import com.serotonin.m2m2.i18n.TranslatableMessageParseException;
 
 public abstract class BaseDao implements TransactionCapable {
@@ -108,7 +109,7 @@ public abstract class BaseDao implements TransactionCapable {
             return null;
 
         try {
-            return TranslatableMessage.deserialize(columnValue);
+            return TranslatableMessageCodec.decodeFromString(columnValue);
         } catch (TranslatableMessageParseException e) {
             return new TranslatableMessage("common.default", columnValue);
         }
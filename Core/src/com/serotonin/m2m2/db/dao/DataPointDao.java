@@ -29,6 +29,7 @@ import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Repository;
 
 import com.infiniteautomation.mango.db.query.ConditionSortLimit;
@@ -60,6 +61,7 @@ import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.DataType;
 import com.serotonin.m2m2.IMangoLifecycle;
 import com.serotonin.m2m2.LicenseViolatedException;
+import com.serotonin.m2m2.db.dao.codec.VoBlobCodec;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.module.DataSourceDefinition;
 import com.serotonin.m2m2.module.ModuleRegistry;
@@ -67,15 +69,16 @@ import com.serotonin.m2m2.module.definitions.dataPoint.DataPointChangeDefinition
 import com.serotonin.m2m2.module.definitions.permissions.DataPointPermissionDefinition;
 import com.serotonin.m2m2.rt.event.type.AuditEventType;
 import com.serotonin.m2m2.rt.event.type.EventType.EventTypeNames;
+import com.serotonin.m2m2.view.text.TextRenderer;
 import com.serotonin.m2m2.vo.DataPointSummary;
 import com.serotonin.m2m2.vo.DataPointVO;
 import com.serotonin.m2m2.vo.dataPoint.DataPointWithEventDetectors;
 import com.serotonin.m2m2.vo.dataSource.DataSourceVO;
+import com.serotonin.m2m2.vo.dataSource.PointLocatorVO;
 import com.serotonin.m2m2.vo.event.detector.AbstractPointEventDetectorVO;
 import com.serotonin.m2m2.vo.permission.PermissionHolder;
 import com.serotonin.provider.Providers;
 import com.serotonin.util.ILifecycleState;
-import com.serotonin.util.SerializationHelper;
 
 /**
  *
@@ -100,19 +103,23 @@ public class DataPointDao extends AbstractVoDao<DataPointVO, DataPointsRecord, D
     private final EventHandlersMapping eventHandlersMapping;
     private final PointValues pointValues;
     private final DataPointPermissionDefinition dataPointPermissionDefinition;
+    private final VoBlobCodec blobCodec;
 
     @Autowired
     private DataPointDao(DaoDependencies dependencies,
             DataPointTagsDao dataPointTagsDao,
                          EventDetectorDao eventDetectorDao,
-                         @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") DataPointPermissionDefinition dataPointPermissionDefinition) {
+                         @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") DataPointPermissionDefinition dataPointPermissionDefinition,
+                         VoBlobCodec blobCodec) {
 
         super(dependencies, AuditEventType.TYPE_DATA_POINT, DataPoints.DATA_POINTS,
-                new TranslatableMessage("internal.monitor.DATA_POINT_COUNT"));
+                new TranslatableMessage("internal.monitor.DATA_POINT_COUNT"),
+                Common.envProps.getLong("cache.dataPoints.size", 10000));
 
         this.dataPointTagsDao = dataPointTagsDao;
         this.eventDetectorDao = eventDetectorDao;
         this.dataPointPermissionDefinition = dataPointPermissionDefinition;
+        this.blobCodec = blobCodec;
         this.changeDefinitions = ModuleRegistry.getDataPointChangeDefinitions();
 
         this.eventDetectors = EventDetectors.EVENT_DETECTORS;
@@ -467,7 +474,7 @@ public class DataPointDao extends AbstractVoDao<DataPointVO, DataPointsRecord, D
 
         record.set(table.xid, vo.getXid());
         record.set(table.name, vo.getName());
-        record.set(table.data, SerializationHelper.writeObjectToArray(vo));
+        record.set(table.data, blobCodec.encode(vo));
         record.set(table.dataSourceId, vo.getDataSourceId());
         record.set(table.deviceName, vo.getDeviceName());
         record.set(table.enabled, boolToChar(vo.isEnabled()));
@@ -494,13 +501,28 @@ public class DataPointDao extends AbstractVoDao<DataPointVO, DataPointsRecord, D
         return record;
     }
 
+    /**
+     * The point locator and text renderer are copied as they may be modified in place (e.g. by
+     * {@link DataPointVO#jsonRead}) and must not be shared with the cached VO. The tags are copied by
+     * {@link DataPointVO#copy()}.
+     */
+    @Override
+    protected DataPointVO copyForCache(DataPointVO vo) {
+        DataPointVO copy = vo.copy();
+        PointLocatorVO<?> locator = vo.getPointLocator();
+        copy.setPointLocator(locator == null ? null : locator.copy());
+        TextRenderer textRenderer = vo.getTextRenderer();
+        copy.setTextRenderer(textRenderer == null ? null : textRenderer.copy());
+        return copy;
+    }
+
     @Override
     public DataPointVO mapRecord(Record record) {
         int id = record.get(table.id);
         String xid = record.get(table.xid);
         String name = record.get(table.name);
 
-        DataPointVO dp = (DataPointVO) SerializationHelper.readObjectInContextFromArray(record.get(table.data));
+        DataPointVO dp = (DataPointVO) blobCodec.decode(record.get(table.data));
 
         dp.setId(id);
         dp.setXid(xid);
@@ -736,9 +758,22 @@ public class DataPointDao extends AbstractVoDao<DataPointVO, DataPointsRecord, D
     }
 
     protected void notifyTagsUpdated(DataPointVO dataPoint) {
+        invalidateCache(dataPoint);
         this.eventPublisher.publishEvent(new DataPointTagsUpdatedEvent(this, dataPoint));
     }
 
+    /**
+     * Cached data points hold the name and XID of their data source, evict them when the data source changes
+     */
+    @SuppressWarnings("SpringEventListenerInspection")
+    @EventListener
+    protected void handleDataSourceEvent(DaoEvent<? extends DataSourceVO> event) {
+        if (voCache != null && event.getType() == DaoEventType.UPDATE) {
+            int dataSourceId = event.getVo().getId();
+            voCache.invalidateIf(dp -> dp.getDataSourceId() == dataSourceId);
+        }
+    }
+
     public void notifyStateChanged(DataPointVO vo, ILifecycleState state) {
         eventPublisher.publishEvent(new StateChangeEvent<>(this, state, vo));
     }
@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.db.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.jooq.Condition;
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.InsertValuesStepN;
+import org.jooq.Record7;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
+import com.infiniteautomation.mango.db.tables.DataPointEventCounts;
+import com.infiniteautomation.mango.db.tables.Events;
+import com.infiniteautomation.mango.db.tables.records.DataPointEventCountsRecord;
+import com.serotonin.m2m2.db.DatabaseProxy;
+import com.serotonin.m2m2.rt.event.AlarmLevels;
+import com.serotonin.m2m2.rt.event.type.EventType.EventTypeNames;
+
+/**
+ * Maintains the dataPointEventCounts summary table. The table holds the number of events and the latest active and
+ * return to normal timestamps for each data point, event detector, alarm level, message and read permission. It is
+ * kept up to date by {@link EventDao} as data point events are raised and returned to normal so that the data point
+ * event counts query does not have to group the entire events table.
+ *
+ * <p>The message is a CLOB so rows are keyed on a SHA-256 hash of the message ({@link #messageHash(String)})
+ * instead, the key columns are covered by a unique constraint. Concurrent updates to the rows of a data point are
+ * serialized via {@link #lock(int)}.</p>
+ */
+@Repository
+public class DataPointEventCountDao extends BaseDao {
+
+    private final DataPointEventCounts table = DataPointEventCounts.DATA_POINT_EVENT_COUNTS;
+    private final Events events = Events.EVENTS;
+    private final Striped<Lock> locks = Striped.lock(64);
+
+    @Autowired
+    public DataPointEventCountDao(DatabaseProxy databaseProxy) {
+        super(databaseProxy);
+    }
+
+    /**
+     * @param dataPointId data point id
+     * @return lock which must be held (outside the transaction) while updating the counts of a data point
+     */
+    public Lock lock(int dataPointId) {
+        return locks.get(dataPointId);
+    }
+
+    /**
+     * Count a newly inserted event.
+     *
+     * @param message compact translatable message as stored in the events table
+     * @param rtnTs return to normal timestamp, null if the event is active or is not return to normal applicable
+     */
+    public void add(int dataPointId, int eventDetectorId, AlarmLevels alarmLevel, int readPermissionId,
+                    @Nullable String message, long activeTs, @Nullable Long rtnTs) {
+
+        int updated = create.update(table)
+                .set(table.eventCount, table.eventCount.plus(1))
+                .set(table.latestActiveTs, greatest(table.latestActiveTs, activeTs))
+                .set(table.latestRtnTs, rtnTs == null ? table.latestRtnTs : greatest(table.latestRtnTs, rtnTs))
+                .where(keyCondition(dataPointId, eventDetectorId, alarmLevel, readPermissionId, message))
+                .execute();
+
+        if (updated == 0) {
+            create.insertInto(table)
+                    .set(table.dataPointId, dataPointId)
+                    .set(table.eventDetectorId, eventDetectorId)
+                    .set(table.alarmLevel, alarmLevel.value())
+                    .set(table.readPermissionId, readPermissionId)
+                    .set(table.message, message)
+                    .set(table.messageHash, messageHash(message))
+                    .set(table.eventCount, 1)
+                    .set(table.latestActiveTs, activeTs)
+                    .set(table.latestRtnTs, rtnTs)
+                    .execute();
+        }
+    }
+
+    /**
+     * Record that an event returned to normal.
+     */
+    public void returnToNormal(int dataPointId, int eventDetectorId, AlarmLevels alarmLevel, int readPermissionId,
+                               @Nullable String message, long rtnTs) {
+        create.update(table)
+                .set(table.latestRtnTs, greatest(table.latestRtnTs, rtnTs))
+                .where(keyCondition(dataPointId, eventDetectorId, alarmLevel, readPermissionId, message))
+                .execute();
+    }
+
+    /**
+     * Record that a batch of events returned to normal, the rows are found by reading the keys of the events.
+     * Must be called in the same transaction as the update of the events.
+     */
+    public void returnToNormal(List<Integer> eventIds, long rtnTs) {
+        Set<CountKey> keys = new HashSet<>();
+        create.select(events.typeRef1, events.typeRef2, events.alarmLevel, events.readPermissionId, events.message)
+                .from(events)
+                .where(events.id.in(eventIds), events.typeName.eq(EventTypeNames.DATA_POINT))
+                .fetch()
+                .forEach(r -> keys.add(new CountKey(r.value1(), r.value2(), r.value3(), r.value4(), messageHash(r.value5()))));
+
+        for (CountKey key : keys) {
+            create.update(table)
+                    .set(table.latestRtnTs, greatest(table.latestRtnTs, rtnTs))
+                    .where(keyCondition(key))
+                    .execute();
+        }
+    }
+
+    /**
+     * Recount the events of a single data point, e.g. after events were modified outside of {@link EventDao}.
+     */
+    public void refresh(int dataPointId) {
+        Lock lock = lock(dataPointId);
+        lock.lock();
+        try {
+            doInTransaction(txStatus -> {
+                create.deleteFrom(table).where(table.dataPointId.eq(dataPointId)).execute();
+                insertCounts(create, events.typeRef1.eq(dataPointId));
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rebuild the table from the events table, should be called in a transaction.
+     *
+     * @return number of summary rows
+     */
+    public int rebuild() {
+        create.deleteFrom(table).execute();
+        return insertCounts(create, DSL.noCondition());
+    }
+
+    /**
+     * Remove all rows, e.g. when all events are purged
+     */
+    public void deleteAll() {
+        create.deleteFrom(table).execute();
+    }
+
+    /**
+     * Count the data point events matching the condition and insert the summary rows. The events are aggregated
+     * here one data point at a time rather than grouped by the database, which would have to compare the messages.
+     * Also used by {@link com.serotonin.m2m2.db.upgrade.Upgrade47} to populate the table.
+     *
+     * @return number of summary rows inserted
+     */
+    public static int insertCounts(DSLContext create, Condition condition) {
+        Events events = Events.EVENTS;
+        Map<CountKey, Count> counts = new LinkedHashMap<>();
+        int inserted = 0;
+        Integer currentPoint = null;
+
+        try (Cursor<Record7<Integer, Integer, Integer, Integer, String, Long, Long>> cursor = create.select(
+                events.typeRef1,
+                events.typeRef2,
+                events.alarmLevel,
+                events.readPermissionId,
+                events.message,
+                events.activeTs,
+                events.rtnTs)
+                .from(events)
+                .where(events.typeName.eq(EventTypeNames.DATA_POINT), condition)
+                .orderBy(events.typeRef1)
+                .fetchLazy()) {
+
+            for (Record7<Integer, Integer, Integer, Integer, String, Long, Long> r : cursor) {
+                if (!r.value1().equals(currentPoint)) {
+                    inserted += insert(create, counts);
+                    currentPoint = r.value1();
+                }
+                CountKey key = new CountKey(r.value1(), r.value2(), r.value3(), r.value4(), messageHash(r.value5()));
+                counts.computeIfAbsent(key, k -> new Count(r.value5())).add(r.value6(), r.value7());
+            }
+        }
+        return inserted + insert(create, counts);
+    }
+
+    private static int insert(DSLContext create, Map<CountKey, Count> counts) {
+        if (counts.isEmpty()) {
+            return 0;
+        }
+        DataPointEventCounts table = DataPointEventCounts.DATA_POINT_EVENT_COUNTS;
+        InsertValuesStepN<DataPointEventCountsRecord> insert = create.insertInto(table,
+                table.dataPointId,
+                table.eventDetectorId,
+                table.alarmLevel,
+                table.readPermissionId,
+                table.message,
+                table.messageHash,
+                table.eventCount,
+                table.latestActiveTs,
+                table.latestRtnTs);
+        for (Map.Entry<CountKey, Count> entry : counts.entrySet()) {
+            CountKey key = entry.getKey();
+            Count count = entry.getValue();
+            insert = insert.values(key.dataPointId, key.eventDetectorId, key.alarmLevel, key.readPermissionId,
+                    count.message, key.messageHash, count.eventCount, count.latestActiveTs, count.latestRtnTs);
+        }
+        int inserted = insert.execute();
+        counts.clear();
+        return inserted;
+    }
+
+    /**
+     * @param message compact translatable message as stored in the events table
+     * @return hex encoded SHA-256 hash of the message, an empty string for a null message
+     */
+    public static String messageHash(@Nullable String message) {
+        if (message == null) {
+            return "";
+        }
+        return Hashing.sha256().hashString(message, StandardCharsets.UTF_8).toString();
+    }
+
+    private Condition keyCondition(int dataPointId, int eventDetectorId, AlarmLevels alarmLevel, int readPermissionId, @Nullable String message) {
+        return keyCondition(new CountKey(dataPointId, eventDetectorId, alarmLevel.value(), readPermissionId, messageHash(message)));
+    }
+
+    private Condition keyCondition(CountKey key) {
+        return table.dataPointId.eq(key.dataPointId)
+                .and(table.eventDetectorId.eq(key.eventDetectorId))
+                .and(table.alarmLevel.eq(key.alarmLevel))
+                .and(table.readPermissionId.eq(key.readPermissionId))
+                .and(table.messageHash.eq(key.messageHash));
+    }
+
+    private Field<Long> greatest(Field<Long> field, long value) {
+        Field<Long> v = DSL.val(value, SQLDataType.BIGINT);
+        return DSL.when(field.isNull().or(field.lessThan(v)), v).otherwise(field);
+    }
+
+    private static final class CountKey {
+        private final int dataPointId;
+        private final int eventDetectorId;
+        private final int alarmLevel;
+        private final int readPermissionId;
+        private final String messageHash;
+
+        private CountKey(int dataPointId, int eventDetectorId, int alarmLevel, int readPermissionId, String messageHash) {
+            this.dataPointId = dataPointId;
+            this.eventDetectorId = eventDetectorId;
+            this.alarmLevel = alarmLevel;
+            this.readPermissionId = readPermissionId;
+            this.messageHash = messageHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CountKey that = (CountKey) o;
+            return dataPointId == that.dataPointId && eventDetectorId == that.eventDetectorId &&
+                    alarmLevel == that.alarmLevel && readPermissionId == that.readPermissionId &&
+                    messageHash.equals(that.messageHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dataPointId, eventDetectorId, alarmLevel, readPermissionId, messageHash);
+        }
+    }
+
+    private static final class Count {
+        private final String message;
+        private int eventCount;
+        private long latestActiveTs = Long.MIN_VALUE;
+        private Long latestRtnTs;
+
+        private Count(String message) {
+            this.message = message;
+        }
+
+        private void add(long activeTs, @Nullable Long rtnTs) {
+            eventCount++;
+            latestActiveTs = Math.max(latestActiveTs, activeTs);
+            if (rtnTs != null && (latestRtnTs == null || rtnTs > latestRtnTs)) {
+                latestRtnTs = rtnTs;
+            }
+        }
+    }
+}
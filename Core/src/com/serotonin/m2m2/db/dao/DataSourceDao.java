@@ -26,6 +26,7 @@ import com.infiniteautomation.mango.util.LazyInitSupplier;
 import com.infiniteautomation.mango.util.usage.DataSourceUsageStatistics;
 import com.serotonin.ModuleNotLoadedException;
 import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.db.dao.codec.VoBlobCodec;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.module.ModuleRegistry;
 import com.serotonin.m2m2.rt.event.type.AuditEventType;
@@ -44,11 +45,14 @@ public class DataSourceDao extends AbstractVoDao<DataSourceVO, DataSourcesRecord
     });
 
     private final EventHandlersMapping eventHandlersMapping = EventHandlersMapping.EVENT_HANDLERS_MAPPING;
+    private final VoBlobCodec blobCodec;
 
     @Autowired
-    private DataSourceDao(DaoDependencies dependencies) {
+    private DataSourceDao(DaoDependencies dependencies, VoBlobCodec blobCodec) {
         super(dependencies, AuditEventType.TYPE_DATA_SOURCE, DataSources.DATA_SOURCES,
-                new TranslatableMessage("internal.monitor.DATA_SOURCE_COUNT"));
+                new TranslatableMessage("internal.monitor.DATA_SOURCE_COUNT"),
+                Common.envProps.getLong("cache.dataSources.size", 1000));
+        this.blobCodec = blobCodec;
     }
 
     /**
@@ -183,7 +187,7 @@ public class DataSourceDao extends AbstractVoDao<DataSourceVO, DataSourcesRecord
         record.set(table.xid, vo.getXid());
         record.set(table.name, vo.getName());
         record.set(table.dataSourceType, vo.getDefinition().getDataSourceTypeName());
-        record.set(table.data, SerializationHelper.writeObjectToArray(vo));
+        record.set(table.data, blobCodec.encode(vo));
         record.set(table.jsonData, convertData(vo.getData()));
         record.set(table.readPermissionId, vo.getReadPermission().getId());
         record.set(table.editPermissionId, vo.getEditPermission().getId());
@@ -192,7 +196,7 @@ public class DataSourceDao extends AbstractVoDao<DataSourceVO, DataSourcesRecord
 
     @Override
     public DataSourceVO mapRecord(Record record) {
-        DataSourceVO ds = (DataSourceVO) SerializationHelper.readObjectInContextFromArray(record.get(table.data));
+        DataSourceVO ds = (DataSourceVO) blobCodec.decode(record.get(table.data));
         ds.setId(record.get(table.id));
         ds.setXid(record.get(table.xid));
         ds.setName(record.get(table.name));
@@ -6,6 +6,7 @@ package com.serotonin.m2m2.db.dao;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 import org.jooq.Condition;
@@ -74,14 +75,17 @@ public class EventDao extends BaseDao {
     private final Users userTable;
     private final UserComments userCommentTable;
     private final PermissionService permissionService;
+    private final DataPointEventCountDao dataPointEventCountDao;
 
     @Autowired
     private EventDao(AuditEventDao auditEventDao,
             UserCommentDao userCommentDao,
-            PermissionService permissionService, DatabaseProxy databaseProxy) {
+            PermissionService permissionService, DatabaseProxy databaseProxy,
+            DataPointEventCountDao dataPointEventCountDao) {
         super(databaseProxy);
         this.auditEventDao = auditEventDao;
         this.userCommentDao = userCommentDao;
+        this.dataPointEventCountDao = dataPointEventCountDao;
         this.table = Events.EVENTS;
         this.userTable = Users.USERS;
         this.userCommentTable = UserComments.USER_COMMENTS;
@@ -94,26 +98,37 @@ public class EventDao extends BaseDao {
 
     public void saveEvent(EventInstance event) {
         if (event.getEventType().getEventType().equals(EventTypeNames.AUDIT)) {
-            AuditEventInstanceVO vo = new AuditEventInstanceVO();
-            AuditEventType type = (AuditEventType) event.getEventType();
-            vo.setTypeName(type.getEventSubtype());
-            vo.setAlarmLevel(event.getAlarmLevel());
-            if (type.getRaisingUser() != null)
-                vo.setUserId(type.getRaisingUser().getId());
-            else
-                vo.setUserId(Common.NEW_ID);
-            vo.setChangeType(type.getChangeType());
-            vo.setObjectId(type.getReferenceId1());
-            vo.setTimestamp(event.getActiveTimestamp());
-            try {
-                vo.setContext(JsonSerializableUtility.convertMapToJsonObject(event.getContext()));
-            } catch (JsonException e) {
-                LOG.error(e.getMessage(), e);
-            }
-            vo.setMessage(event.getMessage());
+            AuditEventInstanceVO vo = createAuditEventInstance(event);
             auditEventDao.insert(vo);
             // Save for use in the cache
-            type.setReferenceId2(vo.getId());
+            ((AuditEventType) event.getEventType()).setReferenceId2(vo.getId());
+        } else if (event.getEventType().getEventType().equals(EventTypeNames.DATA_POINT)) {
+            // keep the dataPointEventCounts summary in step with the events table
+            Lock lock = dataPointEventCountDao.lock(event.getEventType().getReferenceId1());
+            lock.lock();
+            try {
+                doInTransaction(txStatus -> {
+                    if (event.getId() == Common.NEW_ID) {
+                        insertEvent(event);
+                        dataPointEventCountDao.add(event.getEventType().getReferenceId1(),
+                                event.getEventType().getReferenceId2(),
+                                event.getAlarmLevel(),
+                                event.getReadPermission().getId(),
+                                writeTranslatableMessage(event.getMessage()),
+                                event.getActiveTimestamp(),
+                                event.isRtnApplicable() && !event.isActive() ? event.getRtnTimestamp() : null);
+                    } else if (updateEvent(event)) {
+                        dataPointEventCountDao.returnToNormal(event.getEventType().getReferenceId1(),
+                                event.getEventType().getReferenceId2(),
+                                event.getAlarmLevel(),
+                                event.getReadPermission().getId(),
+                                writeTranslatableMessage(event.getMessage()),
+                                event.getRtnTimestamp());
+                    }
+                });
+            } finally {
+                lock.unlock();
+            }
         } else {
             if (event.getId() == Common.NEW_ID)
                 insertEvent(event);
@@ -122,6 +137,51 @@ public class EventDao extends BaseDao {
         }
     }
 
+    /**
+     * Save multiple events, audit events are inserted in batches
+     */
+    public void saveEvents(List<EventInstance> events) {
+        List<EventInstance> auditEvents = new ArrayList<>();
+        List<AuditEventInstanceVO> auditVos = new ArrayList<>();
+        for (EventInstance event : events) {
+            if (event.getEventType().getEventType().equals(EventTypeNames.AUDIT)) {
+                auditEvents.add(event);
+                auditVos.add(createAuditEventInstance(event));
+            } else {
+                saveEvent(event);
+            }
+        }
+
+        if (!auditVos.isEmpty()) {
+            auditEventDao.insert(auditVos);
+            for (int i = 0; i < auditEvents.size(); i++) {
+                // Save for use in the cache
+                ((AuditEventType) auditEvents.get(i).getEventType()).setReferenceId2(auditVos.get(i).getId());
+            }
+        }
+    }
+
+    private AuditEventInstanceVO createAuditEventInstance(EventInstance event) {
+        AuditEventInstanceVO vo = new AuditEventInstanceVO();
+        AuditEventType type = (AuditEventType) event.getEventType();
+        vo.setTypeName(type.getEventSubtype());
+        vo.setAlarmLevel(event.getAlarmLevel());
+        if (type.getRaisingUser() != null)
+            vo.setUserId(type.getRaisingUser().getId());
+        else
+            vo.setUserId(Common.NEW_ID);
+        vo.setChangeType(type.getChangeType());
+        vo.setObjectId(type.getReferenceId1());
+        vo.setTimestamp(event.getActiveTimestamp());
+        try {
+            vo.setContext(JsonSerializableUtility.convertMapToJsonObject(event.getContext()));
+        } catch (JsonException e) {
+            LOG.error(e.getMessage(), e);
+        }
+        vo.setMessage(event.getMessage());
+        return vo;
+    }
+
     private void insertEvent(EventInstance event) {
         savePreRelationalData(event);
         EventsRecord result = create.insertInto(table)
@@ -235,15 +295,17 @@ public class EventDao extends BaseDao {
 
     /**
      * Set rtnTs and rtnCause for this event
+     * @return true if the event was updated
      */
-    private void updateEvent(EventInstance event) {
+    private boolean updateEvent(EventInstance event) {
         if (event.isRtnApplicable()) {
-            create.update(table)
+            return create.update(table)
                     .set(table.rtnTs, event.getRtnTimestamp())
                     .set(table.rtnCause, event.getRtnCause().value())
                     .where(table.id.eq(event.getId()))
-                    .execute();
+                    .execute() > 0;
         }
+        return false;
     }
 
     /**
@@ -256,12 +318,15 @@ public class EventDao extends BaseDao {
         }
 
         for(List<Integer> batch : partitionInParameters(eventIds.stream())) {
-            create.update(table)
-                    .set(table.rtnTs, timestamp)
-                    .set(table.rtnCause, cause.value())
-                    .where(table.rtnApplicable.eq(boolToChar(true)))
-                    .and(table.id.in(batch))
-                    .execute();
+            doInTransaction(txStatus -> {
+                create.update(table)
+                        .set(table.rtnTs, timestamp)
+                        .set(table.rtnCause, cause.value())
+                        .where(table.rtnApplicable.eq(boolToChar(true)))
+                        .and(table.id.in(batch))
+                        .execute();
+                dataPointEventCountDao.returnToNormal(batch, timestamp);
+            });
         }
     }
 
@@ -408,6 +473,7 @@ public class EventDao extends BaseDao {
                 create.deleteFrom(userCommentTable)
                         .where(userCommentTable.commentType.eq(UserCommentVO.TYPE_EVENT))
                         .execute();
+                dataPointEventCountDao.deleteAll();
                 //TODO Mango 4.0 do we really want to clean the permissions table?
                 return total;
             }
@@ -419,60 +485,43 @@ public class EventDao extends BaseDao {
      * Purge Events Before a given time with a given alarmLevel
      */
     public int purgeEventsBefore(final long time, final AlarmLevels alarmLevel) {
-        // Find a list of event ids with no remaining acknowledgments pending.
-        int count = getTransactionTemplate().execute(new TransactionCallback<Integer>() {
-            @Override
-            public Integer doInTransaction(TransactionStatus status) {
-                int count = create.deleteFrom(table)
-                        .where(table.activeTs.lessThan(time))
-                        .and(table.alarmLevel.eq(alarmLevel.value()))
-                        .execute();
-                deleteOrphanedUserComments();
-                //TODO Mango 4.0 do we really want to clean the permissions table?
-                return count;
-            }
-        });
-
-        return count;
+        return purgeEvents(table.activeTs.lessThan(time).and(table.alarmLevel.eq(alarmLevel.value())));
     }
 
     /**
      * Purge Events Before a given time with a given typeName
      */
     public int purgeEventsBefore(final long time, final String typeName) {
-        // Find a list of event ids with no remaining acknowledgments pending.
-        int count = getTransactionTemplate().execute(new TransactionCallback<Integer>() {
-            @Override
-            public Integer doInTransaction(TransactionStatus status) {
-                int count = create.deleteFrom(table)
-                        .where(table.activeTs.lessThan(time))
-                        .and(table.typeName.eq(typeName))
-                        .execute();
-
-                deleteOrphanedUserComments();
-                //TODO Mango 4.0 do we really want to clean the permissions table?
-                return count;
-            }
-        });
-
-        return count;
+        return purgeEvents(table.activeTs.lessThan(time).and(table.typeName.eq(typeName)));
     }
 
     /**
      * Purge Events Before a given time
      */
     public int purgeEventsBefore(final long time) {
-        // Find a list of event ids with no remaining acknowledgments pending.
-        int count = getTransactionTemplate().execute(new TransactionCallback<Integer>() {
-            @Override
-            public Integer doInTransaction(TransactionStatus status) {
-                int count = create.deleteFrom(table).where(table.activeTs.lessThan(time)).execute();
-                deleteOrphanedUserComments();
-                //TODO Mango 4.0 do we really want to clean the permissions table?
-                return count;
-            }
+        return purgeEvents(table.activeTs.lessThan(time));
+    }
+
+    /**
+     * Delete the events matching the condition. The event counts of the affected data points are refreshed once the
+     * delete has been committed, so the purge transaction does not hold locks on the whole summary table.
+     */
+    private int purgeEvents(Condition condition) {
+        List<Integer> dataPointIds = new ArrayList<>();
+        int count = doInTransaction(txStatus -> {
+            dataPointIds.addAll(create.selectDistinct(table.typeRef1)
+                    .from(table)
+                    .where(condition, table.typeName.eq(EventTypeNames.DATA_POINT))
+                    .fetch(table.typeRef1));
+            int deleted = create.deleteFrom(table).where(condition).execute();
+            deleteOrphanedUserComments();
+            //TODO Mango 4.0 do we really want to clean the permissions table?
+            return deleted;
         });
 
+        for (Integer dataPointId : dataPointIds) {
+            dataPointEventCountDao.refresh(dataPointId);
+        }
         return count;
     }
 
@@ -485,6 +534,16 @@ public class EventDao extends BaseDao {
                 )).execute();
     }
 
+    /**
+     * Rebuild the dataPointEventCounts summary table from the events table
+     * @return number of summary rows
+     */
+    public int rebuildDataPointEventCounts() {
+        return doInTransaction(txStatus -> {
+            return dataPointEventCountDao.rebuild();
+        });
+    }
+
     public int getEventCount() {
         return create.select(DSL.count(table.id))
                 .from(table)
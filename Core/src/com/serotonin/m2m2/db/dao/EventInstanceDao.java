@@ -31,6 +31,7 @@ import org.jooq.SortField;
 import org.jooq.SortOrder;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -40,6 +41,7 @@ import com.infiniteautomation.mango.db.query.RQLOperation;
 import com.infiniteautomation.mango.db.query.RQLSubSelectCondition;
 import com.infiniteautomation.mango.db.query.RQLToCondition;
 import com.infiniteautomation.mango.db.query.RQLToConditionWithTagKeys;
+import com.infiniteautomation.mango.db.tables.DataPointEventCounts;
 import com.infiniteautomation.mango.db.tables.DataPoints;
 import com.infiniteautomation.mango.db.tables.Events;
 import com.infiniteautomation.mango.db.tables.UserComments;
@@ -85,10 +87,12 @@ public class EventInstanceDao extends AbstractVoDao<EventInstanceVO, EventsRecor
     private final Users users;
     private final DataPointTagsDao dataPointTagsDao;
     private final UserCommentDao userCommentDao;
+    private final DataPointEventCountDao dataPointEventCountDao;
     private final Field<Integer> commentCount;
     private final EventsSuperadminViewPermissionDefinition eventsSuperadminViewPermission;
 
     private final DataPoints dataPoints = DataPoints.DATA_POINTS;
+    private final DataPointEventCounts dataPointEventCounts = DataPointEventCounts.DATA_POINT_EVENT_COUNTS;
 
     private final Field<Integer> count = DSL.count(table.id).as("count");
     private final Field<Long> latestActive = DSL.max(table.activeTs).as("latestActive");
@@ -101,11 +105,13 @@ public class EventInstanceDao extends AbstractVoDao<EventInstanceVO, EventsRecor
     private EventInstanceDao(DataPointTagsDao dataPointTagsDao,
                              DaoDependencies dependencies,
                              UserCommentDao userCommentDao,
+                             DataPointEventCountDao dataPointEventCountDao,
                              @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection") EventsSuperadminViewPermissionDefinition eventsSuperadminViewPermission) {
         super(dependencies, null, Events.EVENTS, null);
         this.users = Users.USERS;
         this.dataPointTagsDao = dataPointTagsDao;
         this.userCommentDao = userCommentDao;
+        this.dataPointEventCountDao = dataPointEventCountDao;
         this.eventsSuperadminViewPermission = eventsSuperadminViewPermission;
 
         UserComments userComments = UserComments.USER_COMMENTS;
@@ -260,7 +266,9 @@ public class EventInstanceDao extends AbstractVoDao<EventInstanceVO, EventsRecor
             if(!existing.getReadPermission().equals(vo.getReadPermission())) {
                 permissionService.deletePermissions(existing.getReadPermission());
             }
+            refreshDataPointEventCounts(existing);
         }
+        refreshDataPointEventCounts(vo);
     }
 
     @Override
@@ -277,10 +285,22 @@ public class EventInstanceDao extends AbstractVoDao<EventInstanceVO, EventsRecor
 
     @Override
     public void deletePostRelationalData(EventInstanceVO vo) {
+        refreshDataPointEventCounts(vo);
         MangoPermission readPermission = vo.getReadPermission();
         permissionService.deletePermissions(readPermission);
     }
 
+    /**
+     * Events are normally saved via {@link EventDao} which updates the counts incrementally, recount the data point
+     * if an event is modified via this DAO.
+     */
+    private void refreshDataPointEventCounts(EventInstanceVO vo) {
+        EventType type = vo.getEventType();
+        if (EventTypeNames.DATA_POINT.equals(type.getEventType())) {
+            dataPointEventCountDao.refresh(type.getReferenceId1());
+        }
+    }
+
     public EventType createEventType(Record record) {
         String typeName = record.get(table.typeName);
         String subtypeName = record.get(table.subTypeName);
@@ -484,6 +504,10 @@ public class EventInstanceDao extends AbstractVoDao<EventInstanceVO, EventsRecor
     }
 
     private Table<Record6<Integer, String, Integer, Integer, Long, Long>> eventCountsTable(Long from, Long to, PermissionHolder user) {
+        if (from == null && to == null && Common.envProps.getBoolean("events.dataPointEventCounts.useSummaryTable", true)) {
+            return summaryEventCountsTable(user);
+        }
+
         List<Condition> eventConditions = new ArrayList<>();
         eventConditions.add(table.typeName.equal(EventTypeNames.DATA_POINT));
         if (from != null) {
@@ -505,6 +529,25 @@ public class EventInstanceDao extends AbstractVoDao<EventInstanceVO, EventsRecor
                 .asTable(eventCounts);
     }
 
+    /**
+     * Equivalent of the grouped events table, read from the dataPointEventCounts summary table. Only usable when the
+     * query does not restrict the active timestamp. The rows are grouped by the message hash, all the rows of a
+     * group have the same message.
+     */
+    private Table<Record6<Integer, String, Integer, Integer, Long, Long>> summaryEventCountsTable(PermissionHolder user) {
+        return joinPermissionsOnField(DSL.select(
+                dataPointEventCounts.dataPointId.as(table.typeRef1.getName()),
+                DSL.max(dataPointEventCounts.message).as(table.message.getName()),
+                dataPointEventCounts.alarmLevel.as(table.alarmLevel.getName()),
+                DSL.sum(dataPointEventCounts.eventCount).cast(SQLDataType.INTEGER).as(count.getName()),
+                DSL.max(dataPointEventCounts.latestActiveTs).as(latestActive.getName()),
+                DSL.max(dataPointEventCounts.latestRtnTs).as(latestRtn.getName())
+        ).from(dataPointEventCounts), user, dataPointEventCounts.readPermissionId)
+                .groupBy(dataPointEventCounts.dataPointId, dataPointEventCounts.eventDetectorId,
+                        dataPointEventCounts.messageHash, dataPointEventCounts.alarmLevel)
+                .asTable(eventCounts);
+    }
+
     public ConditionSortLimitWithTagKeys createEventCountsConditions(ASTNode rql) {
         RQLToConditionWithTagKeys rqlToCondition = new RQLToConditionWithTagKeys(this.eventCountsFields, this.valueConverterMap);
         return rqlToCondition.visit(rql);
@@ -4,8 +4,12 @@
 
 package com.serotonin.m2m2.db.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
+import org.jooq.Query;
 import org.jooq.Record;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -93,6 +97,26 @@ public class MangoSessionDataDao extends BaseDao {
                 .execute();
     }
 
+    /**
+     * Insert and update session data in a single JDBC batch
+     */
+    public void saveBatch(Collection<MangoSessionDataVO> inserts, Collection<MangoSessionDataVO> updates) throws DataAccessException {
+        List<Query> queries = new ArrayList<>(inserts.size() + updates.size());
+        for (MangoSessionDataVO vo : inserts) {
+            queries.add(create.insertInto(table).set(voToObjectArray(vo)));
+        }
+        for (MangoSessionDataVO vo : updates) {
+            queries.add(create.update(table)
+                    .set(voToObjectArray(vo))
+                    .where(table.sessionId.eq(vo.getSessionId()),
+                            table.contextPath.eq(vo.getContextPath()),
+                            table.virtualHost.eq(vo.getVirtualHost())));
+        }
+        if (!queries.isEmpty()) {
+            create.batch(queries).execute();
+        }
+    }
+
     /**
      * Is there a session with this primary key
      */
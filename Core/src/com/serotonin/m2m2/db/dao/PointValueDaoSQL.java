@@ -172,7 +172,7 @@ public class PointValueDaoSQL extends BasicSQLPointValueDao {
 
     @Override
     public boolean enablePerPointPurge() {
-        return systemSettingsDao.getBooleanValue(SystemSettingsDao.ENABLE_POINT_DATA_PURGE_PER_POINT);
+        return systemSettingsDao.getValue(SystemSettingsDao.ENABLE_POINT_DATA_PURGE_PER_POINT_SETTING);
     }
 
     @Override
@@ -14,13 +14,19 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 import javax.annotation.PostConstruct;
 
 import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.jooq.SQLDialect;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
@@ -61,6 +67,7 @@ import com.serotonin.m2m2.rt.maint.BackgroundProcessing;
 import com.serotonin.m2m2.util.ColorUtils;
 import com.serotonin.m2m2.vo.permission.PermissionHolder;
 import com.serotonin.m2m2.vo.systemSettings.SystemSettingsEventDispatcher;
+import com.serotonin.m2m2.vo.systemSettings.TypedSystemSetting;
 
 /**
  * @author Jared Wiltshire
@@ -228,6 +235,13 @@ public class SystemSettingsDao extends BaseDao {
     @SuppressWarnings("StringOperationCanBeSimplified")
     private static final String NULL_SETTING_VALUE = new String("");
 
+    // Parsed values of typed settings, by setting key
+    private final Map<String, Map<TypedSystemSetting<?>, TypedValue<?>>> typedValues = new ConcurrentHashMap<>();
+
+    private final IntSupplier futureDateLimitPeriodType;
+    private final IntSupplier futureDateLimitPeriods;
+    private volatile FutureDateLimit futureDateLimit;
+
     @Autowired
     private SystemSettingsDao(DatabaseProxy databaseProxy,
                               @DatabaseMapper ObjectMapper objectMapper,
@@ -236,6 +250,8 @@ public class SystemSettingsDao extends BaseDao {
         this.table = SystemSettings.SYSTEM_SETTINGS;
         this.mapper = objectMapper;
         this.eventPublisher = eventPublisher;
+        this.futureDateLimitPeriodType = getIntSupplier(FUTURE_DATE_LIMIT_PERIOD_TYPE_SETTING);
+        this.futureDateLimitPeriods = getIntSupplier(FUTURE_DATE_LIMIT_PERIODS_SETTING);
     }
 
     @PostConstruct
@@ -467,6 +483,167 @@ public class SystemSettingsDao extends BaseDao {
         return readAsJsonCollection(value, collectionClazz, clazz);
     }
 
+    /**
+     * Get a live handle to the parsed value of a setting, the value is parsed once and updated when the setting is
+     * saved or removed. Reading the value does not access the database or parse the stored value.
+     */
+    public <T> Supplier<T> getSupplier(TypedSystemSetting<T> setting) {
+        return typedValue(setting);
+    }
+
+    /**
+     * Get a live handle to the parsed value of an integer setting, see {@link #getSupplier(TypedSystemSetting)}
+     */
+    public IntSupplier getIntSupplier(TypedSystemSetting<Integer> setting) {
+        TypedValue<Integer> value = typedValue(setting);
+        return () -> value.get();
+    }
+
+    /**
+     * Get a live handle to the parsed value of a boolean setting, see {@link #getSupplier(TypedSystemSetting)}
+     */
+    public BooleanSupplier getBooleanSupplier(TypedSystemSetting<Boolean> setting) {
+        TypedValue<Boolean> value = typedValue(setting);
+        return () -> value.get();
+    }
+
+    /**
+     * @return the parsed value of the setting, or its default value
+     */
+    public <T> T getValue(TypedSystemSetting<T> setting) {
+        return typedValue(setting).get();
+    }
+
+    /**
+     * Subscribe to changes of the parsed value of a setting. The listener is called on a thread saving or removing
+     * the setting, after the value returned by the suppliers for the setting has been updated. Calls for a setting
+     * are never concurrent and the last value delivered is the current value.
+     */
+    public <T> void addListener(TypedSystemSetting<T> setting, Consumer<? super T> listener) {
+        typedValue(setting).listeners.add(listener);
+    }
+
+    public <T> void removeListener(TypedSystemSetting<T> setting, Consumer<? super T> listener) {
+        typedValue(setting).listeners.remove(listener);
+    }
+
+    /**
+     * Discard the cached values after the table was modified directly (e.g. restored from a backup), typed values
+     * are reloaded and their listeners are notified of any changes.
+     */
+    public void clearCache() {
+        cache.clear();
+        typedValues.keySet().forEach(this::refreshTypedValues);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> TypedValue<T> typedValue(TypedSystemSetting<T> setting) {
+        return (TypedValue<T>) typedValues.computeIfAbsent(setting.getKey(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(setting, s -> new TypedValue<>(setting));
+    }
+
+    /**
+     * Update the typed values of the setting and deliver the change to the {@link SystemSettingsEventDispatcher} listeners
+     */
+    private void settingChanged(String key, String oldValue, String newValue, boolean removed) {
+        refreshTypedValues(key);
+        if (removed) {
+            SystemSettingsEventDispatcher.INSTANCE.fireSystemSettingRemoved(key, oldValue, newValue);
+        } else {
+            SystemSettingsEventDispatcher.INSTANCE.fireSystemSettingSaved(key, oldValue, newValue);
+        }
+    }
+
+    private void refreshTypedValues(String key) {
+        Map<TypedSystemSetting<?>, TypedValue<?>> values = typedValues.get(key);
+        if (values != null) {
+            values.values().forEach(TypedValue::refresh);
+        }
+    }
+
+    /**
+     * Parsed value of a typed setting, loaded on first access
+     */
+    private class TypedValue<T> implements Supplier<T> {
+        private final TypedSystemSetting<T> setting;
+        private final CopyOnWriteArrayList<Consumer<? super T>> listeners = new CopyOnWriteArrayList<>();
+        private volatile boolean loaded;
+        private volatile T value;
+        private final AtomicInteger pendingNotifications = new AtomicInteger();
+        // only accessed by the thread notifying the listeners
+        private boolean notified;
+        private T lastNotified;
+
+        private TypedValue(TypedSystemSetting<T> setting) {
+            this.setting = setting;
+        }
+
+        @Override
+        public T get() {
+            if (!loaded) {
+                synchronized (this) {
+                    if (!loaded) {
+                        value = setting.parse(getValue(setting.getKey(), null), mapper);
+                        loaded = true;
+                    }
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Parse the value from the cache, which is updated before this is called. The value is stored while holding
+         * the monitor so that the last refresh always stores the latest value. The listeners are called after
+         * releasing it so that a listener can't block other threads saving the setting.
+         *
+         * <p>Notifications are serialized: only one thread notifies at a time and it re-reads the stored value
+         * until no refresh happened meanwhile. A listener therefore never receives an older value after a newer one
+         * and the last value it receives is the current one, intermediate values may be skipped.</p>
+         */
+        private void refresh() {
+            synchronized (this) {
+                T previous = value;
+                boolean wasLoaded = loaded;
+                value = setting.parse(getValue(setting.getKey(), null), mapper);
+                loaded = true;
+                if (wasLoaded && Objects.equals(previous, value)) {
+                    return;
+                }
+            }
+
+            if (pendingNotifications.getAndIncrement() != 0) {
+                // the notifying thread will read the new value
+                return;
+            }
+            // a failing listener must not stop the remaining notifications, the first failure is rethrown afterwards
+            RuntimeException failure = null;
+            int missed = 1;
+            do {
+                T current = value;
+                if (!notified || !Objects.equals(lastNotified, current)) {
+                    lastNotified = current;
+                    notified = true;
+                    for (Consumer<? super T> listener : listeners) {
+                        try {
+                            listener.accept(current);
+                        } catch (RuntimeException e) {
+                            if (failure == null) {
+                                failure = e;
+                            } else {
+                                failure.addSuppressed(e);
+                            }
+                        }
+                    }
+                }
+                missed = pendingNotifications.addAndGet(-missed);
+            } while (missed != 0);
+
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
     public void setValue(final String key, final String value) {
         // Update the cache
         String oldValue = cache.put(key, value == null ? NULL_SETTING_VALUE : value);
@@ -504,7 +681,7 @@ public class SystemSettingsDao extends BaseDao {
         }
 
         this.updateThreadPoolSettings(key, value);
-        SystemSettingsEventDispatcher.INSTANCE.fireSystemSettingSaved(key, oldValue, value);
+        settingChanged(key, oldValue, value, false);
 
         if (this.eventPublisher != null) {
             this.eventPublisher.publishEvent(new SystemSettingChangeAuditEvent(Common.getUser(), key, oldValue, value));
@@ -571,30 +748,46 @@ public class SystemSettingsDao extends BaseDao {
             lastValue = null;
         }
 
-        if(StringUtils.equals(key, FUTURE_DATE_LIMIT_PERIOD_TYPE) || StringUtils.equals(key, FUTURE_DATE_LIMIT_PERIODS)) {
-            // Reset the cached values too.
-            FUTURE_DATE_LIMIT = -1;
-        }
-
         create.deleteFrom(table)
                 .where(table.settingName.equal(key))
                 .execute();
 
         if(fireEvents) {
             //Fire the event
-            SystemSettingsEventDispatcher.INSTANCE.fireSystemSettingRemoved(key, lastValue, getValue(key));
+            settingChanged(key, lastValue, getValue(key), true);
 
             if (this.eventPublisher != null) {
                 this.eventPublisher.publishEvent(new SystemSettingDeleteAuditEvent(Common.getUser(), key, lastValue, getValue(key)));
             }
+        } else {
+            refreshTypedValues(key);
         }
     }
 
+    /**
+     * Special caching for the future dated values property, which needs high performance.
+     */
     public long getFutureDateLimit() {
-        if (FUTURE_DATE_LIMIT == -1)
-            FUTURE_DATE_LIMIT = Common.getMillis(getIntValue(FUTURE_DATE_LIMIT_PERIOD_TYPE),
-                    getIntValue(FUTURE_DATE_LIMIT_PERIODS));
-        return FUTURE_DATE_LIMIT;
+        int periodType = futureDateLimitPeriodType.getAsInt();
+        int periods = futureDateLimitPeriods.getAsInt();
+        FutureDateLimit limit = this.futureDateLimit;
+        if (limit == null || limit.periodType != periodType || limit.periods != periods) {
+            limit = new FutureDateLimit(periodType, periods);
+            this.futureDateLimit = limit;
+        }
+        return limit.millis;
+    }
+
+    private static final class FutureDateLimit {
+        private final int periodType;
+        private final int periods;
+        private final long millis;
+
+        private FutureDateLimit(int periodType, int periods) {
+            this.periodType = periodType;
+            this.periods = periods;
+            this.millis = Common.getMillis(periodType, periods);
+        }
     }
 
     public Color getColour(String key) {
@@ -613,11 +806,6 @@ public class SystemSettingsDao extends BaseDao {
         }
     }
 
-    /**
-     * Special caching for the future dated values property, which needs high performance.
-     */
-    private static long FUTURE_DATE_LIMIT = -1;
-
     private static final Map<String, Object> DEFAULT_VALUES;
 
     static {
@@ -766,6 +954,70 @@ public class SystemSettingsDao extends BaseDao {
         DEFAULT_VALUES = Collections.unmodifiableMap(defaultValues);
     }
 
+    public static final TypedSystemSetting<Integer> FUTURE_DATE_LIMIT_PERIOD_TYPE_SETTING = periodTypeSetting(FUTURE_DATE_LIMIT_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> FUTURE_DATE_LIMIT_PERIODS_SETTING = periodsSetting(FUTURE_DATE_LIMIT_PERIODS);
+
+    //Purge settings
+    public static final TypedSystemSetting<Boolean> ENABLE_POINT_DATA_PURGE_SETTING = booleanSetting(ENABLE_POINT_DATA_PURGE);
+    public static final TypedSystemSetting<Boolean> ENABLE_POINT_DATA_PURGE_PER_POINT_SETTING = booleanSetting(ENABLE_POINT_DATA_PURGE_PER_POINT);
+    public static final TypedSystemSetting<Integer> POINT_DATA_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(POINT_DATA_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> POINT_DATA_PURGE_PERIODS_SETTING = periodsSetting(POINT_DATA_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> DATA_POINT_EVENT_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(DATA_POINT_EVENT_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> DATA_POINT_EVENT_PURGE_PERIODS_SETTING = periodsSetting(DATA_POINT_EVENT_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> DATA_SOURCE_EVENT_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(DATA_SOURCE_EVENT_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> DATA_SOURCE_EVENT_PURGE_PERIODS_SETTING = periodsSetting(DATA_SOURCE_EVENT_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> SYSTEM_EVENT_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(SYSTEM_EVENT_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> SYSTEM_EVENT_PURGE_PERIODS_SETTING = periodsSetting(SYSTEM_EVENT_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> PUBLISHER_EVENT_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(PUBLISHER_EVENT_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> PUBLISHER_EVENT_PURGE_PERIODS_SETTING = periodsSetting(PUBLISHER_EVENT_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> AUDIT_EVENT_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(AUDIT_EVENT_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> AUDIT_EVENT_PURGE_PERIODS_SETTING = periodsSetting(AUDIT_EVENT_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> NONE_ALARM_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(NONE_ALARM_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> NONE_ALARM_PURGE_PERIODS_SETTING = periodsSetting(NONE_ALARM_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> INFORMATION_ALARM_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(INFORMATION_ALARM_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> INFORMATION_ALARM_PURGE_PERIODS_SETTING = periodsSetting(INFORMATION_ALARM_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> IMPORTANT_ALARM_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(IMPORTANT_ALARM_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> IMPORTANT_ALARM_PURGE_PERIODS_SETTING = periodsSetting(IMPORTANT_ALARM_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> WARNING_ALARM_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(WARNING_ALARM_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> WARNING_ALARM_PURGE_PERIODS_SETTING = periodsSetting(WARNING_ALARM_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> URGENT_ALARM_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(URGENT_ALARM_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> URGENT_ALARM_PURGE_PERIODS_SETTING = periodsSetting(URGENT_ALARM_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> CRITICAL_ALARM_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(CRITICAL_ALARM_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> CRITICAL_ALARM_PURGE_PERIODS_SETTING = periodsSetting(CRITICAL_ALARM_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> LIFE_SAFETY_ALARM_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(LIFE_SAFETY_ALARM_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> LIFE_SAFETY_ALARM_PURGE_PERIODS_SETTING = periodsSetting(LIFE_SAFETY_ALARM_PURGE_PERIODS);
+    public static final TypedSystemSetting<Integer> EVENT_PURGE_PERIOD_TYPE_SETTING = periodTypeSetting(EVENT_PURGE_PERIOD_TYPE);
+    public static final TypedSystemSetting<Integer> EVENT_PURGE_PERIODS_SETTING = periodsSetting(EVENT_PURGE_PERIODS);
+
+    private static final Map<String, TypedSystemSetting<Integer>> ALARM_LEVEL_SETTINGS = new ConcurrentHashMap<>();
+
+    /**
+     * Alarm level of a system or audit event type, the same setting is returned for a key so that it can be used to
+     * get a supplier or subscribe to changes.
+     *
+     * @param key {@link SystemEventType#SYSTEM_SETTINGS_PREFIX} or {@link AuditEventType#AUDIT_SETTINGS_PREFIX}
+     *            followed by the event subtype
+     */
+    public static TypedSystemSetting<Integer> alarmLevelSetting(String key) {
+        return ALARM_LEVEL_SETTINGS.computeIfAbsent(key, k -> {
+            Integer defaultValue = (Integer) DEFAULT_VALUES.get(k);
+            return TypedSystemSetting.intSetting(k, defaultValue == null ? AlarmLevels.NONE.value() : defaultValue,
+                    v -> AlarmLevels.fromValue(v) != null);
+        });
+    }
+
+    private static TypedSystemSetting<Boolean> booleanSetting(String key) {
+        return TypedSystemSetting.booleanSetting(key, (Boolean) DEFAULT_VALUES.get(key));
+    }
+
+    private static TypedSystemSetting<Integer> periodTypeSetting(String key) {
+        return TypedSystemSetting.intSetting(key, (Integer) DEFAULT_VALUES.get(key), v -> Common.TIME_PERIOD_CODES.isValidId(v));
+    }
+
+    private static TypedSystemSetting<Integer> periodsSetting(String key) {
+        return TypedSystemSetting.intSetting(key, (Integer) DEFAULT_VALUES.get(key), v -> v >= 0);
+    }
+
     /**
      * Save values to the table by replacing old values and inserting new ones
      * caution, there is no checking on quality of the values being saved use
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.codec;
+
+import java.io.IOException;
+
+/**
+ * Encodes a single class to and from the binary format used by {@link VoBlobCodec}. Encoders are registered for an
+ * exact class, subclasses of that class are not handled by the encoder.
+ *
+ * <p>The version is written alongside each encoded value and passed back to {@link #read(int, BlobInput)} so that
+ * older encodings can still be read after the fields of a class change. Values are length prefixed, a reader may
+ * ignore fields appended by a newer version.</p>
+ *
+ * @param <T> type of value
+ */
+public interface BlobEncoder<T> {
+
+    /**
+     * @return the exact class that this encoder handles
+     */
+    Class<T> getType();
+
+    /**
+     * @return the name written to identify the type, must never change once values have been persisted
+     */
+    String getTypeName();
+
+    /**
+     * @return the version of the encoding written by {@link #write(Object, BlobOutput)}
+     */
+    int getVersion();
+
+    void write(T value, BlobOutput out) throws IOException;
+
+    /**
+     * @param version the version the value was written with
+     */
+    T read(int version, BlobInput in) throws IOException;
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.measure.unit.Unit;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Reads values written by {@link BlobOutput}. Each nested value is read from its own input which is limited to the
+ * length of the value.
+ */
+public final class BlobInput {
+
+    private final VoBlobCodec codec;
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    BlobInput(VoBlobCodec codec, byte[] buffer, int offset, int limit) {
+        this.codec = codec;
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public int readByte() throws IOException {
+        ensureAvailable(1);
+        return buffer[position++];
+    }
+
+    public int readInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public double readDouble() throws IOException {
+        ensureAvailable(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (buffer[position++] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public @Nullable String readString() throws IOException {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        ensureAvailable(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Read a unit, units that can no longer be parsed are returned as the default
+     */
+    public Unit<?> readUnit(Unit<?> defaultUnit) throws IOException {
+        return codec.parseUnit(readString(), defaultUnit);
+    }
+
+    public @Nullable Object readValue() throws IOException {
+        return codec.readValue(this);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> @Nullable T readValue(Class<T> type) throws IOException {
+        Object value = readValue();
+        if (value != null && !type.isInstance(value)) {
+            throw new IOException("Expected " + type.getName() + " but was " + value.getClass().getName());
+        }
+        return (T) value;
+    }
+
+    int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    /**
+     * Create an input for the next length bytes and skip over them
+     */
+    BlobInput slice(int length) throws IOException {
+        ensureAvailable(length);
+        BlobInput slice = new BlobInput(codec, buffer, position, position + length);
+        position += length;
+        return slice;
+    }
+
+    byte[] readBytes(int length) throws IOException {
+        ensureAvailable(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    private void ensureAvailable(int length) throws IOException {
+        if (length < 0 || position + length > limit) {
+            throw new EOFException();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.measure.unit.Unit;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.serotonin.m2m2.util.JUnitUtil;
+
+/**
+ * Writes values in the format read by {@link BlobInput}. Integers are written as variable length zig-zag encoded
+ * values, strings as a length prefixed UTF-8 byte sequence.
+ */
+public final class BlobOutput {
+
+    private final VoBlobCodec codec;
+    private byte[] buffer;
+    private int position;
+
+    BlobOutput(VoBlobCodec codec, int initialCapacity) {
+        this.codec = codec;
+        this.buffer = new byte[initialCapacity];
+    }
+
+    public void writeBoolean(boolean value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) (value ? 1 : 0);
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Write a signed integer, small positive and negative values use fewer bytes
+     */
+    public void writeInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Write a signed long, small positive and negative values use fewer bytes
+     */
+    public void writeLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (bits >>> shift);
+        }
+    }
+
+    /**
+     * @param value string to write, may be null
+     */
+    public void writeString(@Nullable String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param unit unit to write in its default format, may be null
+     */
+    public void writeUnit(@Nullable Unit<?> unit) {
+        writeString(unit == null ? null : JUnitUtil.formatDefault(unit));
+    }
+
+    /**
+     * Write a nested value using the encoder registered for its class, values without a registered encoder
+     * are written using Java serialization.
+     *
+     * @param value value to write, may be null
+     */
+    public void writeValue(@Nullable Object value) throws IOException {
+        codec.writeValue(value, this);
+    }
+
+    void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    void writeBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    int position() {
+        return position;
+    }
+
+    /**
+     * Reserve space for a length prefix which is written once the length is known
+     * @return position of the reserved space
+     */
+    int reserveLength() {
+        ensureCapacity(5);
+        int start = position;
+        position += 5;
+        return start;
+    }
+
+    /**
+     * Write the length of the bytes following the reserved space as a fixed size variable length integer
+     */
+    void writeLength(int reserved) {
+        int length = position - reserved - 5;
+        for (int i = 0; i < 4; i++) {
+            buffer[reserved + i] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        buffer[reserved + 4] = (byte) length;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = position + additional;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+}
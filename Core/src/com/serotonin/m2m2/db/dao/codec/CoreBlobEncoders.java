@@ -0,0 +1,21 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.codec;
+
+/**
+ * Registers the encoders for the VOs and text renderers provided by the core.
+ */
+final class CoreBlobEncoders {
+
+    private CoreBlobEncoders() {
+    }
+
+    static void registerAll(VoBlobCodec codec) {
+        codec.register(new DataPointVOEncoder());
+        for (BlobEncoder<?> encoder : TextRendererEncoders.all()) {
+            codec.register(encoder);
+        }
+    }
+}
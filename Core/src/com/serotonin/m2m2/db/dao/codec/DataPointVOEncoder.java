@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.codec;
+
+import java.io.IOException;
+
+import javax.measure.unit.Unit;
+
+import com.serotonin.m2m2.view.text.TextRenderer;
+import com.serotonin.m2m2.vo.DataPointVO;
+import com.serotonin.m2m2.vo.dataSource.PointLocatorVO;
+
+/**
+ * Encodes the fields of a {@link DataPointVO} which are stored in the data column, the remaining fields are stored
+ * in their own columns. Mirrors the fields written by version 14 of the Java serialization of the VO.
+ */
+public class DataPointVOEncoder implements BlobEncoder<DataPointVO> {
+
+    @Override
+    public Class<DataPointVO> getType() {
+        return DataPointVO.class;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "DataPointVO";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void write(DataPointVO vo, BlobOutput out) throws IOException {
+        vo.ensureUnitsCorrect();
+        out.writeValue(vo.getTextRenderer());
+        out.writeValue(vo.getPointLocator());
+        out.writeDouble(vo.getDiscardLowLimit());
+        out.writeDouble(vo.getDiscardHighLimit());
+        out.writeString(vo.getChartColour());
+        out.writeInt(vo.getPlotType());
+        out.writeUnit(vo.getUnit());
+        out.writeUnit(vo.getIntegralUnit());
+        out.writeUnit(vo.getRenderedUnit());
+        out.writeBoolean(vo.isUseIntegralUnit());
+        out.writeBoolean(vo.isUseRenderedUnit());
+        out.writeBoolean(vo.isOverrideIntervalLoggingSamples());
+        out.writeInt(vo.getIntervalLoggingSampleWindowSize());
+        out.writeBoolean(vo.isPreventSetExtremeValues());
+        out.writeDouble(vo.getSetExtremeLowLimit());
+        out.writeDouble(vo.getSetExtremeHighLimit());
+        out.writeInt(vo.getSimplifyType());
+        out.writeDouble(vo.getSimplifyTolerance());
+        out.writeInt(vo.getSimplifyTarget());
+    }
+
+    @Override
+    public DataPointVO read(int version, BlobInput in) throws IOException {
+        DataPointVO vo = new DataPointVO();
+        TextRenderer textRenderer = in.readValue(TextRenderer.class);
+        PointLocatorVO<?> pointLocator = in.readValue(PointLocatorVO.class);
+        vo.setDiscardLowLimit(in.readDouble());
+        vo.setDiscardHighLimit(in.readDouble());
+        vo.setChartColour(in.readString());
+        vo.setPlotType(in.readInt());
+        vo.setUnit(in.readUnit(Unit.ONE));
+        vo.setIntegralUnit(in.readUnit(Unit.ONE));
+        vo.setRenderedUnit(in.readUnit(Unit.ONE));
+        vo.setUseIntegralUnit(in.readBoolean());
+        vo.setUseRenderedUnit(in.readBoolean());
+        vo.setOverrideIntervalLoggingSamples(in.readBoolean());
+        vo.setIntervalLoggingSampleWindowSize(in.readInt());
+        vo.setPreventSetExtremeValues(in.readBoolean());
+        vo.setSetExtremeLowLimit(in.readDouble());
+        vo.setSetExtremeHighLimit(in.readDouble());
+        vo.setSimplifyType(in.readInt());
+        vo.setSimplifyTolerance(in.readDouble());
+        vo.setSimplifyTarget(in.readInt());
+
+        // set after the units so that the units are set on the text renderer
+        vo.setTextRenderer(textRenderer);
+        vo.setPointLocator(pointLocator);
+        return vo;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.codec;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.serotonin.m2m2.rt.event.AlarmLevels;
+import com.serotonin.m2m2.vo.dataSource.DataSourceVO;
+import com.serotonin.m2m2.vo.dataSource.PollingDataSourceVO;
+
+/**
+ * Base class for encoders of data source VOs. Writes the fields common to all data sources (and polling data
+ * sources) followed by the fields of the concrete type. The common fields carry their own version so that they
+ * may change independently of the version of the concrete encoder.
+ *
+ * @param <T> data source VO type
+ */
+public abstract class DataSourceVOEncoder<T extends DataSourceVO> implements BlobEncoder<T> {
+
+    private static final int DATA_SOURCE_FIELDS_VERSION = 1;
+    private static final int POLLING_FIELDS_VERSION = 1;
+
+    private final Class<T> type;
+
+    protected DataSourceVOEncoder(Class<T> type) {
+        this.type = type;
+    }
+
+    @Override
+    public Class<T> getType() {
+        return type;
+    }
+
+    @Override
+    public String getTypeName() {
+        return type.getName();
+    }
+
+    @Override
+    public final void write(T vo, BlobOutput out) throws IOException {
+        out.writeInt(DATA_SOURCE_FIELDS_VERSION);
+        out.writeBoolean(vo.isEnabled());
+        Map<Integer, AlarmLevels> alarmLevels = vo.getAlarmLevels();
+        out.writeInt(alarmLevels.size());
+        for (Map.Entry<Integer, AlarmLevels> entry : alarmLevels.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue().value());
+        }
+        out.writeBoolean(vo.isPurgeOverride());
+        out.writeInt(vo.getPurgeType());
+        out.writeInt(vo.getPurgePeriod());
+
+        if (vo instanceof PollingDataSourceVO) {
+            PollingDataSourceVO polling = (PollingDataSourceVO) vo;
+            out.writeInt(POLLING_FIELDS_VERSION);
+            out.writeInt(polling.getUpdatePeriodType());
+            out.writeInt(polling.getUpdatePeriods());
+            out.writeBoolean(polling.isUseCron());
+            out.writeString(polling.getCronPattern());
+            out.writeBoolean(polling.isQuantize());
+        }
+
+        writeFields(vo, out);
+    }
+
+    @Override
+    public final T read(int version, BlobInput in) throws IOException {
+        T vo = newInstance();
+
+        in.readInt(); // version of the data source fields, only one version exists
+        vo.setEnabled(in.readBoolean());
+        int alarmLevels = in.readInt();
+        for (int i = 0; i < alarmLevels; i++) {
+            vo.setAlarmLevel(in.readInt(), AlarmLevels.fromValue(in.readInt()));
+        }
+        vo.setPurgeOverride(in.readBoolean());
+        vo.setPurgeType(in.readInt());
+        vo.setPurgePeriod(in.readInt());
+
+        if (vo instanceof PollingDataSourceVO) {
+            PollingDataSourceVO polling = (PollingDataSourceVO) vo;
+            in.readInt(); // version of the polling fields, only one version exists
+            polling.setUpdatePeriodType(in.readInt());
+            polling.setUpdatePeriods(in.readInt());
+            polling.setUseCron(in.readBoolean());
+            polling.setCronPattern(in.readString());
+            polling.setQuantize(in.readBoolean());
+        }
+
+        readFields(version, vo, in);
+        return vo;
+    }
+
+    /**
+     * @return a new instance of the data source VO to read into
+     */
+    protected abstract T newInstance();
+
+    /**
+     * Write the fields declared by the concrete type
+     */
+    protected abstract void writeFields(T vo, BlobOutput out) throws IOException;
+
+    /**
+     * Read the fields declared by the concrete type
+     *
+     * @param version the version the fields were written with
+     */
+    protected abstract void readFields(int version, T vo, BlobInput in) throws IOException;
+}
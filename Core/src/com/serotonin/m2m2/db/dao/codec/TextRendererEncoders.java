@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.serotonin.m2m2.view.text.AnalogRenderer;
+import com.serotonin.m2m2.view.text.BinaryTextRenderer;
+import com.serotonin.m2m2.view.text.MultistateRenderer;
+import com.serotonin.m2m2.view.text.MultistateValue;
+import com.serotonin.m2m2.view.text.NoneRenderer;
+import com.serotonin.m2m2.view.text.PlainRenderer;
+import com.serotonin.m2m2.view.text.RangeRenderer;
+import com.serotonin.m2m2.view.text.RangeValue;
+import com.serotonin.m2m2.view.text.TimeRenderer;
+
+/**
+ * Encoders for the text renderers provided by the core. The units of converting renderers are not encoded, they are
+ * set from the data point when the renderer is set on the point.
+ */
+public final class TextRendererEncoders {
+
+    private TextRendererEncoders() {
+    }
+
+    public static List<BlobEncoder<?>> all() {
+        return Arrays.asList(new AnalogRendererEncoder(), new BinaryTextRendererEncoder(),
+                new MultistateRendererEncoder(), new NoneRendererEncoder(), new PlainRendererEncoder(),
+                new RangeRendererEncoder(), new TimeRendererEncoder());
+    }
+
+    private abstract static class TextRendererEncoder<T> implements BlobEncoder<T> {
+        private final Class<T> type;
+
+        TextRendererEncoder(Class<T> type) {
+            this.type = type;
+        }
+
+        @Override
+        public Class<T> getType() {
+            return type;
+        }
+
+        @Override
+        public String getTypeName() {
+            return type.getSimpleName();
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+    }
+
+    public static class AnalogRendererEncoder extends TextRendererEncoder<AnalogRenderer> {
+        public AnalogRendererEncoder() {
+            super(AnalogRenderer.class);
+        }
+
+        @Override
+        public void write(AnalogRenderer value, BlobOutput out) {
+            out.writeBoolean(value.isUseUnitAsSuffix());
+            out.writeString(value.getFormat());
+            out.writeString(value.getSuffix());
+        }
+
+        @Override
+        public AnalogRenderer read(int version, BlobInput in) throws IOException {
+            AnalogRenderer renderer = new AnalogRenderer();
+            renderer.setUseUnitAsSuffix(in.readBoolean());
+            renderer.setFormat(in.readString());
+            renderer.setSuffix(in.readString());
+            return renderer;
+        }
+    }
+
+    public static class BinaryTextRendererEncoder extends TextRendererEncoder<BinaryTextRenderer> {
+        public BinaryTextRendererEncoder() {
+            super(BinaryTextRenderer.class);
+        }
+
+        @Override
+        public void write(BinaryTextRenderer value, BlobOutput out) {
+            out.writeString(value.getZeroLabel());
+            out.writeString(value.getZeroColour());
+            out.writeString(value.getOneLabel());
+            out.writeString(value.getOneColour());
+        }
+
+        @Override
+        public BinaryTextRenderer read(int version, BlobInput in) throws IOException {
+            BinaryTextRenderer renderer = new BinaryTextRenderer();
+            renderer.setZeroLabel(in.readString());
+            renderer.setZeroColour(in.readString());
+            renderer.setOneLabel(in.readString());
+            renderer.setOneColour(in.readString());
+            return renderer;
+        }
+    }
+
+    public static class MultistateRendererEncoder extends TextRendererEncoder<MultistateRenderer> {
+        public MultistateRendererEncoder() {
+            super(MultistateRenderer.class);
+        }
+
+        @Override
+        public void write(MultistateRenderer value, BlobOutput out) {
+            List<MultistateValue> values = value.getMultistateValues();
+            if (values == null) {
+                out.writeInt(-1);
+                return;
+            }
+            out.writeInt(values.size());
+            for (MultistateValue v : values) {
+                out.writeInt(v.getKey());
+                out.writeString(v.getText());
+                out.writeString(v.getColour());
+            }
+        }
+
+        @Override
+        public MultistateRenderer read(int version, BlobInput in) throws IOException {
+            MultistateRenderer renderer = new MultistateRenderer();
+            int size = in.readInt();
+            if (size < 0) {
+                renderer.setMultistateValues(null);
+                return renderer;
+            }
+            List<MultistateValue> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(new MultistateValue(in.readInt(), in.readString(), in.readString()));
+            }
+            renderer.setMultistateValues(values);
+            return renderer;
+        }
+    }
+
+    public static class NoneRendererEncoder extends TextRendererEncoder<NoneRenderer> {
+        public NoneRendererEncoder() {
+            super(NoneRenderer.class);
+        }
+
+        @Override
+        public void write(NoneRenderer value, BlobOutput out) {
+        }
+
+        @Override
+        public NoneRenderer read(int version, BlobInput in) {
+            return new NoneRenderer();
+        }
+    }
+
+    public static class PlainRendererEncoder extends TextRendererEncoder<PlainRenderer> {
+        public PlainRendererEncoder() {
+            super(PlainRenderer.class);
+        }
+
+        @Override
+        public void write(PlainRenderer value, BlobOutput out) {
+            out.writeBoolean(value.isUseUnitAsSuffix());
+            out.writeString(value.getSuffix());
+        }
+
+        @Override
+        public PlainRenderer read(int version, BlobInput in) throws IOException {
+            PlainRenderer renderer = new PlainRenderer();
+            renderer.setUseUnitAsSuffix(in.readBoolean());
+            renderer.setSuffix(in.readString());
+            return renderer;
+        }
+    }
+
+    public static class RangeRendererEncoder extends TextRendererEncoder<RangeRenderer> {
+        public RangeRendererEncoder() {
+            super(RangeRenderer.class);
+        }
+
+        @Override
+        public void write(RangeRenderer value, BlobOutput out) {
+            out.writeBoolean(value.isUseUnitAsSuffix());
+            out.writeString(value.getFormat());
+            List<RangeValue> values = value.getRangeValues();
+            if (values == null) {
+                out.writeInt(-1);
+                return;
+            }
+            out.writeInt(values.size());
+            for (RangeValue v : values) {
+                out.writeDouble(v.getFrom());
+                out.writeDouble(v.getTo());
+                out.writeString(v.getText());
+                out.writeString(v.getColour());
+            }
+        }
+
+        @Override
+        public RangeRenderer read(int version, BlobInput in) throws IOException {
+            RangeRenderer renderer = new RangeRenderer();
+            renderer.setUseUnitAsSuffix(in.readBoolean());
+            renderer.setFormat(in.readString());
+            int size = in.readInt();
+            if (size < 0) {
+                return renderer;
+            }
+            List<RangeValue> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(new RangeValue(in.readDouble(), in.readDouble(), in.readString(), in.readString()));
+            }
+            renderer.setRangeValues(values);
+            return renderer;
+        }
+    }
+
+    public static class TimeRendererEncoder extends TextRendererEncoder<TimeRenderer> {
+        public TimeRendererEncoder() {
+            super(TimeRenderer.class);
+        }
+
+        @Override
+        public void write(TimeRenderer value, BlobOutput out) {
+            out.writeString(value.getFormat());
+            out.writeInt(value.getConversionExponent());
+        }
+
+        @Override
+        public TimeRenderer read(int version, BlobInput in) throws IOException {
+            TimeRenderer renderer = new TimeRenderer();
+            renderer.setFormat(in.readString());
+            renderer.setConversionExponent(in.readInt());
+            return renderer;
+        }
+    }
+}
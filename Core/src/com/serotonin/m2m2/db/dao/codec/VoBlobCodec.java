@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.codec;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.measure.unit.Unit;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.infiniteautomation.mango.monitor.MonitoredValues;
+import com.serotonin.ShouldNeverHappenException;
+import com.serotonin.m2m2.i18n.TranslatableMessage;
+import com.serotonin.m2m2.module.BlobEncoderDefinition;
+import com.serotonin.m2m2.module.ModuleRegistry;
+import com.serotonin.m2m2.util.JUnitUtil;
+import com.serotonin.util.SerializationHelper;
+
+/**
+ * Encodes VOs that are stored as blobs (e.g. the data column of the data points and data sources tables) in a
+ * compact, versioned binary format which is much faster to read than Java serialization.
+ *
+ * <p>A blob starts with a two byte magic number and a format version, followed by the encoded value. Each value is
+ * written as its type name, the version of its encoder and its length prefixed content. Values of classes without a
+ * registered {@link BlobEncoder} (e.g. point locators from modules which have not registered an encoder) are
+ * embedded using Java serialization. Modules register encoders via a {@link BlobEncoderDefinition}.</p>
+ *
+ * <p>Blobs written using Java serialization are detected by their stream header and are read using
+ * {@link SerializationHelper}, they are rewritten in the binary format the next time the VO is saved.</p>
+ */
+@Component
+public class VoBlobCodec {
+
+    public static final String LEGACY_READS_MONITOR_ID = "com.serotonin.m2m2.db.dao.codec.VoBlobCodec.legacyReads";
+
+    static final byte MAGIC_1 = 'M';
+    static final byte MAGIC_2 = 'B';
+    static final byte FORMAT_VERSION = 1;
+
+    /**
+     * Type name for values which are embedded using Java serialization
+     */
+    static final String JAVA_SERIALIZED = "java";
+
+    private final Map<Class<?>, BlobEncoder<?>> encodersByType = new ConcurrentHashMap<>();
+    private final Map<String, BlobEncoder<?>> encodersByName = new ConcurrentHashMap<>();
+    private final Cache<String, Unit<?>> units = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .build();
+    private final boolean enabled;
+    private final LongAdder legacyReads = new LongAdder();
+
+    @Autowired
+    public VoBlobCodec(Environment env, MonitoredValues monitoredValues) {
+        this(env.getProperty("db.blobCodec.enabled", Boolean.class, true));
+        for (BlobEncoderDefinition def : ModuleRegistry.getDefinitions(BlobEncoderDefinition.class)) {
+            for (BlobEncoder<?> encoder : def.getEncoders()) {
+                register(encoder);
+            }
+        }
+        monitoredValues.<Long>create(LEGACY_READS_MONITOR_ID)
+                .name(new TranslatableMessage("internal.monitor.LEGACY_BLOB_READS"))
+                .supplier(legacyReads::sum)
+                .buildReadThrough();
+    }
+
+    /**
+     * @param enabled if false blobs are written using Java serialization, blobs in either format are always read
+     */
+    public VoBlobCodec(boolean enabled) {
+        this.enabled = enabled;
+        CoreBlobEncoders.registerAll(this);
+    }
+
+    /**
+     * Register an encoder, modules should register their encoders via a {@link BlobEncoderDefinition}.
+     *
+     * @throws IllegalStateException if an encoder is already registered for the type or type name
+     */
+    public void register(BlobEncoder<?> encoder) {
+        if (encodersByName.putIfAbsent(encoder.getTypeName(), encoder) != null) {
+            throw new IllegalStateException("Encoder already registered for type name " + encoder.getTypeName());
+        }
+        if (encodersByType.putIfAbsent(encoder.getType(), encoder) != null) {
+            encodersByName.remove(encoder.getTypeName(), encoder);
+            throw new IllegalStateException("Encoder already registered for " + encoder.getType().getName());
+        }
+    }
+
+    /**
+     * @param value value to encode, may be null
+     * @return encoded value or null if value was null
+     */
+    public byte @Nullable [] encode(@Nullable Object value) throws ShouldNeverHappenException {
+        if (value == null) {
+            return null;
+        }
+        if (!enabled) {
+            return SerializationHelper.writeObjectToArray(value);
+        }
+
+        BlobOutput out = new BlobOutput(this, 256);
+        out.writeByte(MAGIC_1);
+        out.writeByte(MAGIC_2);
+        out.writeByte(FORMAT_VERSION);
+        try {
+            writeValue(value, out);
+        } catch (IOException e) {
+            throw new ShouldNeverHappenException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param data blob in either the binary format or Java serialization format, may be null
+     * @return the decoded value or null if data was null
+     */
+    public @Nullable Object decode(byte @Nullable [] data) throws ShouldNeverHappenException {
+        if (data == null) {
+            return null;
+        }
+        if (isJavaSerialized(data)) {
+            legacyReads.increment();
+            return SerializationHelper.readObjectInContextFromArray(data);
+        }
+        if (data.length < 3 || data[0] != MAGIC_1 || data[1] != MAGIC_2) {
+            throw new ShouldNeverHappenException("Unknown blob format");
+        }
+        if (data[2] != FORMAT_VERSION) {
+            throw new ShouldNeverHappenException("Unsupported blob format version " + data[2]);
+        }
+
+        try {
+            return readValue(new BlobInput(this, data, 3, data.length));
+        } catch (IOException e) {
+            throw new ShouldNeverHappenException(e);
+        }
+    }
+
+    /**
+     * @return true if the blob was written using Java serialization and will be rewritten the next time it is saved
+     */
+    public static boolean isJavaSerialized(byte[] data) {
+        // java.io.ObjectStreamConstants.STREAM_MAGIC
+        return data.length >= 2 && data[0] == (byte) 0xAC && data[1] == (byte) 0xED;
+    }
+
+    public long getLegacyReadCount() {
+        return legacyReads.sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    void writeValue(@Nullable Object value, BlobOutput out) throws IOException {
+        if (value == null) {
+            out.writeString(null);
+            return;
+        }
+
+        BlobEncoder<Object> encoder = (BlobEncoder<Object>) encodersByType.get(value.getClass());
+        if (encoder == null) {
+            byte[] serialized = SerializationHelper.writeObjectToArray(value);
+            out.writeString(JAVA_SERIALIZED);
+            out.writeVarInt(serialized.length);
+            out.writeBytes(serialized, 0, serialized.length);
+            return;
+        }
+
+        out.writeString(encoder.getTypeName());
+        out.writeVarInt(encoder.getVersion());
+        int reserved = out.reserveLength();
+        encoder.write(value, out);
+        out.writeLength(reserved);
+    }
+
+    @Nullable Object readValue(BlobInput in) throws IOException {
+        String typeName = in.readString();
+        if (typeName == null) {
+            return null;
+        }
+
+        if (JAVA_SERIALIZED.equals(typeName)) {
+            byte[] serialized = in.readBytes(in.readVarInt());
+            return SerializationHelper.readObjectInContextFromArray(serialized);
+        }
+
+        BlobEncoder<?> encoder = encodersByName.get(typeName);
+        if (encoder == null) {
+            throw new IOException("No encoder registered for type " + typeName);
+        }
+        int version = in.readVarInt();
+        BlobInput content = in.slice(in.readVarInt());
+        return encoder.read(version, content);
+    }
+
+    Unit<?> parseUnit(@Nullable String unit, Unit<?> defaultUnit) {
+        if (unit == null) {
+            return defaultUnit;
+        }
+        Unit<?> parsed = units.get(unit, u -> {
+            try {
+                return JUnitUtil.parseDefault(u);
+            } catch (Exception e) {
+                return null;
+            }
+        });
+        return parsed == null ? defaultUnit : parsed;
+    }
+}
@@ -86,6 +86,31 @@ public class DefaultMigrationConfig implements MigrationConfig {
         return env.getProperty("db.migration.threadCount", int.class, Math.max(1, Runtime.getRuntime().availableProcessors() / 4));
     }
 
+    @Override
+    public boolean isAdaptiveThreadCount() {
+        return env.getProperty("db.migration.adaptiveThreads.enabled", boolean.class, false);
+    }
+
+    @Override
+    public int getMaxThreadCount() {
+        return env.getProperty("db.migration.adaptiveThreads.max", int.class, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public Duration getTargetWriteLatency() {
+        return env.getProperty("db.migration.adaptiveThreads.targetWriteLatency", Duration.class, Duration.ofMillis(500L));
+    }
+
+    @Override
+    public int getAdaptivePeriodSeconds() {
+        return env.getProperty("db.migration.adaptiveThreads.periodSeconds", int.class, 30);
+    }
+
+    @Override
+    public boolean isVerifyOnCompletion() {
+        return env.getProperty("db.migration.verifyOnCompletion", boolean.class, false);
+    }
+
     @Override
     public Duration getCloseWait() {
         long closeWait = env.getProperty("db.migration.closeWait", Long.class, 1L);
@@ -28,6 +28,11 @@ public interface MigrationConfig {
     int getReadChunkSize();
     int getWriteChunkSize();
     int getThreadCount();
+    boolean isAdaptiveThreadCount();
+    int getMaxThreadCount();
+    Duration getTargetWriteLatency();
+    int getAdaptivePeriodSeconds();
+    boolean isVerifyOnCompletion();
     Duration getCloseWait();
     Predicate<DataPointVO> getDataPointFilter();
     ZoneId getZone();
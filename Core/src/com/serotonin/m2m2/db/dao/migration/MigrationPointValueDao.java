@@ -15,13 +15,13 @@ import java.time.temporal.TemporalAmount;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -46,6 +46,7 @@ import com.serotonin.m2m2.db.dao.migration.MigrationSeries.ReadWriteStats;
 import com.serotonin.m2m2.db.dao.migration.progress.MigrationProgress;
 import com.serotonin.m2m2.db.dao.migration.progress.MigrationProgressDao;
 import com.serotonin.m2m2.db.dao.pointvalue.AggregateDao;
+import com.serotonin.m2m2.db.dao.pointvalue.TimeOrder;
 import com.serotonin.m2m2.vo.DataPointVO;
 
 import io.github.resilience4j.core.IntervalFunction;
@@ -60,7 +61,7 @@ public class MigrationPointValueDao extends DelegatingPointValueDao implements A
     /**
      * Map key is series id
      */
-    private final Map<Integer, MigrationSeries> seriesStatus = new HashMap<>();
+    private final Map<Integer, MigrationSeries> seriesStatus = new ConcurrentHashMap<>();
     private final Queue<MigrationSeries> seriesQueue = new PriorityBlockingQueue<>(1024,
             Comparator.comparingLong(MigrationSeries::getTimestamp));
 
@@ -101,6 +102,9 @@ public class MigrationPointValueDao extends DelegatingPointValueDao implements A
 
     private final Object periodicLogFutureMutex = new Object();
     private Future<?> periodicLogFuture;
+    private Future<?> adaptiveThreadsFuture;
+    private volatile @Nullable MigrationThreadController threadController;
+    private volatile Instant migrationStartTime;
 
     private final Object boundaryMutex = new Object();
     private ZonedDateTime boundary = null;
@@ -156,6 +160,7 @@ public class MigrationPointValueDao extends DelegatingPointValueDao implements A
 
         switch (migration.getStatus()) {
             case NOT_STARTED:
+            case INITIAL_PASS_COMPLETE:
             case RUNNING:
                 seriesQueue.add(migration);
                 break;
@@ -180,6 +185,40 @@ public class MigrationPointValueDao extends DelegatingPointValueDao implements A
                     }
                 }, 0, logPeriod, TimeUnit.SECONDS);
             }
+
+            if (adaptiveThreadsFuture != null) {
+                adaptiveThreadsFuture.cancel(false);
+                this.adaptiveThreadsFuture = null;
+            }
+            if (config.isAdaptiveThreadCount()) {
+                this.threadController = new MigrationThreadController(1, config.getMaxThreadCount(), config.getTargetWriteLatency());
+                int period = Math.max(1, config.getAdaptivePeriodSeconds());
+                this.adaptiveThreadsFuture = scheduledExecutorService.scheduleWithFixedDelay(this::adaptThreads,
+                        period, period, TimeUnit.SECONDS);
+            } else {
+                this.threadController = null;
+            }
+        }
+    }
+
+    /**
+     * Adjust the number of threads based on the write latency observed since the last adjustment
+     */
+    private void adaptThreads() {
+        MigrationThreadController controller = this.threadController;
+        if (controller == null) return;
+
+        long meanLatency = controller.sampleMeanLatency();
+        synchronized (tasks) {
+            if (!started || fullyMigrated || terminated || tasks.isEmpty()) return;
+
+            int threadCount = controller.nextThreadCount(tasks.size(), meanLatency);
+            if (threadCount != tasks.size()) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Mean write latency {}ms", TimeUnit.NANOSECONDS.toMillis(meanLatency));
+                }
+                adjustThreads(threadCount);
+            }
         }
     }
 
@@ -211,7 +250,11 @@ public class MigrationPointValueDao extends DelegatingPointValueDao implements A
     }
 
     /**
-     * Warning: {@link #seriesStatus} is not thread-safe! Do not attempt to start/stop/restart migration while Mango is running.
+     * Start the migration, or resume it from the progress saved in the database. The progress of each series
+     * (its status and the time it has been migrated up to) is saved after each block is copied, so a resumed
+     * migration continues each series from the last block it completed.
+     *
+     * Warning: Do not attempt to start/stop/restart migration while Mango is running.
      */
     void startMigration() {
         synchronized (tasks) {
@@ -238,6 +281,7 @@ public class MigrationPointValueDao extends DelegatingPointValueDao implements A
                 }
             }
 
+            this.migrationStartTime = clock.instant();
             this.started = true;
             reloadConfig();
         }
@@ -256,7 +300,7 @@ public class MigrationPointValueDao extends DelegatingPointValueDao implements A
     }
 
     /**
-     * Warning: {@link #seriesStatus} is not thread-safe! Do not attempt to start/stop/restart migration while Mango is running.
+     * Warning: Do not attempt to start/stop/restart migration while Mango is running.
      * This method is for testing purposes only.
      */
     void reset() {
@@ -286,6 +330,12 @@ public class MigrationPointValueDao extends DelegatingPointValueDao implements A
 
             var result = adjustThreads(0);
             this.terminated = true;
+            synchronized (periodicLogFutureMutex) {
+                if (adaptiveThreadsFuture != null) {
+                    adaptiveThreadsFuture.cancel(false);
+                    this.adaptiveThreadsFuture = null;
+                }
+            }
             return result;
         }
     }
@@ -300,6 +350,10 @@ public class MigrationPointValueDao extends DelegatingPointValueDao implements A
                 if (log.isInfoEnabled()) {
                     log.info("Migration complete! {}", stats());
                 }
+                if (config.isVerifyOnCompletion()) {
+                    Instant verifyTo = migrationStartTime;
+                    executorService.execute(() -> verify(verifyTo));
+                }
             }
         }
     }
@@ -343,6 +397,58 @@ public class MigrationPointValueDao extends DelegatingPointValueDao implements A
         return false;
     }
 
+    /**
+     * Compare the migrated series in the source and destination databases, the number of values and a checksum of
+     * the values before the given time must match. Values written to a series after it was migrated are only in
+     * the destination, so the time should be no later than when the migration was started.
+     *
+     * <p>Series which were migrated as aggregates are not compared.</p>
+     *
+     * @param to compare values before this time
+     * @return result for each migrated series
+     */
+    public List<SeriesVerification> verify(Instant to) {
+        Long from = migrateFrom == null ? null : migrateFrom.toEpochMilli();
+        long toMs = to.toEpochMilli();
+        List<SeriesVerification> results = new ArrayList<>();
+        int mismatched = 0;
+
+        for (MigrationSeries series : seriesStatus.values()) {
+            if (!series.isMigrated()) continue;
+
+            DataPointVO point = dataPointDao.getBySeriesId(series.getSeriesId());
+            if (point == null) continue;
+
+            SeriesVerification result;
+            if (isAggregated(point)) {
+                result = SeriesVerification.notVerified(series.getSeriesId());
+            } else {
+                long[] source;
+                try (var stream = getSource().streamPointValues(point, from, toMs, null, TimeOrder.ASCENDING, config.getReadChunkSize())) {
+                    source = SeriesVerification.countAndChecksum(stream);
+                }
+                long[] destination;
+                try (var stream = getDestination().streamPointValues(point, from, toMs, null, TimeOrder.ASCENDING, config.getReadChunkSize())) {
+                    destination = SeriesVerification.countAndChecksum(stream);
+                }
+                result = new SeriesVerification(series.getSeriesId(), source[0], source[1], destination[0], destination[1]);
+            }
+
+            if (result.getResult() == SeriesVerification.Result.MISMATCH) {
+                mismatched++;
+                if (log.isWarnEnabled()) {
+                    log.warn("Migrated values do not match source: {}", result);
+                }
+            }
+            results.add(result);
+        }
+
+        if (log.isInfoEnabled()) {
+            log.info("Verified {} migrated series, {} did not match", results.size(), mismatched);
+        }
+        return results;
+    }
+
     String stats() {
         long migrated = migratedSeries.get();
         long skipped = skippedSeries.get();
@@ -478,6 +584,25 @@ public class MigrationPointValueDao extends DelegatingPointValueDao implements A
         return writeChunkSize;
     }
 
+    /**
+     * @return true if the latency of writes to the destination should be recorded via {@link #recordWriteLatency(long)}
+     */
+    boolean isRecordingWriteLatency() {
+        return threadController != null;
+    }
+
+    void recordWriteLatency(long nanos) {
+        MigrationThreadController controller = this.threadController;
+        if (controller != null) {
+            controller.recordWrite(nanos);
+        }
+    }
+
+    boolean isAggregated(DataPointVO point) {
+        return aggregationPeriod != null &&
+                aggregationDataTypes.contains(point.getPointLocator().getDataType());
+    }
+
     /**
      * Called after each iteration of a series migration.
      *
@@ -8,19 +8,21 @@ import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZonedDateTime;
-import java.time.temporal.TemporalAmount;
 import java.util.EnumSet;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.infiniteautomation.mango.db.iterators.ChunkingSpliterator;
 import com.serotonin.m2m2.db.dao.BatchPointValueImpl;
+import com.serotonin.m2m2.db.dao.PointValueDao;
 import com.serotonin.m2m2.db.dao.migration.progress.MigrationProgress;
 import com.serotonin.m2m2.db.dao.pointvalue.AggregateDao;
 import com.serotonin.m2m2.db.dao.pointvalue.TimeOrder;
@@ -201,9 +203,7 @@ class MigrationSeries {
     }
 
     private boolean aggregationEnabledForPoint() {
-        TemporalAmount aggregationPeriod = parent.getAggregationPeriod();
-        return aggregationPeriod != null &&
-                parent.getAggregationDataTypes().contains(point.getPointLocator().getDataType());
+        return parent.isAggregated(point);
     }
 
     /**
@@ -223,7 +223,8 @@ class MigrationSeries {
             var output = stream
                     .map(pv -> new BatchPointValueImpl<>(point, pv))
                     .peek(pv -> stats.incrementWrite());
-            parent.getDestination().savePointValues(output, parent.getWriteChunkSize());
+            PointValueDao destination = parent.getDestination();
+            save(output, chunk -> destination.savePointValues(chunk, parent.getWriteChunkSize()));
         }
     }
 
@@ -254,10 +255,27 @@ class MigrationSeries {
             var aggregateStream = source
                     .aggregate(point, from, to, Stream.concat(Stream.ofNullable(lastValue), stream), parent.getAggregationPeriod())
                     .peek(pv -> stats.incrementAggregateWrite());
-            destination.save(point, aggregateStream, parent.getWriteChunkSize());
+            save(aggregateStream, chunk -> destination.save(point, chunk, parent.getWriteChunkSize()));
         }
     }
 
+    /**
+     * Write values to the destination, when the parent is adjusting the number of threads based on the write latency
+     * the values are written in chunks and the time taken to write each chunk is recorded.
+     */
+    private <T> void save(Stream<T> values, Consumer<Stream<T>> writer) {
+        if (!parent.isRecordingWriteLatency()) {
+            writer.accept(values);
+            return;
+        }
+
+        ChunkingSpliterator.chunkStream(values, parent.getWriteChunkSize()).forEachOrdered(chunk -> {
+            long start = System.nanoTime();
+            writer.accept(chunk.stream());
+            parent.recordWriteLatency(System.nanoTime() - start);
+        });
+    }
+
     long getTimestamp() {
         return timestamp;
     }
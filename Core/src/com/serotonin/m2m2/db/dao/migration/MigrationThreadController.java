@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2022 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.migration;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chooses the number of migration threads from the observed write latency of the destination database. A thread is
+ * added while the mean latency of a write chunk is comfortably below the target, threads are removed in larger steps
+ * once the latency rises above the target.
+ */
+class MigrationThreadController {
+
+    private final LongAdder writeNanos = new LongAdder();
+    private final LongAdder writeCount = new LongAdder();
+    private final int minThreads;
+    private final int maxThreads;
+    private final long targetNanos;
+
+    MigrationThreadController(int minThreads, int maxThreads, Duration targetWriteLatency) {
+        this.minThreads = Math.max(1, minThreads);
+        this.maxThreads = Math.max(this.minThreads, maxThreads);
+        this.targetNanos = targetWriteLatency.toNanos();
+    }
+
+    /**
+     * Record the time taken to write a chunk of values to the destination
+     */
+    void recordWrite(long nanos) {
+        writeNanos.add(nanos);
+        writeCount.increment();
+    }
+
+    /**
+     * @return mean write latency in nanoseconds since the last sample, or -1 if nothing was written
+     */
+    long sampleMeanLatency() {
+        long count = writeCount.sumThenReset();
+        long total = writeNanos.sumThenReset();
+        return count == 0 ? -1 : total / count;
+    }
+
+    /**
+     * @param current current number of threads
+     * @param meanLatencyNanos mean write latency, or -1 if unknown
+     * @return the number of threads to use
+     */
+    int nextThreadCount(int current, long meanLatencyNanos) {
+        int next = current;
+        if (meanLatencyNanos > targetNanos) {
+            next = current - Math.max(1, current / 4);
+        } else if (meanLatencyNanos >= 0 && meanLatencyNanos < targetNanos * 3 / 4) {
+            next = current + 1;
+        }
+        return Math.max(minThreads, Math.min(maxThreads, next));
+    }
+}
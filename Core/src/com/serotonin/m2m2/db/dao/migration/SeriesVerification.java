@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2022 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.dao.migration;
+
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import com.serotonin.m2m2.rt.dataImage.PointValueTime;
+
+/**
+ * Result of comparing the values of a migrated series in the source and destination databases.
+ */
+public class SeriesVerification {
+
+    public enum Result {
+        MATCH,
+        MISMATCH,
+        /**
+         * Series was migrated as aggregates, the raw values can't be compared
+         */
+        NOT_VERIFIED
+    }
+
+    private final int seriesId;
+    private final Result result;
+    private final long sourceCount;
+    private final long sourceChecksum;
+    private final long destinationCount;
+    private final long destinationChecksum;
+
+    SeriesVerification(int seriesId, long sourceCount, long sourceChecksum, long destinationCount, long destinationChecksum) {
+        this.seriesId = seriesId;
+        this.result = sourceCount == destinationCount && sourceChecksum == destinationChecksum ? Result.MATCH : Result.MISMATCH;
+        this.sourceCount = sourceCount;
+        this.sourceChecksum = sourceChecksum;
+        this.destinationCount = destinationCount;
+        this.destinationChecksum = destinationChecksum;
+    }
+
+    private SeriesVerification(int seriesId) {
+        this.seriesId = seriesId;
+        this.result = Result.NOT_VERIFIED;
+        this.sourceCount = 0;
+        this.sourceChecksum = 0;
+        this.destinationCount = 0;
+        this.destinationChecksum = 0;
+    }
+
+    static SeriesVerification notVerified(int seriesId) {
+        return new SeriesVerification(seriesId);
+    }
+
+    /**
+     * @return number of values and an order dependent checksum of the times and values
+     */
+    static long[] countAndChecksum(Stream<? extends PointValueTime> values) {
+        long[] result = new long[2];
+        values.forEachOrdered(pv -> {
+            result[0]++;
+            result[1] = 31 * result[1] + 31 * pv.getTime() + Objects.hashCode(pv.getValue());
+        });
+        return result;
+    }
+
+    public int getSeriesId() {
+        return seriesId;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    public long getSourceCount() {
+        return sourceCount;
+    }
+
+    public long getSourceChecksum() {
+        return sourceChecksum;
+    }
+
+    public long getDestinationCount() {
+        return destinationCount;
+    }
+
+    public long getDestinationChecksum() {
+        return destinationChecksum;
+    }
+
+    @Override
+    public String toString() {
+        return "SeriesVerification{" +
+                "seriesId=" + seriesId +
+                ", result=" + result +
+                ", sourceCount=" + sourceCount +
+                ", destinationCount=" + destinationCount +
+                '}';
+    }
+}
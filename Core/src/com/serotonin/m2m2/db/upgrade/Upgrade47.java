@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2022 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.db.upgrade;
+
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+
+import com.serotonin.m2m2.db.dao.DataPointEventCountDao;
+
+/**
+ * Add the dataPointEventCounts summary table and populate it from the events table
+ */
+public class Upgrade47 extends DBUpgrade {
+
+    @Override
+    protected void upgrade() throws Exception {
+        create.createTable("dataPointEventCounts")
+                .column("dataPointId", SQLDataType.INTEGER.nullable(false))
+                .column("eventDetectorId", SQLDataType.INTEGER.nullable(false))
+                .column("alarmLevel", SQLDataType.INTEGER.nullable(false))
+                .column("readPermissionId", SQLDataType.INTEGER.nullable(false))
+                .column("message", SQLDataType.CLOB.nullable(true))
+                .column("messageHash", SQLDataType.VARCHAR(64).nullable(false))
+                .column("eventCount", SQLDataType.INTEGER.nullable(false))
+                .column("latestActiveTs", SQLDataType.BIGINT.nullable(false))
+                .column("latestRtnTs", SQLDataType.BIGINT.nullable(true))
+                .constraints(
+                        DSL.constraint("dataPointEventCountsFk1")
+                                .foreignKey("readPermissionId")
+                                .references("permissions", "id")
+                                .onDeleteCascade(),
+                        DSL.constraint("dataPointEventCountsUn1")
+                                .unique("dataPointId", "eventDetectorId", "alarmLevel", "readPermissionId", "messageHash")
+                ).execute();
+
+        DataPointEventCountDao.insertCounts(create, DSL.noCondition());
+    }
+
+    @Override
+    protected String getNewSchemaVersion() {
+        return "48";
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.email;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.mail.internet.InternetAddress;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.serotonin.web.mail.EmailAttachment;
+import com.serotonin.web.mail.EmailContent;
+import com.serotonin.web.mail.EmailInline;
+
+/**
+ * Merges emails sent to the same recipients within a time window into a single digest email. The window starts when
+ * the first email for a set of recipients is added, all emails added for the same recipients before the window ends
+ * are sent together as one email to all of the recipients.
+ */
+public class EmailDigestCoalescer {
+    private static final Logger LOG = LoggerFactory.getLogger(EmailDigestCoalescer.class);
+
+    private static final String PLAIN_SEPARATOR = "\n\n------------------------------------------------------------\n\n";
+    private static final String HTML_SEPARATOR = "<hr/>";
+    private static final Pattern HTML_BODY = Pattern.compile("<body[^>]*>(.*)</body\\s*>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    @FunctionalInterface
+    public interface DigestSender {
+        void send(InternetAddress[] to, String subject, EmailContent content);
+    }
+
+    private final long windowMillis;
+    private final ScheduledExecutorService scheduler;
+    private final DigestSender sender;
+    private final BiFunction<String, Integer, String> digestSubject;
+    private final Map<String, Pending> pending = new HashMap<>();
+
+    private static final class Pending {
+        private final InternetAddress[] to;
+        private final List<String> subjects = new ArrayList<>();
+        private final List<EmailContent> contents = new ArrayList<>();
+
+        private Pending(InternetAddress[] to) {
+            this.to = to;
+        }
+    }
+
+    /**
+     * @param windowMillis time to wait for more emails after the first email for a recipient
+     * @param scheduler used to send the digest at the end of the window
+     * @param sender sends the digest (or the single email if only one was added)
+     * @param digestSubject creates the subject for a digest from the subject of the first email and the number of emails
+     */
+    public EmailDigestCoalescer(long windowMillis, ScheduledExecutorService scheduler, DigestSender sender,
+                                BiFunction<String, Integer, String> digestSubject) {
+        this.windowMillis = windowMillis;
+        this.scheduler = scheduler;
+        this.sender = sender;
+        this.digestSubject = digestSubject;
+    }
+
+    public void add(InternetAddress[] to, String subject, EmailContent content) {
+        String key = Arrays.stream(to)
+                .map(address -> address.getAddress().toLowerCase(Locale.ROOT))
+                .sorted()
+                .distinct()
+                .collect(Collectors.joining(","));
+
+        boolean schedule = false;
+        synchronized (pending) {
+            Pending p = pending.get(key);
+            if (p == null) {
+                p = new Pending(to);
+                pending.put(key, p);
+                schedule = true;
+            }
+            p.subjects.add(subject);
+            p.contents.add(content);
+        }
+        if (schedule) {
+            try {
+                scheduler.schedule(() -> flush(key), windowMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flush(key);
+            }
+        }
+    }
+
+    /**
+     * Send all pending digests now
+     */
+    public void flushAll() {
+        List<String> keys;
+        synchronized (pending) {
+            keys = new ArrayList<>(pending.keySet());
+        }
+        keys.forEach(this::flush);
+    }
+
+    /**
+     * @return number of recipient lists with a pending digest
+     */
+    public int pendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private void flush(String key) {
+        Pending p;
+        synchronized (pending) {
+            p = pending.remove(key);
+        }
+        if (p == null) {
+            return;
+        }
+
+        try {
+            if (p.contents.size() == 1) {
+                sender.send(p.to, p.subjects.get(0), p.contents.get(0));
+            } else {
+                sender.send(p.to, digestSubject.apply(p.subjects.get(0), p.contents.size()), merge(p.contents));
+            }
+        } catch (Exception e) {
+            LOG.error("Failed to send email digest to " + Arrays.toString(p.to), e);
+        }
+    }
+
+    /**
+     * Merge email contents into a single email, the content of each email is separated by a horizontal rule. The
+     * bodies of HTML documents are merged into the first document. Attachments of all the emails are included, inline
+     * parts are included once per content id as the emails are generated from the same templates and share their
+     * inline images.
+     */
+    public static EmailContent merge(List<EmailContent> contents) {
+        boolean allPlain = true;
+        boolean anyHtml = false;
+        for (EmailContent content : contents) {
+            allPlain &= content.getPlainContent() != null;
+            anyHtml |= content.getHtmlContent() != null;
+        }
+
+        StringBuilder plain = allPlain ? new StringBuilder() : null;
+        StringBuilder html = anyHtml ? new StringBuilder() : null;
+        String htmlPrefix = null;
+        String htmlSuffix = null;
+        for (EmailContent content : contents) {
+            if (plain != null) {
+                if (plain.length() > 0) {
+                    plain.append(PLAIN_SEPARATOR);
+                }
+                plain.append(content.getPlainContent());
+            }
+            if (html != null) {
+                if (html.length() > 0) {
+                    html.append(HTML_SEPARATOR);
+                }
+                if (content.getHtmlContent() != null) {
+                    String document = content.getHtmlContent();
+                    Matcher matcher = HTML_BODY.matcher(document);
+                    if (matcher.find()) {
+                        if (htmlPrefix == null) {
+                            // the first document provides the head and the body element
+                            htmlPrefix = document.substring(0, matcher.start(1));
+                            htmlSuffix = document.substring(matcher.end(1));
+                        }
+                        html.append(matcher.group(1));
+                    } else {
+                        html.append(document);
+                    }
+                } else {
+                    html.append("<pre>").append(StringEscapeUtils.escapeHtml4(content.getPlainContent())).append("</pre>");
+                }
+            }
+        }
+
+        Charset encoding = contents.get(0).getEncoding();
+        EmailContent merged = new EmailContent(plain == null ? null : plain.toString(),
+                html == null ? null : (htmlPrefix == null ? html.toString() : htmlPrefix + html + htmlSuffix), encoding);
+        Set<String> contentIds = new HashSet<>();
+        for (EmailContent content : contents) {
+            for (EmailAttachment attachment : content.getAttachments()) {
+                merged.addAttachment(attachment);
+            }
+            for (EmailInline inline : content.getInlines()) {
+                if (contentIds.add(inline.getContentId())) {
+                    merged.addInline(inline);
+                }
+            }
+        }
+        return merged;
+    }
+}
@@ -4,7 +4,6 @@
 package com.serotonin.m2m2.i18n;
 
 import java.io.Serializable;
-import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -73,16 +72,18 @@ public class TranslatableMessage implements Serializable {
                 resolvedArgs[i] = lm.args[i];
         }
 
-        String pattern = translations.translate(lm.key);
-        return MessageFormat.format(pattern, resolvedArgs);
+        return translations.format(lm.key, resolvedArgs);
     }
 
     public String getKey() {
         return key;
     }
 
+    /**
+     * @return a copy of the arguments, messages are immutable as decoded messages are shared
+     */
     public Object[] getArgs() {
-        return args;
+        return args.clone();
     }
 
     public String serialize() {
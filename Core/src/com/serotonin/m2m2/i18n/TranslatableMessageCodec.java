@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.i18n;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Decodes {@link TranslatableMessage}s stored in text columns (event messages, point value annotations) using the
+ * {@link TranslatableMessage#serialize()} encoding.
+ *
+ * Decoded values are kept in a bounded cache, annotations and event messages are highly repetitive so most reads
+ * never need to decode at all. Cached messages are shared, which is safe as messages are immutable.
+ */
+public final class TranslatableMessageCodec {
+
+    private static final Cache<String, TranslatableMessage> DECODED = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    private TranslatableMessageCodec() {
+    }
+
+    public static TranslatableMessage decodeFromString(String s) throws TranslatableMessageParseException {
+        TranslatableMessage cached = DECODED.getIfPresent(s);
+        if (cached != null)
+            return cached;
+
+        TranslatableMessage message = TranslatableMessage.deserialize(s);
+        DECODED.put(s, message);
+        return message;
+    }
+
+    public static void clearCache() {
+        DECODED.invalidateAll();
+    }
+}
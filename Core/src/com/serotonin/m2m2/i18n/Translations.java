@@ -10,6 +10,7 @@ import java.io.Reader;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
@@ -79,6 +80,8 @@ public class Translations {
     private final Translations parent;
     private final Map<String, String> pairs = new HashMap<String, String>();
     private final Map<String, Map<String, String>> namespaces = new HashMap<String, Map<String, String>>();
+    // Compiled patterns, MessageFormat is not thread safe so instances are cloned before use
+    private final Map<String, MessageFormat> formatCache = new ConcurrentHashMap<>();
 
     private Translations(Locale locale, Translations parent) throws IOException {
         this.parent = parent;
@@ -158,6 +161,21 @@ public class Translations {
         return t;
     }
 
+    /**
+     * Translate a key and format it with the given arguments, equivalent to
+     * {@code MessageFormat.format(translate(key), args)} but the pattern is only parsed once per key.
+     */
+    public String format(String key, Object... args) {
+        MessageFormat format = formatCache.get(key);
+        if (format == null) {
+            String pattern = translateImpl(key);
+            if (pattern == null)
+                return MessageFormat.format(translate(key), args);
+            format = formatCache.computeIfAbsent(key, k -> new MessageFormat(pattern));
+        }
+        return ((MessageFormat) format.clone()).format(args);
+    }
+
     public String translateAllowNull(String key) {
         return translateImpl(key);
     }
@@ -0,0 +1,15 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.module;
+
+import com.serotonin.m2m2.db.dao.codec.BlobEncoder;
+import com.serotonin.m2m2.db.dao.codec.VoBlobCodec;
+
+/**
+ * Registers {@link BlobEncoder}s with the {@link VoBlobCodec} for the VOs and point locators provided by a module.
+ * Values without an encoder are stored using Java serialization.
+ */
+public abstract class BlobEncoderDefinition extends ModuleElementDefinition {
+    public abstract Iterable<? extends BlobEncoder<?>> getEncoders();
+}
@@ -67,6 +67,8 @@ public class SqlRestoreActionDefinition extends SystemActionDefinition{
             ProcessResult result = DatabaseBackupWorkItem.restore(filename);
             if(result.getHasMessages()){
                 this.results.put("messages", result.getMessages());
+            }
+            if(!result.isValid()){
                 this.results.put("failed", true);
             }
         }
@@ -4,7 +4,9 @@
 package com.serotonin.m2m2.module.definitions.event.handlers;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 
+import com.infiniteautomation.mango.spring.components.ProcessRunner;
 import com.serotonin.m2m2.i18n.ProcessResult;
 import com.serotonin.m2m2.module.EventHandlerDefinition;
 import com.serotonin.m2m2.rt.event.handlers.EventHandlerRT;
@@ -20,6 +22,9 @@ public class ProcessEventHandlerDefinition extends EventHandlerDefinition<Proces
 	public static final String TYPE_NAME = "PROCESS";
 	public static final String DESC_KEY = "eventHandlers.type.process";
 
+	@Autowired
+	ProcessRunner processRunner;
+
 	@Override
 	public String getEventHandlerTypeName() {
 		return TYPE_NAME;
@@ -48,6 +53,6 @@ public class ProcessEventHandlerDefinition extends EventHandlerDefinition<Proces
 
 	@Override
 	public EventHandlerRT<ProcessEventHandlerVO> createRuntime(ProcessEventHandlerVO vo){
-		return new ProcessHandlerRT(vo);
+		return new ProcessHandlerRT(vo, processRunner);
 	}
 }
@@ -9,11 +9,17 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.base.Throwables;
+import com.infiniteautomation.mango.spring.events.DaoEvent;
+import com.infiniteautomation.mango.spring.events.DaoEventType;
 import com.infiniteautomation.mango.spring.script.EvalContext;
 import com.infiniteautomation.mango.spring.script.MangoScriptException.EngineNotFoundException;
 import com.infiniteautomation.mango.spring.script.MangoScriptException.ScriptEvalException;
@@ -21,6 +27,7 @@ import com.infiniteautomation.mango.spring.script.MangoScriptException.ScriptInt
 import com.infiniteautomation.mango.spring.script.ScriptService;
 import com.infiniteautomation.mango.spring.script.permissions.StandardStreamsPermission;
 import com.infiniteautomation.mango.spring.service.PermissionService;
+import com.infiniteautomation.mango.util.script.ScriptContextPool;
 import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.i18n.ProcessResult;
 import com.serotonin.m2m2.module.EventHandlerDefinition;
@@ -28,6 +35,7 @@ import com.serotonin.m2m2.module.SourceLocation;
 import com.serotonin.m2m2.rt.event.handlers.EventHandlerInterface;
 import com.serotonin.m2m2.rt.event.handlers.EventHandlerRT;
 import com.serotonin.m2m2.rt.event.handlers.ScriptEventHandlerRT;
+import com.serotonin.m2m2.rt.event.handlers.ScriptEventHandlerRT.PooledDelegate;
 import com.serotonin.m2m2.vo.event.ScriptEventHandlerVO;
 import com.serotonin.m2m2.vo.permission.PermissionException;
 import com.serotonin.m2m2.vo.permission.PermissionHolder;
@@ -48,6 +56,14 @@ public class ScriptEventHandlerDefinition extends EventHandlerDefinition<ScriptE
     @Autowired
     StandardStreamsPermission standardStreamsPermission;
 
+    /**
+     * Evaluated scripts per handler id. Replaced when a runtime is created for a handler with a different script and
+     * invalidated when the handler is updated or deleted. An evaluated script is reused for many events, its global
+     * variables are reset and the handler is rebound before each event.
+     */
+    private final Cache<Integer, HandlerDelegates> delegates = Caffeine.newBuilder()
+            .build();
+
     @Override
     public String getEventHandlerTypeName() {
         return TYPE_NAME;
@@ -63,9 +79,27 @@ public class ScriptEventHandlerDefinition extends EventHandlerDefinition<ScriptE
         return new ScriptEventHandlerVO();
     }
 
+    @EventListener
+    protected void handleEventHandlerEvent(DaoEvent<? extends ScriptEventHandlerVO> event) {
+        if (event.getType() == DaoEventType.UPDATE || event.getType() == DaoEventType.DELETE) {
+            delegates.invalidate(event.getVo().getId());
+        }
+    }
+
     @Override
     public EventHandlerRT<ScriptEventHandlerVO> createRuntime(ScriptEventHandlerVO vo) {
-        return createRuntimeInternal(vo);
+        if (vo.getId() == Common.NEW_ID) {
+            return createRuntimeInternal(vo);
+        }
+        ScriptContextPool<PooledDelegate> pool = delegates.asMap().compute(vo.getId(), (id, existing) ->
+                existing != null && existing.isFor(vo) ? existing : new HandlerDelegates(vo)).pool;
+        //Evaluate the script now if none is idle so that errors are reported when the runtime is created
+        PooledDelegate delegate = pool.poll();
+        if (delegate == null) {
+            delegate = createDelegate(vo);
+        }
+        pool.release(delegate);
+        return new ScriptEventHandlerRT(vo, pool, () -> createDelegate(vo));
     }
 
     @Override
@@ -81,6 +115,12 @@ public class ScriptEventHandlerDefinition extends EventHandlerDefinition<ScriptE
     }
 
     private ScriptEventHandlerRT createRuntimeInternal(ScriptEventHandlerVO vo) {
+        ScriptContextPool<PooledDelegate> pool = new ScriptContextPool<>(1);
+        pool.release(createDelegate(vo));
+        return new ScriptEventHandlerRT(vo, pool, () -> createDelegate(vo));
+    }
+
+    private PooledDelegate createDelegate(ScriptEventHandlerVO vo) {
         Map<String, Object> bindings = Collections.singletonMap(ScriptEventHandlerRT.EVENT_HANDLER_KEY, vo);
         EvalContext context = new EvalContext(bindings);
 
@@ -91,12 +131,11 @@ public class ScriptEventHandlerDefinition extends EventHandlerDefinition<ScriptE
             context.setReader(new BufferedReader(new InputStreamReader(System.in)));
         }
 
-        EventHandlerInterface scriptHandlerDelegate = scriptService.getInterface(
+        EventHandlerInterface delegate = scriptService.getInterface(
                 vo.toMangoScript(),
                 EventHandlerInterface.class,
                 context);
-
-        return new ScriptEventHandlerRT(vo, scriptHandlerDelegate);
+        return new PooledDelegate(delegate, context.getEngineBindings());
     }
 
     @Override
@@ -151,4 +190,23 @@ public class ScriptEventHandlerDefinition extends EventHandlerDefinition<ScriptE
             response.addContextualMessage("engineName", "script.permissionMissing", engineName);
         }
     }
+
+    private static final class HandlerDelegates {
+        private final ScriptEventHandlerVO vo;
+        private final ScriptContextPool<PooledDelegate> pool = new ScriptContextPool<>();
+
+        private HandlerDelegates(ScriptEventHandlerVO vo) {
+            this.vo = vo;
+        }
+
+        /**
+         * @return true if the delegates were evaluated from the same XID, engine, script and script roles as the handler
+         */
+        private boolean isFor(ScriptEventHandlerVO other) {
+            return Objects.equals(vo.getXid(), other.getXid()) &&
+                    Objects.equals(vo.getEngineName(), other.getEngineName()) &&
+                    Objects.equals(vo.getScript(), other.getScript()) &&
+                    Objects.equals(vo.getScriptRoles(), other.getScriptRoles());
+        }
+    }
 }
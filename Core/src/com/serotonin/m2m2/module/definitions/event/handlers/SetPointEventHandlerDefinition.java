@@ -9,9 +9,13 @@ import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.infiniteautomation.mango.spring.components.RunAs;
 import com.infiniteautomation.mango.spring.events.DaoEvent;
+import com.infiniteautomation.mango.spring.events.DaoEventType;
 import com.infiniteautomation.mango.spring.service.EventHandlerService;
 import com.infiniteautomation.mango.spring.service.MangoJavaScriptService;
 import com.infiniteautomation.mango.spring.service.PermissionService;
@@ -23,6 +27,7 @@ import com.serotonin.m2m2.i18n.ProcessResult;
 import com.serotonin.m2m2.module.EventHandlerDefinition;
 import com.serotonin.m2m2.rt.event.handlers.EventHandlerRT;
 import com.serotonin.m2m2.rt.event.handlers.SetPointHandlerRT;
+import com.serotonin.m2m2.rt.event.handlers.SetPointHandlerScripts;
 import com.serotonin.m2m2.rt.script.ScriptError;
 import com.serotonin.m2m2.vo.DataPointVO;
 import com.serotonin.m2m2.vo.event.SetPointEventHandlerVO;
@@ -47,6 +52,15 @@ public class SetPointEventHandlerDefinition extends EventHandlerDefinition<SetPo
     PermissionService service;
     @Autowired
     RunAs runAs;
+    @Autowired
+    MangoJavaScriptService javaScriptService;
+
+    /**
+     * Compiled scripts per handler id. Replaced when a runtime is created for a handler with different scripts and
+     * invalidated when the handler is updated or deleted.
+     */
+    private final Cache<Integer, SetPointHandlerScripts> scripts = Caffeine.newBuilder()
+            .build();
 
     @Override
     public String getEventHandlerTypeName() {
@@ -127,7 +141,6 @@ public class SetPointEventHandlerDefinition extends EventHandlerDefinition<SetPo
             response.addContextualMessage("activeAction", "eventHandlers.noSetPointAction");
             response.addContextualMessage("inactiveAction", "eventHandlers.noSetPointAction");
         }
-        MangoJavaScriptService javaScriptService = Common.getBean(MangoJavaScriptService.class);
         // Active
         if (vo.getActiveAction() == SetPointEventHandlerVO.SET_ACTION_STATIC_VALUE && dataType == DataType.MULTISTATE) {
             try {
@@ -208,8 +221,20 @@ public class SetPointEventHandlerDefinition extends EventHandlerDefinition<SetPo
             vo.setAdditionalContext(new ArrayList<>());
     }
 
+    @EventListener
+    protected void handleEventHandlerEvent(DaoEvent<? extends SetPointEventHandlerVO> event) {
+        if (event.getType() == DaoEventType.UPDATE || event.getType() == DaoEventType.DELETE) {
+            scripts.invalidate(event.getVo().getId());
+        }
+    }
+
     @Override
     public EventHandlerRT<SetPointEventHandlerVO> createRuntime(SetPointEventHandlerVO vo){
-        return new SetPointHandlerRT(vo);
+        if (vo.getId() == Common.NEW_ID) {
+            return new SetPointHandlerRT(vo, new SetPointHandlerScripts(vo, javaScriptService));
+        }
+        SetPointHandlerScripts handlerScripts = scripts.asMap().compute(vo.getId(), (id, existing) ->
+                existing != null && existing.isFor(vo) ? existing : new SetPointHandlerScripts(vo, javaScriptService));
+        return new SetPointHandlerRT(vo, handlerScripts);
     }
 }
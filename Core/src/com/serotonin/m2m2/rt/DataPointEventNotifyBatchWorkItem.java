@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+
+package com.serotonin.m2m2.rt;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.serotonin.m2m2.rt.maint.work.WorkItem;
+import com.serotonin.timer.RejectedTaskReason;
+import com.serotonin.timer.Task;
+
+/**
+ * Executes several {@link DataPointEventNotifyWorkItem}s which share the same task id in order, used when a batch of
+ * point values is applied so that there is one work item per task id instead of one per value.
+ */
+public class DataPointEventNotifyBatchWorkItem implements WorkItem {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DataPointEventNotifyBatchWorkItem.class);
+
+    private static final String descriptionPrefix = "Point events for: ";
+    private final List<DataPointEventNotifyWorkItem> items;
+    private final String taskId;
+
+    /**
+     * @param items notifications to execute in order, must not be empty and must all have the same task id
+     */
+    public DataPointEventNotifyBatchWorkItem(List<DataPointEventNotifyWorkItem> items) {
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("Items can't be empty");
+        }
+        this.items = items;
+        this.taskId = items.get(0).getTaskId();
+    }
+
+    @Override
+    public void execute() {
+        for (DataPointEventNotifyWorkItem item : items) {
+            try {
+                item.execute();
+            } catch (Exception e) {
+                // don't prevent the remaining notifications from being delivered
+                LOG.error("Error in " + item.getDescription(), e);
+            }
+        }
+    }
+
+    @Override
+    public int getPriority() {
+        return WorkItem.PRIORITY_MEDIUM;
+    }
+
+    @Override
+    public String getDescription() {
+        return descriptionPrefix + items.size() + " values, " + taskId;
+    }
+
+    @Override
+    public String getTaskId() {
+        return taskId;
+    }
+
+    @Override
+    public int getQueueSize() {
+        return Task.UNLIMITED_QUEUE_SIZE;
+    }
+
+    @Override
+    public void rejected(RejectedTaskReason reason) {
+        //No special handling, tracking/logging is handled by the WorkItemRunnable
+    }
+}
@@ -11,6 +11,8 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.infiniteautomation.mango.util.LazyInitSupplier;
+import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.rt.dataImage.DataPointListener;
 import com.serotonin.m2m2.rt.dataImage.PointValueTime;
 import com.serotonin.m2m2.rt.maint.work.WorkItem;
@@ -24,6 +26,15 @@ public class DataPointEventNotifyWorkItem implements WorkItem {
 
     private static final String descriptionPrefix = "Point event for: ";
     private static final String prefix = "EN-";
+    private static final String shardPrefix = "EN-SHARD-";
+
+    /**
+     * If greater than zero notifications are queued in this many ordered queues (by data point XID) instead of one
+     * queue per data point.
+     */
+    private static final LazyInitSupplier<Integer> shards = new LazyInitSupplier<>(() ->
+            Math.max(0, Common.envProps.getInt("runtime.datapoint.notifyShards", 0)));
+
     private final String sourceXid;
     private final DataPointListener listener;
     private final PointValueTime oldValue;
@@ -48,7 +59,21 @@ public class DataPointEventNotifyWorkItem implements WorkItem {
         this.logged = logged;
         this.updated = updated;
         this.attributesChanged = attributesChanged;
-        this.taskId = prefix + sourceXid;
+        this.taskId = taskId(sourceXid);
+    }
+
+    /**
+     * Notifications with the same task id are executed in order.
+     *
+     * @param xid data point XID
+     * @return task id for the data point's notifications
+     */
+    public static String taskId(String xid) {
+        int shardCount = shards.get();
+        if (shardCount > 0) {
+            return shardPrefix + Math.floorMod(xid.hashCode(), shardCount);
+        }
+        return prefix + xid;
     }
 
     @Override
@@ -36,6 +36,17 @@ public interface EventManager extends ILifecycle {
     void raiseEvent(EventType type, long time, boolean rtnApplicable, AlarmLevels alarmLevel,
             TranslatableMessage message, Map<String, Object> context);
 
+    /**
+     * Raise multiple events in order. The supplied instances only describe the events to raise (type, time,
+     * rtnApplicable, alarm level, message and context), implementations may save the events in batches.
+     */
+    default void raiseEvents(List<EventInstance> events) {
+        for (EventInstance evt : events) {
+            raiseEvent(evt.getEventType(), evt.getActiveTimestamp(), evt.isRtnApplicable(), evt.getAlarmLevel(),
+                    evt.getMessage(), evt.getContext());
+        }
+    }
+
     void returnToNormal(EventType type, long time);
     void returnToNormal(EventType type, long time, ReturnCause cause);
 
@@ -117,6 +117,60 @@ public class EventManagerImpl implements EventManager {
         if (state != ILifecycleState.RUNNING)
             return;
 
+        RaisedEvent raised = prepareEvent(type, time, rtnApplicable, alarmLevel, message, context,
+                Collections.emptyList());
+        if (raised == null)
+            return;
+
+        // Get id from database by inserting event immediately.
+        //Check to see if we are Not Logging these
+        if (alarmLevel != AlarmLevels.DO_NOT_LOG) {
+            eventDao.saveEvent(raised.evt);
+        }
+
+        dispatchEvent(raised);
+    }
+
+    /**
+     * Raise multiple events, the events which are logged are saved in a batch before the handlers of any of the
+     * events are run.
+     */
+    @Override
+    public void raiseEvents(List<EventInstance> events) {
+        if (state != ILifecycleState.RUNNING)
+            return;
+
+        List<RaisedEvent> raisedEvents = new ArrayList<>(events.size());
+        List<EventInstance> toSave = new ArrayList<>(events.size());
+        for (EventInstance event : events) {
+            RaisedEvent raised = prepareEvent(event.getEventType(), event.getActiveTimestamp(), event.isRtnApplicable(),
+                    event.getAlarmLevel(), event.getMessage(), event.getContext(), raisedEvents);
+            if (raised != null) {
+                raisedEvents.add(raised);
+                if (raised.alarmLevel != AlarmLevels.DO_NOT_LOG) {
+                    toSave.add(raised.evt);
+                }
+            }
+        }
+
+        if (!toSave.isEmpty()) {
+            eventDao.saveEvents(toSave);
+        }
+
+        for (RaisedEvent raised : raisedEvents) {
+            dispatchEvent(raised);
+        }
+    }
+
+    /**
+     * Create the event instance, applying the duplicate handling and the event manager listeners
+     * @param batch events prepared earlier in the same batch, these are not yet in the active/recent lists so
+     *              the duplicate checks have to consult them as well
+     * @return the event to save and dispatch or null if the event should not be raised
+     */
+    private RaisedEvent prepareEvent(EventType type, long time, boolean rtnApplicable,
+            AlarmLevels alarmLevel, TranslatableMessage message,
+            Map<String, Object> context, List<RaisedEvent> batch) {
         long nowTimestamp = Common.timer.currentTimeMillis();
         if (time > nowTimestamp) {
             log.warn("Raising event in the future! type=" + type +
@@ -128,22 +182,23 @@ public class EventManagerImpl implements EventManager {
         }
 
         if (alarmLevel == AlarmLevels.IGNORE)
-            return;
+            return null;
 
         // Check if there is an event for this type already active.
         EventInstance dup = get(type);
-        if (dup != null) {
+        if (dup != null || inBatch(batch, type, true, null)) {
             // Check the duplicate handling.
-            boolean discard = canDiscard(type, message);
+            boolean discard = canDiscard(type, message, batch);
             if (discard)
-                return;
+                return null;
 
             // Otherwise we just continue...
         } else if (!rtnApplicable) {
             // Check if we've already seen this type recently.
-            boolean recent = isRecent(type, message);
+            boolean recent = isRecent(type, message) ||
+                    (type.isRateLimited() && inBatch(batch, type, false, message));
             if (recent)
-                return;
+                return null;
         }
 
         EventInstance evt = new EventInstance(type, time, rtnApplicable,
@@ -169,17 +224,24 @@ public class EventManagerImpl implements EventManager {
                 log.warn("Error in event manager listener, continuing", e);
             }
             if (evt == null) {
-                return;
+                return null;
             }
         }
 
         initHandlers(evt);
+        return new RaisedEvent(evt, type, time, alarmLevel, message, autoAckMessage);
+    }
 
-        // Get id from database by inserting event immediately.
-        //Check to see if we are Not Logging these
-        if (alarmLevel != AlarmLevels.DO_NOT_LOG) {
-            eventDao.saveEvent(evt);
-        }
+    /**
+     * Notify users, add the saved event to the active/recent lists and run the handlers
+     */
+    private void dispatchEvent(RaisedEvent raised) {
+        EventInstance evt = raised.evt;
+        EventType type = raised.type;
+        long time = raised.time;
+        AlarmLevels alarmLevel = raised.alarmLevel;
+        TranslatableMessage message = raised.message;
+        TranslatableMessage autoAckMessage = raised.autoAckMessage;
 
         // set of email addresses which have been configured to receive events over a certain level
         Set<String> emailUsers = new HashSet<>();
@@ -257,7 +319,30 @@ public class EventManagerImpl implements EventManager {
         }
     }
 
-    private boolean canDiscard(EventType type, TranslatableMessage message) {
+    /**
+     * An event which has passed the duplicate checks and the event manager listeners, along with the arguments it
+     * was raised with
+     */
+    private static final class RaisedEvent {
+        private final EventInstance evt;
+        private final EventType type;
+        private final long time;
+        private final AlarmLevels alarmLevel;
+        private final TranslatableMessage message;
+        private final TranslatableMessage autoAckMessage;
+
+        private RaisedEvent(EventInstance evt, EventType type, long time, AlarmLevels alarmLevel,
+                TranslatableMessage message, TranslatableMessage autoAckMessage) {
+            this.evt = evt;
+            this.type = type;
+            this.time = time;
+            this.alarmLevel = alarmLevel;
+            this.message = message;
+            this.autoAckMessage = autoAckMessage;
+        }
+    }
+
+    private boolean canDiscard(EventType type, TranslatableMessage message, List<RaisedEvent> batch) {
         // Check the duplicate handling.
         DuplicateHandling dh = type.getDuplicateHandling();
         if (dh == DuplicateHandling.DO_NOT_ALLOW) {
@@ -280,11 +365,27 @@ public class EventManagerImpl implements EventManager {
                 if (e.getMessage().equals(message))
                     return true;
             }
+            return inBatch(batch, type, true, message);
         }
 
         return false;
     }
 
+    /**
+     * @param message the message to match or null to match any message
+     * @return true if an event of this type was prepared earlier in the batch
+     */
+    private boolean inBatch(List<RaisedEvent> batch, EventType type, boolean rtnApplicable,
+            TranslatableMessage message) {
+        for (RaisedEvent raised : batch) {
+            EventInstance e = raised.evt;
+            if (e.isRtnApplicable() == rtnApplicable && e.getEventType().equals(type)
+                    && (message == null || e.getMessage().equals(message)))
+                return true;
+        }
+        return false;
+    }
+
     private boolean isRecent(EventType type, TranslatableMessage message) {
         long cutoff = Common.timer.currentTimeMillis() - RECENT_EVENT_PERIOD;
 
@@ -12,6 +12,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.rt.dataImage.DataPointListener;
 import com.serotonin.m2m2.rt.dataImage.DataPointRT;
+import com.serotonin.m2m2.rt.dataImage.PointValueBatch;
 import com.serotonin.m2m2.rt.dataImage.PointValueTime;
 import com.serotonin.m2m2.rt.dataImage.SetPointSource;
 import com.serotonin.m2m2.rt.dataImage.types.DataValue;
@@ -161,6 +162,14 @@ public interface RuntimeManager extends ILifecycle {
 
     void setDataPointValue(int dataPointId, PointValueTime valueTime, SetPointSource source);
 
+    /**
+     * Apply a batch of values to running data points, e.g. all values read by a single poll. Values are saved the same
+     * way as single values and listener notifications are grouped, the order of values for each point is preserved.
+     *
+     * @param batch values to apply
+     */
+    void updatePointValues(PointValueBatch batch);
+
     void relinquish(int dataPointId);
 
     /**
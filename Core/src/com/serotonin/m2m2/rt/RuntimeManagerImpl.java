@@ -35,9 +35,10 @@ import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.module.DataSourceDefinition.StartPriority;
 import com.serotonin.m2m2.module.ModuleRegistry;
 import com.serotonin.m2m2.module.RuntimeManagerDefinition;
-import com.serotonin.m2m2.rt.dataImage.DataPointEventMulticaster;
 import com.serotonin.m2m2.rt.dataImage.DataPointListener;
+import com.serotonin.m2m2.rt.dataImage.DataPointListenerRegistry;
 import com.serotonin.m2m2.rt.dataImage.DataPointRT;
+import com.serotonin.m2m2.rt.dataImage.PointValueBatch;
 import com.serotonin.m2m2.rt.dataImage.PointValueTime;
 import com.serotonin.m2m2.rt.dataImage.SetPointSource;
 import com.serotonin.m2m2.rt.dataImage.types.DataValue;
@@ -427,12 +428,12 @@ public class RuntimeManagerImpl implements RuntimeManager {
 
     @Override
     public void addDataPointListener(int dataPointId, DataPointListener l) {
-        dataPointListeners.compute(dataPointId, (k, v) -> DataPointEventMulticaster.add(v, l));
+        dataPointListeners.compute(dataPointId, (k, v) -> DataPointListenerRegistry.add(v, l));
     }
 
     @Override
     public void removeDataPointListener(int dataPointId, DataPointListener l) {
-        dataPointListeners.compute(dataPointId, (k, v) -> DataPointEventMulticaster.remove(v, l));
+        dataPointListeners.compute(dataPointId, (k, v) -> DataPointListenerRegistry.remove(v, l));
     }
 
     @Override
@@ -442,6 +443,11 @@ public class RuntimeManagerImpl implements RuntimeManager {
 
     //
     // Point values
+    @Override
+    public void updatePointValues(PointValueBatch batch) {
+        DataPointRT.updatePointValues(batch);
+    }
+
     @Override
     public void setDataPointValue(int dataPointId, DataValue value, SetPointSource source) {
         setDataPointValue(dataPointId, new PointValueTime(value, Common.timer.currentTimeMillis()), source);
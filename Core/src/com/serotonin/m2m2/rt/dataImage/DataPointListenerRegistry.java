@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.rt.dataImage;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.infiniteautomation.mango.util.LazyInitSupplier;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.util.ExceptionListWrapper;
+import com.serotonin.m2m2.vo.DataPointVO;
+
+/**
+ * Immutable set of the listeners of a data point, dispatches each event to every listener in the order they were
+ * added. Adding or removing a listener creates a new registry (copy on write) which is swapped into place atomically
+ * e.g. via {@link java.util.concurrent.ConcurrentMap#compute}, so dispatching never observes a partially modified
+ * registry and never recurses.
+ *
+ * <p>An exception thrown by a listener does not prevent the other listeners from being notified, the exceptions are
+ * thrown in an {@link ExceptionListWrapper} once all listeners have been notified. If
+ * runtime.datapoint.slowListenerThreshold (ms) is set each dispatch is timed and slow listeners are logged.</p>
+ */
+public final class DataPointListenerRegistry implements DataPointListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DataPointListenerRegistry.class);
+
+    private static final LazyInitSupplier<Long> slowListenerThreshold = new LazyInitSupplier<>(() ->
+            TimeUnit.MILLISECONDS.toNanos(Math.max(0, Common.envProps.getLong("runtime.datapoint.slowListenerThreshold", 0))));
+
+    private final DataPointListener[] listeners;
+
+    private DataPointListenerRegistry(DataPointListener[] listeners) {
+        this.listeners = listeners;
+    }
+
+    /**
+     * @param current existing listener(s) of the data point, may be null
+     * @param listener listener to add
+     * @return new registry containing the listener
+     */
+    public static DataPointListener add(@Nullable DataPointListener current, DataPointListener listener) {
+        DataPointListener[] existing = toArray(current);
+        DataPointListener[] updated = Arrays.copyOf(existing, existing.length + 1);
+        updated[existing.length] = listener;
+        return new DataPointListenerRegistry(updated);
+    }
+
+    /**
+     * @param current existing listener(s) of the data point, may be null
+     * @param listener listener to remove (first occurrence)
+     * @return new registry without the listener, current if it does not contain the listener, or null if no listeners remain
+     */
+    public static @Nullable DataPointListener remove(@Nullable DataPointListener current, DataPointListener listener) {
+        DataPointListener[] existing = toArray(current);
+        int index = -1;
+        for (int i = 0; i < existing.length; i++) {
+            if (existing[i] == listener) {
+                index = i;
+                break;
+            }
+        }
+
+        if (index < 0) {
+            return current;
+        } else if (existing.length == 1) {
+            return null;
+        }
+
+        DataPointListener[] updated = new DataPointListener[existing.length - 1];
+        System.arraycopy(existing, 0, updated, 0, index);
+        System.arraycopy(existing, index + 1, updated, index, existing.length - index - 1);
+        return new DataPointListenerRegistry(updated);
+    }
+
+    /**
+     * @param l registry or single listener, may be null
+     * @return copy of the listeners
+     */
+    public static DataPointListener[] getListeners(@Nullable DataPointListener l) {
+        return toArray(l).clone();
+    }
+
+    private static DataPointListener[] toArray(@Nullable DataPointListener l) {
+        if (l == null) {
+            return new DataPointListener[0];
+        } else if (l instanceof DataPointListenerRegistry) {
+            return ((DataPointListenerRegistry) l).listeners;
+        }
+        return new DataPointListener[] {l};
+    }
+
+    public int size() {
+        return listeners.length;
+    }
+
+    private void dispatch(String event, Consumer<DataPointListener> action) throws ExceptionListWrapper {
+        ExceptionListWrapper exceptionWrapper = null;
+        long threshold = slowListenerThreshold.get();
+
+        for (DataPointListener listener : listeners) {
+            long start = threshold > 0 ? System.nanoTime() : 0L;
+            try {
+                action.accept(listener);
+            } catch (ExceptionListWrapper e) {
+                if (exceptionWrapper == null)
+                    exceptionWrapper = e;
+                else if (e.getExceptions() != null)
+                    e.getExceptions().forEach(exceptionWrapper::addException);
+            } catch (Exception e) {
+                if (exceptionWrapper == null)
+                    exceptionWrapper = new ExceptionListWrapper(e);
+                else
+                    exceptionWrapper.addException(e);
+            } finally {
+                if (threshold > 0) {
+                    long elapsed = System.nanoTime() - start;
+                    if (elapsed > threshold && LOG.isWarnEnabled()) {
+                        LOG.warn("Data point listener {} took {}ms to handle {}", listener.getListenerName(),
+                                TimeUnit.NANOSECONDS.toMillis(elapsed), event);
+                    }
+                }
+            }
+        }
+
+        if (exceptionWrapper != null)
+            throw exceptionWrapper;
+    }
+
+    @Override
+    public void pointInitialized() throws ExceptionListWrapper {
+        dispatch("pointInitialized", DataPointListener::pointInitialized);
+    }
+
+    @Override
+    public void pointUpdated(PointValueTime newValue) throws ExceptionListWrapper {
+        dispatch("pointUpdated", l -> l.pointUpdated(newValue));
+    }
+
+    @Override
+    public void pointChanged(PointValueTime oldValue, PointValueTime newValue) throws ExceptionListWrapper {
+        dispatch("pointChanged", l -> l.pointChanged(oldValue, newValue));
+    }
+
+    @Override
+    public void pointSet(PointValueTime oldValue, PointValueTime newValue) throws ExceptionListWrapper {
+        dispatch("pointSet", l -> l.pointSet(oldValue, newValue));
+    }
+
+    @Override
+    public void pointBackdated(PointValueTime value) throws ExceptionListWrapper {
+        dispatch("pointBackdated", l -> l.pointBackdated(value));
+    }
+
+    @Override
+    public void pointTerminated(DataPointVO vo) throws ExceptionListWrapper {
+        dispatch("pointTerminated", l -> l.pointTerminated(vo));
+    }
+
+    @Override
+    public void pointLogged(PointValueTime value) throws ExceptionListWrapper {
+        dispatch("pointLogged", l -> l.pointLogged(value));
+    }
+
+    @Override
+    public void attributeChanged(Map<String, Object> attributes) throws ExceptionListWrapper {
+        dispatch("attributeChanged", l -> l.attributeChanged(attributes));
+    }
+
+    @Override
+    public String getListenerName() {
+        return Arrays.stream(listeners)
+                .map(DataPointListener::getListenerName)
+                .collect(Collectors.joining(","));
+    }
+}
@@ -8,6 +8,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -26,6 +27,7 @@ import com.serotonin.m2m2.DataType;
 import com.serotonin.m2m2.db.dao.DataPointDao;
 import com.serotonin.m2m2.db.dao.PointValueDao;
 import com.serotonin.m2m2.db.dao.SystemSettingsDao;
+import com.serotonin.m2m2.rt.DataPointEventNotifyBatchWorkItem;
 import com.serotonin.m2m2.rt.DataPointEventNotifyWorkItem;
 import com.serotonin.m2m2.rt.dataImage.types.BinaryValue;
 import com.serotonin.m2m2.rt.dataImage.types.DataValue;
@@ -57,6 +59,8 @@ public class DataPointRT implements IDataPointValueSource, ILifecycle {
     private final Logger log = LoggerFactory.getLogger(DataPointRT.class);
     private static final PvtTimeComparator pvtTimeComparator = new PvtTimeComparator();
     private static final String prefix = "INTVL_LOG-";
+    // Notifications deferred while a batch of values is being applied by the current thread, keyed by task id
+    private static final ThreadLocal<Map<String, List<DataPointEventNotifyWorkItem>>> batchNotifications = new ThreadLocal<>();
 
     // Configuration data.
     private final DataPointVO vo;
@@ -353,7 +357,35 @@ public class DataPointRT implements IDataPointValueSource, ILifecycle {
             pointValue.set(newValue);
         }
         fireEvents(oldValue, newValue, null, source != null, backdated, logValue, !backdated, false);
+    }
+
+    /**
+     * Applies a batch of values (e.g. a poll's worth of values from a data source). Each value is applied exactly as
+     * {@link #setPointValue(PointValueTime, SetPointSource)} would apply it, so logged values are saved using the same
+     * (asynchronous) mode as single values and listeners are notified via {@link #fireEvents}. Notifications which
+     * share a task id (see {@link DataPointEventNotifyWorkItem#taskId(String)}) are submitted as a single work item
+     * once the whole batch is applied, so the order of notifications for each point is preserved.
+     *
+     * @param batch values to apply
+     */
+    public static void updatePointValues(PointValueBatch batch) {
+        Map<String, List<DataPointEventNotifyWorkItem>> notifications = new LinkedHashMap<>();
+        batchNotifications.set(notifications);
+        try {
+            for (PointValueBatch.Entry entry : batch.getEntries()) {
+                entry.getPoint().setPointValue(entry.getValue(), entry.getSource());
+            }
+        } finally {
+            batchNotifications.remove();
+        }
 
+        for (List<DataPointEventNotifyWorkItem> items : notifications.values()) {
+            if (items.size() == 1) {
+                Common.backgroundProcessing.addWorkItem(items.get(0));
+            } else {
+                Common.backgroundProcessing.addWorkItem(new DataPointEventNotifyBatchWorkItem(items));
+            }
+        }
     }
 
     public static enum FireEvents {
@@ -792,10 +824,23 @@ public class DataPointRT implements IDataPointValueSource, ILifecycle {
             boolean backdate, boolean logged, boolean updated, boolean attributesChanged) {
         DataPointListener l = Common.runtimeManager.getDataPointListeners(vo.getId());
         if (l != null)
-            Common.backgroundProcessing.addWorkItem(new DataPointEventNotifyWorkItem(vo.getXid(), l, oldValue, newValue,
+            submitNotification(new DataPointEventNotifyWorkItem(vo.getXid(), l, oldValue, newValue,
                     attributes, set, backdate, logged, updated, attributesChanged));
     }
 
+    /**
+     * Submits the notification, or defers it until the end of the batch if called from
+     * {@link #updatePointValues(PointValueBatch)}
+     */
+    private static void submitNotification(DataPointEventNotifyWorkItem item) {
+        Map<String, List<DataPointEventNotifyWorkItem>> pending = batchNotifications.get();
+        if (pending != null) {
+            pending.computeIfAbsent(item.getTaskId(), k -> new ArrayList<>()).add(item);
+        } else {
+            Common.backgroundProcessing.addWorkItem(item);
+        }
+    }
+
     @Override
     public ILifecycleState getLifecycleState() {
         return state;
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.rt.dataImage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A set of point values to be applied together, typically all the values read by a single poll of a data source.
+ * Values for the same point are applied in the order in which they were added.
+ *
+ * @see com.serotonin.m2m2.rt.RuntimeManager#updatePointValues(PointValueBatch)
+ */
+public class PointValueBatch {
+
+    private final List<Entry> entries;
+
+    public PointValueBatch() {
+        this.entries = new ArrayList<>();
+    }
+
+    public PointValueBatch(int expectedSize) {
+        this.entries = new ArrayList<>(expectedSize);
+    }
+
+    /**
+     * Add a value from the data source, equivalent to {@link DataPointRT#updatePointValue(PointValueTime)}
+     */
+    public PointValueBatch add(DataPointRT point, PointValueTime value) {
+        return add(point, value, null);
+    }
+
+    /**
+     * Add a value, equivalent to {@link DataPointRT#setPointValue(PointValueTime, SetPointSource)}
+     */
+    public PointValueBatch add(DataPointRT point, PointValueTime value, @Nullable SetPointSource source) {
+        entries.add(new Entry(point, value, source));
+        return this;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public static class Entry {
+        private final DataPointRT point;
+        private final PointValueTime value;
+        private final SetPointSource source;
+
+        private Entry(DataPointRT point, PointValueTime value, SetPointSource source) {
+            this.point = point;
+            this.value = value;
+            this.source = source;
+        }
+
+        public DataPointRT getPoint() {
+            return point;
+        }
+
+        public PointValueTime getValue() {
+            return value;
+        }
+
+        @Nullable
+        public SetPointSource getSource() {
+            return source;
+        }
+    }
+}
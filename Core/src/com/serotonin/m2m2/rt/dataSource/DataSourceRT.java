@@ -33,6 +33,7 @@ import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.rt.DataPointGroupInitializer;
 import com.serotonin.m2m2.rt.RuntimeManager;
 import com.serotonin.m2m2.rt.dataImage.DataPointRT;
+import com.serotonin.m2m2.rt.dataImage.PointValueBatch;
 import com.serotonin.m2m2.rt.dataImage.PointValueTime;
 import com.serotonin.m2m2.rt.dataImage.SetPointSource;
 import com.serotonin.m2m2.rt.event.type.DataSourceEventType;
@@ -215,6 +216,18 @@ abstract public class DataSourceRT<VO extends DataSourceVO> implements ILifecycl
 
     abstract public void setPointValueImpl(DataPointRT dataPoint, PointValueTime valueTime, SetPointSource source);
 
+    /**
+     * Update the values of a number of this data source's points at once, use instead of calling
+     * {@link DataPointRT#updatePointValue(PointValueTime)} for each value when a poll reads many values.
+     *
+     * @param batch values to apply
+     */
+    public void updatePointValues(PointValueBatch batch) {
+        if (!batch.isEmpty()) {
+            Common.runtimeManager.updatePointValues(batch);
+        }
+    }
+
     public void relinquish(DataPointRT dataPoint) {
         throw new UnsupportedOperationException("Not implemented for " + getClass());
     }
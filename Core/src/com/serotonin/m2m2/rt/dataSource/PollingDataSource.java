@@ -10,6 +10,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -19,7 +20,10 @@ import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
 import com.infiniteautomation.mango.monitor.ValueMonitor;
+import com.infiniteautomation.mango.util.LazyInitSupplier;
 import com.serotonin.db.pair.LongLongPair;
 import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
@@ -39,6 +43,16 @@ abstract public class PollingDataSource<T extends PollingDataSourceVO> extends D
     private static final String prefix = "POLLINGDS-";
     private final Lock pollLock = new ReentrantLock();
 
+    /**
+     * Limits the number of polls (across all polling data sources) which may run concurrently. A poll that can't get a
+     * permit immediately is aborted rather than parking its thread, the poll threads come from the shared high
+     * priority pool. Package-private so that tests can exhaust the permits.
+     */
+    static final LazyInitSupplier<Semaphore> pollPermits = new LazyInitSupplier<>(() -> {
+        int maxConcurrentPolls = Common.envProps.getInt("runtime.datasource.maxConcurrentPolls", 0);
+        return new Semaphore(maxConcurrentPolls > 0 ? maxConcurrentPolls : Integer.MAX_VALUE);
+    });
+
     private enum PendingPointOperation {
         ADD, REMOVE
     }
@@ -64,6 +78,8 @@ abstract public class PollingDataSource<T extends PollingDataSourceVO> extends D
     protected long pollingPeriodMillis = 300000; // Default to 5 minutes just to
     // have something here
     protected boolean quantize;
+    // Offset from the quantized poll time at which the poll actually runs, see runtime.datasource.pollPhaseSpread
+    protected long phaseOffsetMillis;
 
     // If polling is done with cron
     protected String cronPattern;
@@ -83,6 +99,13 @@ abstract public class PollingDataSource<T extends PollingDataSourceVO> extends D
     private long nextAbortedPollMessageTime = 0L;
     private final long abortedPollLogDelay;
 
+    // Delay between the scheduled poll time and the start of the poll
+    private final Histogram pollLatency = new Histogram(new ExponentiallyDecayingReservoir());
+    private final Histogram pollDuration = new Histogram(new ExponentiallyDecayingReservoir());
+    private final AtomicLong pollOverruns = new AtomicLong();
+    private ValueMonitor<Long> pollLatencyMonitor;
+    private ValueMonitor<Long> pollOverrunsMonitor;
+
     public PollingDataSource(T vo) {
         super(vo);
         if (vo.isUseCron())
@@ -91,6 +114,10 @@ abstract public class PollingDataSource<T extends PollingDataSourceVO> extends D
             pollingPeriodMillis = Common.getMillis(vo.getUpdatePeriodType(), vo.getUpdatePeriods());
 
         this.quantize = vo.isQuantize();
+        if (quantize && cronPattern == null && Common.envProps.getBoolean("runtime.datasource.pollPhaseSpread", false)) {
+            double window = Common.envProps.getDouble("runtime.datasource.pollPhaseSpreadWindow", 0.5);
+            this.phaseOffsetMillis = phaseOffset(vo.getXid(), pollingPeriodMillis, window);
+        }
 
         this.latestPollTimes = new ConcurrentLinkedQueue<>();
         this.latestAbortedPollTimes = new ConcurrentLinkedQueue<>();
@@ -99,7 +126,7 @@ abstract public class PollingDataSource<T extends PollingDataSourceVO> extends D
 
             @Override
             public void scheduleTimeout(long fireTime) {
-                scheduleTimeoutImpl(fireTime);
+                poll(fireTime, fireTime - phaseOffsetMillis);
             }
 
             @Override
@@ -114,7 +141,7 @@ abstract public class PollingDataSource<T extends PollingDataSourceVO> extends D
 
             @Override
             public void rejected(RejectedTaskReason reason) {
-                incrementUnsuccessfulPolls(reason.getScheduledExecutionTime());
+                incrementUnsuccessfulPolls(reason.getScheduledExecutionTime() - phaseOffsetMillis);
                 updateSuccessfulPollQuotient();
                 Common.backgroundProcessing.rejectedHighPriorityTask(reason);
             }
@@ -139,6 +166,40 @@ abstract public class PollingDataSource<T extends PollingDataSourceVO> extends D
                 .name(new TranslatableMessage("internal.monitor.pollingDataSource.PERCENTAGE", vo.getName()))
                 .value(0D)
                 .build();
+
+        this.pollLatencyMonitor = Common.MONITORED_VALUES.<Long>create("com.serotonin.m2m2.rt.dataSource.PollingDataSource_" + vo.getXid() + "_LATENCY")
+                .name(new TranslatableMessage("internal.monitor.pollingDataSource.LATENCY", vo.getName()))
+                .supplier(() -> (long) pollLatency.getSnapshot().get99thPercentile())
+                .buildReadThrough();
+
+        this.pollOverrunsMonitor = Common.MONITORED_VALUES.<Long>create("com.serotonin.m2m2.rt.dataSource.PollingDataSource_" + vo.getXid() + "_OVERRUNS")
+                .name(new TranslatableMessage("internal.monitor.pollingDataSource.OVERRUNS", vo.getName()))
+                .supplier(pollOverruns::get)
+                .buildReadThrough();
+    }
+
+    /**
+     * Deterministic offset within the polling period for a data source, used to spread the polls of data sources
+     * that share the same period instead of running them all at the same instant.
+     *
+     * @param xid data source XID
+     * @param pollingPeriodMillis polling period
+     * @param window fraction of the polling period over which the offsets are spread (0 to 1)
+     * @return offset in ms, 0 &lt;= offset &lt; pollingPeriodMillis
+     */
+    static long phaseOffset(String xid, long pollingPeriodMillis, double window) {
+        long spread = (long) (pollingPeriodMillis * Math.max(0, Math.min(1, window)));
+        if (spread <= 1 || xid == null) {
+            return 0;
+        }
+        // mix the bits (murmur3 finalizer) as XIDs are often sequential
+        long h = xid.hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return Math.floorMod(h, Math.min(spread, pollingPeriodMillis));
     }
 
     public long getSuccessfulPolls() {
@@ -190,6 +251,14 @@ abstract public class PollingDataSource<T extends PollingDataSourceVO> extends D
     }
 
     protected final void scheduleTimeoutImpl(long fireTime) {
+        poll(fireTime, fireTime);
+    }
+
+    /**
+     * @param fireTime time at which the poll was scheduled to run
+     * @param pollTime timestamp for the poll, differs from the fire time when the poll phase is offset
+     */
+    private void poll(long fireTime, long pollTime) {
         pollLock.lock();
         try {
             // terminating is unlikely as the task task is cancelled, but can occur
@@ -201,22 +270,39 @@ abstract public class PollingDataSource<T extends PollingDataSourceVO> extends D
                 // Check to see if this poll is running after it's next poll time, i.e. polls are
                 // backing up
                 if ((cronPattern == null) && ((startTs - fireTime) > pollingPeriodMillis)) {
-                    incrementUnsuccessfulPolls(fireTime);
+                    incrementUnsuccessfulPolls(pollTime);
                     return;
                 }
 
-                incrementSuccessfulPolls();
+                Semaphore permits = pollPermits.get();
+                if (!permits.tryAcquire()) {
+                    incrementUnsuccessfulPolls(pollTime);
+                    return;
+                }
 
-                flushPoints(fireTime);
-                doPollNoSync(fireTime);
+                try {
+                    long pollStart = Common.timer.currentTimeMillis();
+                    pollLatency.update(Math.max(0, pollStart - fireTime));
+
+                    incrementSuccessfulPolls();
+
+                    flushPoints(pollTime);
+                    doPollNoSync(pollTime);
 
-                // Save the poll time and duration
-                long pollDuration = Common.timer.currentTimeMillis() - startTs;
-                this.latestPollTimes.add(new LongLongPair(fireTime, pollDuration));
-                this.lastPollDurationMonitor.setValue(pollDuration);
-                // Trim the Queue
-                while (this.latestPollTimes.size() > 10) {
-                    this.latestPollTimes.poll();
+                    // Save the poll time and duration
+                    long pollDuration = Common.timer.currentTimeMillis() - pollStart;
+                    this.pollDuration.update(pollDuration);
+                    if (cronPattern == null && pollDuration > pollingPeriodMillis) {
+                        pollOverruns.incrementAndGet();
+                    }
+                    this.latestPollTimes.add(new LongLongPair(pollTime, pollDuration));
+                    this.lastPollDurationMonitor.setValue(pollDuration);
+                    // Trim the Queue
+                    while (this.latestPollTimes.size() > 10) {
+                        this.latestPollTimes.poll();
+                    }
+                } finally {
+                    permits.release();
                 }
             } finally {
                 updateSuccessfulPollQuotient();
@@ -226,6 +312,27 @@ abstract public class PollingDataSource<T extends PollingDataSourceVO> extends D
         }
     }
 
+    /**
+     * @return histogram of the delay (ms) between the time a poll was scheduled to run and the time it started
+     */
+    public Histogram getPollLatency() {
+        return pollLatency;
+    }
+
+    /**
+     * @return histogram of poll durations (ms)
+     */
+    public Histogram getPollDuration() {
+        return pollDuration;
+    }
+
+    /**
+     * @return number of polls that took longer than the polling period
+     */
+    public long getPollOverruns() {
+        return pollOverruns.get();
+    }
+
     @Override
     public void addStatusMessages(List<TranslatableMessage> messages) {
         super.addStatusMessages(messages);
@@ -273,10 +380,12 @@ abstract public class PollingDataSource<T extends PollingDataSourceVO> extends D
         if (cronPattern == null) {
             long delay = 0;
             if (quantize){
-                // Quantize the start.
+                // Quantize the start, offset by the poll phase (if any). The poll time is still quantized.
                 long now = Common.timer.currentTimeMillis();
-                delay = pollingPeriodMillis - (now % pollingPeriodMillis);
-                long firstPollTime = now + delay;
+                long firstPollTime = now - (now % pollingPeriodMillis) + phaseOffsetMillis;
+                if (firstPollTime <= now) {
+                    firstPollTime += pollingPeriodMillis;
+                }
                 if(LOG.isDebugEnabled())
                     LOG.debug("First poll should be at: " + firstPollTime);
                 timerTask = new TimeoutTask(new FixedRateTrigger(new Date(firstPollTime), pollingPeriodMillis), this.timeoutClient);
@@ -318,6 +427,8 @@ abstract public class PollingDataSource<T extends PollingDataSourceVO> extends D
         Common.MONITORED_VALUES.remove(currentSuccessfulPollsMonitor.getId());
         Common.MONITORED_VALUES.remove(lastPollDurationMonitor.getId());
         Common.MONITORED_VALUES.remove(successfulPollsPercentageMonitor.getId());
+        Common.MONITORED_VALUES.remove(pollLatencyMonitor.getId());
+        Common.MONITORED_VALUES.remove(pollOverrunsMonitor.getId());
     }
 
     protected void pollingTerminate() {
@@ -3,6 +3,7 @@
  */
 package com.serotonin.m2m2.rt.event.detectors;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
@@ -13,6 +14,7 @@ import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.infiniteautomation.mango.util.SlidingWindowAggregator;
 import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.rt.dataImage.DataPointRT;
@@ -95,6 +97,14 @@ public class RateOfChangeDetectorRT extends TimeDelayedEventDetectorRT<RateOfCha
      */
     private final Set<RocTimeoutTask> rocTimeoutTasks;
 
+    /**
+     * Values and RoC timeouts used while replaying the history on initialization
+     */
+    private SlidingWindowAggregator<PointValueTime> replayWindow;
+    private ArrayDeque<ReplayTimeout> replayTimeouts;
+    private long replaySequence;
+    private long replayJobSequence;
+
     public RateOfChangeDetectorRT(RateOfChangeDetectorVO vo) {
         super(vo);
         this.rocTimeoutTasks = new HashSet<>();
@@ -157,36 +167,10 @@ public class RateOfChangeDetectorRT extends TimeDelayedEventDetectorRT<RateOfCha
 
             //Go back duration + averaging period loop over all values to get state
             periodStartTime = time - (getDurationMS() + rocDurationMs);
-            currentValueFunction = (l) -> { return getValueAtOrBefore(l);};
-            List<PointValueTime> history = rt.getPointValues(periodStartTime);
-            if(history.size() > 0) {
-                //Swap in simulation timer
-                SimulationTimer simTimer = new SimulationTimer();
-                simTimer.setStartTime(periodStartTime);
-                timer = simTimer;
-
-                for(PointValueTime past : history) {
-                    simTimer.fastForwardTo(past.getTime());
-                    pointUpdated(past);
-                }
-                simTimer.fastForwardTo(time);
-                //Reset
-                timer = Common.timer;
-                currentValueFunction = (l) -> {return rt.getPointValue();};
-
-                //Reset our timeout task if necessary
-                if(isJobScheduled()) {
-                    rescheduleJob();
-                }
-
-                List<RocTimeoutTask> reschedule = new ArrayList<>(rocTimeoutTasks);
-                rocTimeoutTasks.clear();
-                for(RocTimeoutTask rocTimeoutTask : reschedule) {
-                    rocTimeoutTask.cancel();
-                    RocTimeoutTask task = new RocTimeoutTask(rocTimeoutTask.date);
-                    rocTimeoutTasks.add(task);
-                    task.schedule();
-                }
+            if(Common.envProps.getBoolean("runtime.rateOfChangeDetector.windowedReplay", true)) {
+                replayHistoryWindowed(time);
+            }else {
+                replayHistory(time);
             }
             currentValueFunction = (l) -> {return rt.getPointValue();};
         }else {
@@ -225,6 +209,138 @@ public class RateOfChangeDetectorRT extends TimeDelayedEventDetectorRT<RateOfCha
     }
 
 
+    /**
+     * Replay the history by running the point updates and timeouts on a simulation timer, the value at the start of
+     * each averaging period is queried from the point.
+     */
+    private void replayHistory(long time) {
+        currentValueFunction = (l) -> { return getValueAtOrBefore(l);};
+        List<PointValueTime> history = rt.getPointValues(periodStartTime);
+        if(history.size() > 0) {
+            //Swap in simulation timer
+            SimulationTimer simTimer = new SimulationTimer();
+            simTimer.setStartTime(periodStartTime);
+            timer = simTimer;
+
+            for(PointValueTime past : history) {
+                simTimer.fastForwardTo(past.getTime());
+                pointUpdated(past);
+            }
+            simTimer.fastForwardTo(time);
+            //Reset
+            timer = Common.timer;
+            currentValueFunction = (l) -> {return rt.getPointValue();};
+
+            //Reset our timeout task if necessary
+            if(isJobScheduled()) {
+                rescheduleJob();
+            }
+
+            List<RocTimeoutTask> reschedule = new ArrayList<>(rocTimeoutTasks);
+            rocTimeoutTasks.clear();
+            for(RocTimeoutTask rocTimeoutTask : reschedule) {
+                rocTimeoutTask.cancel();
+                RocTimeoutTask task = new RocTimeoutTask(rocTimeoutTask.date);
+                rocTimeoutTasks.add(task);
+                task.schedule();
+            }
+        }
+    }
+
+    /**
+     * Replay the history from a single read of the point values. The values at the start of each averaging period
+     * are found in a sliding window instead of being queried per value and the RoC timeouts are run in order from
+     * a queue instead of being scheduled as timer tasks. Produces the same state and events as {@link #replayHistory(long)}.
+     */
+    private void replayHistoryWindowed(long time) {
+        long windowStartTime = periodStartTime - rocDurationMs;
+        List<PointValueTime> values = rt.getPointValues(windowStartTime);
+        int firstReplayed = 0;
+        while(firstReplayed < values.size() && values.get(firstReplayed).getTime() < periodStartTime) {
+            firstReplayed++;
+        }
+        if(firstReplayed == values.size()) {
+            return;
+        }
+
+        SlidingWindowAggregator<PointValueTime> window = new SlidingWindowAggregator<>();
+        if(values.get(0).getTime() > windowStartTime) {
+            PointValueTime previous = rt.getPointValueBefore(windowStartTime);
+            if(previous != null) {
+                window.add(previous.getTime(), previous);
+            }
+        }
+        for(PointValueTime value : values) {
+            window.add(value.getTime(), value);
+        }
+
+        //Swap in simulation timer, record the order the job is scheduled in relative to the RoC timeouts
+        SimulationTimer simTimer = new SimulationTimer() {
+            @Override
+            protected void scheduleImpl(TimerTask task) {
+                replayJobSequence = ++replaySequence;
+                super.scheduleImpl(task);
+            }
+        };
+        simTimer.setStartTime(periodStartTime);
+        timer = simTimer;
+        replayWindow = window;
+        replayTimeouts = new ArrayDeque<>();
+        currentValueFunction = (l) -> { return getValueAtOrBefore(l);};
+        try {
+            for(int i = firstReplayed; i < values.size(); i++) {
+                PointValueTime past = values.get(i);
+                runReplayTimeouts(simTimer, past.getTime());
+                simTimer.fastForwardTo(past.getTime());
+                pointUpdated(past);
+            }
+            runReplayTimeouts(simTimer, time);
+            simTimer.fastForwardTo(time);
+        }finally {
+            //Reset
+            timer = Common.timer;
+            replayWindow = null;
+        }
+        currentValueFunction = (l) -> {return rt.getPointValue();};
+
+        //Reset our timeout task if necessary
+        if(isJobScheduled()) {
+            rescheduleJob();
+        }
+
+        ArrayDeque<ReplayTimeout> remaining = replayTimeouts;
+        replayTimeouts = null;
+        for(ReplayTimeout timeout : remaining) {
+            RocTimeoutTask task = new RocTimeoutTask(new Date(timeout.time));
+            rocTimeoutTasks.add(task);
+            task.schedule();
+        }
+    }
+
+    /**
+     * Run the replayed RoC timeouts due at or before the time, interleaved with the job on the simulation timer in the
+     * order they would have run had they all been scheduled on the same timer.
+     */
+    private void runReplayTimeouts(SimulationTimer simTimer, long until) {
+        ReplayTimeout next;
+        while((next = replayTimeouts.peek()) != null && next.time <= until) {
+            TimerTask job = task;
+            if(job != null) {
+                long jobTime = job.getNextExecutionTime();
+                if(jobTime < next.time || (jobTime == next.time && replayJobSequence < next.sequence)) {
+                    simTimer.fastForwardTo(jobTime);
+                    if(task != job) {
+                        continue;
+                    }
+                }
+            }
+            replayTimeouts.poll();
+            simTimer.setStartTime(next.time);
+            replayWindow.evictBeforeKeepingPrevious(computePeriodStart(next.time));
+            rocCheckTimeout(next.time, currentValueFunction.apply(next.time));
+        }
+    }
+
     @Override
     protected String getThreadNameImpl() {
         return "RateOfChangeDetector " + vo.getXid();
@@ -443,6 +559,10 @@ public class RateOfChangeDetectorRT extends TimeDelayedEventDetectorRT<RateOfCha
     }
 
     private PointValueTime getValueAtOrBefore(long time) {
+        SlidingWindowAggregator<PointValueTime> window = replayWindow;
+        if(window != null) {
+            return window.floor(time);
+        }
         PointValueTime start = rt.getPointValueAt(time);
         if(start == null)
             start = rt.getPointValueBefore(time);
@@ -460,6 +580,10 @@ public class RateOfChangeDetectorRT extends TimeDelayedEventDetectorRT<RateOfCha
     }
 
     synchronized private void scheduleRocTimeoutTask(long now) {
+        if(replayTimeouts != null) {
+            replayTimeouts.add(new ReplayTimeout(now + this.rocDurationMs, ++replaySequence));
+            return;
+        }
         RocTimeoutTask task = new RocTimeoutTask(new Date(now + this.rocDurationMs));
         rocTimeoutTasks.add(task);
         task.schedule();
@@ -513,6 +637,19 @@ public class RateOfChangeDetectorRT extends TimeDelayedEventDetectorRT<RateOfCha
         super.terminate();
     }
 
+    /**
+     * A RoC timeout scheduled while replaying the history, the sequence orders it relative to the job
+     */
+    private static final class ReplayTimeout {
+        final long time;
+        final long sequence;
+
+        ReplayTimeout(long time, long sequence) {
+            this.time = time;
+            this.sequence = sequence;
+        }
+    }
+
     /**
      * Schedule a timeout to check the RoC when no point updates are received
      *  then cleanup by removing our reference
@@ -6,6 +6,7 @@ package com.serotonin.m2m2.rt.event.detectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.infiniteautomation.mango.util.SlidingWindowAggregator;
 import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.rt.dataImage.PointValueTime;
@@ -24,9 +25,20 @@ public class SmoothnessDetectorRT extends TimeDelayedEventDetectorRT<SmoothnessD
     private final Logger log = LoggerFactory.getLogger(SmoothnessDetectorRT.class);
 
     /**
-     * State field. The current boxcar.
+     * State field. The current boxcar, keyed by the index of the sample.
      */
-    private final ObjectQueue<Double> boxcar = new ObjectQueue<>();
+    private final SlidingWindowAggregator<Double> boxcar = new SlidingWindowAggregator<>();
+
+    /**
+     * State field. The normalized angle differences between consecutive values in the boxcar keyed by the index of
+     * the sample which completed them, kept with a running sum so the smoothness is not recomputed over the whole
+     * boxcar on every update. NaN differences are counted separately as they make the smoothness NaN while they
+     * are in the boxcar.
+     */
+    private final SlidingWindowAggregator<Double> angleErrors = new SlidingWindowAggregator<>(err -> Double.isNaN(err) ? 0 : err);
+    private int nanAngleErrors;
+    private double lastAngle = Double.NaN;
+    private long sampleIndex;
 
     /**
      * State field. Whether the smoothness is currently below the limit or not. This field is used to prevent multiple
@@ -49,7 +61,7 @@ public class SmoothnessDetectorRT extends TimeDelayedEventDetectorRT<SmoothnessD
     public ObjectQueue<Double> getBoxcar() {
         synchronized(boxcar) {
             ObjectQueue<Double> temp = new ObjectQueue<>(boxcar.size());
-            for (Double value : boxcar) {
+            for (Double value : boxcar.toList()) {
                 temp.push(value);
             }
             return temp;
@@ -102,12 +114,37 @@ public class SmoothnessDetectorRT extends TimeDelayedEventDetectorRT<SmoothnessD
         double smoothness;
 
         synchronized(boxcar) {
+            long index = sampleIndex++;
+            if (!boxcar.isEmpty()) {
+                double prev = boxcar.last();
+                if (Double.isNaN(prev)) {
+                    lastAngle = Double.NaN;
+                } else {
+                    double opp = newDouble - prev;
+                    double hyp = StrictMath.sqrt(0.1 + opp * opp);
+                    double angle = StrictMath.asin(opp / hyp);
+
+                    if (!Double.isNaN(lastAngle)) {
+                        double diff = (angle - lastAngle);
+                        double norm = diff / Math.PI;
+                        double err = norm < 0 ? -norm : norm;
+                        if (Double.isNaN(err))
+                            nanAngleErrors++;
+                        angleErrors.add(index, err);
+                    }
+                    lastAngle = angle;
+                }
+            }
+
             // Add the value to the boxcar.
-            boxcar.push(newDouble);
+            boxcar.add(index, newDouble);
 
-            // Trim the boxcar to the max size
-            while (boxcar.size() > vo.getBoxcar())
-                boxcar.pop();
+            // Trim the boxcar to the max size, an angle difference spans three values
+            boxcar.trimToSize(vo.getBoxcar());
+            while (!angleErrors.isEmpty() && angleErrors.getTime(0) < index - vo.getBoxcar() + 3) {
+                if (Double.isNaN(angleErrors.removeFirst()))
+                    nanAngleErrors--;
+            }
 
             // Calculate the smoothness
             smoothness = calc();
@@ -155,31 +192,8 @@ public class SmoothnessDetectorRT extends TimeDelayedEventDetectorRT<SmoothnessD
         if (boxcar.size() < 3)
             return 1;
 
-        double prev = Double.NaN;
-        double lastAngle = Double.NaN;
-        double sumErr = 0;
-        int count = 0;
-
-        for (Double value : boxcar) {
-            if (!Double.isNaN(prev)) {
-                double opp = value - prev;
-                double hyp = StrictMath.sqrt(0.1 + opp * opp);
-                double angle = StrictMath.asin(opp / hyp);
-
-                if (!Double.isNaN(lastAngle)) {
-                    double diff = (angle - lastAngle);
-                    double norm = diff / Math.PI;
-                    sumErr += norm < 0 ? -norm : norm;
-                    count++;
-                }
-
-                lastAngle = angle;
-            }
-
-            prev = value;
-        }
-
-        double err = sumErr / count;
+        // NaN if there are no angle differences, as for 0 / 0
+        double err = angleErrors.isEmpty() || nanAngleErrors > 0 ? Double.NaN : angleErrors.getMean();
         return (float) (1 - err);
     }
 
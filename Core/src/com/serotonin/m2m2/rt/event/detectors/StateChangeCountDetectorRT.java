@@ -3,13 +3,12 @@
  */
 package com.serotonin.m2m2.rt.event.detectors;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.infiniteautomation.mango.util.SlidingWindowAggregator;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.rt.dataImage.PointValueTime;
 import com.serotonin.m2m2.vo.event.detector.StateChangeCountDetectorVO;
@@ -19,9 +18,10 @@ public class StateChangeCountDetectorRT extends TimeoutDetectorRT<StateChangeCou
 
     /**
      * State field. The point values that have accumulated so far. Each call to pointChanged will drop off the values
-     * beyond the duration.
+     * beyond the duration. Values are keyed by the latest time seen so far so that an out of order value is dropped
+     * along with the values before it.
      */
-    private final List<PointValueTime> pointValues = new LinkedList<PointValueTime>();
+    private final SlidingWindowAggregator<PointValueTime> pointValues = new SlidingWindowAggregator<>();
 
     /**
      * State field. Whether the state has been detected or not. This field is used to prevent multiple events being
@@ -36,7 +36,7 @@ public class StateChangeCountDetectorRT extends TimeoutDetectorRT<StateChangeCou
 
     public List<PointValueTime> getPointValues() {
         synchronized(pointValues) {
-            return new ArrayList<>(pointValues);
+            return pointValues.toList();
         }
     }
 
@@ -91,7 +91,8 @@ public class StateChangeCountDetectorRT extends TimeoutDetectorRT<StateChangeCou
     private void pointChanged(long time, PointValueTime value) {
         synchronized (pointValues) {
             // Add the new change
-            pointValues.add(value);
+            long key = pointValues.isEmpty() ? value.getTime() : Math.max(value.getTime(), pointValues.getTime(pointValues.size() - 1));
+            pointValues.add(key, value);
 
             // Drop off point values beyond the given time frame.
             removeOldPointValues(time);
@@ -131,7 +132,7 @@ public class StateChangeCountDetectorRT extends TimeoutDetectorRT<StateChangeCou
                 sb.append("I was supposed to go inactive, but there are still too many state changes in my list: ");
                 sb.append("fireTime=").append(fireTime);
                 sb.append(", list=[");
-                for (PointValueTime pvt : pointValues)
+                for (PointValueTime pvt : pointValues.toList())
                     sb.append(pvt.getTime()).append(", ");
                 sb.append("], durationMS=").append(getDurationMS());
                 sb.append(", changeCount=").append(vo.getChangeCount());
@@ -145,12 +146,7 @@ public class StateChangeCountDetectorRT extends TimeoutDetectorRT<StateChangeCou
     }
 
     private void removeOldPointValues(long time) {
-        while (pointValues.size() > 0) {
-            if (pointValues.get(0).getTime() < time - getDurationMS())
-                pointValues.remove(0);
-            else
-                break;
-        }
+        pointValues.evictBefore(time - getDurationMS());
     }
 
     /* (non-Javadoc)
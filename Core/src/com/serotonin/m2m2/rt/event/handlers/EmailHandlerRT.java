@@ -29,6 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.infiniteautomation.mango.pointvaluecache.PointValueCache;
+import com.infiniteautomation.mango.spring.service.MailSenderService;
 import com.infiniteautomation.mango.spring.service.MailingListService;
 import com.infiniteautomation.mango.spring.service.MangoJavaScriptService;
 import com.infiniteautomation.mango.spring.service.PermissionService;
@@ -62,7 +63,6 @@ import com.serotonin.m2m2.rt.dataSource.DataSourceRT;
 import com.serotonin.m2m2.rt.event.EventInstance;
 import com.serotonin.m2m2.rt.event.type.DataPointEventType;
 import com.serotonin.m2m2.rt.event.type.SystemEventType;
-import com.serotonin.m2m2.rt.maint.work.EmailWorkItem;
 import com.serotonin.m2m2.rt.script.DataPointWrapper;
 import com.serotonin.m2m2.rt.script.EventInstanceWrapper;
 import com.serotonin.m2m2.rt.script.JsonImportExclusion;
@@ -495,7 +495,7 @@ public class EmailHandlerRT extends EventHandlerRT<EmailEventHandlerVO> implemen
             }
 
             if(toAddrs.length > 0)
-                EmailWorkItem.queueEmail(toAddrs, content, postEmail);
+                Common.getBean(MailSenderService.class).queueEventEmail(toAddrs, content.getSubject(), content, postEmail);
         }
         catch (Exception e) {
             LOG.error("Error sending email", e);
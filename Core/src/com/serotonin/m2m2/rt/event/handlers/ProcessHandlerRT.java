@@ -7,6 +7,8 @@ import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringSubstitutor;
 
+import com.infiniteautomation.mango.spring.components.ProcessRunner;
+import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.rt.event.EventInstance;
 import com.serotonin.m2m2.rt.maint.work.ProcessWorkItem;
 import com.serotonin.m2m2.vo.event.ProcessEventHandlerVO;
@@ -15,8 +17,15 @@ import com.serotonin.m2m2.vo.event.ProcessEventHandlerVO;
  * @author Matthew Lohbihler
  */
 public class ProcessHandlerRT extends EventHandlerRT<ProcessEventHandlerVO> {
+    private final ProcessRunner processRunner;
+
     public ProcessHandlerRT(ProcessEventHandlerVO vo) {
+        this(vo, Common.getBean(ProcessRunner.class));
+    }
+
+    public ProcessHandlerRT(ProcessEventHandlerVO vo, ProcessRunner processRunner) {
         super(vo);
+        this.processRunner = processRunner;
     }
 
     @Override
@@ -33,9 +42,12 @@ public class ProcessHandlerRT extends EventHandlerRT<ProcessEventHandlerVO> {
         if (StringUtils.isBlank(command))
             return;
         if (vo.isInterpolateCommands()) {
-            command = getSubstitutor(event).replace(command);
+            // split the command before substituting so that quotes or spaces in the values can't change the arguments
+            StringSubstitutor substitutor = getSubstitutor(event);
+            ProcessWorkItem.runProcess(processRunner, command, substitutor::replace, timeout);
+        } else {
+            ProcessWorkItem.runProcess(processRunner, command, timeout);
         }
-        ProcessWorkItem.queueProcess(command, timeout);
     }
 
     private StringSubstitutor getSubstitutor(EventInstance event) {
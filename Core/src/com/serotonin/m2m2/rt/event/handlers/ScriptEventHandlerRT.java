@@ -3,6 +3,18 @@
  */
 package com.serotonin.m2m2.rt.event.handlers;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.script.Bindings;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.infiniteautomation.mango.util.script.ScriptContextPool;
 import com.serotonin.m2m2.rt.event.EventInstance;
 import com.serotonin.m2m2.vo.event.ScriptEventHandlerVO;
 
@@ -12,26 +24,82 @@ import com.serotonin.m2m2.vo.event.ScriptEventHandlerVO;
 public class ScriptEventHandlerRT extends EventHandlerRT<ScriptEventHandlerVO> {
 
     public static final String EVENT_HANDLER_KEY = "eventHandler";
-    private final EventHandlerInterface scriptHandlerDelegate;
+    private final ScriptContextPool<PooledDelegate> delegates;
+    private final Supplier<PooledDelegate> delegateFactory;
 
     public ScriptEventHandlerRT(ScriptEventHandlerVO vo, EventHandlerInterface scriptHandlerDelegate) {
+        this(vo, new ScriptContextPool<>(1), () -> new PooledDelegate(scriptHandlerDelegate, null));
+    }
+
+    /**
+     * @param delegates evaluated scripts shared by the runtimes of this handler, each is used by one event at a time
+     * @param delegateFactory evaluates the script when no delegate is idle
+     */
+    public ScriptEventHandlerRT(ScriptEventHandlerVO vo, ScriptContextPool<PooledDelegate> delegates,
+                                Supplier<PooledDelegate> delegateFactory) {
         super(vo);
-        this.scriptHandlerDelegate = scriptHandlerDelegate;
+        this.delegates = delegates;
+        this.delegateFactory = delegateFactory;
     }
 
     @Override
     public void eventRaised(EventInstance evt) {
-        this.scriptHandlerDelegate.eventRaised(evt);
+        withDelegate(d -> d.eventRaised(evt));
     }
 
     @Override
     public void eventAcknowledged(EventInstance evt) {
-        this.scriptHandlerDelegate.eventAcknowledged(evt);
+        withDelegate(d -> d.eventAcknowledged(evt));
     }
 
     @Override
     public void eventInactive(EventInstance evt) {
-        this.scriptHandlerDelegate.eventInactive(evt);
+        withDelegate(d -> d.eventInactive(evt));
+    }
+
+    private void withDelegate(Consumer<EventHandlerInterface> action) {
+        PooledDelegate delegate = delegates.poll();
+        if (delegate == null) {
+            delegate = delegateFactory.get();
+        }
+        try {
+            action.accept(delegate.bind(vo));
+        } finally {
+            delegates.release(delegate);
+        }
+    }
+
+    /**
+     * An evaluated handler script. Before each use its top level variables are reset to their values after
+     * evaluation and the event handler variable is bound to the handler being run, so no state is carried between
+     * events.
+     */
+    public static class PooledDelegate {
+        private final EventHandlerInterface delegate;
+        private final @Nullable Bindings engineScope;
+        private final Map<String, Object> initialGlobals;
+
+        /**
+         * @param engineScope engine scope bindings the script was evaluated with, null to leave the globals as they are
+         */
+        public PooledDelegate(EventHandlerInterface delegate, @Nullable Bindings engineScope) {
+            this.delegate = delegate;
+            this.engineScope = engineScope;
+            this.initialGlobals = engineScope == null ? Collections.emptyMap() : new HashMap<>(engineScope);
+        }
+
+        private EventHandlerInterface bind(ScriptEventHandlerVO vo) {
+            if (engineScope != null) {
+                for (String key : new ArrayList<>(engineScope.keySet())) {
+                    if (!initialGlobals.containsKey(key)) {
+                        engineScope.remove(key);
+                    }
+                }
+                engineScope.putAll(initialGlobals);
+                engineScope.put(EVENT_HANDLER_KEY, vo);
+            }
+            return delegate;
+        }
     }
 
 }
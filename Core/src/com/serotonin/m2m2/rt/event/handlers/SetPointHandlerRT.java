@@ -3,7 +3,6 @@
  */
 package com.serotonin.m2m2.rt.event.handlers;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,10 +11,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.infiniteautomation.mango.spring.service.MangoJavaScriptService;
-import com.infiniteautomation.mango.util.ConfigurationExportData;
-import com.infiniteautomation.mango.util.script.CompiledMangoJavaScript;
-import com.infiniteautomation.mango.util.script.MangoJavaScriptResult;
-import com.infiniteautomation.mango.util.script.ScriptPermissions;
 import com.serotonin.ShouldNeverHappenException;
 import com.serotonin.db.pair.IntStringPair;
 import com.serotonin.m2m2.Common;
@@ -26,30 +21,30 @@ import com.serotonin.m2m2.rt.dataImage.IDataPointValueSource;
 import com.serotonin.m2m2.rt.dataImage.PointValueTime;
 import com.serotonin.m2m2.rt.dataImage.SetPointSource;
 import com.serotonin.m2m2.rt.dataImage.types.DataValue;
-import com.serotonin.m2m2.rt.dataSource.DataSourceRT;
 import com.serotonin.m2m2.rt.event.EventInstance;
 import com.serotonin.m2m2.rt.event.type.EventType;
 import com.serotonin.m2m2.rt.event.type.SystemEventType;
 import com.serotonin.m2m2.rt.maint.work.SetPointWorkItem;
-import com.serotonin.m2m2.rt.script.EventInstanceWrapper;
-import com.serotonin.m2m2.rt.script.JsonImportExclusion;
-import com.serotonin.m2m2.rt.script.OneTimePointAnnotation;
 import com.serotonin.m2m2.rt.script.ResultTypeException;
 import com.serotonin.m2m2.rt.script.ScriptError;
-import com.serotonin.m2m2.rt.script.ScriptLog;
 import com.serotonin.m2m2.rt.script.ScriptPermissionsException;
-import com.serotonin.m2m2.rt.script.ScriptPointValueSetter;
-import com.serotonin.m2m2.vo.dataSource.DataSourceVO;
 import com.serotonin.m2m2.vo.event.SetPointEventHandlerVO;
 
 public class SetPointHandlerRT extends EventHandlerRT<SetPointEventHandlerVO> implements SetPointSource {
     private static final Logger LOG = LoggerFactory.getLogger(SetPointHandlerRT.class);
  
-    private MangoJavaScriptService service;
+    private final SetPointHandlerScripts scripts;
 
     public SetPointHandlerRT(SetPointEventHandlerVO vo) {
+        this(vo, new SetPointHandlerScripts(vo, Common.getBean(MangoJavaScriptService.class)));
+    }
+
+    /**
+     * @param scripts compiled scripts shared by the runtimes of this handler
+     */
+    public SetPointHandlerRT(SetPointEventHandlerVO vo, SetPointHandlerScripts scripts) {
         super(vo);
-        this.service = Common.getBean(MangoJavaScriptService.class);
+        this.scripts = scripts;
     }
 
     @Override
@@ -97,53 +92,18 @@ public class SetPointHandlerRT extends EventHandlerRT<SetPointEventHandlerVO> im
             value = DataValue.stringToValue(vo.getActiveValueToSet(), targetDataType);
         }
         else if (vo.getActiveAction() == SetPointEventHandlerVO.SET_ACTION_SCRIPT_VALUE) {
-            ArrayList<JsonImportExclusion> importExclusions = new ArrayList<JsonImportExclusion>();
-            importExclusions.add(new JsonImportExclusion("xid", vo.getXid()) {
-                @Override
-                public String getImporterType() {
-                    return ConfigurationExportData.EVENT_HANDLERS;
-                }
-            });
-
-        	Map<String, IDataPointValueSource> context = new HashMap<String, IDataPointValueSource>();
-        	context.put(SetPointEventHandlerVO.TARGET_CONTEXT_KEY, targetPoint);
-        	Map<String, Object> additionalContext = new HashMap<String, Object>();
-        	additionalContext.put(EventInstance.CONTEXT_KEY, evt);
-        	additionalContext.put(EventInstanceWrapper.CONTEXT_KEY, new EventInstanceWrapper(evt));
-        	try (ScriptLog scriptLog = new ScriptLog("setPointHandler-" + evt.getId())) {
-        		
-        	    for(IntStringPair cxt : vo.getAdditionalContext()) {
-        			DataPointRT dprt = Common.runtimeManager.getDataPoint(cxt.getKey());
-        			if(dprt != null)
-        				context.put(cxt.getValue(), dprt);
-        		}
-
-                CompiledMangoJavaScript activeScript = new CompiledMangoJavaScript(
-                        new SetCallback(vo.getScriptRoles()),
-                        scriptLog,
-                        additionalContext,
-                        null,
-                        importExclusions,
-                        false,
-                        service,
-                        vo.getScriptRoles());
-                activeScript.compile(vo.getActiveScript(), true);
-                activeScript.initialize(context);
-                
-                MangoJavaScriptResult result = activeScript.execute(Common.timer.currentTimeMillis(), evt.getActiveTimestamp(), targetPoint.getDataType());
-	        	PointValueTime pvt = (PointValueTime)result.getResult();
-	        	if(pvt != null)
-	        	    value = pvt.getValue();
-        	} catch(ScriptPermissionsException e) {
+            try {
+                value = scripts.execute(true, this, evt, createContext(targetPoint), evt.getActiveTimestamp(), targetPoint.getDataType());
+            } catch(ScriptPermissionsException e) {
                 raiseFailureEvent(e.getTranslatableMessage(), evt.getEventType());
                 return;
             } catch(ScriptError e) {
-        		raiseFailureEvent(new TranslatableMessage("eventHandlers.invalidActiveScriptError", e.getTranslatableMessage()), evt.getEventType());
-        		return;
-        	} catch(ResultTypeException e) {
-        		raiseFailureEvent(new TranslatableMessage("eventHandlers.invalidActiveScriptError", e.getMessage()), evt.getEventType());
-        		return;
-        	}
+                raiseFailureEvent(new TranslatableMessage("eventHandlers.invalidActiveScriptError", e.getTranslatableMessage()), evt.getEventType());
+                return;
+            } catch(ResultTypeException e) {
+                raiseFailureEvent(new TranslatableMessage("eventHandlers.invalidActiveScriptError", e.getMessage()), evt.getEventType());
+                return;
+            }
         }
         else
             throw new ShouldNeverHappenException("Unknown active action: " + vo.getActiveAction());
@@ -198,53 +158,18 @@ public class SetPointHandlerRT extends EventHandlerRT<SetPointEventHandlerVO> im
         else if (vo.getInactiveAction() == SetPointEventHandlerVO.SET_ACTION_STATIC_VALUE)
             value = DataValue.stringToValue(vo.getInactiveValueToSet(), targetDataType);
         else if (vo.getInactiveAction() == SetPointEventHandlerVO.SET_ACTION_SCRIPT_VALUE) {
-            ArrayList<JsonImportExclusion> importExclusions = new ArrayList<JsonImportExclusion>();
-            importExclusions.add(new JsonImportExclusion("xid", vo.getXid()) {
-                @Override
-                public String getImporterType() {
-                    return ConfigurationExportData.EVENT_HANDLERS;
-                }
-            });
-            
-        	Map<String, IDataPointValueSource> context = new HashMap<String, IDataPointValueSource>();
-        	context.put("target", targetPoint);
-        	Map<String, Object> additionalContext = new HashMap<String, Object>();
-        	additionalContext.put(EventInstance.CONTEXT_KEY, evt);
-            additionalContext.put(EventInstanceWrapper.CONTEXT_KEY, new EventInstanceWrapper(evt));
-            try (ScriptLog scriptLog = new ScriptLog("setPointHandler-" + evt.getId())){
-        	    for(IntStringPair cxt : vo.getAdditionalContext()) {
-                    DataPointRT dprt = Common.runtimeManager.getDataPoint(cxt.getKey());
-                    if(dprt != null)
-                        context.put(cxt.getValue(), dprt);
-                }
-        	    
-                CompiledMangoJavaScript inactiveScript = new CompiledMangoJavaScript(
-                        new SetCallback(vo.getScriptRoles()),
-                        scriptLog,
-                        additionalContext,
-                        null,
-                        importExclusions,
-                        false,
-                        service,
-                        vo.getScriptRoles());
-                inactiveScript.compile(vo.getInactiveScript(), true);
-                inactiveScript.initialize(context);
-                
-                MangoJavaScriptResult result = inactiveScript.execute(Common.timer.currentTimeMillis(), evt.getRtnTimestamp(), targetPoint.getDataType());
-
-	        	PointValueTime pvt = (PointValueTime)result.getResult();
-	        	if(pvt != null)
-	        	    value = pvt.getValue();
-        	} catch(ScriptPermissionsException e) {
-        	    raiseFailureEvent(e.getTranslatableMessage(), evt.getEventType());
-        	    return;
-        	} catch(ScriptError e) {
-        		raiseFailureEvent(new TranslatableMessage("eventHandlers.invalidInactiveScriptError", e.getTranslatableMessage()), evt.getEventType());
-        		return;
-        	} catch(ResultTypeException e) {
-        		raiseFailureEvent(new TranslatableMessage("eventHandlers.invalidInactiveScriptError", e.getMessage()), evt.getEventType());
-        		return;
-        	}
+            try {
+                value = scripts.execute(false, this, evt, createContext(targetPoint), evt.getRtnTimestamp(), targetPoint.getDataType());
+            } catch(ScriptPermissionsException e) {
+                raiseFailureEvent(e.getTranslatableMessage(), evt.getEventType());
+                return;
+            } catch(ScriptError e) {
+                raiseFailureEvent(new TranslatableMessage("eventHandlers.invalidInactiveScriptError", e.getTranslatableMessage()), evt.getEventType());
+                return;
+            } catch(ResultTypeException e) {
+                raiseFailureEvent(new TranslatableMessage("eventHandlers.invalidInactiveScriptError", e.getMessage()), evt.getEventType());
+                return;
+            }
         }
         else
             throw new ShouldNeverHappenException("Unknown active action: " + vo.getInactiveAction());
@@ -254,7 +179,21 @@ public class SetPointHandlerRT extends EventHandlerRT<SetPointEventHandlerVO> im
                 evt.getRtnTimestamp()), this));
     }
 
-    private void raiseFailureEvent(TranslatableMessage message, EventType et) {
+    /**
+     * Script context of the target point and the additional context points which are running
+     */
+    private Map<String, IDataPointValueSource> createContext(DataPointRT targetPoint) {
+        Map<String, IDataPointValueSource> context = new HashMap<>();
+        context.put(SetPointEventHandlerVO.TARGET_CONTEXT_KEY, targetPoint);
+        for(IntStringPair cxt : vo.getAdditionalContext()) {
+            DataPointRT dprt = Common.runtimeManager.getDataPoint(cxt.getKey());
+            if(dprt != null)
+                context.put(cxt.getValue(), dprt);
+        }
+        return context;
+    }
+
+    void raiseFailureEvent(TranslatableMessage message, EventType et) {
         if (et != null && et.isSystemMessage()) {
             if (((SystemEventType) et).getSystemEventType().equals(SystemEventType.TYPE_SET_POINT_HANDLER_FAILURE)) {
                 // The set point attempt failed for an event that is a set point handler failure in the first place.
@@ -293,34 +232,4 @@ public class SetPointHandlerRT extends EventHandlerRT<SetPointEventHandlerVO> im
     public void raiseRecursionFailureEvent() {
         raiseFailureEvent(new TranslatableMessage("event.setPoint.recursionFailure"), null);
     }
-    
-    class SetCallback extends ScriptPointValueSetter {
-        
-        public SetCallback(ScriptPermissions permissions) {
-			super(permissions);
-		}
-
-        @Override
-        public void setImpl(IDataPointValueSource point, Object value, long timestamp, String annotation) {
-            DataPointRT dprt = (DataPointRT) point;
-
-            // We may, however, need to coerce the given value.
-            try {
-                DataValue mangoValue = service.coerce(value, dprt.getDataType());
-                SetPointSource source;
-                PointValueTime newValue = new PointValueTime(mangoValue, timestamp);
-                if(StringUtils.isBlank(annotation))
-                	source = SetPointHandlerRT.this;
-                else
-                	source = new OneTimePointAnnotation(SetPointHandlerRT.this, annotation);
-                
-                DataSourceRT<? extends DataSourceVO> dsrt = Common.runtimeManager.getRunningDataSource(dprt.getDataSourceId());
-                dsrt.setPointValue(dprt, newValue, source);
-            }
-            catch (ResultTypeException e) {
-                // Raise an event
-            	raiseFailureEvent(e.getTranslatableMessage(), null);
-            }
-        }
-    }
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.rt.event.handlers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.script.Bindings;
+import javax.script.ScriptContext;
+
+import org.apache.commons.lang3.StringUtils;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.infiniteautomation.mango.spring.service.MangoJavaScriptService;
+import com.infiniteautomation.mango.util.ConfigurationExportData;
+import com.infiniteautomation.mango.util.script.CompiledMangoJavaScript;
+import com.infiniteautomation.mango.util.script.MangoJavaScriptResult;
+import com.infiniteautomation.mango.util.script.ScriptContextPool;
+import com.infiniteautomation.mango.util.script.ScriptPermissions;
+import com.serotonin.m2m2.Common;
+import com.serotonin.m2m2.DataType;
+import com.serotonin.m2m2.rt.dataImage.DataPointRT;
+import com.serotonin.m2m2.rt.dataImage.IDataPointValueSource;
+import com.serotonin.m2m2.rt.dataImage.PointValueTime;
+import com.serotonin.m2m2.rt.dataImage.SetPointSource;
+import com.serotonin.m2m2.rt.dataImage.types.DataValue;
+import com.serotonin.m2m2.rt.dataSource.DataSourceRT;
+import com.serotonin.m2m2.rt.event.EventInstance;
+import com.serotonin.m2m2.rt.script.EventInstanceWrapper;
+import com.serotonin.m2m2.rt.script.JsonImportExclusion;
+import com.serotonin.m2m2.rt.script.OneTimePointAnnotation;
+import com.serotonin.m2m2.rt.script.ResultTypeException;
+import com.serotonin.m2m2.rt.script.ScriptError;
+import com.serotonin.m2m2.rt.script.ScriptLog;
+import com.serotonin.m2m2.rt.script.ScriptPermissionsException;
+import com.serotonin.m2m2.rt.script.ScriptPointValueSetter;
+import com.serotonin.m2m2.vo.dataSource.DataSourceVO;
+import com.serotonin.m2m2.vo.event.SetPointEventHandlerVO;
+import com.serotonin.m2m2.vo.role.Role;
+
+/**
+ * The active and inactive scripts of a set point event handler. Handler runtimes are created for every event, this
+ * object is shared by the runtimes of a handler VO so that each script is compiled and initialized once and then reused,
+ * only the event variables are bound for each execution. A script context is used by one execution at a time and its
+ * top level variables are reset to their initialized values when it is borrowed, so no state is carried between events.
+ * If the data points in the context change (e.g. a point was restarted) a new context is initialized.
+ */
+public class SetPointHandlerScripts {
+
+    private final SetPointEventHandlerVO vo;
+    private final MangoJavaScriptService service;
+    private final List<JsonImportExclusion> importExclusions;
+    private final ScriptContextPool<PooledScript> activeScripts = new ScriptContextPool<>();
+    private final ScriptContextPool<PooledScript> inactiveScripts = new ScriptContextPool<>();
+
+    public SetPointHandlerScripts(SetPointEventHandlerVO vo, MangoJavaScriptService service) {
+        this.vo = vo;
+        this.service = service;
+        this.importExclusions = new ArrayList<>();
+        importExclusions.add(new JsonImportExclusion("xid", vo.getXid()) {
+            @Override
+            public String getImporterType() {
+                return ConfigurationExportData.EVENT_HANDLERS;
+            }
+        });
+    }
+
+    /**
+     * Execute the active or inactive script
+     *
+     * @param handler runtime handling the event, used as the set point source
+     * @param context data points available to the script
+     * @return value to set, may be {@link MangoJavaScriptService#UNCHANGED}
+     */
+    public @Nullable DataValue execute(boolean active, SetPointHandlerRT handler, EventInstance evt,
+                                       Map<String, IDataPointValueSource> context, long timestamp, DataType dataType)
+            throws ScriptError, ResultTypeException, ScriptPermissionsException {
+
+        ScriptContextPool<PooledScript> pool = active ? activeScripts : inactiveScripts;
+        PooledScript pooled = pool.poll();
+        if (pooled == null || !pooled.hasContext(context)) {
+            pooled = new PooledScript(active ? vo.getActiveScript() : vo.getInactiveScript(), context);
+        }
+
+        pooled.setter.handler = handler;
+        try {
+            pooled.bind(evt);
+            MangoJavaScriptResult result = pooled.script.execute(Common.timer.currentTimeMillis(), timestamp, dataType);
+            PointValueTime pvt = (PointValueTime) result.getResult();
+            return pvt == null ? null : pvt.getValue();
+        } finally {
+            pooled.setter.handler = null;
+            pool.release(pooled);
+        }
+    }
+
+    /**
+     * @return true if the scripts were compiled from the same XID, scripts and script roles as the handler
+     */
+    public boolean isFor(SetPointEventHandlerVO other) {
+        return Objects.equals(vo.getXid(), other.getXid()) &&
+                Objects.equals(vo.getActiveScript(), other.getActiveScript()) &&
+                Objects.equals(vo.getInactiveScript(), other.getInactiveScript()) &&
+                Objects.equals(scriptRoles(vo), scriptRoles(other));
+    }
+
+    private static @Nullable Set<Role> scriptRoles(SetPointEventHandlerVO vo) {
+        return vo.getScriptRoles() == null ? null : vo.getScriptRoles().getRoles();
+    }
+
+    int getIdleCount(boolean active) {
+        return (active ? activeScripts : inactiveScripts).getIdleCount();
+    }
+
+    /**
+     * Discard the initialized script contexts
+     */
+    public void clear() {
+        activeScripts.clear();
+        inactiveScripts.clear();
+    }
+
+    private class PooledScript {
+        private final CompiledMangoJavaScript script;
+        private final SetCallback setter;
+        private final Map<String, IDataPointValueSource> context;
+        private final Map<String, Object> initialGlobals;
+
+        private PooledScript(String source, Map<String, IDataPointValueSource> context) throws ScriptError, ScriptPermissionsException {
+            this.setter = new SetCallback(vo.getScriptRoles(), service);
+            this.context = new HashMap<>(context);
+            this.script = new CompiledMangoJavaScript(
+                    setter,
+                    new ScriptLog("setPointHandler-" + vo.getXid()),
+                    new HashMap<>(),
+                    null,
+                    importExclusions,
+                    false,
+                    service,
+                    vo.getScriptRoles());
+            script.compile(source, true);
+            script.initialize(this.context);
+            this.initialGlobals = new HashMap<>(engineScope());
+        }
+
+        /**
+         * @return true if the context contains the same data point runtimes
+         */
+        private boolean hasContext(Map<String, IDataPointValueSource> context) {
+            if (this.context.size() != context.size()) {
+                return false;
+            }
+            for (Map.Entry<String, IDataPointValueSource> entry : context.entrySet()) {
+                if (this.context.get(entry.getKey()) != entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Reset the top level variables to their values after initialization, then bind the event
+         */
+        private void bind(EventInstance evt) {
+            Bindings engineScope = engineScope();
+            for (String key : new ArrayList<>(engineScope.keySet())) {
+                if (!initialGlobals.containsKey(key)) {
+                    engineScope.remove(key);
+                }
+            }
+            engineScope.putAll(initialGlobals);
+            engineScope.put(EventInstance.CONTEXT_KEY, evt);
+            engineScope.put(EventInstanceWrapper.CONTEXT_KEY, new EventInstanceWrapper(evt));
+        }
+
+        private Bindings engineScope() {
+            return script.getEngine().getBindings(ScriptContext.ENGINE_SCOPE);
+        }
+    }
+
+    /**
+     * Sets points on behalf of the handler runtime currently executing the script
+     */
+    static class SetCallback extends ScriptPointValueSetter {
+
+        private final MangoJavaScriptService service;
+        private SetPointHandlerRT handler;
+
+        SetCallback(ScriptPermissions permissions, MangoJavaScriptService service) {
+            super(permissions);
+            this.service = service;
+        }
+
+        @Override
+        public void setImpl(IDataPointValueSource point, Object value, long timestamp, String annotation) {
+            DataPointRT dprt = (DataPointRT) point;
+
+            // We may, however, need to coerce the given value.
+            try {
+                DataValue mangoValue = service.coerce(value, dprt.getDataType());
+                SetPointSource source;
+                PointValueTime newValue = new PointValueTime(mangoValue, timestamp);
+                if(StringUtils.isBlank(annotation))
+                    source = handler;
+                else
+                    source = new OneTimePointAnnotation(handler, annotation);
+
+                DataSourceRT<? extends DataSourceVO> dsrt = Common.runtimeManager.getRunningDataSource(dprt.getDataSourceId());
+                dsrt.setPointValue(dprt, newValue, source);
+            }
+            catch (ResultTypeException e) {
+                // Raise an event
+                handler.raiseFailureEvent(e.getTranslatableMessage(), null);
+            }
+        }
+    }
+}
@@ -77,7 +77,7 @@ public class AuditEventType extends EventType {
     private static void registerEventType(String subtype, String key) {
         TYPE_NAMES.addElement(subtype);
 
-        AlarmLevels level = AlarmLevels.fromValue(SystemSettingsDao.getInstance().getIntValue(AUDIT_SETTINGS_PREFIX + subtype));
+        AlarmLevels level = AlarmLevels.fromValue(SystemSettingsDao.getInstance().getValue(SystemSettingsDao.alarmLevelSetting(AUDIT_SETTINGS_PREFIX + subtype)));
         EVENT_TYPES.put(subtype, new EventTypeVO(new AuditEventType(subtype, 0, 0), new TranslatableMessage(key), level));
     }
 
@@ -6,6 +6,7 @@ package com.serotonin.m2m2.rt.event.type;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.serotonin.m2m2.db.dao.SystemSettingsDao;
 import com.serotonin.m2m2.module.SystemSettingsListenerDefinition;
 import com.serotonin.m2m2.rt.event.AlarmLevels;
 import com.serotonin.m2m2.vo.event.EventTypeVO;
@@ -18,15 +19,26 @@ public class AuditEventTypeSettingsListenerDefinition extends SystemSettingsList
 
     @Override
     public void systemSettingsSaved(String key, String oldValue, String newValue) {
+        updateAlarmLevel(key);
+    }
+
+    @Override
+    public void systemSettingsRemoved(String key, String lastValue, String defaultValue) {
+        updateAlarmLevel(key);
+    }
+
+    /**
+     * Read the parsed setting rather than the dispatched value, it falls back to the default when the setting is
+     * removed or invalid
+     */
+    private void updateAlarmLevel(String key) {
         String[] parts = key.split(AuditEventType.AUDIT_SETTINGS_PREFIX);
         if (parts.length > 1) {
-            AuditEventType.updateAlarmLevel(parts[1], AlarmLevels.fromValue(Integer.parseInt(newValue)));
+            int level = SystemSettingsDao.getInstance().getValue(SystemSettingsDao.alarmLevelSetting(key));
+            AuditEventType.updateAlarmLevel(parts[1], AlarmLevels.fromValue(level));
         }
     }
 
-    @Override
-    public void systemSettingsRemoved(String key, String lastValue, String defaultValue) { }
-
     @Override
     public List<String> getKeys() {
         List<String> keys = new ArrayList<String>();
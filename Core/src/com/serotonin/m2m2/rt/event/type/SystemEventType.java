@@ -68,7 +68,7 @@ public class SystemEventType extends EventType {
 
     private static void registerEventType(String subtype, String key) {
         TYPE_NAMES.addElement(subtype);
-        AlarmLevels level = AlarmLevels.fromValue(SystemSettingsDao.getInstance().getIntValue(SYSTEM_SETTINGS_PREFIX + subtype));
+        AlarmLevels level = AlarmLevels.fromValue(SystemSettingsDao.getInstance().getValue(SystemSettingsDao.alarmLevelSetting(SYSTEM_SETTINGS_PREFIX + subtype)));
         EVENT_TYPES.put(subtype, new EventTypeVO(new SystemEventType(subtype, 0, null), new TranslatableMessage(key), level));
     }
 
@@ -33,6 +33,7 @@ import com.serotonin.m2m2.util.DateUtils;
 import com.serotonin.m2m2.vo.DataPointVO;
 import com.serotonin.m2m2.vo.DataPointVO.LoggingTypes;
 import com.serotonin.m2m2.vo.dataSource.DataSourceVO;
+import com.serotonin.m2m2.vo.systemSettings.TypedSystemSetting;
 import com.serotonin.timer.CronTimerTrigger;
 import com.serotonin.timer.TimerTask;
 import com.serotonin.util.ILifecycleState;
@@ -80,8 +81,8 @@ public class DataPurge {
     private void executeImpl() {
         log.info("Data purge started");
 
-        int purgePeriodType = systemSettingDao.getIntValue(SystemSettingsDao.POINT_DATA_PURGE_PERIOD_TYPE);
-        int purgePeriods = systemSettingDao.getIntValue(SystemSettingsDao.POINT_DATA_PURGE_PERIODS);
+        int purgePeriodType = systemSettingDao.getValue(SystemSettingsDao.POINT_DATA_PURGE_PERIOD_TYPE_SETTING);
+        int purgePeriods = systemSettingDao.getValue(SystemSettingsDao.POINT_DATA_PURGE_PERIODS_SETTING);
 
         Period period = null;
         try {
@@ -96,7 +97,7 @@ public class DataPurge {
             log.info("Removed {} orphaned time-series", deletedTimeSeries);
         }
 
-        if (systemSettingDao.getBooleanValue(SystemSettingsDao.ENABLE_POINT_DATA_PURGE) && pointValueDao.enablePerPointPurge()) {
+        if (systemSettingDao.getValue(SystemSettingsDao.ENABLE_POINT_DATA_PURGE_SETTING) && pointValueDao.enablePerPointPurge()) {
             log.info("Purging point values on a point-by-point basis. Using data source and data point purge overrides.");
 
             // Get any filters for the data purge from the modules
@@ -114,7 +115,7 @@ public class DataPurge {
             } else {
                 log.info("Point value purge complete, unknown number of point values were deleted");
             }
-        } else if (systemSettingDao.getBooleanValue(SystemSettingsDao.ENABLE_POINT_DATA_PURGE) && period != null) {
+        } else if (systemSettingDao.getValue(SystemSettingsDao.ENABLE_POINT_DATA_PURGE_SETTING) && period != null) {
             log.info("Purging all point values older than {}, Data source and data point purge overrides have been ignored.", period);
 
             ZonedDateTime before = ZonedDateTime.ofInstant(Instant.ofEpochMilli(runtime), ZoneId.systemDefault())
@@ -186,68 +187,68 @@ public class DataPurge {
         DateTime cutoffTruncated = DateUtils.truncateDateTime(new DateTime(runtime), TimePeriods.DAYS);
 
         //Purge All Events at this rate
-        DateTime cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.EVENT_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.EVENT_PURGE_PERIODS));
+        DateTime cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.EVENT_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.EVENT_PURGE_PERIODS_SETTING);
         this.deletedEvents = Common.eventManager.purgeEventsBefore(cutoff.getMillis());
 
         //Purge Data Point Events
-        cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.DATA_POINT_EVENT_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.DATA_POINT_EVENT_PURGE_PERIODS));
+        cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.DATA_POINT_EVENT_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.DATA_POINT_EVENT_PURGE_PERIODS_SETTING);
         this.deletedEvents += Common.eventManager.purgeEventsBefore(cutoff.getMillis(), EventTypeNames.DATA_POINT);
 
         //Purge the Data Source Events
-        cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.DATA_SOURCE_EVENT_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.DATA_SOURCE_EVENT_PURGE_PERIODS));
+        cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.DATA_SOURCE_EVENT_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.DATA_SOURCE_EVENT_PURGE_PERIODS_SETTING);
         this.deletedEvents += Common.eventManager.purgeEventsBefore(cutoff.getMillis(), EventTypeNames.DATA_SOURCE);
 
         //Purge the Data Source Events
-        cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.SYSTEM_EVENT_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.SYSTEM_EVENT_PURGE_PERIODS));
+        cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.SYSTEM_EVENT_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.SYSTEM_EVENT_PURGE_PERIODS_SETTING);
         this.deletedEvents += Common.eventManager.purgeEventsBefore(cutoff.getMillis(), EventTypeNames.SYSTEM);
 
         //Purge the Data Source Events
-        cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.PUBLISHER_EVENT_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.PUBLISHER_EVENT_PURGE_PERIODS));
+        cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.PUBLISHER_EVENT_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.PUBLISHER_EVENT_PURGE_PERIODS_SETTING);
         this.deletedEvents += Common.eventManager.purgeEventsBefore(cutoff.getMillis(), EventTypeNames.PUBLISHER);
 
         //Purge the Data Source Events
-        cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.AUDIT_EVENT_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.AUDIT_EVENT_PURGE_PERIODS));
+        cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.AUDIT_EVENT_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.AUDIT_EVENT_PURGE_PERIODS_SETTING);
         this.deletedEvents += Common.eventManager.purgeEventsBefore(cutoff.getMillis(), EventTypeNames.AUDIT);
 
         //Purge Alarm Level NONE
-        cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.NONE_ALARM_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.NONE_ALARM_PURGE_PERIODS));
+        cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.NONE_ALARM_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.NONE_ALARM_PURGE_PERIODS_SETTING);
         this.deletedEvents += Common.eventManager.purgeEventsBefore(cutoff.getMillis(),AlarmLevels.NONE);
 
         //Purge Alarm Level INFORMATION
-        cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.INFORMATION_ALARM_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.INFORMATION_ALARM_PURGE_PERIODS));
+        cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.INFORMATION_ALARM_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.INFORMATION_ALARM_PURGE_PERIODS_SETTING);
         this.deletedEvents += Common.eventManager.purgeEventsBefore(cutoff.getMillis(),AlarmLevels.INFORMATION);
 
         //Purge Alarm Level IMPORTANT
-        cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.IMPORTANT_ALARM_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.IMPORTANT_ALARM_PURGE_PERIODS));
+        cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.IMPORTANT_ALARM_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.IMPORTANT_ALARM_PURGE_PERIODS_SETTING);
         this.deletedEvents += Common.eventManager.purgeEventsBefore(cutoff.getMillis(),AlarmLevels.IMPORTANT);
 
         //Purge Alarm Level WARNING
-        cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.WARNING_ALARM_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.WARNING_ALARM_PURGE_PERIODS));
+        cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.WARNING_ALARM_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.WARNING_ALARM_PURGE_PERIODS_SETTING);
         this.deletedEvents += Common.eventManager.purgeEventsBefore(cutoff.getMillis(),AlarmLevels.WARNING);
 
         //Purge Alarm Level URGENT
-        cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.URGENT_ALARM_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.URGENT_ALARM_PURGE_PERIODS));
+        cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.URGENT_ALARM_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.URGENT_ALARM_PURGE_PERIODS_SETTING);
         this.deletedEvents += Common.eventManager.purgeEventsBefore(cutoff.getMillis(),AlarmLevels.URGENT);
 
         //Purge Alarm Level CRITICAL
-        cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.CRITICAL_ALARM_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.CRITICAL_ALARM_PURGE_PERIODS));
+        cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.CRITICAL_ALARM_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.CRITICAL_ALARM_PURGE_PERIODS_SETTING);
         this.deletedEvents += Common.eventManager.purgeEventsBefore(cutoff.getMillis(),AlarmLevels.CRITICAL);
 
         //Purge Alarm Level LIFE_SAFETY
-        cutoff = DateUtils.minus(cutoffTruncated, systemSettingDao.getIntValue(SystemSettingsDao.LIFE_SAFETY_ALARM_PURGE_PERIOD_TYPE),
-                systemSettingDao.getIntValue(SystemSettingsDao.LIFE_SAFETY_ALARM_PURGE_PERIODS));
+        cutoff = purgeCutoff(cutoffTruncated, SystemSettingsDao.LIFE_SAFETY_ALARM_PURGE_PERIOD_TYPE_SETTING,
+                SystemSettingsDao.LIFE_SAFETY_ALARM_PURGE_PERIODS_SETTING);
         this.deletedEvents += Common.eventManager.purgeEventsBefore(cutoff.getMillis(),AlarmLevels.LIFE_SAFETY);
 
         if (this.deletedEvents > 0)
@@ -255,6 +256,10 @@ public class DataPurge {
 
     }
 
+    private DateTime purgeCutoff(DateTime cutoffTruncated, TypedSystemSetting<Integer> periodType, TypedSystemSetting<Integer> periods) {
+        return DateUtils.minus(cutoffTruncated, systemSettingDao.getValue(periodType), systemSettingDao.getValue(periods));
+    }
+
     public long getDeletedSamples() {
         return deletedSamples;
     }
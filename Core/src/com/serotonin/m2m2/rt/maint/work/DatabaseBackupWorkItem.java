@@ -10,6 +10,8 @@ import java.lang.ProcessBuilder.Redirect;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -28,11 +30,18 @@ import org.apache.commons.io.comparator.LastModifiedFileComparator;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
 
+import com.infiniteautomation.mango.db.backup.LogicalDatabaseBackup;
+import com.infiniteautomation.mango.spring.components.RunAs;
+import com.infiniteautomation.mango.spring.service.CachingService;
 import com.serotonin.ShouldNeverHappenException;
 import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.db.DatabaseProxy;
+import com.serotonin.m2m2.db.DatabaseType;
+import com.serotonin.m2m2.db.dao.AbstractVoDao;
 import com.serotonin.m2m2.db.dao.SystemSettingsDao;
+import com.serotonin.m2m2.i18n.ProcessMessage.Level;
 import com.serotonin.m2m2.i18n.ProcessResult;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.rt.event.type.SystemEventType;
@@ -135,7 +144,10 @@ public class DatabaseBackupWorkItem implements WorkItem {
                 filename += runtimeString;
             }
 
-            Path backupFilePath = Paths.get(this.backupLocation).resolve(filename + ".zip").toAbsolutePath().normalize();
+            DatabaseProxy databaseProxy = Common.getBean(DatabaseProxy.class);
+            boolean logical = useLogicalBackup(databaseProxy.getType());
+            String extension = logical ? LogicalDatabaseBackup.FILE_EXTENSION : ".zip";
+            Path backupFilePath = Paths.get(this.backupLocation).resolve(filename + extension).toAbsolutePath().normalize();
             this.filename = backupFilePath.toString();
 
             if(cancelled)
@@ -144,41 +156,45 @@ public class DatabaseBackupWorkItem implements WorkItem {
             // Execute the Backup
             try {
 
-                switch (Common.getBean(DatabaseProxy.class).getType()) {
-                    case H2:
-                        String[] backupScript = new String[] { "SCRIPT DROP TO '" + this.filename + "' COMPRESSION ZIP;" };
-                        try (OutputStream out = Common.getBean(DatabaseProxy.class).createLogOutputStream(this.getClass())) {
-                            Common.getBean(DatabaseProxy.class).runScript(backupScript, out);
-                        }
-                        break;
-                    case MYSQL:
-                        String dumpExePath = Common.envProps.getString("db.mysqldump", "mysqldump");
-                        // Of the form: jdbc:mysql://localhost/mango2712
-                        // or: jdbc:mysql://localhost:3306/sakila?profileSQL=true
-                        String cnxn = Common.envProps.getString("db.url");
-                        String[] parts = cnxn.split("/");
-                        String[] hostPort = parts[2].split(":");
-                        String host = hostPort[0];
-                        String port;
-                        if (hostPort.length > 1)
-                            port = hostPort[1];
-                        else
-                            port = "3306";
-                        String user = Common.envProps.getString("db.username");
-                        String password = Common.getBean(DatabaseProxy.class).getDatabasePassword();
-                        // Split off any extra stuff on the db
-                        String[] dbParts = parts[3].split("\\?");
-                        String database = dbParts[0];
-                        backupMysqlWithOutDatabase(dumpExePath, host, port, user, password, database, backupFilePath, filename);
-                        break;
-                    case DERBY:
-                    case MSSQL:
-                    case POSTGRES:
-                    default:
-                        LOG.warn(
-                                "Unable to backup database, because no script for type: " + Common.getBean(DatabaseProxy.class).getType());
-                        return;
+                if (logical) {
+                    backupLogical(databaseProxy, backupFilePath);
+                } else {
+                    switch (databaseProxy.getType()) {
+                        case H2:
+                            String[] backupScript = new String[] { "SCRIPT DROP TO '" + this.filename + "' COMPRESSION ZIP;" };
+                            try (OutputStream out = Common.getBean(DatabaseProxy.class).createLogOutputStream(this.getClass())) {
+                                Common.getBean(DatabaseProxy.class).runScript(backupScript, out);
+                            }
+                            break;
+                        case MYSQL:
+                            String dumpExePath = Common.envProps.getString("db.mysqldump", "mysqldump");
+                            // Of the form: jdbc:mysql://localhost/mango2712
+                            // or: jdbc:mysql://localhost:3306/sakila?profileSQL=true
+                            String cnxn = Common.envProps.getString("db.url");
+                            String[] parts = cnxn.split("/");
+                            String[] hostPort = parts[2].split(":");
+                            String host = hostPort[0];
+                            String port;
+                            if (hostPort.length > 1)
+                                port = hostPort[1];
+                            else
+                                port = "3306";
+                            String user = Common.envProps.getString("db.username");
+                            String password = Common.getBean(DatabaseProxy.class).getDatabasePassword();
+                            // Split off any extra stuff on the db
+                            String[] dbParts = parts[3].split("\\?");
+                            String database = dbParts[0];
+                            backupMysqlWithOutDatabase(dumpExePath, host, port, user, password, database, backupFilePath, filename);
+                            break;
+                        case DERBY:
+                        case MSSQL:
+                        case POSTGRES:
+                        default:
+                            LOG.warn(
+                                    "Unable to backup database, because no script for type: " + Common.getBean(DatabaseProxy.class).getType());
+                            return;
 
+                    }
                 }
 
                 if (!Files.exists(backupFilePath)) {
@@ -222,6 +238,31 @@ public class DatabaseBackupWorkItem implements WorkItem {
         }
     }
 
+    /**
+     * H2 and MySQL can optionally be backed up using their native tools, all other databases use a logical backup
+     */
+    private static boolean useLogicalBackup(DatabaseType type) {
+        if (type == DatabaseType.H2 || type == DatabaseType.MYSQL) {
+            return Common.envProps.getBoolean("db.backup.logical", true);
+        }
+        return true;
+    }
+
+    /**
+     * Writes the backup to a temporary file which is moved into place on success
+     */
+    private void backupLogical(DatabaseProxy databaseProxy, Path backupFilePath) throws IOException, SQLException {
+        Path tempFile = backupFilePath.resolveSibling(backupFilePath.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                LogicalDatabaseBackup.forDatabase(databaseProxy).backup(out);
+            }
+            Files.move(tempFile, backupFilePath, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
     private void backupFailed(String fullFilePath, String message) {
         SystemEventType.raiseEvent(new SystemEventType(SystemEventType.TYPE_BACKUP_FAILURE),
                 Common.timer.currentTimeMillis(), false, new TranslatableMessage("event.backup.failure",
@@ -318,42 +359,49 @@ public class DatabaseBackupWorkItem implements WorkItem {
             LOG.info("Attempting to restore database backup from: " + fullFilePath);
             try {
 
-                switch (Common.getBean(DatabaseProxy.class).getType()) {
-                    case H2:
-                        String[] backupScript = new String[] { "RUNSCRIPT FROM '" + fullFilePath + "' COMPRESSION ZIP;" };
-                        // TODO Create a stream to print to the result
-                        Common.getBean(DatabaseProxy.class).runScript(backupScript, System.out);
-                        break;
-                    case MYSQL:
-                        String mySqlPath = Common.envProps.getString("db.mysql", "mysql");
-                        // Of the form: jdbc:mysql://localhost/mango2712
-                        // or: jdbc:mysql://localhost:3306/sakila?profileSQL=true
-                        String cnxn = Common.envProps.getString("db.url");
-                        String[] parts = cnxn.split("/");
-                        String[] hostPort = parts[2].split(":");
-                        String host = hostPort[0];
-                        String port;
-                        if (hostPort.length > 1)
-                            port = hostPort[1];
-                        else
-                            port = "3306";
-                        String user = Common.envProps.getString("db.username");
-                        String password = Common.getBean(DatabaseProxy.class).getDatabasePassword();
-                        // Split off any extra stuff on the db
-                        String[] dbParts = parts[3].split("\\?");
-                        String database = dbParts[0];
-                        result.addMessage(restoreMysqlToDatabase(mySqlPath, host, port, user, password, database, fullFilePath));
-                        break;
-                    case DERBY:
-                    case MSSQL:
-
-                    case POSTGRES:
-                    default:
-                        LOG.warn(
-                                "Unable to restore database, because no script for type: " + Common.getBean(DatabaseProxy.class).getType());
-                        result.addMessage(new TranslatableMessage("systemSettings.databaseRestoreNotSupported",
-                                Common.getBean(DatabaseProxy.class).getType()));
-                        return result;
+                if (filename.endsWith(LogicalDatabaseBackup.FILE_EXTENSION)) {
+                    LogicalDatabaseBackup.forDatabase(Common.getBean(DatabaseProxy.class)).restore(file.toPath(), true);
+                    clearCaches();
+                    // data sources, publishers etc. keep running with the configuration loaded at startup
+                    result.addMessage(Level.info, new TranslatableMessage("systemSettings.databaseRestoredRestartRequired"));
+                } else {
+                    switch (Common.getBean(DatabaseProxy.class).getType()) {
+                        case H2:
+                            String[] backupScript = new String[] { "RUNSCRIPT FROM '" + fullFilePath + "' COMPRESSION ZIP;" };
+                            // TODO Create a stream to print to the result
+                            Common.getBean(DatabaseProxy.class).runScript(backupScript, System.out);
+                            break;
+                        case MYSQL:
+                            String mySqlPath = Common.envProps.getString("db.mysql", "mysql");
+                            // Of the form: jdbc:mysql://localhost/mango2712
+                            // or: jdbc:mysql://localhost:3306/sakila?profileSQL=true
+                            String cnxn = Common.envProps.getString("db.url");
+                            String[] parts = cnxn.split("/");
+                            String[] hostPort = parts[2].split(":");
+                            String host = hostPort[0];
+                            String port;
+                            if (hostPort.length > 1)
+                                port = hostPort[1];
+                            else
+                                port = "3306";
+                            String user = Common.envProps.getString("db.username");
+                            String password = Common.getBean(DatabaseProxy.class).getDatabasePassword();
+                            // Split off any extra stuff on the db
+                            String[] dbParts = parts[3].split("\\?");
+                            String database = dbParts[0];
+                            result.addMessage(restoreMysqlToDatabase(mySqlPath, host, port, user, password, database, fullFilePath));
+                            break;
+                        case DERBY:
+                        case MSSQL:
+
+                        case POSTGRES:
+                        default:
+                            LOG.warn(
+                                    "Unable to restore database, because no script for type: " + Common.getBean(DatabaseProxy.class).getType());
+                            result.addMessage(new TranslatableMessage("systemSettings.databaseRestoreNotSupported",
+                                    Common.getBean(DatabaseProxy.class).getType()));
+                            return result;
+                    }
                 }
                 LOG.info("Database backup restore finished");
             } catch (Exception e) {
@@ -369,6 +417,23 @@ public class DatabaseBackupWorkItem implements WorkItem {
         return result;
     }
 
+    /**
+     * Discard the cached VOs and settings which were loaded before the database was restored
+     */
+    private static void clearCaches() {
+        ApplicationContext context = Common.getRuntimeContext();
+        RunAs runAs = context.getBean(RunAs.class);
+        runAs.runAs(runAs.systemSuperadmin(), () -> {
+            for (CachingService service : context.getBeansOfType(CachingService.class).values()) {
+                service.clearCaches(true);
+            }
+        });
+        for (AbstractVoDao<?, ?, ?> dao : context.getBeansOfType(AbstractVoDao.class).values()) {
+            dao.clearCache();
+        }
+        SystemSettingsDao.getInstance().clearCache();
+    }
+
     /*
      * (non-Javadoc)
      *
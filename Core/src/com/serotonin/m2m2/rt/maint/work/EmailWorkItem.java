@@ -3,14 +3,13 @@
  */
 package com.serotonin.m2m2.rt.maint.work;
 
-import java.nio.charset.StandardCharsets;
-
 import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.infiniteautomation.mango.spring.service.MailSenderService;
 import com.serotonin.m2m2.Common;
 import com.serotonin.m2m2.db.dao.SystemSettingsDao;
 import com.serotonin.m2m2.email.MangoEmailContent;
@@ -19,7 +18,6 @@ import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.rt.event.type.SystemEventType;
 import com.serotonin.timer.RejectedTaskReason;
 import com.serotonin.web.mail.EmailContent;
-import com.serotonin.web.mail.EmailSender;
 
 /**
  *
@@ -82,22 +80,13 @@ public class EmailWorkItem implements WorkItem {
         Exception failedEx = null;
         boolean success = true;
         try {
+            // uses cached settings and pooled connections
+            MailSenderService mailSender = Common.getBean(MailSenderService.class);
             if (fromAddress == null) {
-                String addr = SystemSettingsDao.getInstance().getValue(SystemSettingsDao.EMAIL_FROM_ADDRESS);
-                String pretty = SystemSettingsDao.getInstance().getValue(SystemSettingsDao.EMAIL_FROM_NAME);
-                fromAddress = new InternetAddress(addr, pretty, StandardCharsets.UTF_8.name());
+                fromAddress = mailSender.getFromAddress();
             }
 
-            EmailSender emailSender = new EmailSender(
-                    SystemSettingsDao.getInstance().getValue(SystemSettingsDao.EMAIL_SMTP_HOST),
-                    SystemSettingsDao.getInstance().getIntValue(SystemSettingsDao.EMAIL_SMTP_PORT),
-                    SystemSettingsDao.getInstance().getBooleanValue(SystemSettingsDao.EMAIL_AUTHORIZATION),
-                    SystemSettingsDao.getInstance().getValue(SystemSettingsDao.EMAIL_SMTP_USERNAME),
-                    SystemSettingsDao.getInstance().getValue(SystemSettingsDao.EMAIL_SMTP_PASSWORD),
-                    SystemSettingsDao.getInstance().getBooleanValue(SystemSettingsDao.EMAIL_TLS),
-                    SystemSettingsDao.getInstance().getIntValue(SystemSettingsDao.EMAIL_SEND_TIMEOUT));
-
-            emailSender.send(fromAddress, toAddresses, subject, content);
+            mailSender.send(fromAddress, toAddresses, subject, content);
         }
         catch (Exception e) {
             LOG.warn("Error sending email", e);
@@ -5,19 +5,30 @@ package com.serotonin.m2m2.util.log;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.text.SimpleDateFormat;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.output.NullWriter;
 import org.apache.commons.lang3.StringUtils;
@@ -29,11 +40,20 @@ import com.serotonin.m2m2.Common;
 /**
  * Logger and container for tracking all logs.  
  *
+ * <p>Logs which write to a file do so asynchronously, records are formatted on the calling thread and written (and the
+ * file rolled) by the {@link ProcessLogWriter} thread. Use {@link #flush()} to wait for the records to be written.
+ * Logs created with a {@link PrintWriter} write synchronously.</p>
  */
 public class ProcessLog implements Closeable {
     private static final Logger LOG = LoggerFactory.getLogger(ProcessLog.class);
 
-    private static final Object lock = new Object();
+    static final Charset CHARSET = Charset.defaultCharset();
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    // frame 0 is log(), frame 1 is trace(), debug() etc.
+    private static final Function<Stream<StackWalker.StackFrame>, StackWalker.StackFrame> CALLER =
+            frames -> frames.skip(2).findFirst().orElse(null);
+
     private static List<ProcessLog> processLogs = new CopyOnWriteArrayList<ProcessLog>();
 
     public static List<String> getProcessLogIds() {
@@ -61,8 +81,8 @@ public class ProcessLog implements Closeable {
     }
 
     private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss,SSS";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(DATE_FORMAT).withZone(ZoneId.systemDefault());
 
-    protected final SimpleDateFormat sdf = new SimpleDateFormat(DATE_FORMAT);
     protected final String id;
     protected PrintWriter out;
     protected LogLevel logLevel;
@@ -75,6 +95,23 @@ public class ProcessLog implements Closeable {
     protected int maxFiles;
     protected int currentFileNumber;
 
+    //Asynchronous file output, writer and channel are null when writing to a supplied PrintWriter
+    private ProcessLogWriter writer;
+    private volatile FileChannel channel;
+    private volatile boolean closed;
+    private volatile boolean error;
+    private final Object flushMonitor = new Object();
+    //Serializes closing the channel with writes and rolls by the writer thread
+    private final Object channelLock = new Object();
+    private boolean channelClosed;
+    final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    final AtomicInteger dropped = new AtomicInteger();
+    /**
+     * Size of the current file, only accessed by the writer thread (after construction)
+     */
+    long bytesWritten;
+
     /**
      * Shortcut for Null Writer
      */
@@ -145,11 +182,64 @@ public class ProcessLog implements Closeable {
     }
     
     public void close() {
+        if (writer != null) {
+            closed = true;
+            flush();
+            //Records logged concurrently with close are discarded by the writer thread
+            synchronized (channelLock) {
+                channelClosed = true;
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    LOG.error("Error closing process log", e);
+                }
+            }
+        }
         out.close();
         if(!(out instanceof NullPrintWriter))
             processLogs.remove(this);
     }
 
+    /**
+     * Wait until all records logged before this call have been written, or the flush timeout
+     * (processLog.flushTimeout) elapses
+     */
+    public void flush() {
+        if (writer == null) {
+            synchronized (out) {
+                out.flush();
+            }
+            return;
+        }
+
+        if (!flush(writer.getFlushTimeout(), TimeUnit.MILLISECONDS)) {
+            LOG.warn("Timed out waiting for process log " + file + " to be written");
+        }
+    }
+
+    /**
+     * @return true if all records logged before this call were written before the timeout elapsed
+     */
+    boolean flush(long timeout, TimeUnit unit) {
+        long target = enqueued.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (flushMonitor) {
+            while (processed.get() < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    flushMonitor.wait(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     public String getId() {
         return id;
     }
@@ -273,41 +363,97 @@ public class ProcessLog implements Closeable {
     protected void log(String s, Throwable t, LogLevel level) {
         if (level.ordinal() < logLevel.ordinal())
             return;
-        
-        synchronized (lock) {
-            //Check to roll
-            if(roll)
-                sizeCheck();
-            
-            out.append(level.name());
-            out.append(' ');
-            out.append(sdf.format(new Date()));
-            if(includeLocationInfo) {
-                out.append(" (");
-                StackTraceElement e = new RuntimeException().getStackTrace()[2];
-                out.append(e.getClassName()).append('.').append(e.getMethodName()).append(':')
-                        .append(Integer.toString(e.getLineNumber())).append(") - ");
-            }else {
-                out.append(" - ");
+
+        StackWalker.StackFrame location = includeLocationInfo ? WALKER.walk(CALLER) : null;
+        String text = format(s, t, level, location);
+        if (writer != null) {
+            if (!closed)
+                writer.enqueue(new ProcessLogWriter.Record(this, level, text));
+        } else {
+            synchronized (out) {
+                out.append(text);
+                out.flush();
             }
-            
-            out.println(s == null ? "null" : s.toString());
-            if (t != null)
-                t.printStackTrace(out);
-            out.flush();
         }
     }
 
+    /**
+     * Format a record, the builder is sized up front so it is not resized for typical messages
+     */
+    String format(String s, Throwable t, LogLevel level, StackWalker.StackFrame location) {
+        String message = s == null ? "null" : s;
+        StringBuilder builder = new StringBuilder(level.name().length() + DATE_FORMAT.length() + message.length() +
+                (location == null ? 4 : 96) + LINE_SEPARATOR.length());
+
+        builder.append(level.name()).append(' ');
+        FORMATTER.formatTo(Instant.ofEpochMilli(System.currentTimeMillis()), builder);
+        if (location != null) {
+            builder.append(" (").append(location.getClassName()).append('.').append(location.getMethodName())
+                    .append(':').append(location.getLineNumber()).append(") - ");
+        } else {
+            builder.append(" - ");
+        }
+        builder.append(message).append(LINE_SEPARATOR);
+
+        if (t != null) {
+            StringWriter stackTrace = new StringWriter();
+            t.printStackTrace(new PrintWriter(stackTrace));
+            builder.append(stackTrace);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Called by the writer thread once records have been written (or dropped)
+     */
+    void processed(int count) {
+        processed.addAndGet(count);
+        synchronized (flushMonitor) {
+            flushMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Called by the writer thread to write encoded records to the current file
+     */
+    void write(ByteBuffer buffer) {
+        synchronized (channelLock) {
+            if (channelClosed)
+                return;
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                if (!error) {
+                    error = true;
+                    LOG.error("Error writing process log " + file, e);
+                }
+            }
+        }
+    }
+
+    boolean rollRequired() {
+        return roll && bytesWritten > this.fileSize;
+    }
+
     /**
      * Check the size of the log file and perform adjustments
-     * as necessary
+     * as necessary, called by the writer thread before writing a record
      */
     protected void sizeCheck() {
         if(logLevel == LogLevel.NONE)
             return;
-        // Check if the file should be rolled.
-        if (file.length() > this.fileSize) {
-            out.close();
+        // Check if the file should be rolled, unless the log was closed
+        synchronized (channelLock) {
+            if (channelClosed || !rollRequired())
+                return;
+
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
 
             try{
                 //Do rollover
@@ -330,28 +476,41 @@ public class ProcessLog implements Closeable {
                 LOG.error(e.getMessage(), e);
             }
              
-            createOut();
+            openChannel();
         }
     }
     
     /**
-     * Create the Print Writer output
+     * Create the output, file output is written by the {@link ProcessLogWriter}
      */
     protected void createOut() {
-        try {
-            if(logLevel == LogLevel.NONE)
-                out = new PrintWriter(new NullWriter());
-            else
-                out = new PrintWriter(new FileWriter(file, true));
-        }
-        catch (IOException e) {
+        if (logLevel == LogLevel.NONE) {
+            out = new PrintWriter(new NullWriter());
+        } else if (openChannel()) {
+            writer = ProcessLogWriter.getInstance();
+            out = new PrintWriter(new RecordWriter(), true);
+        } else {
             out = new PrintWriter(new NullWriter());
+        }
+    }
+
+    private boolean openChannel() {
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            bytesWritten = channel.size();
+            error = false;
+            return true;
+        } catch (IOException e) {
+            error = true;
             LOG.error("Error while creating process log", e);
+            return false;
         }
     }
     
     public boolean trouble() {
-        synchronized (lock) {
+        if (writer != null)
+            return error;
+        synchronized (out) {
             return out.checkError();
         }
     }
@@ -368,6 +527,35 @@ public class ProcessLog implements Closeable {
         }
     }
     
+    /**
+     * Writes text printed to the {@link #getPrintWriter()} of a file log as is via the writer thread
+     */
+    private class RecordWriter extends Writer {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            write(new String(cbuf, off, len));
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            write(str.substring(off, off + len));
+        }
+
+        @Override
+        public void write(String str) {
+            if (!closed && !str.isEmpty())
+                writer.enqueue(new ProcessLogWriter.Record(ProcessLog.this, LogLevel.INFO, str));
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     /**
      * Class to filter log filenames from a directory listing
      * @author Terry Packer
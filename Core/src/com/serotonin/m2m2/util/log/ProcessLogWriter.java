@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.util.log;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.serotonin.m2m2.Common;
+
+/**
+ * Single background thread which writes the records of all file based {@link ProcessLog}s. Callers enqueue formatted
+ * records into a bounded ring, the writer drains them in batches, encodes them into a direct buffer and writes them to
+ * the log's {@link java.nio.channels.FileChannel}. Files are rolled on this thread so callers never stat or rename files.
+ */
+final class ProcessLogWriter implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProcessLogWriter.class);
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * What to do when a record is logged and the queue is full
+     */
+    enum OverflowPolicy {
+        /**
+         * Block the logging thread until there is space in the queue
+         */
+        BLOCK,
+        /**
+         * Discard TRACE and DEBUG records, block for all other levels
+         */
+        DROP_DEBUG,
+        /**
+         * Discard the oldest queued records to make space
+         */
+        DROP_OLDEST
+    }
+
+    static final class Record {
+        final ProcessLog log;
+        final LogLevel level;
+        final String text;
+
+        Record(ProcessLog log, LogLevel level, String text) {
+            this.log = log;
+            this.level = level;
+            this.text = text;
+        }
+    }
+
+    private static volatile ProcessLogWriter instance;
+
+    static ProcessLogWriter getInstance() {
+        ProcessLogWriter writer = instance;
+        if (writer == null) {
+            synchronized (ProcessLogWriter.class) {
+                writer = instance;
+                if (writer == null) {
+                    writer = new ProcessLogWriter(
+                            Common.envProps.getInt("processLog.queueSize", 8192),
+                            OverflowPolicy.valueOf(Common.envProps.getString("processLog.overflowPolicy", OverflowPolicy.BLOCK.name())),
+                            Common.envProps.getLong("processLog.flushTimeout", 30000));
+                    Thread thread = new Thread(writer, "Process log writer");
+                    thread.setDaemon(true);
+                    thread.start();
+                    instance = writer;
+                }
+            }
+        }
+        return writer;
+    }
+
+    private final BlockingQueue<Record> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final long flushTimeout;
+
+    // only accessed by the writer thread
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final CharsetEncoder encoder = ProcessLog.CHARSET.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ProcessLog current;
+
+    ProcessLogWriter(int queueSize, OverflowPolicy overflowPolicy) {
+        this(queueSize, overflowPolicy, 30000);
+    }
+
+    /**
+     * @param flushTimeout maximum time in ms that {@link ProcessLog#flush()} waits for queued records to be written
+     */
+    ProcessLogWriter(int queueSize, OverflowPolicy overflowPolicy, long flushTimeout) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.overflowPolicy = overflowPolicy;
+        this.flushTimeout = flushTimeout;
+    }
+
+    long getFlushTimeout() {
+        return flushTimeout;
+    }
+
+    /**
+     * Enqueue a record according to the overflow policy. Dropped records are counted as processed so that
+     * {@link ProcessLog#flush()} does not wait for them.
+     */
+    void enqueue(Record record) {
+        record.log.enqueued.incrementAndGet();
+        try {
+            switch (overflowPolicy) {
+                case DROP_DEBUG:
+                    if (record.level.ordinal() <= LogLevel.DEBUG.ordinal()) {
+                        if (!queue.offer(record)) {
+                            dropped(record);
+                        }
+                    } else {
+                        queue.put(record);
+                    }
+                    break;
+                case DROP_OLDEST:
+                    while (!queue.offer(record)) {
+                        Record oldest = queue.poll();
+                        if (oldest != null) {
+                            dropped(oldest);
+                        }
+                    }
+                    break;
+                case BLOCK:
+                default:
+                    queue.put(record);
+                    break;
+            }
+        } catch (InterruptedException e) {
+            dropped(record);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dropped(Record record) {
+        record.log.dropped.incrementAndGet();
+        record.log.processed(1);
+    }
+
+    @Override
+    public void run() {
+        List<Record> batch = new ArrayList<>(BATCH_SIZE);
+        Map<ProcessLog, Integer> counts = new IdentityHashMap<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+
+                for (Record record : batch) {
+                    write(record);
+                }
+                drain();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOG.error("Error writing process logs", e);
+            } finally {
+                // records which could not be written are counted too, so that flush() does not wait for them
+                for (Record record : batch) {
+                    counts.merge(record.log, 1, Integer::sum);
+                }
+                for (Map.Entry<ProcessLog, Integer> entry : counts.entrySet()) {
+                    entry.getKey().processed(entry.getValue());
+                }
+                batch.clear();
+                counts.clear();
+            }
+        }
+    }
+
+    private void write(Record record) {
+        ProcessLog log = record.log;
+        if (current != log) {
+            drain();
+            current = log;
+        }
+        if (log.rollRequired()) {
+            drain();
+            log.sizeCheck();
+        }
+
+        int dropped = log.dropped.getAndSet(0);
+        if (dropped > 0) {
+            encode(log, log.format("Dropped " + dropped + " log messages, the process log queue is full",
+                    null, LogLevel.WARN, null));
+        }
+        encode(log, record.text);
+    }
+
+    private void encode(ProcessLog log, String text) {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        while (true) {
+            int start = buffer.position();
+            CoderResult result = encoder.encode(chars, buffer, true);
+            log.bytesWritten += buffer.position() - start;
+            if (result.isOverflow()) {
+                drain();
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Write the buffered bytes to the channel of the current log
+     */
+    private void drain() {
+        buffer.flip();
+        try {
+            if (current != null && buffer.hasRemaining()) {
+                current.write(buffer);
+            }
+        } finally {
+            buffer.clear();
+        }
+    }
+}
@@ -25,7 +25,7 @@ import com.serotonin.m2m2.rt.dataImage.PointValueTime;
 import com.serotonin.m2m2.rt.dataImage.types.DataValue;
 import com.serotonin.m2m2.view.ImplDefinition;
 
-abstract public class BaseTextRenderer implements TextRenderer, JsonSerializable {
+abstract public class BaseTextRenderer implements TextRenderer, JsonSerializable, Cloneable {
     static List<ImplDefinition> definitions;
 
     static void ensureDefinitions() {
@@ -172,6 +172,15 @@ abstract public class BaseTextRenderer implements TextRenderer, JsonSerializable
         // no op. The type value is used by the factory.
     }
 
+    @Override
+    public BaseTextRenderer copy() {
+        try {
+            return (BaseTextRenderer) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new ShouldNeverHappenException(e);
+        }
+    }
+
     public static class Resolver implements TypeResolver {
         @Override
         public Type resolve(JsonValue jsonValue) throws JsonException {
@@ -45,6 +45,16 @@ public class MultistateRenderer extends BaseTextRenderer {
         this.multistateValues = multistateValues;
     }
 
+    @Override
+    public MultistateRenderer copy() {
+        MultistateRenderer copy = (MultistateRenderer) super.copy();
+        copy.multistateValues = new ArrayList<>(multistateValues.size());
+        for (MultistateValue mv : multistateValues) {
+            copy.multistateValues.add(new MultistateValue(mv.getKey(), mv.getText(), mv.getColour()));
+        }
+        return copy;
+    }
+
     @Override
     protected String getTextImpl(DataValue value, int hint, Locale locale) {
         if (!(value instanceof com.serotonin.m2m2.rt.dataImage.types.MultistateValue))
@@ -74,6 +74,18 @@ public class RangeRenderer extends ConvertingRenderer {
         this.rangeValues.sort(null);
     }
 
+    @Override
+    public RangeRenderer copy() {
+        RangeRenderer copy = (RangeRenderer) super.copy();
+        if (rangeValues != null) {
+            copy.rangeValues = new ArrayList<>(rangeValues.size());
+            for (RangeValue rv : rangeValues) {
+                copy.rangeValues.add(new RangeValue(rv.getFrom(), rv.getTo(), rv.getText(), rv.getColour()));
+            }
+        }
+        return copy;
+    }
+
     public String getFormat() {
         return format;
     }
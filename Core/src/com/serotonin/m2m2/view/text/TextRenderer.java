@@ -12,6 +12,7 @@ import com.serotonin.m2m2.i18n.ProcessResult;
 import com.serotonin.m2m2.rt.dataImage.PointValueTime;
 import com.serotonin.m2m2.rt.dataImage.types.DataValue;
 import com.serotonin.m2m2.view.ImplDefinition;
+import com.serotonin.util.SerializationHelper;
 
 public interface TextRenderer extends Serializable {
 
@@ -100,5 +101,13 @@ public interface TextRenderer extends Serializable {
     default Locale getLocale() {
         return Common.getUser().getLocaleObject();
     }
-    
+
+    /**
+     * Copy the renderer, the copy must not share any mutable state with this renderer. The default implementation
+     * copies via serialization, renderers should override it with a cheaper copy.
+     */
+    default TextRenderer copy() {
+        return (TextRenderer) SerializationHelper.readObjectInContextFromArray(SerializationHelper.writeObjectToArray(this));
+    }
+
 }
@@ -37,6 +37,11 @@ public class MockPointLocatorVO extends AbstractPointLocatorVO<MockPointLocatorV
 
     public MockPointLocatorVO() {}
 
+    @Override
+    public MockPointLocatorVO copy() {
+        return new MockPointLocatorVO(dataType, settable);
+    }
+
     @Override
     public DataType getDataType() {
         return this.dataType;
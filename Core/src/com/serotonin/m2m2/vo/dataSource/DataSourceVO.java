@@ -8,6 +8,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,7 @@ import com.serotonin.m2m2.rt.event.type.DataSourceEventType;
 import com.serotonin.m2m2.rt.event.type.DuplicateHandling;
 import com.serotonin.m2m2.util.ExportCodes;
 import com.serotonin.m2m2.vo.AbstractActionVO;
+import com.serotonin.m2m2.vo.AbstractVO;
 import com.serotonin.m2m2.vo.DataPointVO;
 import com.serotonin.m2m2.vo.DataPointVO.PurgeTypes;
 import com.serotonin.m2m2.vo.event.EventTypeVO;
@@ -132,6 +134,20 @@ abstract public class DataSourceVO extends AbstractActionVO {
         alarmLevels.put(eventId, level);
     }
 
+    /**
+     * @return the alarm levels which have been set, keyed by event id
+     */
+    public Map<Integer, AlarmLevels> getAlarmLevels() {
+        return Collections.unmodifiableMap(alarmLevels);
+    }
+
+    @Override
+    public AbstractVO copy() {
+        DataSourceVO copy = (DataSourceVO) super.copy();
+        copy.alarmLevels = new HashMap<>(alarmLevels);
+        return copy;
+    }
+
     public AlarmLevels getAlarmLevel(int eventId, AlarmLevels defaultLevel) {
         AlarmLevels level = alarmLevels.get(eventId);
         if (level == null)
@@ -8,6 +8,7 @@ import java.io.Serializable;
 import com.serotonin.m2m2.DataType;
 import com.serotonin.m2m2.i18n.TranslatableMessage;
 import com.serotonin.m2m2.rt.dataSource.PointLocatorRT;
+import com.serotonin.util.SerializationHelper;
 
 public interface PointLocatorVO<VO extends PointLocatorVO<VO>> extends Serializable {
     /**
@@ -44,4 +45,13 @@ public interface PointLocatorVO<VO extends PointLocatorVO<VO>> extends Serializa
      * @return the type of data source to look up its definition
      */
     String getDataSourceType();
+
+    /**
+     * Copy the locator, the copy must not share any mutable state with this locator. The default implementation
+     * copies via serialization, locators should override it with a cheaper copy.
+     */
+    @SuppressWarnings("unchecked")
+    default VO copy() {
+        return (VO) SerializationHelper.readObjectInContextFromArray(SerializationHelper.writeObjectToArray(this));
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.m2m2.vo.systemSettings;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.serotonin.m2m2.db.dao.SystemSettingsDao;
+
+/**
+ * Declares the type, default value and validator of a system setting. The parsed value is cached by the
+ * {@link SystemSettingsDao} and can be read through a live supplier, see
+ * {@link SystemSettingsDao#getSupplier(TypedSystemSetting)}.
+ *
+ * <p>Settings are compared by identity, declare them as constants.</p>
+ *
+ * @param <T> value type
+ */
+public final class TypedSystemSetting<T> {
+
+    /**
+     * Parses the stored string value of a setting
+     */
+    @FunctionalInterface
+    public interface Parser<T> {
+        T parse(String value, ObjectMapper mapper) throws Exception;
+    }
+
+    private final String key;
+    private final Parser<T> parser;
+    private final T defaultValue;
+    private final Predicate<? super T> validator;
+
+    private TypedSystemSetting(String key, Parser<T> parser, T defaultValue, Predicate<? super T> validator) {
+        this.key = Objects.requireNonNull(key);
+        this.parser = Objects.requireNonNull(parser);
+        this.defaultValue = defaultValue;
+        this.validator = Objects.requireNonNull(validator);
+    }
+
+    public static TypedSystemSetting<Integer> intSetting(String key, int defaultValue) {
+        return intSetting(key, defaultValue, v -> true);
+    }
+
+    public static TypedSystemSetting<Integer> intSetting(String key, int defaultValue, Predicate<? super Integer> validator) {
+        return new TypedSystemSetting<>(key, (value, mapper) -> Integer.parseInt(value), defaultValue, validator);
+    }
+
+    public static TypedSystemSetting<Boolean> booleanSetting(String key, boolean defaultValue) {
+        return new TypedSystemSetting<>(key, (value, mapper) -> SystemSettingsDao.parseBoolean(value), defaultValue, v -> true);
+    }
+
+    public static TypedSystemSetting<String> stringSetting(String key, String defaultValue) {
+        return new TypedSystemSetting<>(key, (value, mapper) -> value, defaultValue, v -> true);
+    }
+
+    /**
+     * Setting stored as JSON, deserialized using the Jackson DAO mapper
+     */
+    public static <T> TypedSystemSetting<T> jsonSetting(String key, Class<T> type, T defaultValue) {
+        return new TypedSystemSetting<>(key, (value, mapper) -> mapper.readValue(value, type), defaultValue, v -> true);
+    }
+
+    /**
+     * Setting stored as JSON, deserialized using the Jackson DAO mapper
+     */
+    public static <T> TypedSystemSetting<T> jsonSetting(String key, TypeReference<T> type, T defaultValue) {
+        return new TypedSystemSetting<>(key, (value, mapper) -> mapper.readValue(value, type), defaultValue, v -> true);
+    }
+
+    /**
+     * Setting with a custom parser
+     */
+    public static <T> TypedSystemSetting<T> create(String key, Parser<T> parser, T defaultValue, Predicate<? super T> validator) {
+        return new TypedSystemSetting<>(key, parser, defaultValue, validator);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public T getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * @param value stored value, null if the setting is not stored
+     * @return the parsed value, or the default value if the setting is not stored, can't be parsed or is invalid
+     */
+    public T parse(String value, ObjectMapper mapper) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            T parsed = parser.parse(value, mapper);
+            return parsed != null && validator.test(parsed) ? parsed : defaultValue;
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TypedSystemSetting{key='" + key + "'}";
+    }
+}
@@ -59,10 +59,11 @@ public class MangoRootWebContextConfiguration {
     @Bean
     @Primary
     public MangoSessionDataStore sessionDataStore(@Value("${sessionCookie.persistent:true}") boolean persistentSessions,
+                                                  @Value("${sessionCookie.cacheSize:10000}") long cacheSize,
                                                   ApplicationContext applicationContext) {
         if (persistentSessions) {
             MangoSessionDataStore delegate = applicationContext.getBean(MangoJdbcSessionDataStore.class);
-            return new MangoCachingSessionDataStore(new MangoSessionDataMap(), delegate);
+            return new MangoCachingSessionDataStore(new MangoSessionDataMap(cacheSize), delegate);
         } else {
             return new NullMangoSessionDataStore();
         }
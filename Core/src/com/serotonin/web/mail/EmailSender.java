@@ -24,21 +24,29 @@ public class EmailSender {
 
     public EmailSender(String host, int port, boolean useAuth, String userName, String password, boolean tls, int timeout) {
         senderImpl = new JavaMailSenderImpl();
-        Properties props = new Properties();
         if (useAuth) {
-            props.put("mail.smtp.auth", "true");
             senderImpl.setUsername(userName);
             senderImpl.setPassword(password);
         }
+        senderImpl.setJavaMailProperties(createProperties(useAuth, tls, timeout));
+        senderImpl.setHost(host);
+        if (port != -1)
+            senderImpl.setPort(port);
+    }
+
+    /**
+     * @return JavaMail session properties for the SMTP settings
+     */
+    public static Properties createProperties(boolean useAuth, boolean tls, int timeout) {
+        Properties props = new Properties();
+        if (useAuth)
+            props.put("mail.smtp.auth", "true");
         if (tls)
             props.put("mail.smtp.starttls.enable", "true");
         props.put("mail.smtp.connectiontimeout", Integer.toString(timeout));
         props.put("mail.smtp.timeout", Integer.toString(timeout));
         props.put("mail.smtp.writetimeout", Integer.toString(timeout));
-        senderImpl.setJavaMailProperties(props);
-        senderImpl.setHost(host);
-        if (port != -1)
-            senderImpl.setPort(port);
+        return props;
     }
 
     //
@@ -129,6 +137,12 @@ public class EmailSender {
     public MimeMessagePreparator createPreparator(final InternetAddress from, final InternetAddress replyTo,
             final InternetAddress[] to, final InternetAddress[] cc, final InternetAddress[] bcc, final String subject,
             final EmailContent content) throws MailException {
+        return preparator(from, replyTo, to, cc, bcc, subject, content);
+    }
+
+    public static MimeMessagePreparator preparator(final InternetAddress from, final InternetAddress replyTo,
+            final InternetAddress[] to, final InternetAddress[] cc, final InternetAddress[] bcc, final String subject,
+            final EmailContent content) throws MailException {
         return new MimeMessagePreparator() {
             @Override
             public void prepare(MimeMessage mimeMessage) throws Exception {
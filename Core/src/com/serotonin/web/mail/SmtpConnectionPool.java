@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2021 Radix IoT LLC. All rights reserved.
+ */
+package com.serotonin.web.mail;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+
+/**
+ * Keeps SMTP connections open between sends so that each message does not require a new connection (and TLS
+ * handshake). Several messages may be sent over a connection in one call, and up to maxConnections messages may be sent
+ * concurrently. Connections which have been idle for longer than the idle timeout are closed and reopened.
+ */
+public class SmtpConnectionPool implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(SmtpConnectionPool.class);
+
+    private final Session session;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final long idleTimeoutNanos;
+    private final long acquireTimeoutMillis;
+
+    private final Semaphore permits;
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param port -1 for default port
+     * @param timeout socket timeouts (ms), also the maximum time to wait for a free connection
+     * @param maxConnections maximum number of open connections
+     * @param idleTimeoutMillis connections idle for longer than this are not reused
+     */
+    public SmtpConnectionPool(String host, int port, boolean useAuth, String username, String password, boolean tls,
+                              int timeout, int maxConnections, long idleTimeoutMillis) {
+        this.session = Session.getInstance(EmailSender.createProperties(useAuth, tls, timeout));
+        this.host = host;
+        this.port = port;
+        this.username = useAuth ? username : null;
+        this.password = useAuth ? password : null;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.acquireTimeoutMillis = timeout;
+        this.permits = new Semaphore(Math.max(1, maxConnections), true);
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private long lastUsed;
+        // false once the connection has been used, failures on used connections are retried on a new connection
+        private boolean fresh = true;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsed = System.nanoTime();
+        }
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public void send(MimeMessagePreparator preparator) throws MailSendException {
+        send(Collections.singletonList(preparator));
+    }
+
+    /**
+     * Send the messages over a single pooled connection.
+     *
+     * @throws MailSendException containing the failed messages if any failed to send (including messages which
+     * could not be sent because a connection could not be opened), messages after a failed message are still sent
+     */
+    public void send(List<MimeMessagePreparator> preparators) throws MailSendException {
+        List<MimeMessage> messages = new ArrayList<>(preparators.size());
+        for (MimeMessagePreparator preparator : preparators) {
+            try {
+                MimeMessage message = new MimeMessage(session);
+                preparator.prepare(message);
+                message.saveChanges();
+                messages.add(message);
+            } catch (Exception e) {
+                throw new MailPreparationException(e);
+            }
+        }
+
+        acquirePermit();
+        try {
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            PooledTransport pooled = null;
+            try {
+                for (MimeMessage message : messages) {
+                    if (pooled == null) {
+                        try {
+                            pooled = borrow();
+                        } catch (MailException e) {
+                            // could not connect, try again for the next message
+                            failed.put(message, e);
+                            continue;
+                        }
+                    }
+                    boolean reused = !pooled.fresh;
+                    try {
+                        pooled.transport.sendMessage(message, message.getAllRecipients());
+                        pooled.fresh = false;
+                        messagesSent.incrementAndGet();
+                    } catch (javax.mail.SendFailedException e) {
+                        // rejected recipients, connection is still usable
+                        failed.put(message, e);
+                    } catch (MessagingException e) {
+                        closeQuietly(pooled);
+                        pooled = null;
+                        if (reused) {
+                            // server may have dropped an idle connection, retry once on a new connection
+                            try {
+                                pooled = borrowNew();
+                                pooled.transport.sendMessage(message, message.getAllRecipients());
+                                pooled.fresh = false;
+                                messagesSent.incrementAndGet();
+                                continue;
+                            } catch (MessagingException retryException) {
+                                closeQuietly(pooled);
+                                pooled = null;
+                                e = retryException;
+                            }
+                        }
+                        failed.put(message, e);
+                    }
+                }
+            } finally {
+                if (pooled != null) {
+                    release(pooled);
+                }
+            }
+
+            if (!failed.isEmpty()) {
+                throw new MailSendException(failed);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquirePermit() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MailSendException("Timeout waiting for SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted waiting for SMTP connection", e);
+        }
+    }
+
+    private PooledTransport borrow() {
+        PooledTransport pooled;
+        long now = System.nanoTime();
+        while ((pooled = idle.pollFirst()) != null) {
+            if (now - pooled.lastUsed < idleTimeoutNanos && pooled.transport.isConnected()) {
+                pooled.fresh = false;
+                return pooled;
+            }
+            closeQuietly(pooled);
+        }
+        try {
+            return borrowNew();
+        } catch (MessagingException e) {
+            throw toMailException(e);
+        }
+    }
+
+    private PooledTransport borrowNew() throws MessagingException {
+        Transport transport = session.getTransport("smtp");
+        transport.connect(host, port, username, password);
+        connectionsOpened.incrementAndGet();
+        return new PooledTransport(transport);
+    }
+
+    private void release(PooledTransport pooled) {
+        if (closed) {
+            closeQuietly(pooled);
+            return;
+        }
+        pooled.lastUsed = System.nanoTime();
+        idle.offerFirst(pooled);
+    }
+
+    private static MailException toMailException(MessagingException e) {
+        if (e instanceof javax.mail.AuthenticationFailedException) {
+            return new MailAuthenticationException(e);
+        }
+        return new MailSendException("Failed to connect to SMTP server", e);
+    }
+
+    private void closeQuietly(PooledTransport pooled) {
+        if (pooled == null) {
+            return;
+        }
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Error closing SMTP connection", e);
+            }
+        }
+    }
+
+    /**
+     * @return number of connections opened since the pool was created
+     */
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    /**
+     * @return number of messages successfully sent
+     */
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    /**
+     * Closes idle connections, connections currently in use are closed when released.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+}